@@ -0,0 +1,45 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Shared setup for the benchmarks.
+ */
+final class BenchmarkSupport
+{
+	/** name of the prompt properties resource */
+	static final String PROPERTIES_NAME = "nickelplate_text.properties";
+
+	/** no instances */
+	private BenchmarkSupport()
+	{
+		super();
+	}
+
+	/**
+	 * Production prompters usually read an external properties file, so the
+	 * copy bundled in the application jar is written out to a temporary file
+	 * for the benchmarks to load.
+	 * @return String of the temporary properties file name
+	 * @throws IOException
+	 */
+	static String extractProperties() throws IOException
+	{
+		Path file = Files.createTempFile("nickelplate_text", ".properties");
+		file.toFile().deleteOnExit();
+		try (InputStream in = BenchmarkSupport.class.getClassLoader().getResourceAsStream(PROPERTIES_NAME))
+		{
+			if (in == null)
+				throw new IOException("Resource not found: " + PROPERTIES_NAME);
+			Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file.toString();
+	}
+}
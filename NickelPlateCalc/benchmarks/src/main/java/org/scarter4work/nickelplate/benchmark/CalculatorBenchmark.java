@@ -0,0 +1,151 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scarter4work.nickelplate.calc.Calculator;
+import org.scarter4work.nickelplate.calc.ColumnarCalculator;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Measures each Calculator step, the stateless PlatingMath API and the
+ * columnar calculator over a block of rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CalculatorBenchmark
+{
+	/** rows in the columnar block */
+	private static final int BLOCK_SIZE = 1024;
+
+	/** calculator with a typical work order */
+	private Calculator calculator;
+
+	/** columnar calculator filled with the same work order */
+	private ColumnarCalculator columnar;
+
+	/** start weight */
+	private double startWeight = 102.3;
+	/** width */
+	private double width = 4.5;
+	/** length */
+	private double length = 6.25;
+	/** number of sides */
+	private double nbrSides = 2;
+	/** number of pieces */
+	private double nbrPieces = 12;
+	/** selection */
+	private double selection = 1;
+	/** final weight */
+	private double finalWeight = 102.9;
+
+	/** sets up the calculators */
+	@Setup
+	public void setup()
+	{
+		this.calculator = new Calculator();
+		this.calculator.setStartWeight(this.startWeight);
+		this.calculator.setWidth(this.width);
+		this.calculator.setLength(this.length);
+		this.calculator.setNbrSidesPlated(this.nbrSides);
+		this.calculator.setNbrPieces(this.nbrPieces);
+		this.calculator.setSelection(this.selection);
+		this.calculator.setFinalWeight(this.finalWeight);
+		this.calculator.calculateSurfaceAreas();
+		this.calculator.calculateCurrentValues();
+
+		this.columnar = new ColumnarCalculator(BLOCK_SIZE);
+		for (int i = 0; i < BLOCK_SIZE; i++)
+		{
+			this.columnar.getStartWeight()[i] = this.startWeight;
+			this.columnar.getWidth()[i] = this.width + i;
+			this.columnar.getLength()[i] = this.length;
+			this.columnar.getNbrSidesPlated()[i] = this.nbrSides;
+			this.columnar.getNbrPieces()[i] = this.nbrPieces;
+			this.columnar.getSelection()[i] = this.selection;
+			this.columnar.getFinalWeight()[i] = this.finalWeight;
+		}
+	}
+
+	/**
+	 * @return Double of the total surface area
+	 */
+	@Benchmark
+	public Double calculateSurfaceAreas()
+	{
+		this.calculator.calculateSurfaceAreas();
+		return this.calculator.getTotalSurfaceArea();
+	}
+
+	/**
+	 * @return Double of the total amp hours
+	 */
+	@Benchmark
+	public Double calculateCurrentValues()
+	{
+		this.calculator.calculateCurrentValues();
+		return this.calculator.getTotalAmpHoursUsed();
+	}
+
+	/**
+	 * @return Double of the thickness per side
+	 */
+	@Benchmark
+	public Double calculateNickelThickness()
+	{
+		this.calculator.calculateNickelThickness();
+		return this.calculator.getThicknessPerSide();
+	}
+
+	/**
+	 * @return PlatingResult of a full stateless calculation
+	 */
+	@Benchmark
+	public PlatingResult platingMathCalculate()
+	{
+		return PlatingMath.calculate(this.startWeight, this.width, this.length,
+				this.nbrSides, this.nbrPieces, this.selection, this.finalWeight);
+	}
+
+	/**
+	 * @return double [] of the thickness column for a full block
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public double [] columnarBlock()
+	{
+		this.columnar.calculate(BLOCK_SIZE);
+		return this.columnar.getThicknessPerSide();
+	}
+
+	/**
+	 * Same block in a JVM with the Vector API module loaded, so the
+	 * ColumnarCalculator runs its explicit vector loops.
+	 * @return double [] of the thickness column for a full block
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+	public double [] columnarBlockVector()
+	{
+		this.columnar.calculate(BLOCK_SIZE);
+		return this.columnar.getThicknessPerSide();
+	}
+}
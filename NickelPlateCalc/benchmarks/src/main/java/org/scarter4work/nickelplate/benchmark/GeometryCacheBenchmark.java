@@ -0,0 +1,87 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scarter4work.nickelplate.calc.GeometryCache;
+import org.scarter4work.nickelplate.calc.GeometryResult;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Compares a geometry cache hit against calculating the geometry values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeometryCacheBenchmark
+{
+	/** number of distinct part geometries */
+	private static final int GEOMETRIES = 256;
+
+	/** cache warmed with every geometry */
+	private GeometryCache cache;
+
+	/** widths of the geometries */
+	private double [] widths = new double[GEOMETRIES];
+
+	/** next geometry to look up */
+	private int next;
+
+	/** fills the cache */
+	@Setup
+	public void setup()
+	{
+		this.cache = new GeometryCache();
+		for (int i = 0; i < GEOMETRIES; i++)
+		{
+			this.widths[i] = 1 + i * 0.25;
+			this.cache.get(this.widths[i], 6.25, 2, 12, 1);
+		}
+	}
+
+	/**
+	 * @return GeometryResult from the cache
+	 */
+	@Benchmark
+	public GeometryResult cacheHit()
+	{
+		double width = this.widths[this.next++ & (GEOMETRIES - 1)];
+		return this.cache.get(width, 6.25, 2, 12, 1);
+	}
+
+	/**
+	 * @return GeometryResult calculated directly
+	 */
+	@Benchmark
+	public GeometryResult calculate()
+	{
+		double width = this.widths[this.next++ & (GEOMETRIES - 1)];
+		return new GeometryResult(width, 6.25, 2, 12, 1);
+	}
+
+	/**
+	 * @return PlatingResult completed from a cache hit
+	 */
+	@Benchmark
+	public PlatingResult cachedPlatingResult()
+	{
+		double width = this.widths[this.next++ & (GEOMETRIES - 1)];
+		return PlatingMath.calculate(this.cache.get(width, 6.25, 2, 12, 1), 102.3, 102.9);
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scarter4work.nickelplate.calc.Calculator;
+import org.scarter4work.nickelplate.metrics.LatencyHistogram;
+import org.scarter4work.nickelplate.prompter.ConsolePrompter;
+import org.scarter4work.nickelplate.prompter.OutputEnum;
+
+/**
+ * Measures the cost of the calculation metrics.  The same three calculation
+ * steps and summary rendering run with metrics on as they are by default,
+ * with metrics turned off by system property, and with metrics on under a
+ * flight recording, each in its own JVM.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark
+{
+	/** calculator with a typical work order */
+	private Calculator calculator;
+
+	/** prompter loaded from the bundled properties */
+	private ConsolePrompter prompter;
+
+	/** reusable output buffer */
+	private StringBuilder buffer = new StringBuilder(512);
+
+	/** histogram recorded into directly */
+	private LatencyHistogram histogram = new LatencyHistogram();
+
+	/** value recorded into the histogram */
+	private long latency = 1234;
+
+	/**
+	 * Sets up the calculator and prompter.
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException
+	{
+		this.prompter = new ConsolePrompter(BenchmarkSupport.extractProperties());
+		this.calculator = new Calculator();
+		this.calculator.setStartWeight(102.3);
+		this.calculator.setWidth(4.5);
+		this.calculator.setLength(6.25);
+		this.calculator.setNbrSidesPlated(2.0);
+		this.calculator.setNbrPieces(12.0);
+		this.calculator.setSelection(1.0);
+		this.calculator.setFinalWeight(102.9);
+	}
+
+	/**
+	 * @return StringBuilder holding the rendered summary
+	 */
+	@Benchmark
+	@Fork(1)
+	public StringBuilder instrumented()
+	{
+		return this.calculateAndRender();
+	}
+
+	/**
+	 * @return StringBuilder holding the rendered summary
+	 */
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Dnickelplate.metrics.enabled=false")
+	public StringBuilder uninstrumented()
+	{
+		return this.calculateAndRender();
+	}
+
+	/**
+	 * @return StringBuilder holding the rendered summary
+	 */
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-XX:StartFlightRecording=disk=false,settings=profile")
+	public StringBuilder instrumentedWithRecording()
+	{
+		return this.calculateAndRender();
+	}
+
+	/**
+	 * @return LatencyHistogram recorded into
+	 */
+	@Benchmark
+	public LatencyHistogram histogramRecord()
+	{
+		this.histogram.record(this.latency);
+		return this.histogram;
+	}
+
+	/**
+	 * Runs the three calculation steps and renders the summary.
+	 * @return StringBuilder holding the rendered summary
+	 */
+	private StringBuilder calculateAndRender()
+	{
+		this.calculator.calculateSurfaceAreas();
+		this.calculator.calculateCurrentValues();
+		this.calculator.calculateNickelThickness();
+		this.buffer.setLength(0);
+		return this.prompter.appendOutput(this.buffer, OutputEnum.SUMMARY,
+				this.calculator.getTotalAmpsUsed(), this.calculator.getTotalAmpHoursUsed(),
+				this.calculator.getNbrSidesPlated(), this.calculator.getNbrPieces(),
+				this.calculator.getWidth(), this.calculator.getLength(),
+				this.calculator.getTotalSurfaceArea(), this.calculator.getThicknessPerSide());
+	}
+}
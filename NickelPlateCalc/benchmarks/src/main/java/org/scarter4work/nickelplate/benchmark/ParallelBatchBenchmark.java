@@ -0,0 +1,83 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scarter4work.nickelplate.batch.BatchProcessor;
+import org.scarter4work.nickelplate.batch.ParallelBatchProcessor;
+
+/**
+ * Measures how batch throughput scales with the number of worker threads.
+ * A parallelism of 0 runs the sequential processor as the reference.  Rows
+ * above the machine's core count only show the cost of oversubscription.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelBatchBenchmark
+{
+	/** number of work orders in the input */
+	private static final int RECORDS = 100_000;
+
+	/** worker threads, 0 for the sequential processor */
+	@Param({"0", "1", "2", "4", "8"})
+	private int parallelism;
+
+	/** work order file contents */
+	private String input;
+
+	/** builds the work order input */
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(42);
+		StringBuilder text = new StringBuilder(RECORDS * 64);
+		for (int i = 0; i < RECORDS; i++)
+		{
+			double start = 50 + random.nextDouble() * 100;
+			text.append(start).append(',')
+				.append(1 + random.nextInt(24)).append(',')
+				.append(1 + random.nextInt(24)).append(',')
+				.append(1 + random.nextInt(2)).append(',')
+				.append(1 + random.nextInt(20)).append(',')
+				.append(1 + random.nextInt(2)).append(',')
+				.append(start + random.nextDouble() * 0.5).append('\n');
+		}
+		this.input = text.toString();
+	}
+
+	/**
+	 * @return long of the records processed
+	 * @throws IOException
+	 */
+	@Benchmark
+	public long process() throws IOException
+	{
+		if (this.parallelism == 0)
+			return new BatchProcessor(null).process(new StringReader(this.input), Writer.nullWriter());
+
+		ParallelBatchProcessor processor = new ParallelBatchProcessor(this.parallelism,
+				ParallelBatchProcessor.DEFAULT_CHUNK_SIZE, null);
+		return processor.process(new StringReader(this.input), Writer.nullWriter());
+	}
+}
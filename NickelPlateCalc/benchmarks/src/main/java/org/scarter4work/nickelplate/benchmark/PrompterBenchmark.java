@@ -0,0 +1,87 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scarter4work.nickelplate.prompter.ConsolePrompter;
+import org.scarter4work.nickelplate.prompter.OutputEnum;
+
+/**
+ * Measures rendering each output message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrompterBenchmark
+{
+	/** output message to render */
+	@Param({"SURFACE_AREA", "AMPS_REQUIRED", "AMP_HOURS", "THICKNESS", "SUMMARY", "THICK_ERROR"})
+	private OutputEnum output;
+
+	/** prompter loaded from the bundled properties */
+	private ConsolePrompter prompter;
+
+	/** parameters matching the formats of the output message */
+	private Double [] params;
+
+	/** primitive copy of the parameters */
+	private double [] values;
+
+	/** reusable output buffer */
+	private StringBuilder buffer = new StringBuilder(512);
+
+	/**
+	 * Loads the prompter and builds parameters for the output message.
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException
+	{
+		this.prompter = new ConsolePrompter(BenchmarkSupport.extractProperties());
+
+		int count = this.output.getFormats().length;
+		this.params = new Double[count];
+		this.values = new double[count];
+		for (int i = 0; i < count; i++)
+		{
+			this.values[i] = 12.34567 * (i + 1);
+			this.params[i] = Double.valueOf(this.values[i]);
+		}
+	}
+
+	/**
+	 * @return String of the rendered output message
+	 */
+	@Benchmark
+	public String getOutput()
+	{
+		return this.prompter.getOutput(this.output, this.params);
+	}
+
+	/**
+	 * @return StringBuilder holding the rendered output message
+	 */
+	@Benchmark
+	public StringBuilder appendOutput()
+	{
+		this.buffer.setLength(0);
+		return this.prompter.appendOutput(this.buffer, this.output, this.values);
+	}
+}
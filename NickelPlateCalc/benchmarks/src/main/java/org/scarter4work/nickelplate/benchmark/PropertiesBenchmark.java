@@ -0,0 +1,67 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scarter4work.nickelplate.prompter.ConsolePrompter;
+
+/**
+ * Measures loading the prompt properties into a new prompter, from a file
+ * and from the classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PropertiesBenchmark
+{
+	/** properties file name */
+	private String filename;
+
+	/**
+	 * Writes the bundled properties out for the prompter to load.
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException
+	{
+		this.filename = BenchmarkSupport.extractProperties();
+	}
+
+	/**
+	 * @return ConsolePrompter freshly loaded from the properties file
+	 */
+	@Benchmark
+	public ConsolePrompter loadProperties()
+	{
+		ConsolePrompter prompter = new ConsolePrompter(this.filename);
+		prompter.reload();
+		return prompter;
+	}
+
+	/**
+	 * @return ConsolePrompter loaded from the bundled classpath resource
+	 */
+	@Benchmark
+	public ConsolePrompter loadBundledProperties()
+	{
+		ConsolePrompter prompter = new ConsolePrompter(null);
+		prompter.reload();
+		return prompter;
+	}
+}
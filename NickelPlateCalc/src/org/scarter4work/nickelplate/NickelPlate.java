@@ -3,14 +3,83 @@
  */
 package org.scarter4work.nickelplate;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.Console;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+import org.scarter4work.nickelplate.batch.BatchProcessor;
+import org.scarter4work.nickelplate.batch.ParallelBatchProcessor;
+import org.scarter4work.nickelplate.batch.ShardCoordinator;
+import org.scarter4work.nickelplate.batch.ShardEndpoint;
+import org.scarter4work.nickelplate.batch.ShardKeyEnum;
+import org.scarter4work.nickelplate.batch.ShardTotals;
+import org.scarter4work.nickelplate.batch.ShardWorkerServer;
 import org.scarter4work.nickelplate.calc.Calculator;
+import org.scarter4work.nickelplate.calc.GeometryResult;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+import org.scarter4work.nickelplate.catalog.PartCatalog;
+import org.scarter4work.nickelplate.catalog.PartCatalogWriter;
+import org.scarter4work.nickelplate.calc.GeometryCache;
+import org.scarter4work.nickelplate.history.RunColumnEnum;
+import org.scarter4work.nickelplate.history.RunColumnStore;
+import org.scarter4work.nickelplate.history.RunColumnSummary;
+import org.scarter4work.nickelplate.history.RunGroupEnum;
+import org.scarter4work.nickelplate.history.RunHistoryWriter;
+import org.scarter4work.nickelplate.history.RunHistoryReader;
+import org.scarter4work.nickelplate.history.RunJournal;
+import org.scarter4work.nickelplate.history.RunRecordCursor;
+import org.scarter4work.nickelplate.load.LoadReport;
+import org.scarter4work.nickelplate.load.OperatorSessionGenerator;
+import org.scarter4work.nickelplate.load.SessionLoadHarness;
+import org.scarter4work.nickelplate.metrics.CalculationMetrics;
 import org.scarter4work.nickelplate.prompter.ConsolePrompter;
 import org.scarter4work.nickelplate.prompter.OutputEnum;
 import org.scarter4work.nickelplate.prompter.PrompterOrderEnum;
+import org.scarter4work.nickelplate.prompter.StructuredOutputWriter;
+import org.scarter4work.nickelplate.scale.BalanceStreamPublisher;
+import org.scarter4work.nickelplate.scale.ScaleLogReader;
+import org.scarter4work.nickelplate.scale.SimulatedBalance;
+import org.scarter4work.nickelplate.scale.WeighedRunListener;
+import org.scarter4work.nickelplate.scale.WeightPairCalculator;
+import org.scarter4work.nickelplate.scale.WeightPipeline;
+import org.scarter4work.nickelplate.schedule.LoadSchedule;
+import org.scarter4work.nickelplate.schedule.LoadScheduler;
+import org.scarter4work.nickelplate.schedule.PlatingLoad;
+import org.scarter4work.nickelplate.schedule.PlatingTank;
+import org.scarter4work.nickelplate.schedule.ScheduleFileReader;
+import org.scarter4work.nickelplate.sweep.CsvSweepSink;
+import org.scarter4work.nickelplate.sweep.HistorySweepSink;
+import org.scarter4work.nickelplate.sweep.ParameterSweep;
+import org.scarter4work.nickelplate.service.CalculationService;
+import org.scarter4work.nickelplate.spc.SpcEngine;
+import org.scarter4work.nickelplate.spc.SpcSeries;
+import org.scarter4work.nickelplate.totals.ShiftAccumulator;
+import org.scarter4work.nickelplate.warm.WarmStartStore;
 
 /**
  * This program determines the thickness of a layer on nickel plating per side of a
@@ -19,8 +88,99 @@ import org.scarter4work.nickelplate.prompter.PrompterOrderEnum;
  */
 public class NickelPlate 
 {
-	/** the console */
-	private Console console;
+	/** program argument that selects batch mode */
+	private static final String BATCH_OPTION = "--batch";
+	
+	/** program argument that selects parallel batch mode */
+	private static final String PARALLEL_BATCH_OPTION = "--parallel-batch";
+	
+	/** program argument that selects a batch sharded across worker JVMs */
+	private static final String SHARDED_BATCH_OPTION = "--sharded-batch";
+	
+	/** program argument that serves shards to other hosts */
+	private static final String SHARD_SERVER_OPTION = "--shard-server";
+	
+	/** program argument that selects service mode */
+	private static final String SERVICE_OPTION = "--service";
+	
+	/** program argument that selects a scripted session */
+	private static final String SESSION_OPTION = "--session";
+	
+	/** program argument that selects a scripted session without prompts */
+	private static final String QUIET_SESSION_OPTION = "--quiet-session";
+	
+	/** program argument that selects load scheduling */
+	private static final String SCHEDULE_OPTION = "--schedule";
+	
+	/** program argument that selects SPC over a run history file */
+	private static final String SPC_OPTION = "--spc";
+	
+	/** program argument that selects a parameter sweep */
+	private static final String SWEEP_OPTION = "--sweep";
+	
+	/** program argument that selects a report over run history files */
+	private static final String HISTORY_REPORT_OPTION = "--history-report";
+	
+	/** program argument that builds a part catalog */
+	private static final String BUILD_CATALOG_OPTION = "--build-catalog";
+	
+	/** program argument that calculates runs as balances report weights */
+	private static final String BALANCES_OPTION = "--balances";
+	
+	/** program argument that replays operator sessions under load */
+	private static final String LOAD_TEST_OPTION = "--load-test";
+	
+	/** program argument that writes made up operator sessions */
+	private static final String GENERATE_SESSIONS_OPTION = "--generate-sessions";
+	
+	/** program argument that calculates runs from a balance weight log */
+	private static final String WEIGHT_LOG_OPTION = "--weight-log";
+	
+	/** weight log argument that follows the log as it grows */
+	private static final String TAIL_ARGUMENT = "--tail";
+	
+	/** default milliseconds between checks of a followed weight log */
+	private static final long DEFAULT_POLL_MILLIS = 250;
+	
+	/** balance source argument selecting simulated balances */
+	private static final String SIMULATE_SOURCE = "simulate";
+	
+	/** workpieces on the line at once on the simulated balances */
+	private static final int SIMULATED_OPEN_PIECES = 32;
+	
+	/** sweep output format argument selecting the binary run history format */
+	private static final String HISTORY_FORMAT = "history";
+	
+	/** line separator of the console output */
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+	
+	/** size of the session read and write buffers */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/** header written ahead of the runs calculated from the balances */
+	private static final String BALANCE_HEADER = "workpieceId,startWeight,finalWeight,totalAmpHoursUsed,"
+			+ "thicknessPerSide,inSpec";
+	
+	/** file name that stands for standard in or standard out */
+	private static final String STREAM_NAME = "-";
+	
+	/** system property naming the run history file */
+	public static final String HISTORY_FILE_PROPERTY = "nickelplate.history.file";
+	
+	/** source of the operator's answers */
+	private BufferedReader in;
+	
+	/** destination of the prompts and results */
+	private Writer out;
+	
+	/** true to write the prompts, false to write only the results */
+	private boolean showPrompts = true;
+	
+	/** true to flush before each answer is read, as a person is waiting on it */
+	private boolean flushEachPrompt;
+	
+	/** answers read in the current session */
+	private int answersRead;
 	
 	/** console prompter */
 	private ConsolePrompter prompter;
@@ -28,11 +188,73 @@ public class NickelPlate
 	/** calculator */
 	private Calculator calculator;
 	
-	/** default constructor */
+	/** run history, null when runs are not recorded */
+	private RunHistoryWriter historyWriter;
+	
+	/** crash safe journal of runs, null when runs are not journaled */
+	private RunJournal journal;
+	
+	/** statistical process control of the thickness results, null when off */
+	private SpcEngine spcEngine;
+	
+	/** SPC alerts raised by the current run, shown after its thickness */
+	private final StringBuilder spcAlerts = new StringBuilder();
+	
+	/** catalog of part geometry, null when there is none */
+	private PartCatalog catalog;
+	
+	/** running amps and amp hour totals of the shift, null when not kept */
+	private ShiftAccumulator shiftAccumulator;
+	
+	/** part number of the current session, unknown unless taken from the catalog */
+	private long partNumber = RunHistoryWriter.UNKNOWN_ID;
+	
+	/** true when the current session's geometry came from the catalog */
+	private boolean geometryPrefilled;
+	
+	/** machine readable copy of the results, null when only text is written */
+	private StructuredOutputWriter structuredOutput;
+	
+	/** reused buffer the text of each result is rendered into */
+	private final StringBuilder outputText = new StringBuilder(512);
+	
+	/** reused values of the summary, in the order of its fields */
+	private final double [] summaryValues = new double[OutputEnum.SUMMARY.getFields().length];
+	
+	/** 
+	 * Default constructor, talking to the console when there is one and to
+	 * standard in and standard out otherwise.
+	 */
 	public NickelPlate()
 	{
 		super();
-		this.console = System.console();
+		Console console = System.console();
+		if (console != null)
+		{
+			this.in = new BufferedReader(console.reader());
+			this.out = console.writer();
+			this.flushEachPrompt = true;
+		}
+		else
+		{
+			this.in = new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()), BUFFER_SIZE);
+			this.out = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()), BUFFER_SIZE);
+		}
+	}
+	
+	/**
+	 * Creates a scripted session over the streams passed in.  Output is
+	 * buffered and only flushed when a session ends.
+	 * @param input - Reader of the operator answers, one per line
+	 * @param output - Writer for the prompts and results
+	 * @param showPrompts - boolean false to leave the prompts out of the output
+	 */
+	public NickelPlate(Reader input, Writer output, boolean showPrompts)
+	{
+		super();
+		this.in = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input, BUFFER_SIZE);
+		this.out = output instanceof BufferedWriter ? output : new BufferedWriter(output, BUFFER_SIZE);
+		this.showPrompts = showPrompts;
 	}
 	
 	/**
@@ -43,6 +265,104 @@ public class NickelPlate
 	 */
 	public static void main(String... args) throws Exception
 	{
+		// run a file of work orders without the console if requested
+		if (args.length > 0 && (BATCH_OPTION.equals(args[0]) || PARALLEL_BATCH_OPTION.equals(args[0])))
+		{
+			runBatch(args);
+			return;
+		}
+		
+		// run a file of work orders across several worker JVMs if requested
+		if (args.length > 0 && SHARDED_BATCH_OPTION.equals(args[0]))
+		{
+			runShardedBatch(args);
+			return;
+		}
+		
+		// serve shards of other hosts' batches if requested
+		if (args.length > 0 && SHARD_SERVER_OPTION.equals(args[0]))
+		{
+			runShardServer(args);
+			return;
+		}
+		
+		// serve the calculations over http if requested
+		if (args.length > 0 && SERVICE_OPTION.equals(args[0]))
+		{
+			runService(args);
+			return;
+		}
+		
+		// replay scripted answers if requested
+		if (args.length > 0 && (SESSION_OPTION.equals(args[0]) || QUIET_SESSION_OPTION.equals(args[0])))
+		{
+			runSessionMode(args);
+			return;
+		}
+		
+		// plan a queue of loads into the tanks if requested
+		if (args.length > 0 && SCHEDULE_OPTION.equals(args[0]))
+		{
+			runSchedule(args);
+			return;
+		}
+		
+		// check a run history file for results out of statistical control if requested
+		if (args.length > 0 && SPC_OPTION.equals(args[0]))
+		{
+			runSpc(args);
+			return;
+		}
+		
+		// evaluate a grid of what-if work orders if requested
+		if (args.length > 0 && SWEEP_OPTION.equals(args[0]))
+		{
+			runSweep(args);
+			return;
+		}
+
+		// report amp-hours and thickness over run history files if requested
+		if (args.length > 0 && HISTORY_REPORT_OPTION.equals(args[0]))
+		{
+			runHistoryReport(args);
+			return;
+		}
+
+		// build a part catalog from a listing if requested
+		if (args.length > 0 && BUILD_CATALOG_OPTION.equals(args[0]))
+		{
+			buildCatalog(args);
+			return;
+		}
+
+		// calculate runs as the balances report weights if requested
+		if (args.length > 0 && BALANCES_OPTION.equals(args[0]))
+		{
+			runBalances(args);
+			return;
+		}
+
+		// calculate runs from a balance weight log if requested
+		if (args.length > 0 && WEIGHT_LOG_OPTION.equals(args[0]))
+		{
+			runWeightLog(args);
+			return;
+		}
+
+		// replay operator sessions under load if requested
+		if (args.length > 0 && LOAD_TEST_OPTION.equals(args[0]))
+		{
+			runLoadTest(args);
+			return;
+		}
+
+		// write made up operator sessions if requested
+		if (args.length > 0 && GENERATE_SESSIONS_OPTION.equals(args[0]))
+		{
+			generateSessions(args);
+			return;
+		}
+
 		// get a default properties filename if provided
 		String filename = null;
 		if (args.length > 0)
@@ -50,21 +370,911 @@ public class NickelPlate
 		
 		// create the instance of the nickel plate app + init
 		NickelPlate app = new NickelPlate();
-		app.setPrompter(new ConsolePrompter(filename));
-		app.setCalculator(new Calculator());
-		
-		// create the exit flag
+		app.initialize(filename);
+		app.run();
+	}
+	
+	/**
+	 * Sets up the prompter, calculator and optional run records.
+	 * @param filename - String of the properties file, null for the default
+	 * @throws IOException
+	 */
+	public void initialize(String filename) throws IOException
+	{
+		this.setPrompter(new ConsolePrompter(filename));
+		this.setCalculator(new Calculator());
+		this.getCalculator().setGeometryCache(GeometryCache.fromSystemProperties());
+		String historyFile = System.getProperty(HISTORY_FILE_PROPERTY);
+		if (historyFile != null && !historyFile.isEmpty())
+			this.setHistoryWriter(new RunHistoryWriter(Paths.get(historyFile)));
+		this.setJournal(RunJournal.fromSystemProperties());
+		this.setSpcEngine(SpcEngine.fromSystemProperties(alert -> this.spcAlerts.append(alert).append(LINE_SEPARATOR)));
+		this.setCatalog(PartCatalog.fromSystemProperties());
+		this.setStructuredOutput(StructuredOutputWriter.fromSystemProperties());
+		this.setShiftAccumulator(ShiftAccumulator.fromSystemProperties());
+	}
+	
+	/**
+	 * Runs sessions of the prompt flow until the operator quits or the input
+	 * ends, then closes the run records.  Input ending between sessions is a
+	 * normal finish; input ending part way through one is an error.
+	 * @return long of the number of sessions completed
+	 * @throws IOException
+	 */
+	public long run() throws IOException
+	{
+		long sessions = 0;
+		try
+		{
+			// create the exit flag
+			String quit;
+			
+			do 
+			{
+				quit = this.runSession();
+				if (quit == null)
+					break;
+				sessions++;
+				
+			} while (!quit.equals("Y"));
+		}
+		finally
+		{
+			this.close();
+		}
+		return sessions;
+	}
+	
+	/**
+	 * Runs one session of the prompt flow and flushes its output.
+	 * @return String of the operator's quit answer, null if the input ended before the session began
+	 * @throws IOException if the answers cannot be read, EOFException if they run out part way through
+	 */
+	public String runSession() throws IOException
+	{
 		String quit = "Y";
-		
-		do 
+		this.answersRead = 0;
+		this.partNumber = RunHistoryWriter.UNKNOWN_ID;
+		this.geometryPrefilled = false;
+		try
 		{
 			// iterate through the program prompts
 			for (int i = 1; i < PrompterOrderEnum.values().length + 1; i++)
 			{
-				quit = app.processPrompt(i);
+				quit = this.processPrompt(i);
 			}
-			
-		} while (!quit.equals("Y"));
+		}
+		catch (EOFException ex)
+		{
+			if (this.answersRead > 0)
+				throw ex;
+			return null;
+		}
+		this.out.flush();
+		if (this.structuredOutput != null)
+			this.structuredOutput.flush();
+		return quit;
+	}
+	
+	/**
+	 * Flushes the output and closes the run records.
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		this.out.flush();
+		if (this.historyWriter != null)
+			this.historyWriter.close();
+		if (this.journal != null)
+			this.journal.close();
+		if (this.catalog != null)
+			this.catalog.close();
+		if (this.structuredOutput != null)
+			this.structuredOutput.close();
+	}
+
+	/**
+	 * Replays operator answers without a console.  Arguments are --session or
+	 * --quiet-session followed by an optional answers file, output file and
+	 * properties file.  A '-' or a missing file name uses standard in or
+	 * standard out.  --quiet-session writes only the results, not the prompts.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runSessionMode(String... args) throws IOException
+	{
+		String inputName = args.length > 1 ? args[1] : STREAM_NAME;
+		String outputName = args.length > 2 ? args[2] : STREAM_NAME;
+		String filename = args.length > 3 ? args[3] : null;
+
+		try (Reader input = STREAM_NAME.equals(inputName)
+					? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+					: Files.newBufferedReader(Paths.get(inputName), StandardCharsets.UTF_8);
+			Writer output = STREAM_NAME.equals(outputName)
+					? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+					: Files.newBufferedWriter(Paths.get(outputName), StandardCharsets.UTF_8))
+		{
+			NickelPlate app = new NickelPlate(input, output, !QUIET_SESSION_OPTION.equals(args[0]));
+			app.initialize(filename);
+			long start = System.nanoTime();
+			long sessions = app.run();
+			long elapsedNanos = System.nanoTime() - start;
+			System.err.printf("Replayed %d sessions in %d ms (%.0f sessions/sec)%n", sessions,
+					elapsedNanos / 1_000_000, elapsedNanos == 0 ? 0.0 : sessions / (elapsedNanos / 1_000_000_000.0));
+			if (app.getShiftAccumulator() != null)
+				System.err.println(app.getShiftAccumulator().snapshot());
+		}
+	}
+
+	/**
+	 * Runs a work order file through the calculator without console interaction.
+	 * Arguments are --batch followed by the input file and an optional output file.
+	 * A '-' or a missing file name uses standard in or standard out.  With
+	 * --parallel-batch the records are calculated on several cores, optionally
+	 * limited by a thread count after the output file.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runBatch(String... args) throws IOException
+	{
+		String inputName = args.length > 1 ? args[1] : STREAM_NAME;
+		String outputName = args.length > 2 ? args[2] : STREAM_NAME;
+
+		try (RunJournal journal = RunJournal.fromSystemProperties();
+			Reader input = STREAM_NAME.equals(inputName)
+					? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+					: Files.newBufferedReader(Paths.get(inputName), StandardCharsets.UTF_8);
+			Writer output = STREAM_NAME.equals(outputName)
+					? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+					: Files.newBufferedWriter(Paths.get(outputName), StandardCharsets.UTF_8))
+		{
+			long count;
+			long skipped;
+			long elapsedNanos;
+			double recordsPerSecond;
+			GeometryCache cache;
+			WarmStartStore warmStart;
+			ShiftAccumulator shifts = ShiftAccumulator.fromSystemProperties();
+			if (PARALLEL_BATCH_OPTION.equals(args[0]))
+			{
+				int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+				ParallelBatchProcessor processor = new ParallelBatchProcessor(parallelism);
+				processor.setJournal(journal);
+				processor.setShiftAccumulator(shifts);
+				warmStart = batchWarmStart(processor.getGeometryCache(), shifts);
+				count = processor.process(input, output);
+				skipped = processor.getSkippedCount();
+				elapsedNanos = processor.getElapsedNanos();
+				recordsPerSecond = processor.getRecordsPerSecond();
+				cache = processor.getGeometryCache();
+			}
+			else
+			{
+				BatchProcessor processor = new BatchProcessor();
+				processor.setJournal(journal);
+				processor.setSpcEngine(SpcEngine.fromSystemProperties(System.err::println));
+				processor.setShiftAccumulator(shifts);
+				warmStart = batchWarmStart(processor.getGeometryCache(), shifts);
+				count = processor.process(input, output);
+				skipped = processor.getSkippedCount();
+				elapsedNanos = processor.getElapsedNanos();
+				recordsPerSecond = processor.getRecordsPerSecond();
+				cache = processor.getGeometryCache();
+			}
+
+			System.err.printf("Processed %d records in %d ms (%.0f records/sec), %d malformed lines skipped%n",
+					count, elapsedNanos / 1_000_000, recordsPerSecond, skipped);
+			if (cache != null)
+				System.err.println(cache);
+			if (shifts != null)
+				System.err.println(shifts.snapshot());
+			if (warmStart != null)
+			{
+				warmStart.save();
+				System.err.println(warmStart);
+			}
+			if (CalculationMetrics.ENABLED)
+				CalculationMetrics.dump(System.err);
+		}
+	}
+
+	/**
+	 * Sets up and restores a batch's warm start snapshot.  A batch keeps only
+	 * its geometry cache and shift totals across restarts, so without either
+	 * there is nothing to save and no snapshot is kept.
+	 * @param cache - GeometryCache of the batch, null when the cache is off
+	 * @param shifts - ShiftAccumulator of the batch, null when shift totals are off
+	 * @return WarmStartStore of the batch, or null for none
+	 */
+	private static WarmStartStore batchWarmStart(GeometryCache cache, ShiftAccumulator shifts)
+	{
+		if (cache == null && shifts == null)
+		{
+			if (System.getProperty(WarmStartStore.FILE_PROPERTY) != null)
+				System.err.println("Warm start skipped: a batch only keeps the geometry cache and shift totals, and "
+						+ GeometryCache.ENABLED_PROPERTY + " is not true and " + ShiftAccumulator.TANKS_PROPERTY + " is 0");
+			return null;
+		}
+		WarmStartStore warmStart = WarmStartStore.fromSystemProperties(cache, shifts, null);
+		restoreWarmStart(warmStart);
+		return warmStart;
+	}
+
+	/**
+	 * Restores a warm start snapshot, going on cold if it cannot be read.
+	 * @param warmStart - WarmStartStore to restore, null for none
+	 */
+	private static void restoreWarmStart(WarmStartStore warmStart)
+	{
+		if (warmStart == null)
+			return;
+		try
+		{
+			if (warmStart.restore())
+				System.err.printf("Warm start restored %d geometries%s in %.3f ms%n",
+						warmStart.getRestoredGeometryCount(), warmStart.isShiftRestored() ? " and the shift totals" : "",
+						warmStart.getRestoreNanos() / 1_000_000.0);
+		}
+		catch (IOException ex)
+		{
+			System.err.println("Warm start skipped: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Stops a warm start store's snapshots, saving a last one.
+	 * @param warmStart - WarmStartStore to stop
+	 */
+	private static void stopWarmStart(WarmStartStore warmStart)
+	{
+		try
+		{
+			warmStart.stop();
+		}
+		catch (IOException ex)
+		{
+			System.err.println("Warm start snapshot failed: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Plans a queue of loads into the tanks for one shift.  Arguments are
+	 * --schedule, the load file, the tank file, an optional output file ('-'
+	 * or missing for standard out) and an optional shift length in minutes.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runSchedule(String... args) throws IOException
+	{
+		if (args.length < 3)
+			throw new IllegalArgumentException("Usage: " + SCHEDULE_OPTION + " <loads> <tanks> [output] [shift minutes]");
+		String outputName = args.length > 3 ? args[3] : STREAM_NAME;
+		int shiftMinutes = args.length > 4 ? Integer.parseInt(args[4]) : LoadScheduler.DEFAULT_SHIFT_MINUTES;
+
+		ScheduleFileReader fileReader = new ScheduleFileReader();
+		List<PlatingLoad> loads;
+		List<PlatingTank> tanks;
+		try (Reader input = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8))
+		{
+			loads = fileReader.readLoads(input);
+		}
+		try (Reader input = Files.newBufferedReader(Paths.get(args[2]), StandardCharsets.UTF_8))
+		{
+			tanks = fileReader.readTanks(input);
+		}
+
+		LoadSchedule schedule = new LoadScheduler(shiftMinutes, Runtime.getRuntime().availableProcessors())
+				.schedule(loads, tanks);
+		try (Writer output = STREAM_NAME.equals(outputName)
+					? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+					: Files.newBufferedWriter(Paths.get(outputName), StandardCharsets.UTF_8))
+		{
+			schedule.write(output);
+		}
+		System.err.printf("Scheduled %d of %d loads (%.2f A-hrs), last finishing at minute %d of %d, "
+				+ "%d plans evaluated in %d ms%n", schedule.getScheduledCount(), loads.size(),
+				schedule.getScheduledAmpHours(), schedule.getMakespanMinutes(), shiftMinutes,
+				schedule.getEvaluations(), schedule.getElapsedNanos() / 1_000_000);
+	}
+
+	/**
+	 * Replays a run history file through statistical process control, one
+	 * series per part and tank.  Arguments are --spc and the history file.
+	 * Alerts go to standard out as they are raised and a summary of each
+	 * series to standard error.  The nickelplate.spc system properties set
+	 * the baseline, subgroup size and EWMA weight.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runSpc(String... args) throws IOException
+	{
+		if (args.length < 2)
+			throw new IllegalArgumentException("Usage: " + SPC_OPTION + " <history file>");
+		PrintWriter output = new PrintWriter(new BufferedWriter(
+				new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE));
+		SpcEngine engine = SpcEngine.withSystemProperties(output::println);
+
+		long count = 0;
+		long start = System.nanoTime();
+		try (RunHistoryReader reader = new RunHistoryReader(Paths.get(args[1])))
+		{
+			RunRecordCursor cursor = reader.cursor();
+			while (cursor.next())
+			{
+				engine.record(cursor.getPartId(), cursor.getTankId(), cursor.getThicknessPerSide());
+				count++;
+			}
+		}
+		long elapsedNanos = System.nanoTime() - start;
+		output.flush();
+
+		for (SpcSeries series : engine.getSeries())
+		{
+			System.err.println(series);
+		}
+		System.err.printf("Checked %d results in %d series, %d alerts, in %d ms (%.0f results/sec)%n", count,
+				engine.getSeries().size(), engine.getAlertCount(), elapsedNanos / 1_000_000,
+				elapsedNanos == 0 ? 0.0 : count / (elapsedNanos / 1_000_000_000.0));
+	}
+
+	/**
+	 * Evaluates a grid of work order values.  Arguments are --sweep, the grid
+	 * properties file, an optional output file ('-' or missing for standard
+	 * out) and an optional format, csv (the default) or history for the binary
+	 * run history format, which needs an output file.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runSweep(String... args) throws IOException
+	{
+		if (args.length < 2)
+			throw new IllegalArgumentException("Usage: " + SWEEP_OPTION + " <grid> [output] [csv|" + HISTORY_FORMAT + "]");
+		String outputName = args.length > 2 ? args[2] : STREAM_NAME;
+		boolean history = args.length > 3 && HISTORY_FORMAT.equals(args[3]);
+
+		Properties grid = new Properties();
+		try (Reader input = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8))
+		{
+			grid.load(input);
+		}
+		ParameterSweep sweep = ParameterSweep.fromProperties(grid);
+
+		if (history)
+		{
+			if (STREAM_NAME.equals(outputName))
+				throw new IllegalArgumentException("The " + HISTORY_FORMAT + " format needs an output file.");
+			try (RunHistoryWriter writer = new RunHistoryWriter(Paths.get(outputName)))
+			{
+				sweep.run(new HistorySweepSink(writer, System.currentTimeMillis()));
+			}
+		}
+		else
+		{
+			try (Writer output = STREAM_NAME.equals(outputName)
+						? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+						: Files.newBufferedWriter(Paths.get(outputName), StandardCharsets.UTF_8))
+			{
+				sweep.run(new CsvSweepSink(output));
+			}
+		}
+		System.err.printf("Swept %d points, wrote %d and pruned %d, in %d ms (%.0f points/sec)%n",
+				sweep.getPointCount(), sweep.getWrittenCount(), sweep.getPrunedCount(),
+				sweep.getElapsedNanos() / 1_000_000, sweep.getPointsPerSecond());
+	}
+
+	/**
+	 * Reports the amp-hours used and the thickness distribution over one or
+	 * more run history files.  Arguments are --history-report, the grouping
+	 * (all, month, part or tank) and the history files.  The runs are loaded
+	 * into an off-heap column store, so the heap needed does not grow with
+	 * the history.  The report goes to standard out and the load and query
+	 * times to standard error.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runHistoryReport(String... args) throws IOException
+	{
+		RunGroupEnum group = args.length > 1 ? RunGroupEnum.getByLabel(args[1]) : null;
+		if (group == null || args.length < 3)
+			throw new IllegalArgumentException("Usage: " + HISTORY_REPORT_OPTION + " <all|month|part|tank> <history file>...");
+
+		long loadNanos;
+		long queryNanos;
+		long rowCount;
+		long directBytes;
+		Map<Long, RunColumnSummary []> groups;
+		try (RunColumnStore store = new RunColumnStore())
+		{
+			long start = System.nanoTime();
+			for (int i = 2; i < args.length; i++)
+			{
+				try (RunHistoryReader reader = new RunHistoryReader(Paths.get(args[i])))
+				{
+					store.appendAll(reader);
+				}
+			}
+			loadNanos = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			groups = store.aggregate(group, RunColumnEnum.TOTAL_AMP_HOURS_USED, RunColumnEnum.THICKNESS_PER_SIDE);
+			queryNanos = System.nanoTime() - start;
+			rowCount = store.getRowCount();
+			directBytes = store.getDirectBytes();
+		}
+
+		PrintWriter output = new PrintWriter(new BufferedWriter(
+				new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE));
+		output.printf("%-12s %12s %14s %10s %10s %10s %10s %10s%n", group.getLabel(), "runs", "A-hrs",
+				"mean in", "p50 in", "p90 in", "p99 in", "max in");
+		for (Map.Entry<Long, RunColumnSummary []> entry : groups.entrySet())
+		{
+			RunColumnSummary ampHours = entry.getValue()[0];
+			RunColumnSummary thickness = entry.getValue()[1];
+			output.printf("%-12d %12d %14.2f %10.5f %10.5f %10.5f %10.5f %10.5f%n", entry.getKey(),
+					thickness.getCount(), ampHours.getSum(), thickness.getMean(),
+					thickness.getValueAtPercentile(50), thickness.getValueAtPercentile(90),
+					thickness.getValueAtPercentile(99), thickness.getMax());
+		}
+		output.flush();
+		System.err.printf("Loaded %d runs (%d MB off heap) in %d ms, aggregated %d groups in %d ms (%.0f runs/sec)%n",
+				rowCount, directBytes >> 20, loadNanos / 1_000_000, groups.size(),
+				queryNanos / 1_000_000, queryNanos == 0 ? 0.0 : rowCount / (queryNanos / 1_000_000_000.0));
+	}
+
+	/**
+	 * Builds a part catalog for the interactive flow.  Arguments are
+	 * --build-catalog, the part listing (part number, width, length and sides
+	 * plated per line) and the catalog file to write, which is replaced in
+	 * one step if it exists.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void buildCatalog(String... args) throws IOException
+	{
+		if (args.length < 3)
+			throw new IllegalArgumentException("Usage: " + BUILD_CATALOG_OPTION + " <part listing> <catalog file>");
+		long start = System.nanoTime();
+		PartCatalogWriter writer = new PartCatalogWriter();
+		try (Reader input = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8))
+		{
+			writer.read(input);
+		}
+		writer.write(Paths.get(args[2]));
+		System.err.printf("Cataloged %d parts in %d ms%n", writer.getSize(), (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Runs a work order file across several worker JVMs.  Arguments are
+	 * --sharded-batch, the input file, an optional output file ('-' or missing
+	 * for standard out), the workers and the shard key, block (the default)
+	 * or geometry.  The workers are either a number of worker processes to
+	 * start on this machine, the default being one per core, or a comma
+	 * separated list of host:port of machines running --shard-server.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runShardedBatch(String... args) throws IOException
+	{
+		if (args.length < 2)
+			throw new IllegalArgumentException("Usage: " + SHARDED_BATCH_OPTION
+					+ " <work orders> [results] [worker count|host:port,...] [block|geometry]");
+		String outputName = args.length > 2 ? args[2] : STREAM_NAME;
+		String workerList = args.length > 3 ? args[3] : Integer.toString(Runtime.getRuntime().availableProcessors());
+		ShardKeyEnum key = args.length > 4 ? ShardKeyEnum.getByLabel(args[4]) : ShardKeyEnum.BLOCK;
+		if (key == null)
+			throw new IllegalArgumentException("Unknown shard key " + args[4] + ", expected block or geometry.");
+
+		List<ShardEndpoint> workers;
+		if (workerList.chars().allMatch(Character::isDigit))
+		{
+			workers = ShardCoordinator.localWorkers(Integer.parseInt(workerList));
+		}
+		else
+		{
+			workers = new ArrayList<>();
+			for (String hostAndPort : workerList.split(","))
+			{
+				workers.add(ShardCoordinator.remoteWorker(hostAndPort.trim()));
+			}
+		}
+
+		ShardCoordinator coordinator = new ShardCoordinator(workers, key);
+		try (Reader input = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8);
+			Writer output = STREAM_NAME.equals(outputName)
+					? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+					: Files.newBufferedWriter(Paths.get(outputName), StandardCharsets.UTF_8))
+		{
+			coordinator.process(input, output);
+		}
+		ShardTotals totals = coordinator.getTotals();
+		System.err.printf("Processed %d records in %d shards on %d workers in %d ms (%.0f records/sec), "
+				+ "%d malformed lines skipped, %d shards reassigned%n", coordinator.getRecordCount(),
+				coordinator.getShardCount(), workers.size(), coordinator.getElapsedNanos() / 1_000_000,
+				coordinator.getRecordsPerSecond(), coordinator.getSkippedCount(), coordinator.getReassignedCount());
+		System.err.printf("Totals: %.2f amps, %.2f A-hrs, %d of %d in specification, thickness mean %.6f "
+				+ "sd %.6f min %.6f max %.6f%n", totals.getTotalAmps(), totals.getTotalAmpHours(),
+				totals.getInSpecification(), totals.getRecords(), totals.getThicknessMean(),
+				totals.getThicknessStandardDeviation(), totals.getThicknessMin(), totals.getThicknessMax());
+	}
+
+	/**
+	 * Serves shards of batches run by --sharded-batch on other machines.
+	 * Arguments are --shard-server and an optional port.  The server runs
+	 * until the process is stopped.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runShardServer(String... args) throws IOException
+	{
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : ShardWorkerServer.DEFAULT_PORT;
+		ShardWorkerServer server = new ShardWorkerServer(port);
+		server.start();
+		System.err.printf("Shard server listening on port %d%n", server.getPort());
+	}
+
+	/**
+	 * Replays operator sessions through the prompt flow and reports the
+	 * throughput, latency and allocation per session on standard error.
+	 * Arguments are --load-test, a number of sessions to make up or a file of
+	 * answers to replay, an optional sessions per second (0 or missing for as
+	 * fast as they complete), an optional percentage of made up sessions out
+	 * of specification and an optional seed.  A number of sessions is made
+	 * up in addition to the warm up ones.  The output text is rendered and
+	 * thrown away.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runLoadTest(String... args) throws IOException
+	{
+		if (args.length < 2)
+			throw new IllegalArgumentException("Usage: " + LOAD_TEST_OPTION
+					+ " <sessions|answers file> [sessions/sec] [out of spec %] [seed]");
+		double sessionsPerSecond = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+		double outOfSpecFraction = args.length > 3 ? Double.parseDouble(args[3]) / 100
+				: OperatorSessionGenerator.DEFAULT_OUT_OF_SPEC_FRACTION;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+		long warmupSessions = Long.getLong(SessionLoadHarness.WARMUP_PROPERTY, SessionLoadHarness.DEFAULT_WARMUP_SESSIONS);
+
+		Reader input;
+		OperatorSessionGenerator generator = null;
+		long sessions = parseCount(args[1]);
+		if (sessions > 0)
+		{
+			// made up ahead of time so the making is not measured
+			generator = new OperatorSessionGenerator(seed, outOfSpecFraction);
+			StringBuilder answers = new StringBuilder((int) Math.min(Integer.MAX_VALUE / 2, (sessions + warmupSessions) * 64));
+			generator.appendSessions(answers, sessions + warmupSessions);
+			input = new StringReader(answers.toString());
+		}
+		else
+			input = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8);
+
+		try (Reader answers = input)
+		{
+			NickelPlate app = new NickelPlate(answers, Writer.nullWriter(), true);
+			app.initialize(null);
+			SessionLoadHarness harness = new SessionLoadHarness(app);
+			harness.setWarmupSessions(warmupSessions);
+			harness.setSessionsPerSecond(sessionsPerSecond);
+			LoadReport report = harness.run();
+
+			report.dump(System.err);
+			if (generator != null)
+				System.err.printf("made up %d sessions, %d out of specification%n", generator.getSessionCount(),
+						generator.getOutOfSpecCount());
+			if (CalculationMetrics.ENABLED)
+				CalculationMetrics.dump(System.err);
+		}
+	}
+
+	/**
+	 * Writes made up operator sessions for --session or --load-test to
+	 * replay.  Arguments are --generate-sessions, the number of sessions, an
+	 * optional answers file ('-' or missing for standard out), an optional
+	 * percentage out of specification and an optional seed.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void generateSessions(String... args) throws IOException
+	{
+		if (args.length < 2 || parseCount(args[1]) < 1)
+			throw new IllegalArgumentException("Usage: " + GENERATE_SESSIONS_OPTION
+					+ " <sessions> [answers] [out of spec %] [seed]");
+		String outputName = args.length > 2 ? args[2] : STREAM_NAME;
+		double outOfSpecFraction = args.length > 3 ? Double.parseDouble(args[3]) / 100
+				: OperatorSessionGenerator.DEFAULT_OUT_OF_SPEC_FRACTION;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+		try (Writer output = STREAM_NAME.equals(outputName)
+					? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE)
+					: Files.newBufferedWriter(Paths.get(outputName), StandardCharsets.UTF_8))
+		{
+			new OperatorSessionGenerator(seed, outOfSpecFraction).appendSessions(output, parseCount(args[1]));
+		}
+	}
+
+	/**
+	 * @param value - String that may be a count
+	 * @return long of the count, or -1 if the value is not a whole number
+	 */
+	private static long parseCount(String value)
+	{
+		try
+		{
+			return Long.parseLong(value);
+		}
+		catch (NumberFormatException ex)
+		{
+			return -1;
+		}
+	}
+
+	/**
+	 * Calculates each workpiece's run as the balances report its weights.
+	 * Arguments are --balances, the work order geometry as width, length,
+	 * sides, pieces and selection separated by commas, and the balances:
+	 * '-' or missing for readings on standard in, a port balances connect to,
+	 * or simulate with a number of workpieces and an optional readings per
+	 * second.  Runs go to standard out as they are calculated, to the journal
+	 * when one is set up and through SPC when it is enabled, whose alerts go
+	 * to standard error.  Listening on a port runs until the process is
+	 * stopped.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void runBalances(String... args) throws IOException, InterruptedException
+	{
+		GeometryResult geometry = parseGeometry(args.length > 1 ? args[1] : "", "Usage: " + BALANCES_OPTION
+				+ " <width,length,sides,pieces,selection> [-|port|" + SIMULATE_SOURCE + " <workpieces> [readings/sec]]");
+		String source = args.length > 2 ? args[2] : STREAM_NAME;
+		// real balances are shown as they are weighed, simulated ones once buffers fill
+		boolean live = !SIMULATE_SOURCE.equals(source);
+
+		PrintWriter output = new PrintWriter(new BufferedWriter(
+				new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE));
+		output.println(BALANCE_HEADER);
+		SpcEngine spc = SpcEngine.fromSystemProperties(System.err::println);
+		ShiftAccumulator shifts = ShiftAccumulator.fromSystemProperties();
+		try (RunJournal journal = RunJournal.fromSystemProperties();
+			WeightPipeline pipeline = new WeightPipeline(id -> geometry))
+		{
+			addRunListeners(pipeline::addListener, output, live, journal, spc, shifts);
+
+			long start = System.nanoTime();
+			long readings;
+			if (SIMULATE_SOURCE.equals(source))
+			{
+				long pieces = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+				double rate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+				// gain about half the thickness specification, so most runs pass
+				double gain = PlatingMath.MAX_THICKNESS_PER_SIDE / 2 * PlatingMath.THICKNESS_FACTOR
+						* geometry.getSurfaceArea();
+				SimulatedBalance balance = new SimulatedBalance(pipeline.getExecutor(), pipeline.getBufferCapacity(),
+						100 * geometry.getSurfaceArea(), gain, start);
+				pipeline.start(balance);
+				readings = balance.run(pieces, SIMULATED_OPEN_PIECES, rate);
+				System.err.printf("Simulated balance stalled %d times waiting on the pipeline%n", balance.getStallCount());
+			}
+			else
+			{
+				BalanceStreamPublisher balances = new BalanceStreamPublisher(pipeline.getExecutor(),
+						pipeline.getBufferCapacity());
+				pipeline.start(balances);
+				if (STREAM_NAME.equals(source))
+				{
+					balances.read(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+				}
+				else
+				{
+					try (ServerSocket server = new ServerSocket(Integer.parseInt(source)))
+					{
+						System.err.printf("Listening for balances on port %d%n", server.getLocalPort());
+						balances.serve(server);
+					}
+				}
+				balances.close();
+				readings = balances.getReadingCount();
+				if (balances.getMalformedCount() > 0)
+					System.err.printf("Skipped %d malformed readings%n", balances.getMalformedCount());
+			}
+			long runs = pipeline.await();
+			long elapsedNanos = System.nanoTime() - start;
+			output.flush();
+			if (journal != null)
+				journal.sync();
+
+			System.err.printf("Calculated %d runs from %d readings in %d ms (%.0f readings/sec), %d unmatched final "
+					+ "weights, %d start weights dropped, %d still waiting%n", runs, readings, elapsedNanos / 1_000_000,
+					elapsedNanos == 0 ? 0.0 : readings / (elapsedNanos / 1_000_000_000.0), pipeline.getUnmatchedCount(),
+					pipeline.getDroppedCount(), pipeline.getPendingCount());
+			if (spc != null)
+				System.err.printf("SPC raised %d alerts%n", spc.getAlertCount());
+			if (shifts != null)
+				System.err.println(shifts.snapshot());
+		}
+	}
+
+	/**
+	 * Calculates each workpiece's run from a weight log written by the
+	 * balances.  Arguments are --weight-log, the log file, the work order
+	 * geometry as width, length, sides, pieces and selection separated by
+	 * commas, and an optional --tail with a poll interval in milliseconds.
+	 * Without --tail the log is read to its end; with it the log is followed
+	 * as the balances append to it until the process is stopped.  Runs go to
+	 * standard out, the journal and SPC as with --balances.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runWeightLog(String... args) throws IOException
+	{
+		String usage = "Usage: " + WEIGHT_LOG_OPTION + " <log file> <width,length,sides,pieces,selection> ["
+				+ TAIL_ARGUMENT + " [poll ms]]";
+		if (args.length < 3)
+			throw new IllegalArgumentException(usage);
+		GeometryResult geometry = parseGeometry(args[2], usage);
+		boolean tail = args.length > 3 && TAIL_ARGUMENT.equals(args[3]);
+		if (args.length > 3 && !tail)
+			throw new IllegalArgumentException(usage);
+		long pollMillis = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_POLL_MILLIS;
+
+		PrintWriter output = new PrintWriter(new BufferedWriter(
+				new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE));
+		output.println(BALANCE_HEADER);
+		SpcEngine spc = SpcEngine.fromSystemProperties(System.err::println);
+		ShiftAccumulator shifts = ShiftAccumulator.fromSystemProperties();
+		CountDownLatch finished = new CountDownLatch(1);
+		try (RunJournal journal = RunJournal.fromSystemProperties();
+			ScaleLogReader reader = new ScaleLogReader(Paths.get(args[1])))
+		{
+			WeightPairCalculator runs = new WeightPairCalculator(id -> geometry);
+			addRunListeners(runs::addListener, output, tail, journal, spc, shifts);
+
+			long start = System.nanoTime();
+			try
+			{
+				if (tail)
+				{
+					// on stop, end the tail and wait for the summary and journal sync
+					Thread reading = Thread.currentThread();
+					Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+						reading.interrupt();
+						try
+						{
+							finished.await(5, TimeUnit.SECONDS);
+						}
+						catch (InterruptedException ex)
+						{
+							Thread.currentThread().interrupt();
+						}
+					}, "nickelplate-weight-log-stop"));
+					reader.tail(runs, pollMillis);
+				}
+				else
+					reader.read(runs);
+			}
+			catch (InterruptedException | ClosedByInterruptException ex)
+			{
+				// stopped while following the log
+				Thread.interrupted();
+			}
+			catch (UncheckedIOException ex)
+			{
+				throw ex.getCause();
+			}
+			long elapsedNanos = System.nanoTime() - start;
+			output.flush();
+			if (journal != null)
+				journal.sync();
+
+			System.err.printf("Calculated %d runs from %d weights in %d ms (%.0f weights/sec), %d malformed lines, "
+					+ "%d unmatched final weights, %d still waiting%n", runs.getRunCount(), reader.getRecordCount(),
+					elapsedNanos / 1_000_000, elapsedNanos == 0 ? 0.0 : reader.getRecordCount()
+					/ (elapsedNanos / 1_000_000_000.0), reader.getMalformedCount(), reader.getUnmatchedCount(),
+					reader.getPendingCount());
+			if (spc != null)
+				System.err.printf("SPC raised %d alerts%n", spc.getAlertCount());
+			if (shifts != null)
+				System.err.println(shifts.snapshot());
+		}
+		finally
+		{
+			finished.countDown();
+		}
+	}
+
+	/**
+	 * Adds the listeners that show, journal and chart the runs calculated
+	 * from balance weights.
+	 * @param add - Consumer adding a WeighedRunListener to the source of runs
+	 * @param output - PrintWriter the runs are shown on as CSV
+	 * @param live - boolean true to flush each run as it is shown
+	 * @param journal - RunJournal to append the runs to, null for none
+	 * @param spc - SpcEngine to chart the runs on, null for none
+	 * @param shifts - ShiftAccumulator to total the runs in, null for none
+	 */
+	private static void addRunListeners(Consumer<WeighedRunListener> add, PrintWriter output, boolean live,
+			RunJournal journal, SpcEngine spc, ShiftAccumulator shifts)
+	{
+		StringBuilder line = new StringBuilder();
+		add.accept(run -> {
+			PlatingResult result = run.getResult();
+			line.setLength(0);
+			line.append(run.getWorkpieceId()).append(',').append(result.getStartWeight()).append(',')
+					.append(result.getFinalWeight()).append(',').append(result.getTotalAmpHoursUsed()).append(',')
+					.append(result.getThicknessPerSide()).append(',').append(result.isInSpecification());
+			output.println(line);
+			if (live)
+				output.flush();
+		});
+		if (journal != null)
+			add.accept(run -> journal.appendAsync(run.getTimestamp(), RunHistoryWriter.UNKNOWN_ID,
+					RunHistoryWriter.UNKNOWN_ID, run.getResult()));
+		if (spc != null)
+			add.accept(run -> spc.record(RunHistoryWriter.UNKNOWN_ID, RunHistoryWriter.UNKNOWN_ID, run.getResult()));
+		if (shifts != null)
+			add.accept(run -> shifts.record(RunHistoryWriter.UNKNOWN_ID, run.getResult()));
+	}
+
+	/**
+	 * @param value - String of the width, length, sides, pieces and selection separated by commas
+	 * @param usage - String of the message when the value is not a geometry
+	 * @return GeometryResult of the geometry
+	 */
+	private static GeometryResult parseGeometry(String value, String usage)
+	{
+		String [] values = value.split(",");
+		if (values.length != 5)
+			throw new IllegalArgumentException(usage);
+		return new GeometryResult(Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+				Double.parseDouble(values[2]), Double.parseDouble(values[3]), Double.parseDouble(values[4]));
+	}
+
+	/**
+	 * Starts the http calculation service.  Arguments are --service followed by
+	 * an optional port and an optional properties file name.  The service runs
+	 * until the process is stopped.
+	 * @param args - String [] of program arguments
+	 * @throws IOException
+	 */
+	private static void runService(String... args) throws IOException
+	{
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : CalculationService.DEFAULT_PORT;
+		String filename = args.length > 2 ? args[2] : null;
+
+		ConsolePrompter prompter = new ConsolePrompter(filename);
+		CalculationService service = new CalculationService(port, prompter);
+		service.setGeometryCache(GeometryCache.fromSystemProperties());
+		service.setShiftAccumulator(ShiftAccumulator.fromSystemProperties());
+		scheduleShiftRollovers(service.getShiftAccumulator());
+		WarmStartStore warmStart = WarmStartStore.fromSystemProperties(service.getGeometryCache(),
+				service.getShiftAccumulator(), prompter);
+		if (warmStart != null)
+		{
+			restoreWarmStart(warmStart);
+			warmStart.start();
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> stopWarmStart(warmStart), "nickelplate-warm-start-save"));
+		}
+		service.start();
+		System.err.printf("Calculation service listening on port %d%n", service.getPort());
+	}
+
+	/**
+	 * Closes the service's shift every nickelplate.shift.minutes, showing the
+	 * closed shift's totals on standard error.
+	 * @param shifts - ShiftAccumulator of the service, null for none
+	 */
+	private static void scheduleShiftRollovers(ShiftAccumulator shifts)
+	{
+		long minutes = ShiftAccumulator.getShiftMinutesProperty();
+		if (shifts == null || minutes == 0)
+			return;
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "nickelplate-shift-rollover");
+			thread.setDaemon(true);
+			return thread;
+		});
+		shifts.scheduleRollovers(scheduler, minutes, minutes, TimeUnit.MINUTES, System.err::println);
 	}
 
 	/**
@@ -73,98 +1283,120 @@ public class NickelPlate
 	 * occur as necessary.
 	 * @param index - int of the prompt to capture input for
 	 * @return String of the quit values
+	 * @throws IOException if the answers cannot be read, EOFException if they have run out
 	 */
-	private String processPrompt(int index)
+	private String processPrompt(int index) throws IOException
 	{
 		// set return value
 		String output = "N";
 		
+		// the catalog already supplied the rest of the geometry
+		if (this.geometryPrefilled
+				&& (index == PrompterOrderEnum.LENGTH.getIndex() || index == PrompterOrderEnum.NBR_SIDES.getIndex()))
+			return output;
+		
 		// get the current prompt
 		String currentPrompt = this.getPrompter().getPrompt(index);
-		console.printf("%s\t", currentPrompt);
+		if (this.showPrompts)
+		{
+			this.out.write(currentPrompt);
+			this.out.write('\t');
+		}
+		if (this.flushEachPrompt)
+			this.out.flush();
 
 		// switch on the index to call the appropriate handler method
 		String answer = "";
 		switch (index)
 		{
 			case 1:
-				console.writer().println();
-				console.writer().println();
+				this.newLine();
+				this.newLine();
 				break;
 			case 2:
-				answer = console.readLine();
+				answer = this.readAnswer();
 				this.calculator.setStartWeight(Double.valueOf(answer));
-				console.writer().println();
-				console.writer().println();
+				this.newLine();
+				this.newLine();
 				break;
 			case 3:
-				answer = console.readLine();
-				this.calculator.setWidth(Double.valueOf(answer));
-				console.writer().println();
-				console.writer().println();
+				answer = this.readAnswer();
+				if (answer.startsWith("#"))
+					this.prefillGeometry(answer);
+				else
+					this.calculator.setWidth(Double.valueOf(answer));
+				this.newLine();
+				this.newLine();
 				break;
 			case 4: 
-				answer = console.readLine();
+				answer = this.readAnswer();
 				this.calculator.setLength(Double.valueOf(answer));
-				console.writer().println();
-				console.writer().println();
+				this.newLine();
+				this.newLine();
 				break;
 			case 5:
-				answer = console.readLine();
+				answer = this.readAnswer();
 				this.calculator.setNbrSidesPlated(Double.valueOf(answer));
-				console.writer().println();
-				console.writer().println();
+				this.newLine();
+				this.newLine();
 				break;
 			case 6:
-				answer = console.readLine();
+				answer = this.readAnswer();
 				this.calculator.setNbrPieces(Double.valueOf(answer));
 				this.calculator.calculateSurfaceAreas();
-				output = this.prompter.getOutput(OutputEnum.SURFACE_AREA, this.calculator.getTotalSurfaceArea());
-				console.writer().print(output);
-				console.writer().println();
-				console.writer().println();
+				this.writeOutput(OutputEnum.SURFACE_AREA, this.calculator.getTotalSurfaceAreaAsDouble());
+				this.newLine();
+				this.newLine();
 				break;
 			case 7:
-				answer = console.readLine();
+				answer = this.readAnswer();
 				this.calculator.setSelection(Double.valueOf(answer));
 				this.calculator.calculateCurrentValues();
-				output = this.prompter.getOutput(OutputEnum.AMPS_REQUIRED, this.calculator.getTotalAmpsUsed());
-				console.writer().print(output);
-				console.writer().println();
-				output = this.prompter.getOutput(OutputEnum.AMP_HOURS, this.calculator.getTotalAmpHoursUsed());
-				console.writer().print(output);
-				console.writer().println();
-				console.writer().println();
+				this.writeOutput(OutputEnum.AMPS_REQUIRED, this.calculator.getTotalAmpsUsedAsDouble());
+				this.newLine();
+				this.writeOutput(OutputEnum.AMP_HOURS, this.calculator.getTotalAmpHoursUsedAsDouble());
+				this.newLine();
+				this.newLine();
 				break;
 			case 8:
-				answer = console.readLine();
+				answer = this.readAnswer();
 				this.calculator.setFinalWeight(Double.valueOf(answer));
 				this.calculator.calculateNickelThickness();
-				if (this.calculator.getThicknessPerSide() > 0.0002)
-					output = this.prompter.getOutput(OutputEnum.THICK_ERROR, new Double(0));
+				this.journalRun();
+				double thicknessPerSide = this.calculator.getThicknessPerSideAsDouble();
+				if (this.spcEngine != null)
+					this.spcEngine.record(this.partNumber, RunHistoryWriter.UNKNOWN_ID, thicknessPerSide);
+				if (this.shiftAccumulator != null)
+					this.shiftAccumulator.record(RunHistoryWriter.UNKNOWN_ID, this.calculator.getTotalAmpsUsedAsDouble(),
+							this.calculator.getTotalAmpHoursUsedAsDouble(), this.calculator.getNbrPiecesAsDouble(),
+							PlatingMath.isInSpecification(thicknessPerSide));
+				if (thicknessPerSide > Calculator.MAX_THICKNESS_PER_SIDE)
+					this.writeOutput(OutputEnum.THICK_ERROR);
 				else
-					output = this.prompter.getOutput(OutputEnum.THICKNESS, this.calculator.getThicknessPerSide());
-				console.writer().print(output);
-				console.writer().println();
-				console.writer().println();
-
-				List<Double> params = new ArrayList<>();
-				params.add(this.calculator.getTotalAmpsUsed());
-				params.add(this.calculator.getTotalAmpHoursUsed());
-				params.add(this.calculator.getNbrSidesPlated());
-				params.add(this.calculator.getNbrPieces());
-				params.add(this.calculator.getWidth());
-				params.add(this.calculator.getLength());
-				params.add(this.calculator.getTotalSurfaceArea());
-				params.add(this.calculator.getThicknessPerSide());
-				output = this.prompter.getOutput(OutputEnum.SUMMARY, params.toArray(new Double[params.size()]));
-				console.writer().println(output);
-				console.writer().println();
-				console.writer().println();
+					this.writeOutput(OutputEnum.THICKNESS, thicknessPerSide);
+				this.newLine();
+				this.out.append(this.spcAlerts);
+				this.spcAlerts.setLength(0);
+				this.newLine();
 
+				double [] summary = this.summaryValues;
+				summary[0] = this.calculator.getTotalAmpsUsedAsDouble();
+				summary[1] = this.calculator.getTotalAmpHoursUsedAsDouble();
+				summary[2] = this.calculator.getNbrSidesPlatedAsDouble();
+				summary[3] = this.calculator.getNbrPiecesAsDouble();
+				summary[4] = this.calculator.getWidthAsDouble();
+				summary[5] = this.calculator.getLengthAsDouble();
+				summary[6] = this.calculator.getTotalSurfaceAreaAsDouble();
+				summary[7] = thicknessPerSide;
+				this.writeOutput(OutputEnum.SUMMARY, summary);
+				this.newLine();
+				this.newLine();
+				this.newLine();
+
+				this.recordHistory();
 				break;
 			case 9:
-				answer = console.readLine();
+				answer = this.readAnswer();
 				output = answer.toUpperCase().trim();
 				break;
 			default: output = "Y";
@@ -173,6 +1405,101 @@ public class NickelPlate
 		return output;
 	}
 	
+	/**
+	 * Writes a result as text for the operator and, when structured output is
+	 * on, as a record for other systems.
+	 * @param output - OutputEnum of the result
+	 * @param values - double [] of the result's values
+	 * @throws IOException
+	 */
+	private void writeOutput(OutputEnum output, double... values) throws IOException
+	{
+		this.outputText.setLength(0);
+		this.out.append(this.prompter.appendOutput(this.outputText, output, values));
+		if (this.structuredOutput != null)
+			this.structuredOutput.write(output, values);
+	}
+	
+	/**
+	 * Reads the operator's next answer.
+	 * @return String of the answer
+	 * @throws IOException if the answer cannot be read, EOFException if there are no more
+	 */
+	private String readAnswer() throws IOException
+	{
+		String answer = this.in.readLine();
+		if (answer == null)
+			throw new EOFException("Input ended after " + this.answersRead + " answers of the session.");
+		this.answersRead++;
+		return answer;
+	}
+	
+	/**
+	 * Takes the width, length, sides plated and surface area of the part
+	 * number answered in place of the width, written as '#' and the number.
+	 * @param answer - String of the answer to the width prompt
+	 * @throws IllegalArgumentException if there is no catalog or the part is not in it
+	 */
+	private void prefillGeometry(String answer)
+	{
+		if (this.catalog == null)
+			throw new IllegalArgumentException("Part number " + answer + " given but no part catalog is set, see "
+					+ PartCatalog.CATALOG_FILE_PROPERTY);
+		long part = Long.parseLong(answer.substring(1).trim());
+		if (!this.catalog.prefill(part, this.calculator))
+			throw new IllegalArgumentException("Part number " + part + " is not in the part catalog.");
+		this.partNumber = part;
+		this.geometryPrefilled = true;
+	}
+	
+	/**
+	 * Ends the current output line.
+	 * @throws IOException
+	 */
+	private void newLine() throws IOException
+	{
+		this.out.write(LINE_SEPARATOR);
+	}
+	
+	/**
+	 * Appends the completed run to the journal, if one is kept, before any of
+	 * it is shown so a crash of the terminal cannot lose it.
+	 */
+	private void journalRun()
+	{
+		if (this.journal == null)
+			return;
+		try
+		{
+			this.journal.append(System.currentTimeMillis(), this.partNumber,
+					RunHistoryWriter.UNKNOWN_ID, this.calculator.toResult());
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException("Unable to journal the run.", e);
+		}
+	}
+	
+	/**
+	 * Appends the completed run to the run history, if one is kept.  The
+	 * part is known when it came from the catalog; the tank never is.
+	 */
+	private void recordHistory()
+	{
+		if (this.historyWriter == null)
+			return;
+		try
+		{
+			this.historyWriter.write(System.currentTimeMillis(), this.partNumber,
+					RunHistoryWriter.UNKNOWN_ID, this.calculator.toResult());
+			this.historyWriter.flush();
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException("Unable to record the run history.", e);
+		}
+	}
+	
 	/**
 	 * @return the prompter
 	 */
@@ -200,4 +1527,88 @@ public class NickelPlate
 	public void setCalculator(Calculator calculator) {
 		this.calculator = calculator;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * @return the historyWriter
+	 */
+	public RunHistoryWriter getHistoryWriter() {
+		return historyWriter;
+	}
+
+	/**
+	 * @param historyWriter the historyWriter to set
+	 */
+	public void setHistoryWriter(RunHistoryWriter historyWriter) {
+		this.historyWriter = historyWriter;
+	}
+
+	/**
+	 * @return the journal
+	 */
+	public RunJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * @param journal the journal to set
+	 */
+	public void setJournal(RunJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * @return the spcEngine
+	 */
+	public SpcEngine getSpcEngine() {
+		return spcEngine;
+	}
+
+	/**
+	 * @param spcEngine the spcEngine to set
+	 */
+	public void setSpcEngine(SpcEngine spcEngine) {
+		this.spcEngine = spcEngine;
+	}
+
+	/**
+	 * @return the shiftAccumulator
+	 */
+	public ShiftAccumulator getShiftAccumulator() {
+		return shiftAccumulator;
+	}
+
+	/**
+	 * @param shiftAccumulator the shiftAccumulator to set
+	 */
+	public void setShiftAccumulator(ShiftAccumulator shiftAccumulator) {
+		this.shiftAccumulator = shiftAccumulator;
+	}
+
+	/**
+	 * @return the catalog
+	 */
+	public PartCatalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * @param catalog the catalog to set
+	 */
+	public void setCatalog(PartCatalog catalog) {
+		this.catalog = catalog;
+	}
+
+	/**
+	 * @return the structuredOutput
+	 */
+	public StructuredOutputWriter getStructuredOutput() {
+		return structuredOutput;
+	}
+
+	/**
+	 * @param structuredOutput the structuredOutput to set
+	 */
+	public void setStructuredOutput(StructuredOutputWriter structuredOutput) {
+		this.structuredOutput = structuredOutput;
+	}
+}
\ No newline at end of file
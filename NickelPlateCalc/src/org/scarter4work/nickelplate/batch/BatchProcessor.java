@@ -0,0 +1,339 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.scarter4work.nickelplate.calc.GeometryCache;
+import org.scarter4work.nickelplate.calc.GeometryResult;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+import org.scarter4work.nickelplate.history.RunHistoryWriter;
+import org.scarter4work.nickelplate.history.RunJournal;
+import org.scarter4work.nickelplate.metrics.CalculationMetrics;
+import org.scarter4work.nickelplate.metrics.StageEnum;
+import org.scarter4work.nickelplate.spc.SpcEngine;
+import org.scarter4work.nickelplate.totals.ShiftAccumulator;
+
+/**
+ * Runs a file of work orders through the plating calculations without any console
+ * interaction.  Records are read one line at a time and each result is written
+ * as soon as it is calculated, so memory use does not grow with the size of the
+ * input.  A header ahead of the first record is skipped, and any other line that is
+ * not a work order is reported on stderr with its line number, left out of the
+ * results and counted.
+ */
+public class BatchProcessor
+{
+	/** size of the read and write buffers */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/** header written ahead of the result records */
+	public static final String HEADER = "startWeight,width,length,nbrSides,nbrPieces,selection,finalWeight,"
+			+ "surfaceArea,totalSurfaceArea,totalAmpsUsed,totalAmpHoursUsed,thicknessPerSide,inSpec";
+
+	/** work order parser */
+	private WorkOrderParser parser;
+
+	/** number of records processed by the last run */
+	private long recordCount;
+
+	/** number of malformed lines skipped by the last run */
+	private long skippedCount;
+
+	/** elapsed time of the last run in nanoseconds */
+	private long elapsedNanos;
+
+	/** optional cache of surface area and current values by geometry */
+	private GeometryCache geometryCache;
+
+	/** optional journal every calculated run is appended to */
+	private RunJournal journal;
+
+	/** optional SPC engine every thickness result is recorded in, in input order */
+	private SpcEngine spcEngine;
+
+	/** optional shift totals every run is added to */
+	private ShiftAccumulator shiftAccumulator;
+
+	/** default constructor, using the geometry cache set up by the system properties */
+	public BatchProcessor()
+	{
+		this(GeometryCache.fromSystemProperties());
+	}
+
+	/**
+	 * Creates a processor with the geometry cache passed in.
+	 * @param geometryCache - GeometryCache to use, null to calculate every record
+	 */
+	public BatchProcessor(GeometryCache geometryCache)
+	{
+		super();
+		this.parser = new WorkOrderParser();
+		this.geometryCache = geometryCache;
+	}
+
+	/**
+	 * Reads every work order from the input, calculates the surface area, current
+	 * and thickness values for it and writes one result line to the output.
+	 * @param input - Reader of the work order records
+	 * @param output - Writer to stream the result records to
+	 * @return long of the number of records processed
+	 * @throws IOException
+	 */
+	public long process(Reader input, Writer output) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(input, BUFFER_SIZE);
+		BufferedWriter writer = new BufferedWriter(output, BUFFER_SIZE);
+
+		WorkOrderParser header = new WorkOrderParser();
+		double [] fields = new double[WorkOrderParser.FIELD_COUNT];
+		StringBuilder line = new StringBuilder(256);
+		long count = 0;
+		long skipped = 0;
+		long lineNumber = 0;
+		long start = System.nanoTime();
+
+		writer.write(HEADER);
+		writer.newLine();
+
+		String raw;
+		while ((raw = reader.readLine()) != null)
+		{
+			lineNumber++;
+			if (header.isLeadingHeader(raw))
+				continue;
+			line.setLength(0);
+			try
+			{
+				if (!this.processLine(raw, lineNumber, fields, line))
+					continue;
+			}
+			catch (IllegalArgumentException ex)
+			{
+				reportSkipped(ex);
+				skipped++;
+				continue;
+			}
+
+			writer.append(line);
+			writer.newLine();
+			count++;
+		}
+
+		if (this.journal != null)
+			this.journal.sync();
+		writer.flush();
+
+		this.recordCount = count;
+		this.skippedCount = skipped;
+		this.elapsedNanos = System.nanoTime() - start;
+
+		return count;
+	}
+
+	/**
+	 * Parses one line of the work order file and appends its result record.
+	 * Safe to call from several threads at once as long as each passes its
+	 * own fields array and buffer.
+	 * @param raw - String of the line read from the work order file
+	 * @param lineNumber - long of the 1 based line number, for error messages
+	 * @param fields - double [] of FIELD_COUNT length to parse into
+	 * @param out - StringBuilder to append the result record to
+	 * @return boolean true if the line was a record and a result was appended
+	 * @throws IllegalArgumentException if the line is a malformed record
+	 */
+	boolean processLine(String raw, long lineNumber, double [] fields, StringBuilder out)
+	{
+		return this.processRecord(raw, lineNumber, fields, out) != null;
+	}
+
+	/**
+	 * Parses one line of the work order file, appends its result record and
+	 * returns the calculated values, for callers that keep totals of them.
+	 * @param raw - String of the line read from the work order file
+	 * @param lineNumber - long of the 1 based line number, for error messages
+	 * @param fields - double [] of FIELD_COUNT length to parse into
+	 * @param out - StringBuilder to append the result record to
+	 * @return PlatingResult of the record, or null for a blank or comment line
+	 * @throws IllegalArgumentException if the line is a malformed record
+	 */
+	PlatingResult processRecord(String raw, long lineNumber, double [] fields, StringBuilder out)
+	{
+		long start = CalculationMetrics.startStage();
+		try
+		{
+			if (!this.parser.parse(raw, fields))
+				return null;
+		}
+		catch (IllegalArgumentException ex)
+		{
+			throw new IllegalArgumentException("Bad work order on line " + lineNumber + ": " + ex.getMessage(), ex);
+		}
+		start = CalculationMetrics.endStage(StageEnum.READ_INPUT, start);
+
+		PlatingResult result = this.calculate(fields);
+		CalculationMetrics.endStage(StageEnum.CALCULATE, start);
+		CalculationMetrics.recordResult(result.isInSpecification());
+		if (this.journal != null)
+			this.journalRun(result);
+		if (this.spcEngine != null)
+			this.spcEngine.record(RunHistoryWriter.UNKNOWN_ID, RunHistoryWriter.UNKNOWN_ID, result);
+		if (this.shiftAccumulator != null)
+			this.shiftAccumulator.record(RunHistoryWriter.UNKNOWN_ID, result);
+		this.appendResult(out, fields, result);
+		return result;
+	}
+
+	/**
+	 * Reports a malformed line that is being skipped.
+	 * @param ex - IllegalArgumentException naming the line
+	 */
+	static void reportSkipped(IllegalArgumentException ex)
+	{
+		System.err.println(ex.getMessage());
+	}
+
+	/**
+	 * Runs all calculations for the parsed work order values.
+	 * @param fields - double [] of the parsed work order values
+	 * @return PlatingResult of the calculated values
+	 */
+	private PlatingResult calculate(double [] fields)
+	{
+		if (this.geometryCache != null)
+		{
+			GeometryResult geometry = this.geometryCache.get(fields[WorkOrderParser.WIDTH], fields[WorkOrderParser.LENGTH],
+					fields[WorkOrderParser.NBR_SIDES], fields[WorkOrderParser.NBR_PIECES], fields[WorkOrderParser.SELECTION]);
+			return PlatingMath.calculate(geometry, fields[WorkOrderParser.START_WEIGHT], fields[WorkOrderParser.FINAL_WEIGHT]);
+		}
+
+		return PlatingMath.calculate(fields[WorkOrderParser.START_WEIGHT], fields[WorkOrderParser.WIDTH],
+				fields[WorkOrderParser.LENGTH], fields[WorkOrderParser.NBR_SIDES], fields[WorkOrderParser.NBR_PIECES],
+				fields[WorkOrderParser.SELECTION], fields[WorkOrderParser.FINAL_WEIGHT]);
+	}
+
+	/**
+	 * Appends the run to the journal without waiting for it to be forced;
+	 * process syncs the journal once the whole input is done.
+	 * @param result - PlatingResult of the calculated values
+	 */
+	private void journalRun(PlatingResult result)
+	{
+		try
+		{
+			this.journal.appendAsync(System.currentTimeMillis(), RunHistoryWriter.UNKNOWN_ID,
+					RunHistoryWriter.UNKNOWN_ID, result);
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException("Unable to journal the run.", e);
+		}
+	}
+
+	/**
+	 * Appends the inputs and calculated values as a comma separated line.
+	 * @param line - StringBuilder to append to
+	 * @param fields - double [] of the parsed work order values
+	 * @param result - PlatingResult of the calculated values
+	 */
+	private void appendResult(StringBuilder line, double [] fields, PlatingResult result)
+	{
+		for (int i = 0; i < fields.length; i++)
+		{
+			line.append(fields[i]).append(',');
+		}
+		line.append(result.getSurfaceArea()).append(',');
+		line.append(result.getTotalSurfaceArea()).append(',');
+		line.append(result.getTotalAmpsUsed()).append(',');
+		line.append(result.getTotalAmpHoursUsed()).append(',');
+		line.append(result.getThicknessPerSide()).append(',');
+		line.append(result.isInSpecification());
+	}
+
+	/**
+	 * @return the number of records processed per second by the last run
+	 */
+	public double getRecordsPerSecond()
+	{
+		if (this.elapsedNanos == 0)
+			return 0;
+		return this.recordCount / (this.elapsedNanos / 1_000_000_000.0);
+	}
+
+	/**
+	 * @return the geometryCache
+	 */
+	public GeometryCache getGeometryCache() {
+		return geometryCache;
+	}
+
+	/**
+	 * @return the recordCount
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return the skippedCount
+	 */
+	public long getSkippedCount() {
+		return skippedCount;
+	}
+
+	/**
+	 * @return the elapsedNanos
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return the journal
+	 */
+	public RunJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * @param journal the journal to set, null for none
+	 */
+	public void setJournal(RunJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * @return the spcEngine
+	 */
+	public SpcEngine getSpcEngine() {
+		return spcEngine;
+	}
+
+	/**
+	 * @param spcEngine the spcEngine to set, results are recorded as they are
+	 * calculated so it is only set on a processor that calculates in input order
+	 */
+	public void setSpcEngine(SpcEngine spcEngine) {
+		this.spcEngine = spcEngine;
+	}
+
+	/**
+	 * @return the shiftAccumulator
+	 */
+	public ShiftAccumulator getShiftAccumulator() {
+		return shiftAccumulator;
+	}
+
+	/**
+	 * @param shiftAccumulator the shiftAccumulator to set, null for none
+	 */
+	public void setShiftAccumulator(ShiftAccumulator shiftAccumulator) {
+		this.shiftAccumulator = shiftAccumulator;
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.function.Supplier;
+
+/**
+ * Stand-in for a remote shard host that runs in this JVM.  It serves the
+ * worker protocol from a ShardWorkerServer on the loopback address, and the
+ * coordinator reaches it through the same socket connection it uses for
+ * another machine, so a sharded batch can be run and tested end to end
+ * without starting processes.  Killing it drops its open connections part
+ * way through their shards and refuses new ones, as a host going down would.
+ */
+public class InProcessShardWorker implements ShardEndpoint, Closeable
+{
+	/** server answering the connections */
+	private final ShardWorkerServer server;
+
+	/** address the server is bound to */
+	private final InetSocketAddress address;
+
+	/** default constructor, using the geometry cache set up by the system properties */
+	public InProcessShardWorker() throws IOException
+	{
+		this(ShardWorker::new);
+	}
+
+	/**
+	 * Starts the server on a free loopback port.
+	 * @param workers - Supplier of the ShardWorker for each connection
+	 * @throws IOException if no port can be bound
+	 */
+	public InProcessShardWorker(Supplier<ShardWorker> workers) throws IOException
+	{
+		super();
+		this.server = new ShardWorkerServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), workers);
+		this.server.start();
+		this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), this.server.getPort());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.batch.ShardEndpoint#connect()
+	 */
+	@Override
+	public ShardConnection connect() throws IOException
+	{
+		return ShardConnection.connect(this.address, ShardCoordinator.CONNECT_TIMEOUT_MILLIS,
+				ShardCoordinator.READ_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Closes every open connection and stops listening.  Safe to call from a
+	 * worker thread part way through a shard.
+	 */
+	public void kill()
+	{
+		this.server.stop();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close()
+	{
+		this.kill();
+	}
+
+	/**
+	 * @return the address
+	 */
+	public InetSocketAddress getAddress() {
+		return address;
+	}
+}
@@ -0,0 +1,329 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.scarter4work.nickelplate.calc.GeometryCache;
+import org.scarter4work.nickelplate.history.RunJournal;
+import org.scarter4work.nickelplate.totals.ShiftAccumulator;
+
+/**
+ * Runs a work order file through the calculations on several cores.  The
+ * input is read in chunks of lines, each chunk is calculated and formatted on
+ * a fork join pool, and the finished chunks are written strictly in the order
+ * they were read, so the output is identical to BatchProcessor's.  Only a
+ * fixed number of chunks are in flight at once, which keeps memory use
+ * independent of the file size.  Malformed lines are reported and counted as
+ * BatchProcessor does, in input order.
+ */
+public class ParallelBatchProcessor
+{
+	/** default number of lines in a chunk */
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	/** chunks in flight per worker thread */
+	private static final int CHUNKS_PER_WORKER = 2;
+
+	/** number of worker threads */
+	private final int parallelism;
+
+	/** number of lines in a chunk */
+	private final int chunkSize;
+
+	/** processor doing the per line work */
+	private final BatchProcessor lineProcessor;
+
+	/** number of records processed by the last run */
+	private long recordCount;
+
+	/** number of malformed lines skipped by the last run */
+	private long skippedCount;
+
+	/** elapsed time of the last run in nanoseconds */
+	private long elapsedNanos;
+
+	/**
+	 * Creates a processor using every available core.
+	 */
+	public ParallelBatchProcessor()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a processor with the default chunk size and the geometry cache
+	 * set up by the system properties.
+	 * @param parallelism - int of the number of worker threads
+	 */
+	public ParallelBatchProcessor(int parallelism)
+	{
+		this(parallelism, DEFAULT_CHUNK_SIZE, GeometryCache.fromSystemProperties());
+	}
+
+	/**
+	 * Creates a processor.
+	 * @param parallelism - int of the number of worker threads
+	 * @param chunkSize - int of the number of lines handed to a worker at a time
+	 * @param geometryCache - GeometryCache shared by the workers, null to calculate every record
+	 */
+	public ParallelBatchProcessor(int parallelism, int chunkSize, GeometryCache geometryCache)
+	{
+		super();
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		this.parallelism = parallelism;
+		this.chunkSize = chunkSize;
+		this.lineProcessor = new BatchProcessor(geometryCache);
+	}
+
+	/**
+	 * Reads every work order from the input, calculates them in parallel and
+	 * writes one result line per record to the output in input order.
+	 * @param input - Reader of the work order records
+	 * @param output - Writer to stream the result records to
+	 * @return long of the number of records processed
+	 * @throws IOException
+	 */
+	public long process(Reader input, Writer output) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(input, BatchProcessor.BUFFER_SIZE);
+		BufferedWriter writer = new BufferedWriter(output, BatchProcessor.BUFFER_SIZE);
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+		int maxInFlight = this.parallelism * CHUNKS_PER_WORKER;
+		WorkOrderParser header = new WorkOrderParser();
+
+		this.skippedCount = 0;
+		long count = 0;
+		long lineNumber = 0;
+		long start = System.nanoTime();
+
+		try
+		{
+			writer.write(BatchProcessor.HEADER);
+			writer.newLine();
+
+			String [] lines = new String[this.chunkSize];
+			int filled = 0;
+			String raw;
+			while ((raw = reader.readLine()) != null)
+			{
+				// a null line keeps the header's place in the line numbers
+				lines[filled++] = header.isLeadingHeader(raw) ? null : raw;
+				if (filled == this.chunkSize)
+				{
+					// write the oldest chunk before reading further ahead
+					if (inFlight.size() == maxInFlight)
+						count += this.write(inFlight.poll(), writer);
+
+					inFlight.add(pool.submit(this.newChunkTask(lines, filled, lineNumber + 1)));
+					lineNumber += filled;
+					lines = new String[this.chunkSize];
+					filled = 0;
+				}
+			}
+			if (filled > 0)
+				inFlight.add(pool.submit(this.newChunkTask(lines, filled, lineNumber + 1)));
+
+			while (!inFlight.isEmpty())
+			{
+				count += this.write(inFlight.poll(), writer);
+			}
+			if (this.getJournal() != null)
+				this.getJournal().sync();
+			writer.flush();
+		}
+		finally
+		{
+			for (ForkJoinTask<Chunk> task : inFlight)
+			{
+				task.cancel(true);
+			}
+			pool.shutdownNow();
+		}
+
+		this.recordCount = count;
+		this.elapsedNanos = System.nanoTime() - start;
+
+		return count;
+	}
+
+	/**
+	 * Builds the task that calculates and formats a chunk of lines.
+	 * @param lines - String [] of the lines in the chunk
+	 * @param filled - int of the number of lines used in the array
+	 * @param firstLine - long of the line number of the first line
+	 * @return ForkJoinTask computing the chunk
+	 */
+	private ForkJoinTask<Chunk> newChunkTask(String [] lines, int filled, long firstLine)
+	{
+		return ForkJoinTask.adapt(() -> {
+			double [] fields = new double[WorkOrderParser.FIELD_COUNT];
+			StringBuilder text = new StringBuilder(filled * 160);
+			String separator = System.lineSeparator();
+			int records = 0;
+			List<IllegalArgumentException> skipped = null;
+			for (int i = 0; i < filled; i++)
+			{
+				if (lines[i] == null)
+					continue;
+				try
+				{
+					if (this.lineProcessor.processLine(lines[i], firstLine + i, fields, text))
+					{
+						text.append(separator);
+						records++;
+					}
+				}
+				catch (IllegalArgumentException ex)
+				{
+					if (skipped == null)
+						skipped = new ArrayList<>();
+					skipped.add(ex);
+				}
+			}
+			return new Chunk(text, records, skipped);
+		});
+	}
+
+	/**
+	 * Waits for the chunk to finish, reports its malformed lines and writes it.
+	 * @param task - ForkJoinTask of the chunk
+	 * @param writer - Writer to write to
+	 * @return int of the number of records in the chunk
+	 * @throws IOException
+	 */
+	private int write(ForkJoinTask<Chunk> task, Writer writer) throws IOException
+	{
+		Chunk chunk = task.join();
+		if (chunk.skipped != null)
+		{
+			for (IllegalArgumentException ex : chunk.skipped)
+			{
+				BatchProcessor.reportSkipped(ex);
+			}
+			this.skippedCount += chunk.skipped.size();
+		}
+		writer.append(chunk.text);
+		return chunk.records;
+	}
+
+	/**
+	 * @return the number of records processed per second by the last run
+	 */
+	public double getRecordsPerSecond()
+	{
+		if (this.elapsedNanos == 0)
+			return 0;
+		return this.recordCount / (this.elapsedNanos / 1_000_000_000.0);
+	}
+
+	/**
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @return the chunkSize
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * @return the geometryCache
+	 */
+	public GeometryCache getGeometryCache() {
+		return lineProcessor.getGeometryCache();
+	}
+
+	/**
+	 * @return the recordCount
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return the skippedCount
+	 */
+	public long getSkippedCount() {
+		return skippedCount;
+	}
+
+	/**
+	 * @return the elapsedNanos
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Formatted results of one chunk.
+	 */
+	private static final class Chunk
+	{
+		/** result lines */
+		private final StringBuilder text;
+		/** number of records */
+		private final int records;
+		/** malformed lines in order, null if there were none */
+		private final List<IllegalArgumentException> skipped;
+
+		/**
+		 * @param text - StringBuilder of the result lines
+		 * @param records - int of the number of records
+		 * @param skipped - List of the malformed lines' errors, null for none
+		 */
+		private Chunk(StringBuilder text, int records, List<IllegalArgumentException> skipped)
+		{
+			this.text = text;
+			this.records = records;
+			this.skipped = skipped;
+		}
+	}
+
+	/**
+	 * @return the journal
+	 */
+	public RunJournal getJournal() {
+		return lineProcessor.getJournal();
+	}
+
+	/**
+	 * @param journal the journal to set, null for none
+	 */
+	public void setJournal(RunJournal journal) {
+		lineProcessor.setJournal(journal);
+	}
+
+	/**
+	 * @return the shiftAccumulator
+	 */
+	public ShiftAccumulator getShiftAccumulator() {
+		return lineProcessor.getShiftAccumulator();
+	}
+
+	/**
+	 * @param shiftAccumulator the shiftAccumulator to set, null for none; the
+	 * workers add their runs to it at once, so it needs no ordering
+	 */
+	public void setShiftAccumulator(ShiftAccumulator shiftAccumulator) {
+		lineProcessor.setShiftAccumulator(shiftAccumulator);
+	}
+}
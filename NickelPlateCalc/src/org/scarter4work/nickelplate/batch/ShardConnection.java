@@ -0,0 +1,164 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams to one running worker of a sharded batch.
+ */
+public class ShardConnection implements Closeable
+{
+	/** time a worker process is given to exit once its input is closed */
+	private static final long EXIT_WAIT_SECONDS = 5;
+
+	/** name of the worker, for messages */
+	private final String name;
+
+	/** results from the worker */
+	private final InputStream inputStream;
+
+	/** shards to the worker */
+	private final OutputStream outputStream;
+
+	/** worker process, null for a remote worker */
+	private final Process process;
+
+	/** socket to a remote worker, null for a worker process */
+	private final Socket socket;
+
+	/**
+	 * @param name - String of the worker's name
+	 * @param inputStream - InputStream of the worker's results
+	 * @param outputStream - OutputStream to the worker
+	 * @param process - Process of a local worker, or null
+	 * @param socket - Socket of a remote worker, or null
+	 */
+	private ShardConnection(String name, InputStream inputStream, OutputStream outputStream, Process process,
+			Socket socket)
+	{
+		super();
+		this.name = name;
+		this.inputStream = inputStream;
+		this.outputStream = outputStream;
+		this.process = process;
+		this.socket = socket;
+	}
+
+	/**
+	 * Starts a worker process talking over its standard in and out.  Its
+	 * standard error is shared with this process.
+	 * @param command - List of the command line of the worker
+	 * @return ShardConnection to the process
+	 * @throws IOException if the process cannot be started
+	 */
+	public static ShardConnection startProcess(List<String> command) throws IOException
+	{
+		Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		return new ShardConnection("process " + process.pid(), process.getInputStream(), process.getOutputStream(),
+				process, null);
+	}
+
+	/**
+	 * Connects to a ShardWorkerServer.
+	 * @param address - InetSocketAddress of the server
+	 * @param connectTimeoutMillis - int of the time allowed to connect
+	 * @param readTimeoutMillis - int of the time allowed between results before the worker is taken to be hung
+	 * @return ShardConnection to the server
+	 * @throws IOException if the server cannot be reached
+	 */
+	public static ShardConnection connect(InetSocketAddress address, int connectTimeoutMillis, int readTimeoutMillis)
+			throws IOException
+	{
+		Socket socket = new Socket();
+		try
+		{
+			socket.connect(address, connectTimeoutMillis);
+			socket.setSoTimeout(readTimeoutMillis);
+			socket.setTcpNoDelay(true);
+			return new ShardConnection(address.getHostString() + ":" + address.getPort(), socket.getInputStream(),
+					socket.getOutputStream(), null, socket);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			socket.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Ends the worker at once, as after it has failed.
+	 */
+	public void abort()
+	{
+		if (this.process != null)
+			this.process.destroyForcibly();
+		try
+		{
+			if (this.socket != null)
+				this.socket.close();
+			this.outputStream.close();
+			this.inputStream.close();
+		}
+		catch (IOException ex)
+		{
+			// it is being discarded either way
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			// a worker returns when its input ends between shards
+			this.outputStream.close();
+			if (this.process != null && !this.process.waitFor(EXIT_WAIT_SECONDS, TimeUnit.SECONDS))
+				this.process.destroyForcibly();
+		}
+		catch (InterruptedException ex)
+		{
+			this.process.destroyForcibly();
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			this.inputStream.close();
+			if (this.socket != null)
+				this.socket.close();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * @return the inputStream
+	 */
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	/**
+	 * @return the outputStream
+	 */
+	public OutputStream getOutputStream() {
+		return outputStream;
+	}
+}
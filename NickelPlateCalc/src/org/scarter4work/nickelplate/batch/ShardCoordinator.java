@@ -0,0 +1,613 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs a work order file across several worker JVMs, on this machine or on
+ * others, for inputs too large for one.  The input is split into shard files
+ * in a temporary directory, the shards are handed to the workers as they
+ * come free, and the results are merged back in input order along with the
+ * totals of every shard, so the output matches BatchProcessor's.
+ * <p>
+ * A worker that crashes, hangs past the read timeout or cannot be reached
+ * has its shard handed to another worker, or to a fresh one from the same
+ * endpoint.  A shard that fails MAX_ATTEMPTS times on workers that were
+ * reached ends the run.  An endpoint that fails MAX_ATTEMPTS times in a row
+ * is retired for the rest of the run.  Malformed work orders are reported,
+ * counted and left out while the input is split, as BatchProcessor does.
+ */
+public class ShardCoordinator
+{
+	/** default shards per worker, so a fast worker can take on more */
+	public static final int DEFAULT_SHARDS_PER_WORKER = 4;
+
+	/** most shards a run can have, shard numbers are kept in a byte per record */
+	public static final int MAX_SHARDS = 255;
+
+	/** times a shard is tried before the run fails */
+	public static final int MAX_ATTEMPTS = 3;
+
+	/** consecutive records dealt to one shard by BLOCK */
+	public static final int BLOCK_SIZE = 4096;
+
+	/** time allowed to connect to a remote worker */
+	public static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+
+	/** time allowed between results from a remote worker */
+	public static final int READ_TIMEOUT_MILLIS = 60_000;
+
+	/** prefix of the system properties passed on to local workers */
+	private static final String PROPERTY_PREFIX = "nickelplate.";
+
+	/** where shards run, one thread each */
+	private final List<ShardEndpoint> workers;
+
+	/** how records are split between shards */
+	private final ShardKeyEnum key;
+
+	/** number of shards */
+	private final int shardCount;
+
+	/** merged totals of the last run */
+	private ShardTotals totals;
+
+	/** number of records processed by the last run */
+	private long recordCount;
+
+	/** number of malformed lines skipped by the last run */
+	private long skippedCount;
+
+	/** shards handed to another worker after a failure in the last run */
+	private final AtomicInteger reassignedCount = new AtomicInteger();
+
+	/** elapsed time of the last run in nanoseconds */
+	private long elapsedNanos;
+
+	/**
+	 * Creates a coordinator with DEFAULT_SHARDS_PER_WORKER shards per worker.
+	 * @param workers - List of ShardEndpoint to run shards on
+	 * @param key - ShardKeyEnum of how records are split
+	 */
+	public ShardCoordinator(List<ShardEndpoint> workers, ShardKeyEnum key)
+	{
+		this(workers, key, Math.min(MAX_SHARDS, workers.size() * DEFAULT_SHARDS_PER_WORKER));
+	}
+
+	/**
+	 * Creates a coordinator.
+	 * @param workers - List of ShardEndpoint to run shards on
+	 * @param key - ShardKeyEnum of how records are split
+	 * @param shardCount - int of the number of shards, from 1 to MAX_SHARDS
+	 */
+	public ShardCoordinator(List<ShardEndpoint> workers, ShardKeyEnum key, int shardCount)
+	{
+		super();
+		if (workers.isEmpty())
+			throw new IllegalArgumentException("A sharded batch needs at least one worker.");
+		if (shardCount <= 0 || shardCount > MAX_SHARDS)
+			throw new IllegalArgumentException("Shard count must be from 1 to " + MAX_SHARDS + ": " + shardCount);
+		this.workers = new ArrayList<>(workers);
+		this.key = key;
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 * Endpoints that each start a worker JVM on this machine, with this JVM's
+	 * class path and nickelplate system properties.
+	 * @param count - int of the number of workers
+	 * @return List of ShardEndpoint
+	 */
+	public static List<ShardEndpoint> localWorkers(int count)
+	{
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		for (Map.Entry<Object, Object> property : System.getProperties().entrySet())
+		{
+			String name = property.getKey().toString();
+			if (name.startsWith(PROPERTY_PREFIX))
+				command.add("-D" + name + "=" + property.getValue());
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ShardWorker.class.getName());
+
+		List<ShardEndpoint> endpoints = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+		{
+			endpoints.add(() -> ShardConnection.startProcess(command));
+		}
+		return endpoints;
+	}
+
+	/**
+	 * Endpoint that connects to a ShardWorkerServer.
+	 * @param hostAndPort - String of the host, optionally followed by a colon and the port
+	 * @return ShardEndpoint
+	 */
+	public static ShardEndpoint remoteWorker(String hostAndPort)
+	{
+		int colon = hostAndPort.lastIndexOf(':');
+		String host = colon < 0 ? hostAndPort : hostAndPort.substring(0, colon);
+		int port = colon < 0 ? ShardWorkerServer.DEFAULT_PORT : Integer.parseInt(hostAndPort.substring(colon + 1));
+		return () -> {
+			try
+			{
+				return ShardConnection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS,
+						READ_TIMEOUT_MILLIS);
+			}
+			catch (IOException ex)
+			{
+				throw new IOException("Cannot reach " + host + ":" + port + ", " + ex.getMessage(), ex);
+			}
+		};
+	}
+
+	/**
+	 * Reads every work order from the input, runs the shards on the workers
+	 * and writes one result line per record to the output in input order.
+	 * @param input - Reader of the work order records
+	 * @param output - Writer to stream the result records to
+	 * @return long of the number of records processed
+	 * @throws IOException if the shards cannot be stored or every try of a shard failed
+	 * @throws IllegalArgumentException if a work order is malformed
+	 */
+	public long process(Reader input, Writer output) throws IOException
+	{
+		long start = System.nanoTime();
+		this.reassignedCount.set(0);
+		this.skippedCount = 0;
+		Path directory = Files.createTempDirectory("nickelplate-shards");
+		try
+		{
+			Shard [] shards = this.partition(input, directory);
+			this.runShards(shards);
+
+			ShardTotals merged = new ShardTotals();
+			for (Shard shard : shards)
+			{
+				merged.merge(shard.totals);
+			}
+			this.recordCount = this.merge(shards, directory, output);
+			this.totals = merged;
+		}
+		finally
+		{
+			try (Stream<Path> files = Files.walk(directory))
+			{
+				files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+		this.elapsedNanos = System.nanoTime() - start;
+		return this.recordCount;
+	}
+
+	/**
+	 * Splits the input into shard files, skipping the header and reporting
+	 * malformed lines.  Each record is stored with its line number, for error
+	 * messages, and the shard of every record is
+	 * written to an assignment file the merge follows.
+	 * @param input - Reader of the work order records
+	 * @param directory - Path of the directory to write the shards to
+	 * @return Shard [] of the shards
+	 * @throws IOException
+	 */
+	private Shard [] partition(Reader input, Path directory) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(input, BatchProcessor.BUFFER_SIZE);
+		Shard [] shards = new Shard[this.shardCount];
+		BufferedWriter [] writers = new BufferedWriter[this.shardCount];
+		WorkOrderParser parser = new WorkOrderParser();
+		double [] fields = new double[WorkOrderParser.FIELD_COUNT];
+		try (OutputStream assignments = new BufferedOutputStream(
+				Files.newOutputStream(directory.resolve("assignments")), BatchProcessor.BUFFER_SIZE))
+		{
+			for (int i = 0; i < this.shardCount; i++)
+			{
+				shards[i] = new Shard(i, directory.resolve("shard-" + i), directory.resolve("result-" + i));
+				writers[i] = Files.newBufferedWriter(shards[i].input, StandardCharsets.UTF_8);
+			}
+
+			long lineNumber = 0;
+			long records = 0;
+			String raw;
+			while ((raw = reader.readLine()) != null)
+			{
+				lineNumber++;
+				if (parser.isLeadingHeader(raw))
+					continue;
+				try
+				{
+					if (!parser.parse(raw, fields))
+						continue;
+				}
+				catch (IllegalArgumentException ex)
+				{
+					BatchProcessor.reportSkipped(new IllegalArgumentException(
+							"Bad work order on line " + lineNumber + ": " + ex.getMessage(), ex));
+					this.skippedCount++;
+					continue;
+				}
+
+				int shard;
+				if (this.key == ShardKeyEnum.GEOMETRY)
+				{
+					int hash = Double.hashCode(fields[WorkOrderParser.WIDTH]);
+					hash = hash * 31 + Double.hashCode(fields[WorkOrderParser.LENGTH]);
+					hash = hash * 31 + Double.hashCode(fields[WorkOrderParser.NBR_SIDES]);
+					shard = Math.floorMod(hash ^ (hash >>> 16), this.shardCount);
+				}
+				else
+				{
+					shard = (int) ((records / BLOCK_SIZE) % this.shardCount);
+				}
+				writers[shard].append(Long.toString(lineNumber)).append('\t').append(raw).append('\n');
+				shards[shard].records++;
+				assignments.write(shard);
+				records++;
+			}
+		}
+		finally
+		{
+			for (BufferedWriter writer : writers)
+			{
+				if (writer != null)
+					writer.close();
+			}
+		}
+		return shards;
+	}
+
+	/**
+	 * Runs every shard, a thread per worker taking shards from a shared queue.
+	 * @param shards - Shard [] to run
+	 * @throws IOException if a shard failed every try or every worker was retired
+	 */
+	private void runShards(Shard [] shards) throws IOException
+	{
+		LinkedBlockingQueue<Shard> pending = new LinkedBlockingQueue<>();
+		for (Shard shard : shards)
+		{
+			pending.add(shard);
+		}
+		AtomicInteger remaining = new AtomicInteger(shards.length);
+		List<Callable<Void>> slots = new ArrayList<>();
+		for (ShardEndpoint worker : this.workers)
+		{
+			slots.add(() -> {
+				this.runSlot(worker, pending, remaining);
+				return null;
+			});
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(slots.size());
+		try
+		{
+			for (Future<Void> slot : pool.invokeAll(slots))
+			{
+				slot.get();
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while running the shards.", ex);
+		}
+		catch (ExecutionException ex)
+		{
+			if (ex.getCause() instanceof IOException)
+				throw (IOException) ex.getCause();
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException) ex.getCause();
+			throw new IOException("Shard run failed.", ex.getCause());
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		if (remaining.get() > 0)
+			throw new IOException(remaining.get() + " shards were not run, every worker failed.");
+	}
+
+	/**
+	 * Body of a worker's thread.  Takes shards until none remain, keeping one
+	 * connection open across them and replacing it after a failure.
+	 * @param worker - ShardEndpoint of the worker
+	 * @param pending - LinkedBlockingQueue of the shards waiting to run
+	 * @param remaining - AtomicInteger of the shards not yet finished
+	 * @throws IOException if a shard failed every try
+	 * @throws InterruptedException if the run was stopped
+	 */
+	private void runSlot(ShardEndpoint worker, LinkedBlockingQueue<Shard> pending, AtomicInteger remaining)
+			throws IOException, InterruptedException
+	{
+		ShardConnection connection = null;
+		int failures = 0;
+		try
+		{
+			while (remaining.get() > 0)
+			{
+				Shard shard = pending.poll(100, TimeUnit.MILLISECONDS);
+				if (shard == null)
+					continue;
+				boolean reached = false;
+				try
+				{
+					if (connection == null)
+						connection = worker.connect();
+					reached = true;
+					shard.totals = this.runShard(connection, shard);
+					remaining.decrementAndGet();
+					failures = 0;
+				}
+				catch (IOException ex)
+				{
+					String name = connection == null ? "worker" : connection.toString();
+					if (connection != null)
+						connection.abort();
+					connection = null;
+					failures++;
+					// a worker that could not be reached never ran the shard
+					if (reached && ++shard.attempts >= MAX_ATTEMPTS)
+						throw new IOException("Shard " + shard.index + " failed " + shard.attempts + " times.", ex);
+					System.err.println("Shard " + shard.index + " failed on " + name + ", reassigning: " + ex.getMessage());
+					this.reassignedCount.incrementAndGet();
+					pending.add(shard);
+					if (failures >= MAX_ATTEMPTS)
+					{
+						System.err.println("Retiring " + name + " after " + failures + " failures in a row.");
+						return;
+					}
+				}
+			}
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			// stop the other workers taking more shards
+			remaining.set(0);
+			throw ex;
+		}
+		finally
+		{
+			if (connection != null)
+				connection.close();
+		}
+	}
+
+	/**
+	 * Sends a shard to a worker and stores its results.  The shard is written
+	 * from another thread while the results are read, so neither side waits
+	 * on a full pipe.
+	 * @param connection - ShardConnection of the worker
+	 * @param shard - Shard to run
+	 * @return ShardTotals reported by the worker
+	 * @throws IOException if the worker failed, ended early or sent a bad reply
+	 * @throws IllegalArgumentException if the worker found a malformed work order
+	 */
+	private ShardTotals runShard(ShardConnection connection, Shard shard) throws IOException
+	{
+		IOException [] sendFailure = new IOException[1];
+		Thread sender = new Thread(() -> {
+			try
+			{
+				OutputStream out = connection.getOutputStream();
+				out.write((ShardWorker.header(shard.index, shard.records) + '\n').getBytes(StandardCharsets.UTF_8));
+				try (InputStream in = new BufferedInputStream(Files.newInputStream(shard.input), BatchProcessor.BUFFER_SIZE))
+				{
+					in.transferTo(out);
+				}
+				out.flush();
+			}
+			catch (IOException ex)
+			{
+				sendFailure[0] = ex;
+			}
+		}, "nickelplate-shard-sender");
+		sender.setDaemon(true);
+		sender.start();
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(),
+				StandardCharsets.UTF_8), BatchProcessor.BUFFER_SIZE);
+		String line;
+		try (BufferedWriter results = Files.newBufferedWriter(shard.output, StandardCharsets.UTF_8))
+		{
+			for (long i = 0; i < shard.records; i++)
+			{
+				line = reader.readLine();
+				if (line == null)
+					throw new EOFException("Worker ended after " + i + " of " + shard.records + " results.");
+				if (line.startsWith(ShardWorker.ERROR))
+					throw new IllegalArgumentException(line.substring(ShardWorker.ERROR.length()).trim());
+				results.write(line);
+				results.write('\n');
+			}
+		}
+		line = reader.readLine();
+		if (line == null)
+			throw new EOFException("Worker ended before the totals of shard " + shard.index + ".");
+		if (line.startsWith(ShardWorker.ERROR))
+			throw new IllegalArgumentException(line.substring(ShardWorker.ERROR.length()).trim());
+		ShardTotals shardTotals;
+		try
+		{
+			shardTotals = ShardTotals.parse(line);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			throw new IOException("Bad totals from worker.", ex);
+		}
+		if (shardTotals.getRecords() != shard.records)
+			throw new IOException("Worker reported " + shardTotals.getRecords() + " of " + shard.records + " records.");
+
+		try
+		{
+			sender.join();
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while sending a shard.", ex);
+		}
+		if (sendFailure[0] != null)
+			throw sendFailure[0];
+		return shardTotals;
+	}
+
+	/**
+	 * Writes the results of every shard in input order.
+	 * @param shards - Shard [] of the finished shards
+	 * @param directory - Path of the shard directory
+	 * @param output - Writer to write the results to
+	 * @return long of the number of records written
+	 * @throws IOException
+	 */
+	private long merge(Shard [] shards, Path directory, Writer output) throws IOException
+	{
+		BufferedWriter writer = new BufferedWriter(output, BatchProcessor.BUFFER_SIZE);
+		BufferedReader [] readers = new BufferedReader[shards.length];
+		long count = 0;
+		try (InputStream assignments = new BufferedInputStream(Files.newInputStream(directory.resolve("assignments")),
+				BatchProcessor.BUFFER_SIZE))
+		{
+			for (int i = 0; i < shards.length; i++)
+			{
+				readers[i] = Files.newBufferedReader(shards[i].output, StandardCharsets.UTF_8);
+			}
+			writer.write(BatchProcessor.HEADER);
+			writer.newLine();
+			int shard;
+			while ((shard = assignments.read()) >= 0)
+			{
+				String line = readers[shard].readLine();
+				if (line == null)
+					throw new EOFException("Results of shard " + shard + " ended early.");
+				writer.write(line);
+				writer.newLine();
+				count++;
+			}
+			writer.flush();
+		}
+		finally
+		{
+			for (BufferedReader reader : readers)
+			{
+				if (reader != null)
+					reader.close();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of records processed per second by the last run
+	 */
+	public double getRecordsPerSecond()
+	{
+		if (this.elapsedNanos == 0)
+			return 0;
+		return this.recordCount / (this.elapsedNanos / 1_000_000_000.0);
+	}
+
+	/**
+	 * @return the totals
+	 */
+	public ShardTotals getTotals() {
+		return totals;
+	}
+
+	/**
+	 * @return the recordCount
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return the skippedCount
+	 */
+	public long getSkippedCount() {
+		return skippedCount;
+	}
+
+	/**
+	 * @return the reassignedCount
+	 */
+	public int getReassignedCount() {
+		return reassignedCount.get();
+	}
+
+	/**
+	 * @return the elapsedNanos
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return the shardCount
+	 */
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	/**
+	 * One shard of the input.
+	 */
+	private static final class Shard
+	{
+		/** shard number */
+		private final int index;
+		/** file of the shard's records */
+		private final Path input;
+		/** file of the shard's results */
+		private final Path output;
+		/** number of records */
+		private long records;
+		/** times the shard has failed */
+		private int attempts;
+		/** totals reported by the worker that finished it */
+		private ShardTotals totals;
+
+		/**
+		 * @param index - int of the shard number
+		 * @param input - Path of the records file
+		 * @param output - Path of the results file
+		 */
+		private Shard(int index, Path input, Path output)
+		{
+			this.index = index;
+			this.input = input;
+			this.output = output;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import java.io.IOException;
+
+/**
+ * A place a sharded batch can run shards: a worker process started on this
+ * machine, or a ShardWorkerServer on another.
+ */
+public interface ShardEndpoint
+{
+	/**
+	 * Starts or connects to a worker.  Called again after a worker fails, so
+	 * each call should give a fresh worker.
+	 * @return ShardConnection to the worker
+	 * @throws IOException if the worker cannot be reached
+	 */
+	ShardConnection connect() throws IOException;
+}
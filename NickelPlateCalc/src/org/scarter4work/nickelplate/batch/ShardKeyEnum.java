@@ -0,0 +1,47 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+/**
+ * Ways a sharded batch splits its work orders between shards.  BLOCK deals
+ * out runs of consecutive records in turn, which balances the shards without
+ * reading the fields.  GEOMETRY hashes the width, length and sides plated,
+ * so every work order for the same part lands on the same worker and its
+ * geometry cache; work orders carry no part number to key on.
+ */
+public enum ShardKeyEnum
+{
+	BLOCK("block"),
+	GEOMETRY("geometry");
+
+	/** name used on the command line */
+	private String label;
+
+	/** default constructor */
+	private ShardKeyEnum(String label)
+	{
+		this.label = label;
+	}
+
+	/**
+	 * @param label - String of a shard key label
+	 * @return ShardKeyEnum with the label, or null if there is none
+	 */
+	public static ShardKeyEnum getByLabel(String label)
+	{
+		for (ShardKeyEnum key : values())
+		{
+			if (key.label.equals(label))
+				return key;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the label
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Totals of the records of one shard of a sharded batch, or of several
+ * shards merged.  The thickness mean and variance are kept with Welford's
+ * method and merged with Chan's parallel formula, so merging shards gives
+ * the same statistics as one pass over every record, up to rounding.  Not
+ * thread safe.
+ */
+public class ShardTotals
+{
+	/** first word of the totals line in the worker protocol */
+	static final String TOTALS = "TOTALS";
+
+	/** number of records */
+	private long records;
+
+	/** records within specification */
+	private long inSpecification;
+
+	/** sum of the total amps used */
+	private double totalAmps;
+
+	/** sum of the total amp hours used */
+	private double totalAmpHours;
+
+	/** mean thickness per side */
+	private double thicknessMean;
+
+	/** sum of squared differences from the mean thickness */
+	private double thicknessM2;
+
+	/** smallest thickness per side */
+	private double thicknessMin = Double.POSITIVE_INFINITY;
+
+	/** largest thickness per side */
+	private double thicknessMax = Double.NEGATIVE_INFINITY;
+
+	/** default constructor */
+	public ShardTotals()
+	{
+		super();
+	}
+
+	/**
+	 * Adds a calculated record.
+	 * @param result - PlatingResult of the record
+	 */
+	public void record(PlatingResult result)
+	{
+		this.records++;
+		if (result.isInSpecification())
+			this.inSpecification++;
+		this.totalAmps += result.getTotalAmpsUsed();
+		this.totalAmpHours += result.getTotalAmpHoursUsed();
+
+		double thickness = result.getThicknessPerSide();
+		double difference = thickness - this.thicknessMean;
+		this.thicknessMean += difference / this.records;
+		this.thicknessM2 += difference * (thickness - this.thicknessMean);
+		this.thicknessMin = Math.min(this.thicknessMin, thickness);
+		this.thicknessMax = Math.max(this.thicknessMax, thickness);
+	}
+
+	/**
+	 * Adds the totals of another shard.
+	 * @param other - ShardTotals to merge in
+	 */
+	public void merge(ShardTotals other)
+	{
+		if (other.records == 0)
+			return;
+		long combined = this.records + other.records;
+		double difference = other.thicknessMean - this.thicknessMean;
+		this.thicknessMean += difference * other.records / combined;
+		this.thicknessM2 += other.thicknessM2 + difference * difference * this.records / combined * other.records;
+		this.records = combined;
+		this.inSpecification += other.inSpecification;
+		this.totalAmps += other.totalAmps;
+		this.totalAmpHours += other.totalAmpHours;
+		this.thicknessMin = Math.min(this.thicknessMin, other.thicknessMin);
+		this.thicknessMax = Math.max(this.thicknessMax, other.thicknessMax);
+	}
+
+	/**
+	 * @return String of the totals line sent by a worker after a shard's results
+	 */
+	String format()
+	{
+		return TOTALS + ' ' + this.records + ' ' + this.inSpecification + ' ' + this.totalAmps + ' '
+				+ this.totalAmpHours + ' ' + this.thicknessMean + ' ' + this.thicknessM2 + ' '
+				+ this.thicknessMin + ' ' + this.thicknessMax;
+	}
+
+	/**
+	 * @param line - String of a totals line written by format
+	 * @return ShardTotals read from the line
+	 * @throws IllegalArgumentException if the line is not a totals line
+	 */
+	static ShardTotals parse(String line)
+	{
+		String [] values = line.split(" ");
+		if (values.length != 9 || !TOTALS.equals(values[0]))
+			throw new IllegalArgumentException("Not a shard totals line: " + line);
+		ShardTotals totals = new ShardTotals();
+		totals.records = Long.parseLong(values[1]);
+		totals.inSpecification = Long.parseLong(values[2]);
+		totals.totalAmps = Double.parseDouble(values[3]);
+		totals.totalAmpHours = Double.parseDouble(values[4]);
+		totals.thicknessMean = Double.parseDouble(values[5]);
+		totals.thicknessM2 = Double.parseDouble(values[6]);
+		totals.thicknessMin = Double.parseDouble(values[7]);
+		totals.thicknessMax = Double.parseDouble(values[8]);
+		return totals;
+	}
+
+	/**
+	 * @return double of the sample standard deviation of the thickness, 0 with fewer than two records
+	 */
+	public double getThicknessStandardDeviation()
+	{
+		return this.records < 2 ? 0 : Math.sqrt(this.thicknessM2 / (this.records - 1));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ShardTotals [records=" + records + ", inSpecification=" + inSpecification + ", totalAmps="
+				+ totalAmps + ", totalAmpHours=" + totalAmpHours + ", thicknessMean=" + thicknessMean
+				+ ", thicknessStandardDeviation=" + getThicknessStandardDeviation() + ", thicknessMin="
+				+ getThicknessMin() + ", thicknessMax=" + getThicknessMax() + "]";
+	}
+
+	/**
+	 * @return the records
+	 */
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * @return the inSpecification
+	 */
+	public long getInSpecification() {
+		return inSpecification;
+	}
+
+	/**
+	 * @return the totalAmps
+	 */
+	public double getTotalAmps() {
+		return totalAmps;
+	}
+
+	/**
+	 * @return the totalAmpHours
+	 */
+	public double getTotalAmpHours() {
+		return totalAmpHours;
+	}
+
+	/**
+	 * @return the thicknessMean
+	 */
+	public double getThicknessMean() {
+		return thicknessMean;
+	}
+
+	/**
+	 * @return the thicknessMin, NaN when there are no records
+	 */
+	public double getThicknessMin() {
+		return records == 0 ? Double.NaN : thicknessMin;
+	}
+
+	/**
+	 * @return the thicknessMax, NaN when there are no records
+	 */
+	public double getThicknessMax() {
+		return records == 0 ? Double.NaN : thicknessMax;
+	}
+}
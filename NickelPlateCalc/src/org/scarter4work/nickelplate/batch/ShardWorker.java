@@ -0,0 +1,151 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Worker side of a sharded batch.  A coordinator sends shards of work orders
+ * and the worker answers each with one result record per work order and the
+ * shard's totals.  The protocol is lines of UTF-8 text:
+ * <pre>
+ *   coordinator:  NPSHARD 1 &lt;shard&gt; &lt;records&gt;
+ *                 &lt;line number&gt; TAB &lt;work order&gt;     once per record
+ *   worker:       &lt;result record&gt;                     once per record
+ *                 TOTALS &lt;records&gt; &lt;in spec&gt; ...
+ * </pre>
+ * or, when a work order is malformed, ERROR and the message in place of the
+ * totals, after which the worker stops.  Any number of shards may follow on
+ * one connection; the worker returns when the input ends between shards.
+ */
+public class ShardWorker
+{
+	/** first word of a shard header */
+	static final String SHARD = "NPSHARD";
+
+	/** version of the protocol */
+	static final int PROTOCOL_VERSION = 1;
+
+	/** first word of an error line */
+	static final String ERROR = "ERROR";
+
+	/** processor doing the per record work */
+	private final BatchProcessor processor;
+
+	/** default constructor, using the geometry cache set up by the system properties */
+	public ShardWorker()
+	{
+		this(new BatchProcessor());
+	}
+
+	/**
+	 * @param processor - BatchProcessor doing the per record work
+	 */
+	public ShardWorker(BatchProcessor processor)
+	{
+		super();
+		this.processor = processor;
+	}
+
+	/**
+	 * Entry point of a worker process started by a ShardCoordinator, which
+	 * talks to it over standard in and standard out.
+	 * @param args - String [] of program arguments, none are used
+	 * @throws IOException
+	 */
+	public static void main(String... args) throws IOException
+	{
+		new ShardWorker().serve(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+				new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Answers shards until the input ends or a work order is malformed.
+	 * @param input - Reader of the coordinator's shards
+	 * @param output - Writer of the results and totals
+	 * @return long of the number of shards answered
+	 * @throws IOException if the connection fails, EOFException if it ends part way through a shard
+	 */
+	public long serve(Reader input, Writer output) throws IOException
+	{
+		BufferedReader reader = input instanceof BufferedReader
+				? (BufferedReader) input : new BufferedReader(input, BatchProcessor.BUFFER_SIZE);
+		BufferedWriter writer = new BufferedWriter(output, BatchProcessor.BUFFER_SIZE);
+		double [] fields = new double[WorkOrderParser.FIELD_COUNT];
+		StringBuilder line = new StringBuilder(256);
+		long shards = 0;
+
+		String header;
+		while ((header = reader.readLine()) != null)
+		{
+			long records = parseHeader(header);
+			ShardTotals totals = new ShardTotals();
+			try
+			{
+				for (long i = 0; i < records; i++)
+				{
+					String raw = reader.readLine();
+					if (raw == null)
+						throw new EOFException("Shard ended after " + i + " of " + records + " records.");
+					int tab = raw.indexOf('\t');
+					if (tab < 0)
+						throw new IllegalArgumentException("Shard record has no line number: " + raw);
+
+					line.setLength(0);
+					PlatingResult result = this.processor.processRecord(raw.substring(tab + 1),
+							Long.parseLong(raw.substring(0, tab)), fields, line);
+					if (result == null)
+						throw new IllegalArgumentException("Shard record is not a work order: " + raw);
+					totals.record(result);
+					writer.append(line).append('\n');
+				}
+			}
+			catch (IllegalArgumentException ex)
+			{
+				writer.append(ERROR).append(' ').append(ex.getMessage().replace('\n', ' ')).append('\n');
+				writer.flush();
+				return shards;
+			}
+			writer.append(totals.format()).append('\n');
+			writer.flush();
+			shards++;
+		}
+		return shards;
+	}
+
+	/**
+	 * @param header - String of a shard header line
+	 * @return long of the number of records in the shard
+	 * @throws IOException if the line is not a shard header of this protocol version
+	 */
+	private static long parseHeader(String header) throws IOException
+	{
+		String [] values = header.split(" ");
+		if (values.length != 4 || !SHARD.equals(values[0]))
+			throw new IOException("Not a shard header: " + header);
+		if (Integer.parseInt(values[1]) != PROTOCOL_VERSION)
+			throw new IOException("Unsupported shard protocol version " + values[1]);
+		return Long.parseLong(values[3]);
+	}
+
+	/**
+	 * @param shard - int of the shard index
+	 * @param records - long of the records that follow
+	 * @return String of the header line for the shard
+	 */
+	static String header(int shard, long records)
+	{
+		return SHARD + ' ' + PROTOCOL_VERSION + ' ' + shard + ' ' + records;
+	}
+}
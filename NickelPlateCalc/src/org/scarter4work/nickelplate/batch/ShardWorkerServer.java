@@ -0,0 +1,182 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Serves sharded batch work to coordinators on other hosts.  Each accepted
+ * connection runs a ShardWorker on its own thread until the coordinator
+ * closes it.  The server listens on every interface, since its callers are
+ * the other machines on the shop network.
+ */
+public class ShardWorkerServer
+{
+	/** default port */
+	public static final int DEFAULT_PORT = 8085;
+
+	/** address to listen on */
+	private final InetSocketAddress address;
+
+	/** makes the worker for each connection */
+	private final Supplier<ShardWorker> workers;
+
+	/** connections being served, closed by stop */
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+	/** listening socket */
+	private ServerSocket serverSocket;
+
+	/** threads running the connections */
+	private ExecutorService executor;
+
+	/**
+	 * Creates the server listening on every interface.
+	 * @param port - int of the port to listen on, 0 for any free port
+	 */
+	public ShardWorkerServer(int port)
+	{
+		this(new InetSocketAddress(port));
+	}
+
+	/**
+	 * Creates the server.
+	 * @param address - InetSocketAddress to listen on
+	 */
+	public ShardWorkerServer(InetSocketAddress address)
+	{
+		this(address, ShardWorker::new);
+	}
+
+	/**
+	 * Creates the server with its own workers.
+	 * @param address - InetSocketAddress to listen on
+	 * @param workers - Supplier of the ShardWorker for each connection
+	 */
+	public ShardWorkerServer(InetSocketAddress address, Supplier<ShardWorker> workers)
+	{
+		super();
+		this.address = address;
+		this.workers = workers;
+	}
+
+	/**
+	 * Binds the port and starts accepting coordinators.
+	 * @throws IOException
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (this.serverSocket != null)
+			throw new IllegalStateException("Shard server is already started.");
+		ServerSocket socket = new ServerSocket();
+		socket.setReuseAddress(true);
+		socket.bind(this.address);
+		this.serverSocket = socket;
+		this.executor = Executors.newCachedThreadPool();
+		ExecutorService connections = this.executor;
+
+		Thread acceptor = new Thread(() -> this.accept(socket, connections), "nickelplate-shard-server");
+		acceptor.setDaemon(false);
+		acceptor.start();
+	}
+
+	/**
+	 * Stops accepting coordinators and closes the open connections.
+	 */
+	public synchronized void stop()
+	{
+		if (this.serverSocket == null)
+			return;
+		try
+		{
+			this.serverSocket.close();
+		}
+		catch (IOException ex)
+		{
+			// the acceptor ends either way
+		}
+		for (Socket connection : this.connections)
+		{
+			try
+			{
+				connection.close();
+			}
+			catch (IOException ex)
+			{
+				// its worker ends either way
+			}
+		}
+		this.executor.shutdownNow();
+		this.serverSocket = null;
+		this.executor = null;
+	}
+
+	/**
+	 * @return int of the port the server is bound to
+	 */
+	public synchronized int getPort()
+	{
+		if (this.serverSocket == null)
+			throw new IllegalStateException("Shard server is not started.");
+		return this.serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Body of the acceptor thread.
+	 * @param socket - ServerSocket to accept from
+	 * @param connections - ExecutorService to run the connections on
+	 */
+	private void accept(ServerSocket socket, ExecutorService connections)
+	{
+		while (!socket.isClosed())
+		{
+			try
+			{
+				Socket connection = socket.accept();
+				connection.setTcpNoDelay(true);
+				connections.execute(() -> this.serve(connection));
+			}
+			catch (IOException | RuntimeException ex)
+			{
+				// closed, or the connection was rejected while stopping
+			}
+		}
+	}
+
+	/**
+	 * Runs a worker over one connection.
+	 * @param connection - Socket of the coordinator
+	 */
+	private void serve(Socket connection)
+	{
+		this.connections.add(connection);
+		try (Socket socket = connection)
+		{
+			this.workers.get().serve(
+					new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8),
+							BatchProcessor.BUFFER_SIZE),
+					new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+		}
+		catch (IOException ex)
+		{
+			System.err.println("Shard connection from " + connection.getRemoteSocketAddress() + " ended: " + ex.getMessage());
+		}
+		finally
+		{
+			this.connections.remove(connection);
+		}
+	}
+}
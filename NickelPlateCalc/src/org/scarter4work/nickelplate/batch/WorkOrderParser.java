@@ -0,0 +1,141 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+/**
+ * Parses a single line of a work order file into its numeric fields.  A work order
+ * line holds the values in prompt order: start weight, width, length, number of sides,
+ * number of pieces, selection (1=coupon, 2=panel) and final weight, separated by a
+ * comma or a tab.  Blank lines and lines starting with '#' are skipped, as is a header
+ * ahead of the first record, which readers find with isLeadingHeader.  Any other line
+ * that is not a record is malformed.  Other files in the same format with a different
+ * number of fields, such as the scheduler's load and tank lists, are parsed here too.
+ */
+public class WorkOrderParser
+{
+	/** number of fields in a work order record */
+	public static final int FIELD_COUNT = 7;
+
+	/** start weight field index */
+	public static final int START_WEIGHT = 0;
+	/** width field index */
+	public static final int WIDTH = 1;
+	/** length field index */
+	public static final int LENGTH = 2;
+	/** number of sides field index */
+	public static final int NBR_SIDES = 3;
+	/** number of pieces field index */
+	public static final int NBR_PIECES = 4;
+	/** selection field index */
+	public static final int SELECTION = 5;
+	/** final weight field index */
+	public static final int FINAL_WEIGHT = 6;
+
+	/** whether a line other than a blank or comment line has been seen */
+	private boolean started;
+
+	/** default constructor */
+	public WorkOrderParser()
+	{
+		super();
+	}
+
+	/**
+	 * Parses the line into the fields array passed in.  The array is reused by the
+	 * caller so that no per record storage is allocated.  This does not skip a header,
+	 * and is safe to call from several threads at once with their own arrays.
+	 * @param line - String of the raw line read from the work order file
+	 * @param fields - double [] of at least FIELD_COUNT length to receive the values
+	 * @return boolean true if the line was a record, false for a blank or comment line
+	 * @throws IllegalArgumentException if the line is a malformed record
+	 */
+	public boolean parse(String line, double [] fields)
+	{
+		return this.parse(line, fields, FIELD_COUNT);
+	}
+
+	/**
+	 * Parses a line of a file in the work order format with its own number of
+	 * fields into the fields array passed in.
+	 * @param line - String of the raw line
+	 * @param fields - double [] of at least fieldCount length to receive the values
+	 * @param fieldCount - int of the number of fields in a record
+	 * @return boolean true if the line was a record, false for a blank or comment line
+	 * @throws IllegalArgumentException if the line is a malformed record
+	 */
+	public boolean parse(String line, double [] fields, int fieldCount)
+	{
+		if (isBlankOrComment(line))
+			return false;
+
+		// pull out each delimited field
+		int length = line.length();
+		char delimiter = line.indexOf('\t') >= 0 ? '\t' : ',';
+		int field = 0;
+		int start = 0;
+		for (int i = 0; i <= length; i++)
+		{
+			if (i == length || line.charAt(i) == delimiter)
+			{
+				if (field == fieldCount)
+					throw new IllegalArgumentException("Too many fields, expected " + fieldCount + ": " + line);
+				try
+				{
+					fields[field] = Double.parseDouble(line.substring(start, i).trim());
+				}
+				catch (NumberFormatException ex)
+				{
+					throw new IllegalArgumentException("Field " + (field + 1) + " is not a number: " + line, ex);
+				}
+				field++;
+				start = i + 1;
+			}
+		}
+
+		if (field != fieldCount)
+			throw new IllegalArgumentException("Expected " + fieldCount + " fields: " + line);
+
+		return true;
+	}
+
+	/**
+	 * Tells whether a line is the header ahead of the records.  Pass every line
+	 * of a file in order; only the first line that is not blank or a comment can
+	 * be the header, and only if its first field is not numeric.  A parser
+	 * reads one file this way.
+	 * @param line - String of the raw line read from the file
+	 * @return boolean true for the leading header line
+	 */
+	public boolean isLeadingHeader(String line)
+	{
+		if (this.started || isBlankOrComment(line))
+			return false;
+		this.started = true;
+
+		char first = line.charAt(firstNonBlank(line));
+		return !Character.isDigit(first) && first != '-' && first != '+' && first != '.';
+	}
+
+	/**
+	 * @param line - String of the raw line read from the file
+	 * @return boolean true for a blank or comment line
+	 */
+	private static boolean isBlankOrComment(String line)
+	{
+		int pos = firstNonBlank(line);
+		return pos == line.length() || line.charAt(pos) == '#';
+	}
+
+	/**
+	 * @param line - String of the raw line read from the file
+	 * @return int of the position of the first character that is not blank
+	 */
+	private static int firstNonBlank(String line)
+	{
+		int length = line.length();
+		int pos = 0;
+		while (pos < length && line.charAt(pos) <= ' ') pos++;
+		return pos;
+	}
+}
@@ -3,51 +3,52 @@
  */
 package org.scarter4work.nickelplate.calc;
 
+import org.scarter4work.nickelplate.metrics.CalculationMetrics;
+import org.scarter4work.nickelplate.metrics.StageEnum;
+
 /**
  * This class computes all the necessary values to provide answers
  * for the final report for the nickel plate thickness program.
  */
 public class Calculator 
 {
-	/** amp factor */
-	private static final Double AMP_FACTOR = new Double(0.03855);
-	/** minutes per hour */
-	private static final Integer MIN_PER_HOUR = new Integer(60);
-	/** amp hour factor */
-	private static final Double AMP_HOUR_FACTOR = new Double(2.203);
-	/** thickness factor */
-	private static final Integer THICKNESS_FACTOR = new Integer(150);
+	/** maximum thickness per side for a piece to be in specification */
+	public static final double MAX_THICKNESS_PER_SIDE = PlatingMath.MAX_THICKNESS_PER_SIDE;
 	
 	/** start weight of the work piece */
-	private Double startWeight;
+	private double startWeight;
 	/** final weight of the work piece */
-	private Double finalWeight;
+	private double finalWeight;
 	/** amps used */
-	private Double ampsUsed;
+	private double ampsUsed;
 	/** total number of amps used for plating */
-	private Double totalAmpsUsed;
+	private double totalAmpsUsed;
 	/** number of amp hours used for plating */
-	private Double ampHoursUsed;
+	private double ampHoursUsed;
 	/** total number of amp hours used */
-	private Double totalAmpHoursUsed;
+	private double totalAmpHoursUsed;
 	/** number of sides plated */
-	private Double nbrSidesPlated;
+	private double nbrSidesPlated;
 	/** number of pieces plated */
-	private Double nbrPieces;
+	private double nbrPieces;
 	/** width of the work piece */
-	private Double width;
+	private double width;
 	/**	length of the work piece */
-	private Double length;
+	private double length;
 	/** thickness of nickel per side of the work piece */
-	private Double thicknessPerSide;
+	private double thicknessPerSide;
 	/** difference between measurements */
-	private Double delta;
+	private double delta;
 	/** the total surface area of all work pieces */
-	private Double totalSurfaceArea;
+	private double totalSurfaceArea;
 	/** total surface area of a work piece */
-	private Double surfaceArea;
+	private double surfaceArea;
 	/** selection value - coupon or panel */
-	private Double selection;
+	private double selection;
+	/** optional cache of surface area and current values by geometry */
+	private GeometryCache geometryCache;
+	/** true when the surface area was supplied with the geometry, for example from the part catalog */
+	private boolean surfaceAreaKnown;
 	
 	/** default constructor */
 	public Calculator()
@@ -62,20 +63,41 @@ public class Calculator
 	 */
 	public void calculateSurfaceAreas()
 	{
-		this.surfaceArea = this.length.doubleValue() * this.width.doubleValue() * this.nbrSidesPlated.doubleValue();
-		this.totalSurfaceArea = this.surfaceArea.doubleValue() * this.nbrPieces.doubleValue();
+		long start = CalculationMetrics.startStage();
+		if (!this.surfaceAreaKnown)
+			this.surfaceArea = PlatingMath.surfaceArea(this.length, this.width, this.nbrSidesPlated);
+		this.totalSurfaceArea = PlatingMath.totalSurfaceArea(this.surfaceArea, this.nbrPieces);
+		CalculationMetrics.endStage(StageEnum.SURFACE_AREAS, start);
 	}
 	
 	/**
 	 * Calculates the current values for amp hours and amps
-	 * used both in flight values and total values.
+	 * used both in flight values and total values.  When a geometry
+	 * cache is set the surface area and current values are taken from
+	 * it together, since the selection is known by this point.
 	 */
 	public void calculateCurrentValues()
 	{
-		this.ampsUsed = this.surfaceArea.doubleValue() * AMP_FACTOR * this.selection.doubleValue();
-		this.ampHoursUsed = (this.surfaceArea.doubleValue() * AMP_HOUR_FACTOR)/MIN_PER_HOUR;
-		this.totalAmpsUsed = this.nbrPieces.doubleValue() * this.ampsUsed.doubleValue();
-		this.totalAmpHoursUsed = this.nbrPieces.doubleValue() * this.ampHoursUsed.doubleValue();
+		long start = CalculationMetrics.startStage();
+		if (this.geometryCache != null)
+		{
+			GeometryResult geometry = this.geometryCache.get(this.width, this.length,
+					this.nbrSidesPlated, this.nbrPieces, this.selection);
+			this.surfaceArea = geometry.getSurfaceArea();
+			this.totalSurfaceArea = geometry.getTotalSurfaceArea();
+			this.ampsUsed = geometry.getAmpsUsed();
+			this.ampHoursUsed = geometry.getAmpHoursUsed();
+			this.totalAmpsUsed = geometry.getTotalAmpsUsed();
+			this.totalAmpHoursUsed = geometry.getTotalAmpHoursUsed();
+		}
+		else
+		{
+			this.ampsUsed = PlatingMath.ampsUsed(this.surfaceArea, this.selection);
+			this.ampHoursUsed = PlatingMath.ampHoursUsed(this.surfaceArea);
+			this.totalAmpsUsed = PlatingMath.total(this.nbrPieces, this.ampsUsed);
+			this.totalAmpHoursUsed = PlatingMath.total(this.nbrPieces, this.ampHoursUsed);
+		}
+		CalculationMetrics.endStage(StageEnum.CURRENT_VALUES, start);
 	}
 	
 	/**
@@ -83,9 +105,104 @@ public class Calculator
 	 */
 	public void calculateNickelThickness()
 	{
-		this.delta = this.finalWeight.doubleValue() - this.startWeight.doubleValue();
-		this.thicknessPerSide = 
-				((this.delta.doubleValue()/(this.totalSurfaceArea.doubleValue()/this.nbrPieces.doubleValue())))/THICKNESS_FACTOR;
+		long start = CalculationMetrics.startStage();
+		this.delta = PlatingMath.delta(this.startWeight, this.finalWeight);
+		this.thicknessPerSide = PlatingMath.thicknessPerSide(this.delta, this.totalSurfaceArea, this.nbrPieces);
+		CalculationMetrics.endStage(StageEnum.NICKEL_THICKNESS, start);
+		CalculationMetrics.recordResult(PlatingMath.isInSpecification(this.thicknessPerSide));
+	}
+	
+	/**
+	 * Sets the geometry of a work piece together with its already known single
+	 * piece surface area, which calculateSurfaceAreas then uses as is.  Setting
+	 * the width, length or sides plated on their own clears the known area.
+	 * @param width - width of the work piece
+	 * @param length - length of the work piece
+	 * @param nbrSidesPlated - number of sides plated
+	 * @param surfaceArea - surface area of one work piece
+	 */
+	public void setGeometry(double width, double length, double nbrSidesPlated, double surfaceArea)
+	{
+		this.width = width;
+		this.length = length;
+		this.nbrSidesPlated = nbrSidesPlated;
+		this.surfaceArea = surfaceArea;
+		this.surfaceAreaKnown = true;
+	}
+
+	/**
+	 * Runs every calculation on the current values and returns them as an
+	 * immutable result.
+	 * @return PlatingResult of the current inputs and calculated values
+	 */
+	public PlatingResult toResult()
+	{
+		return PlatingMath.calculate(this.startWeight, this.width, this.length,
+				this.nbrSidesPlated, this.nbrPieces, this.selection, this.finalWeight);
+	}
+
+	/**
+	 * @return double of the total surface area, unboxed
+	 */
+	public double getTotalSurfaceAreaAsDouble()
+	{
+		return this.totalSurfaceArea;
+	}
+
+	/**
+	 * @return double of the total amps used, unboxed
+	 */
+	public double getTotalAmpsUsedAsDouble()
+	{
+		return this.totalAmpsUsed;
+	}
+
+	/**
+	 * @return double of the total amp hours used, unboxed
+	 */
+	public double getTotalAmpHoursUsedAsDouble()
+	{
+		return this.totalAmpHoursUsed;
+	}
+
+	/**
+	 * @return double of the thickness per side, unboxed
+	 */
+	public double getThicknessPerSideAsDouble()
+	{
+		return this.thicknessPerSide;
+	}
+
+	/**
+	 * @return double of the number of sides plated, unboxed
+	 */
+	public double getNbrSidesPlatedAsDouble()
+	{
+		return this.nbrSidesPlated;
+	}
+
+	/**
+	 * @return double of the number of pieces, unboxed
+	 */
+	public double getNbrPiecesAsDouble()
+	{
+		return this.nbrPieces;
+	}
+
+	/**
+	 * @return double of the width, unboxed
+	 */
+	public double getWidthAsDouble()
+	{
+		return this.width;
+	}
+
+	/**
+	 * @return double of the length, unboxed
+	 */
+	public double getLengthAsDouble()
+	{
+		return this.length;
 	}
 	
 	/* (non-Javadoc)
@@ -109,227 +226,245 @@ public class Calculator
 	 */
 	private void initCalculatorValues()
 	{
-		this.startWeight = Double.valueOf(0);
-		this.finalWeight = Double.valueOf(0);
-		this.ampsUsed = Double.valueOf(0);
-		this.ampHoursUsed = Double.valueOf(0);
-		this.nbrSidesPlated = Double.valueOf(0);
-		this.nbrPieces = Double.valueOf(0);
-		this.width = Double.valueOf(0);
-		this.length = Double.valueOf(0);
-		this.thicknessPerSide = Double.valueOf(0);
-		this.delta = Double.valueOf(0);
-		this.totalSurfaceArea = Double.valueOf(0);
-		this.surfaceArea = Double.valueOf(0);
+		this.startWeight = 0;
+		this.finalWeight = 0;
+		this.ampsUsed = 0;
+		this.ampHoursUsed = 0;
+		this.nbrSidesPlated = 0;
+		this.nbrPieces = 0;
+		this.width = 0;
+		this.length = 0;
+		this.thicknessPerSide = 0;
+		this.delta = 0;
+		this.totalSurfaceArea = 0;
+		this.surfaceArea = 0;
+		this.surfaceAreaKnown = false;
 	}
 
 	/**
 	 * @return the startWeight
 	 */
 	public Double getStartWeight() {
-		return startWeight;
+		return Double.valueOf(startWeight);
 	}
 
 	/**
 	 * @param startWeight the startWeight to set
 	 */
 	public void setStartWeight(Double startWeight) {
-		this.startWeight = startWeight;
+		this.startWeight = startWeight.doubleValue();
 	}
 
 	/**
 	 * @return the finalWeight
 	 */
 	public Double getFinalWeight() {
-		return finalWeight;
+		return Double.valueOf(finalWeight);
 	}
 
 	/**
 	 * @param finalWeight the finalWeight to set
 	 */
 	public void setFinalWeight(Double finalWeight) {
-		this.finalWeight = finalWeight;
+		this.finalWeight = finalWeight.doubleValue();
 	}
 
 	/**
 	 * @return the ampsUsed
 	 */
 	public Double getAmpsUsed() {
-		return ampsUsed;
+		return Double.valueOf(ampsUsed);
 	}
 
 	/**
 	 * @param ampsUsed the ampsUsed to set
 	 */
 	public void setAmpsUsed(Double ampsUsed) {
-		this.ampsUsed = ampsUsed;
+		this.ampsUsed = ampsUsed.doubleValue();
 	}
 
 	/**
 	 * @return the totalAmpsUsed
 	 */
 	public Double getTotalAmpsUsed() {
-		return totalAmpsUsed;
+		return Double.valueOf(totalAmpsUsed);
 	}
 
 	/**
 	 * @param totalAmpsUsed the totalAmpsUsed to set
 	 */
 	public void setTotalAmpsUsed(Double totalAmpsUsed) {
-		this.totalAmpsUsed = totalAmpsUsed;
+		this.totalAmpsUsed = totalAmpsUsed.doubleValue();
 	}
 
 	/**
 	 * @return the ampHoursUsed
 	 */
 	public Double getAmpHoursUsed() {
-		return ampHoursUsed;
+		return Double.valueOf(ampHoursUsed);
 	}
 
 	/**
 	 * @param ampHoursUsed the ampHoursUsed to set
 	 */
 	public void setAmpHoursUsed(Double ampHoursUsed) {
-		this.ampHoursUsed = ampHoursUsed;
+		this.ampHoursUsed = ampHoursUsed.doubleValue();
 	}
 
 	/**
 	 * @return the totalAmpHoursUsed
 	 */
 	public Double getTotalAmpHoursUsed() {
-		return totalAmpHoursUsed;
+		return Double.valueOf(totalAmpHoursUsed);
 	}
 
 	/**
 	 * @param totalAmpHoursUsed the totalAmpHoursUsed to set
 	 */
 	public void setTotalAmpHoursUsed(Double totalAmpHoursUsed) {
-		this.totalAmpHoursUsed = totalAmpHoursUsed;
+		this.totalAmpHoursUsed = totalAmpHoursUsed.doubleValue();
 	}
 
 	/**
 	 * @return the nbrSidesPlated
 	 */
 	public Double getNbrSidesPlated() {
-		return nbrSidesPlated;
+		return Double.valueOf(nbrSidesPlated);
 	}
 
 	/**
 	 * @param nbrSidesPlated the nbrSidesPlated to set
 	 */
 	public void setNbrSidesPlated(Double nbrSidesPlated) {
-		this.nbrSidesPlated = nbrSidesPlated;
+		this.nbrSidesPlated = nbrSidesPlated.doubleValue();
+		this.surfaceAreaKnown = false;
 	}
 
 	/**
 	 * @return the nbrPieces
 	 */
 	public Double getNbrPieces() {
-		return nbrPieces;
+		return Double.valueOf(nbrPieces);
 	}
 
 	/**
 	 * @param nbrPieces the nbrPieces to set
 	 */
 	public void setNbrPieces(Double nbrPieces) {
-		this.nbrPieces = nbrPieces;
+		this.nbrPieces = nbrPieces.doubleValue();
 	}
 
 	/**
 	 * @return the width
 	 */
 	public Double getWidth() {
-		return width;
+		return Double.valueOf(width);
 	}
 
 	/**
 	 * @param width the width to set
 	 */
 	public void setWidth(Double width) {
-		this.width = width;
+		this.width = width.doubleValue();
+		this.surfaceAreaKnown = false;
 	}
 
 	/**
 	 * @return the length
 	 */
 	public Double getLength() {
-		return length;
+		return Double.valueOf(length);
 	}
 
 	/**
 	 * @param length the length to set
 	 */
 	public void setLength(Double length) {
-		this.length = length;
+		this.length = length.doubleValue();
+		this.surfaceAreaKnown = false;
 	}
 
 	/**
 	 * @return the thicknessPerSide
 	 */
 	public Double getThicknessPerSide() {
-		return thicknessPerSide;
+		return Double.valueOf(thicknessPerSide);
 	}
 
 	/**
 	 * @param thicknessPerSide the thicknessPerSide to set
 	 */
 	public void setThicknessPerSide(Double thicknessPerSide) {
-		this.thicknessPerSide = thicknessPerSide;
+		this.thicknessPerSide = thicknessPerSide.doubleValue();
 	}
 
 	/**
 	 * @return the delta
 	 */
 	public Double getDelta() {
-		return delta;
+		return Double.valueOf(delta);
 	}
 
 	/**
 	 * @param delta the delta to set
 	 */
 	public void setDelta(Double delta) {
-		this.delta = delta;
+		this.delta = delta.doubleValue();
 	}
 
 	/**
 	 * @return the totalSurfaceArea
 	 */
 	public Double getTotalSurfaceArea() {
-		return totalSurfaceArea;
+		return Double.valueOf(totalSurfaceArea);
 	}
 
 	/**
 	 * @param totalSurfaceArea the totalSurfaceArea to set
 	 */
 	public void setTotalSurfaceArea(Double totalSurfaceArea) {
-		this.totalSurfaceArea = totalSurfaceArea;
+		this.totalSurfaceArea = totalSurfaceArea.doubleValue();
 	}
 
 	/**
 	 * @return the surfaceArea
 	 */
 	public Double getSurfaceArea() {
-		return surfaceArea;
+		return Double.valueOf(surfaceArea);
 	}
 
 	/**
 	 * @param surfaceArea the surfaceArea to set
 	 */
 	public void setSurfaceArea(Double surfaceArea) {
-		this.surfaceArea = surfaceArea;
+		this.surfaceArea = surfaceArea.doubleValue();
 	}
 
 	/**
 	 * @return the selection
 	 */
 	public Double getSelection() {
-		return selection;
+		return Double.valueOf(selection);
 	}
 
 	/**
 	 * @param selection the selection to set
 	 */
 	public void setSelection(Double selection) {
-		this.selection = selection;
+		this.selection = selection.doubleValue();
+	}
+
+	/**
+	 * @return the geometryCache
+	 */
+	public GeometryCache getGeometryCache() {
+		return geometryCache;
+	}
+
+	/**
+	 * @param geometryCache the geometryCache to set, null to calculate every time
+	 */
+	public void setGeometryCache(GeometryCache geometryCache) {
+		this.geometryCache = geometryCache;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
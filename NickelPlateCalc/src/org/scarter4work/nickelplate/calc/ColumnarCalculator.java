@@ -0,0 +1,328 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.calc;
+
+/**
+ * Computes the calculator values for a whole block of work pieces at once.  Every
+ * input and output value is held in its own primitive column so each calculation
+ * is a simple loop over arrays that the JIT can unroll and vectorize.  The
+ * formulas come from PlatingMath, the same as Calculator, so the results are
+ * bit for bit the same.
+ * <p>
+ * When the JVM is started with --add-modules jdk.incubator.vector the loops
+ * run on VectorColumnKernels, which uses explicit vectors of the widest shape
+ * the hardware has.  The Vector API is still incubating in Java 17, so the
+ * module is looked up at runtime and without it the plain loops are used and
+ * left to the JIT to vectorize.  Setting nickelplate.columnar.vector=false
+ * uses the plain loops even when the module is there.  Both give the same
+ * bits; only the operation order matters, and it is kept.
+ */
+public class ColumnarCalculator
+{
+	/** system property that turns the Vector API loops off */
+	public static final String VECTOR_PROPERTY = "nickelplate.columnar.vector";
+
+	/** true when the Vector API module is loaded and not turned off */
+	public static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+			&& Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"));
+
+	/** true to run the Vector API loops */
+	private final boolean vectorized;
+
+	/** number of rows each column can hold */
+	private final int capacity;
+
+	/** start weight column */
+	private final double [] startWeight;
+	/** final weight column */
+	private final double [] finalWeight;
+	/** number of sides plated column */
+	private final double [] nbrSidesPlated;
+	/** number of pieces column */
+	private final double [] nbrPieces;
+	/** width column */
+	private final double [] width;
+	/** length column */
+	private final double [] length;
+	/** selection column - coupon or panel */
+	private final double [] selection;
+
+	/** surface area of a work piece column */
+	private final double [] surfaceArea;
+	/** total surface area column */
+	private final double [] totalSurfaceArea;
+	/** amps used column */
+	private final double [] ampsUsed;
+	/** amp hours used column */
+	private final double [] ampHoursUsed;
+	/** total amps used column */
+	private final double [] totalAmpsUsed;
+	/** total amp hours used column */
+	private final double [] totalAmpHoursUsed;
+	/** difference between measurements column */
+	private final double [] delta;
+	/** thickness of nickel per side column */
+	private final double [] thicknessPerSide;
+
+	/**
+	 * Creates a calculator with columns sized to the capacity passed in.
+	 * @param capacity - int of the number of rows in each column
+	 */
+	public ColumnarCalculator(int capacity)
+	{
+		this(capacity, VECTOR_AVAILABLE);
+	}
+
+	/**
+	 * Creates a calculator choosing the loops it runs.
+	 * @param capacity - int of the number of rows in each column
+	 * @param vectorized - boolean true for the Vector API loops, which need the module to be loaded
+	 */
+	ColumnarCalculator(int capacity, boolean vectorized)
+	{
+		super();
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+		this.capacity = capacity;
+		this.vectorized = vectorized;
+		this.startWeight = new double[capacity];
+		this.finalWeight = new double[capacity];
+		this.nbrSidesPlated = new double[capacity];
+		this.nbrPieces = new double[capacity];
+		this.width = new double[capacity];
+		this.length = new double[capacity];
+		this.selection = new double[capacity];
+		this.surfaceArea = new double[capacity];
+		this.totalSurfaceArea = new double[capacity];
+		this.ampsUsed = new double[capacity];
+		this.ampHoursUsed = new double[capacity];
+		this.totalAmpsUsed = new double[capacity];
+		this.totalAmpHoursUsed = new double[capacity];
+		this.delta = new double[capacity];
+		this.thicknessPerSide = new double[capacity];
+	}
+
+	/**
+	 * Runs all calculations over the first count rows.
+	 * @param count - int of the number of rows filled in
+	 */
+	public void calculate(int count)
+	{
+		this.calculateSurfaceAreas(count);
+		this.calculateCurrentValues(count);
+		this.calculateNickelThickness(count);
+	}
+
+	/**
+	 * Calculates the surface area and total surface area columns.
+	 * @param count - int of the number of rows filled in
+	 */
+	public void calculateSurfaceAreas(int count)
+	{
+		this.checkCount(count);
+		double [] length = this.length;
+		double [] width = this.width;
+		double [] sides = this.nbrSidesPlated;
+		double [] pieces = this.nbrPieces;
+		double [] area = this.surfaceArea;
+		double [] totalArea = this.totalSurfaceArea;
+		if (this.vectorized)
+		{
+			VectorColumnKernels.surfaceAreas(length, width, sides, pieces, area, totalArea, count);
+			return;
+		}
+
+		for (int i = 0; i < count; i++)
+		{
+			area[i] = PlatingMath.surfaceArea(length[i], width[i], sides[i]);
+			totalArea[i] = PlatingMath.totalSurfaceArea(area[i], pieces[i]);
+		}
+	}
+
+	/**
+	 * Calculates the amps and amp hours columns.  The surface area columns
+	 * must already be calculated.
+	 * @param count - int of the number of rows filled in
+	 */
+	public void calculateCurrentValues(int count)
+	{
+		this.checkCount(count);
+		double [] area = this.surfaceArea;
+		double [] selection = this.selection;
+		double [] pieces = this.nbrPieces;
+		double [] amps = this.ampsUsed;
+		double [] ampHours = this.ampHoursUsed;
+		double [] totalAmps = this.totalAmpsUsed;
+		double [] totalAmpHours = this.totalAmpHoursUsed;
+		if (this.vectorized)
+		{
+			VectorColumnKernels.currentValues(area, selection, pieces, amps, ampHours, totalAmps, totalAmpHours, count);
+			return;
+		}
+
+		for (int i = 0; i < count; i++)
+		{
+			amps[i] = PlatingMath.ampsUsed(area[i], selection[i]);
+			ampHours[i] = PlatingMath.ampHoursUsed(area[i]);
+			totalAmps[i] = PlatingMath.total(pieces[i], amps[i]);
+			totalAmpHours[i] = PlatingMath.total(pieces[i], ampHours[i]);
+		}
+	}
+
+	/**
+	 * Calculates the nickel thickness columns.  The surface area columns must
+	 * already be calculated.
+	 * @param count - int of the number of rows filled in
+	 */
+	public void calculateNickelThickness(int count)
+	{
+		this.checkCount(count);
+		double [] start = this.startWeight;
+		double [] end = this.finalWeight;
+		double [] totalArea = this.totalSurfaceArea;
+		double [] pieces = this.nbrPieces;
+		double [] delta = this.delta;
+		double [] thickness = this.thicknessPerSide;
+		if (this.vectorized)
+		{
+			VectorColumnKernels.nickelThickness(start, end, totalArea, pieces, delta, thickness, count);
+			return;
+		}
+
+		for (int i = 0; i < count; i++)
+		{
+			delta[i] = PlatingMath.delta(start[i], end[i]);
+			thickness[i] = PlatingMath.thicknessPerSide(delta[i], totalArea[i], pieces[i]);
+		}
+	}
+
+	/**
+	 * Verifies the row count fits within the columns.
+	 * @param count - int of the number of rows filled in
+	 */
+	private void checkCount(int count)
+	{
+		if (count < 0 || count > this.capacity)
+			throw new IndexOutOfBoundsException("Row count " + count + " outside capacity " + this.capacity);
+	}
+
+	/**
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the vectorized
+	 */
+	public boolean isVectorized() {
+		return vectorized;
+	}
+
+	/**
+	 * @return the startWeight column
+	 */
+	public double[] getStartWeight() {
+		return startWeight;
+	}
+
+	/**
+	 * @return the finalWeight column
+	 */
+	public double[] getFinalWeight() {
+		return finalWeight;
+	}
+
+	/**
+	 * @return the nbrSidesPlated column
+	 */
+	public double[] getNbrSidesPlated() {
+		return nbrSidesPlated;
+	}
+
+	/**
+	 * @return the nbrPieces column
+	 */
+	public double[] getNbrPieces() {
+		return nbrPieces;
+	}
+
+	/**
+	 * @return the width column
+	 */
+	public double[] getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the length column
+	 */
+	public double[] getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the selection column
+	 */
+	public double[] getSelection() {
+		return selection;
+	}
+
+	/**
+	 * @return the surfaceArea column
+	 */
+	public double[] getSurfaceArea() {
+		return surfaceArea;
+	}
+
+	/**
+	 * @return the totalSurfaceArea column
+	 */
+	public double[] getTotalSurfaceArea() {
+		return totalSurfaceArea;
+	}
+
+	/**
+	 * @return the ampsUsed column
+	 */
+	public double[] getAmpsUsed() {
+		return ampsUsed;
+	}
+
+	/**
+	 * @return the ampHoursUsed column
+	 */
+	public double[] getAmpHoursUsed() {
+		return ampHoursUsed;
+	}
+
+	/**
+	 * @return the totalAmpsUsed column
+	 */
+	public double[] getTotalAmpsUsed() {
+		return totalAmpsUsed;
+	}
+
+	/**
+	 * @return the totalAmpHoursUsed column
+	 */
+	public double[] getTotalAmpHoursUsed() {
+		return totalAmpHoursUsed;
+	}
+
+	/**
+	 * @return the delta column
+	 */
+	public double[] getDelta() {
+		return delta;
+	}
+
+	/**
+	 * @return the thicknessPerSide column
+	 */
+	public double[] getThicknessPerSide() {
+		return thicknessPerSide;
+	}
+}
@@ -0,0 +1,596 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.calc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of surface area and current values keyed on part geometry.
+ * The cache is one open addressed table of small buckets, split into
+ * segments chosen by the high bits of the key's hash.  A geometry may sit in
+ * either of two buckets of its segment picked by other bits of the hash.  So
+ * a lookup reads at most eight slots, compares the bits of the five values
+ * and needs no lock and no key object.  Only adding and removing entries
+ * lock the segment.  When both buckets are full the least recently used
+ * entry in them is dropped, and entries older than the time to live are
+ * dropped when next looked up.  Hits are counted by each segment without a
+ * lock, so when many threads hit one segment at once the hit count may run a
+ * little low.
+ * <p>
+ * The cache is off unless turned on with system properties:
+ * nickelplate.geometryCache.enabled (default false),
+ * nickelplate.geometryCache.maximumSize (default 1024) and
+ * nickelplate.geometryCache.expireSeconds (default 0, never).
+ */
+public class GeometryCache
+{
+	/** default number of entries held */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+	/** system property that turns the cache on or off */
+	public static final String ENABLED_PROPERTY = "nickelplate.geometryCache.enabled";
+	/** system property for the maximum number of entries */
+	public static final String MAXIMUM_SIZE_PROPERTY = "nickelplate.geometryCache.maximumSize";
+	/** system property for the time to live in seconds */
+	public static final String EXPIRE_SECONDS_PROPERTY = "nickelplate.geometryCache.expireSeconds";
+
+	/** number of segments */
+	private static final int SEGMENT_COUNT = 16;
+
+	/** number of slots in each bucket */
+	private static final int WAYS = 4;
+
+	/** slots of every segment, WAYS to a bucket */
+	private final Entry [] slots;
+
+	/** segments of the cache */
+	private final Segment [] segments;
+
+	/** mask taking the segment from the top bits of the hash */
+	private final int segmentMask;
+
+	/** mask taking the bucket within a segment from the hash */
+	private final int bucketMask;
+
+	/** number of slots in each segment */
+	private final int segmentSlots;
+
+	/** time to live in nanoseconds, 0 for no expiry */
+	private final long expireNanos;
+
+	/** maximum number of entries */
+	private final int maximumSize;
+
+	/** number of lookups that had to calculate */
+	private final LongAdder missCount = new LongAdder();
+	/** number of entries removed to make room */
+	private final LongAdder evictionCount = new LongAdder();
+	/** number of entries removed because they were too old */
+	private final LongAdder expirationCount = new LongAdder();
+
+	/**
+	 * Creates a cache of the default size with no expiry.
+	 */
+	public GeometryCache()
+	{
+		this(DEFAULT_MAXIMUM_SIZE, 0, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param maximumSize - int of the most entries to hold
+	 * @param expireAfter - long of the time to live, 0 for no expiry
+	 * @param unit - TimeUnit of the time to live
+	 */
+	public GeometryCache(int maximumSize, long expireAfter, TimeUnit unit)
+	{
+		super();
+		if (maximumSize <= 0)
+			throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+		if (expireAfter < 0)
+			throw new IllegalArgumentException("Expiry must not be negative: " + expireAfter);
+
+		this.maximumSize = maximumSize;
+		this.expireNanos = unit.toNanos(expireAfter);
+
+		// spread the size over the segments, never fewer than one entry each
+		int segmentCount = Math.min(SEGMENT_COUNT, Integer.highestOneBit(maximumSize));
+		this.segmentMask = segmentCount - 1;
+
+		// at least twice the slots needed, so buckets rarely fill before the segment
+		int largest = (maximumSize + segmentCount - 1) / segmentCount;
+		int buckets = Integer.highestOneBit(((largest * 2 + WAYS - 1) / WAYS) * 2 - 1);
+		this.bucketMask = buckets - 1;
+		this.segmentSlots = buckets * WAYS;
+		this.slots = new Entry[segmentCount * this.segmentSlots];
+
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+		{
+			int capacity = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+			this.segments[i] = new Segment(capacity);
+		}
+	}
+
+	/**
+	 * Creates a cache from the system properties.
+	 * @return GeometryCache configured by the system properties, or null if it is disabled
+	 */
+	public static GeometryCache fromSystemProperties()
+	{
+		if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "false")))
+			return null;
+
+		int maximumSize = Integer.getInteger(MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE).intValue();
+		long expireSeconds = Long.getLong(EXPIRE_SECONDS_PROPERTY, 0L).longValue();
+		return new GeometryCache(maximumSize, expireSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Returns the surface area and current values for the geometry, calculating
+	 * and caching them if they are not already held.
+	 * @param width - width of the work piece
+	 * @param length - length of the work piece
+	 * @param nbrSidesPlated - number of sides plated
+	 * @param nbrPieces - number of pieces plated
+	 * @param selection - 1 for a coupon, 2 for a panel
+	 * @return GeometryResult for the geometry
+	 */
+	public GeometryResult get(double width, double length, double nbrSidesPlated, double nbrPieces, double selection)
+	{
+		long widthBits = Double.doubleToRawLongBits(width);
+		long lengthBits = Double.doubleToRawLongBits(length);
+		long sidesBits = Double.doubleToRawLongBits(nbrSidesPlated);
+		long piecesBits = Double.doubleToRawLongBits(nbrPieces);
+		long selectionBits = Double.doubleToRawLongBits(selection);
+		long hash = hash(widthBits, lengthBits, sidesBits, piecesBits, selectionBits);
+		int index = segmentIndex(hash);
+		long now = this.expireNanos > 0 ? System.nanoTime() : 0;
+
+		Entry entry = this.find(index, hash, widthBits, lengthBits, sidesBits, piecesBits, selectionBits);
+		if (entry != null)
+		{
+			Segment segment = this.segments[index];
+			if (this.expireNanos == 0 || now - entry.created < this.expireNanos)
+			{
+				// only write the stamp when it moves, so hot entries stay shared in every core's cache
+				long clock = segment.clock;
+				if (entry.accessed != clock)
+					entry.accessed = clock;
+				segment.hitCount++;
+				return entry.result;
+			}
+			this.expire(index, entry);
+		}
+		return this.load(width, length, nbrSidesPlated, nbrPieces, selection, now);
+	}
+
+	/**
+	 * Calculates and holds the values for a geometry that was not held.  Kept
+	 * apart from get so that the hit path stays small enough to inline.
+	 * @param width - width of the work piece
+	 * @param length - length of the work piece
+	 * @param nbrSidesPlated - number of sides plated
+	 * @param nbrPieces - number of pieces plated
+	 * @param selection - 1 for a coupon, 2 for a panel
+	 * @param now - long of the current nano time, 0 when there is no expiry
+	 * @return GeometryResult for the geometry
+	 */
+	private GeometryResult load(double width, double length, double nbrSidesPlated, double nbrPieces,
+			double selection, long now)
+	{
+		this.missCount.increment();
+		GeometryResult result = new GeometryResult(width, length, nbrSidesPlated, nbrPieces, selection);
+		this.put(result, now);
+		return result;
+	}
+
+	/**
+	 * Removes an entry that is too old, if another thread has not already.
+	 * @param index - int of the entry's segment
+	 * @param entry - Entry to remove
+	 */
+	private void expire(int index, Entry entry)
+	{
+		synchronized (this.segments[index])
+		{
+			if (this.remove(index, entry))
+				this.expirationCount.increment();
+		}
+	}
+
+	/**
+	 * Adds a result to the cache, for example when warming it from a snapshot.
+	 * @param result - GeometryResult to hold
+	 */
+	public void put(GeometryResult result)
+	{
+		this.put(result, this.expireNanos > 0 ? System.nanoTime() : 0);
+	}
+
+	/**
+	 * Removes every entry.
+	 */
+	public void invalidateAll()
+	{
+		for (int index = 0; index < this.segments.length; index++)
+		{
+			Segment segment = this.segments[index];
+			synchronized (segment)
+			{
+				Arrays.fill(this.slots, index * this.segmentSlots, (index + 1) * this.segmentSlots, null);
+				segment.size = 0;
+			}
+		}
+	}
+
+	/**
+	 * Copies the held results, for example to save them in a warm start
+	 * snapshot.  Each segment's results come least recently used first, so
+	 * putting them back in order restores which are evicted first.  Expired
+	 * results are left out.
+	 * @return List of the held GeometryResults
+	 */
+	public List<GeometryResult> getEntries()
+	{
+		List<GeometryResult> entries = new ArrayList<>();
+		long now = this.expireNanos > 0 ? System.nanoTime() : 0;
+		for (int index = 0; index < this.segments.length; index++)
+		{
+			synchronized (this.segments[index])
+			{
+				for (Entry entry : this.values(index))
+				{
+					if (this.expireNanos == 0 || now - entry.created < this.expireNanos)
+						entries.add(entry.result);
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @return int of the number of entries held
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Segment segment : this.segments)
+		{
+			synchronized (segment)
+			{
+				size += segment.size;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Holds the result in the segment for its geometry.
+	 * @param result - GeometryResult to hold
+	 * @param now - long of the current nano time, 0 when there is no expiry
+	 */
+	private void put(GeometryResult result, long now)
+	{
+		Entry entry = new Entry(result, now);
+		int index = segmentIndex(entry.hash);
+		synchronized (this.segments[index])
+		{
+			if (this.put(index, entry))
+				this.evictionCount.increment();
+		}
+	}
+
+	/**
+	 * @param hash - long hash of the geometry
+	 * @return int of the segment holding the geometry
+	 */
+	private int segmentIndex(long hash)
+	{
+		// the top bits pick the segment and the low bits the buckets within it
+		return (int) (hash >>> 60) & this.segmentMask;
+	}
+
+	/**
+	 * @param index - int of the geometry's segment
+	 * @param hash - long hash of the geometry
+	 * @param i - int of which of the geometry's slots, 0 to WAYS * 2 - 1
+	 * @return int of the index of the slot
+	 */
+	private int slot(int index, long hash, int i)
+	{
+		int bucket = (int) (i < WAYS ? hash : hash >>> 32) & this.bucketMask;
+		return index * this.segmentSlots + bucket * WAYS + (i & (WAYS - 1));
+	}
+
+	/**
+	 * Looks up a geometry without the lock.  An entry being added may be
+	 * missed, which only costs a calculation.
+	 * @param index - int of the geometry's segment
+	 * @param hash - long hash of the geometry
+	 * @param width - bits of the width
+	 * @param length - bits of the length
+	 * @param nbrSidesPlated - bits of the number of sides plated
+	 * @param nbrPieces - bits of the number of pieces
+	 * @param selection - bits of the selection
+	 * @return Entry holding the geometry, or null if it is not held
+	 */
+	private Entry find(int index, long hash, long width, long length, long nbrSidesPlated, long nbrPieces,
+			long selection)
+	{
+		Entry [] slots = this.slots;
+		int first = this.slot(index, hash, 0);
+		for (int i = first; i < first + WAYS; i++)
+		{
+			Entry entry = slots[i];
+			if (entry != null && entry.hash == hash && entry.width == width && entry.length == length
+					&& entry.nbrSidesPlated == nbrSidesPlated && entry.nbrPieces == nbrPieces
+					&& entry.selection == selection)
+				return entry;
+		}
+		int second = this.slot(index, hash, WAYS);
+		for (int i = second; i < second + WAYS; i++)
+		{
+			Entry entry = slots[i];
+			if (entry != null && entry.hash == hash && entry.width == width && entry.length == length
+					&& entry.nbrSidesPlated == nbrSidesPlated && entry.nbrPieces == nbrPieces
+					&& entry.selection == selection)
+				return entry;
+		}
+		return null;
+	}
+
+	/**
+	 * Adds or replaces an entry, making room if needed.  Call holding the
+	 * segment's lock.
+	 * @param index - int of the entry's segment
+	 * @param entry - Entry to hold
+	 * @return boolean true if another entry was evicted
+	 */
+	private boolean put(int index, Entry entry)
+	{
+		Segment segment = this.segments[index];
+		entry.accessed = segment.clock++;
+		int free = -1;
+		int oldest = -1;
+		for (int j = 0; j < WAYS * 2; j++)
+		{
+			int i = this.slot(index, entry.hash, j);
+			Entry held = this.slots[i];
+			if (held == null)
+			{
+				if (free < 0)
+					free = i;
+			}
+			else if (held.sameGeometry(entry))
+			{
+				this.slots[i] = entry;
+				return false;
+			}
+			else if (oldest < 0 || held.accessed < this.slots[oldest].accessed)
+			{
+				oldest = i;
+			}
+		}
+
+		if (free >= 0 && segment.size < segment.capacity)
+		{
+			this.slots[free] = entry;
+			segment.size++;
+			return false;
+		}
+		if (oldest >= 0)
+		{
+			this.slots[oldest] = entry;
+			return true;
+		}
+
+		// the segment is full but these buckets are empty, so drop the oldest anywhere in it
+		int victim = -1;
+		for (int i = index * this.segmentSlots; i < (index + 1) * this.segmentSlots; i++)
+		{
+			if (this.slots[i] != null && (victim < 0 || this.slots[i].accessed < this.slots[victim].accessed))
+				victim = i;
+		}
+		this.slots[victim] = null;
+		this.slots[free] = entry;
+		return true;
+	}
+
+	/**
+	 * Removes an entry if it is still held.  Call holding the segment's lock.
+	 * @param index - int of the entry's segment
+	 * @param entry - Entry to remove
+	 * @return boolean true if it was removed
+	 */
+	private boolean remove(int index, Entry entry)
+	{
+		for (int j = 0; j < WAYS * 2; j++)
+		{
+			int i = this.slot(index, entry.hash, j);
+			if (this.slots[i] == entry)
+			{
+				this.slots[i] = null;
+				this.segments[index].size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Call holding the segment's lock.
+	 * @param index - int of the segment
+	 * @return List of the segment's entries, least recently used first
+	 */
+	private List<Entry> values(int index)
+	{
+		List<Entry> values = new ArrayList<>(this.segments[index].size);
+		for (int i = index * this.segmentSlots; i < (index + 1) * this.segmentSlots; i++)
+		{
+			if (this.slots[i] != null)
+				values.add(this.slots[i]);
+		}
+		values.sort(Comparator.comparingLong(entry -> entry.accessed));
+		return values;
+	}
+
+	/**
+	 * Mixes the bits of the five values so that every bit of the hash
+	 * depends on all of them.  The multiplies are independent so they
+	 * overlap, and one finalizing round spreads the high bits down.
+	 * @param width - bits of the width
+	 * @param length - bits of the length
+	 * @param nbrSidesPlated - bits of the number of sides plated
+	 * @param nbrPieces - bits of the number of pieces
+	 * @param selection - bits of the selection
+	 * @return long of the hash
+	 */
+	private static long hash(long width, long length, long nbrSidesPlated, long nbrPieces, long selection)
+	{
+		long h = width * 0x9e3779b97f4a7c15L ^ length * 0xc2b2ae3d27d4eb4fL
+				^ nbrSidesPlated * 0x165667b19e3779f9L ^ nbrPieces * 0xd6e8feb86659fd93L
+				^ selection * 0xff51afd7ed558ccdL;
+		h ^= h >>> 32;
+		h *= 0xc4ceb9fe1a85ec53L;
+		return h ^ h >>> 29;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "GeometryCache [size=" + size() + ", maximumSize=" + maximumSize
+				+ ", hitCount=" + getHitCount() + ", missCount=" + getMissCount()
+				+ ", evictionCount=" + getEvictionCount() + ", expirationCount="
+				+ getExpirationCount() + "]";
+	}
+
+	/**
+	 * @return the maximumSize
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * @return the hitCount
+	 */
+	public long getHitCount() {
+		long hitCount = 0;
+		for (Segment segment : segments)
+		{
+			hitCount += segment.hitCount;
+		}
+		return hitCount;
+	}
+
+	/**
+	 * @return the missCount
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * @return the evictionCount
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	/**
+	 * @return the expirationCount
+	 */
+	public long getExpirationCount() {
+		return expirationCount.sum();
+	}
+
+	/**
+	 * Cached result with the bits of its geometry.  Everything but the access
+	 * stamp is final, so an entry read from a slot without the lock is always
+	 * complete.
+	 */
+	private static final class Entry
+	{
+		/** cached result */
+		private final GeometryResult result;
+		/** nano time the result was cached */
+		private final long created;
+		/** hash of the geometry */
+		private final long hash;
+		/** bits of the width */
+		private final long width;
+		/** bits of the length */
+		private final long length;
+		/** bits of the number of sides plated */
+		private final long nbrSidesPlated;
+		/** bits of the number of pieces */
+		private final long nbrPieces;
+		/** bits of the selection */
+		private final long selection;
+		/** segment clock at the last use, written without the lock */
+		private long accessed;
+
+		/**
+		 * @param result - GeometryResult to hold
+		 * @param created - long of the nano time it was cached
+		 */
+		private Entry(GeometryResult result, long created)
+		{
+			this.result = result;
+			this.created = created;
+			this.width = Double.doubleToRawLongBits(result.getWidth());
+			this.length = Double.doubleToRawLongBits(result.getLength());
+			this.nbrSidesPlated = Double.doubleToRawLongBits(result.getNbrSidesPlated());
+			this.nbrPieces = Double.doubleToRawLongBits(result.getNbrPieces());
+			this.selection = Double.doubleToRawLongBits(result.getSelection());
+			this.hash = GeometryCache.hash(this.width, this.length, this.nbrSidesPlated, this.nbrPieces, this.selection);
+		}
+
+		/**
+		 * @param other - Entry to compare with
+		 * @return boolean true if both hold the same geometry
+		 */
+		private boolean sameGeometry(Entry other)
+		{
+			return this.hash == other.hash && this.width == other.width && this.length == other.length
+					&& this.nbrSidesPlated == other.nbrSidesPlated && this.nbrPieces == other.nbrPieces
+					&& this.selection == other.selection;
+		}
+	}
+
+	/**
+	 * Lock and bookkeeping for one segment of the table.  The segment's
+	 * slots are changed only holding its lock.
+	 */
+	private static final class Segment
+	{
+		/** most entries this segment holds */
+		private final int capacity;
+
+		/** number of entries held */
+		private int size;
+
+		/** access clock, advanced as entries are added, stamped on entries as they are used */
+		private long clock;
+
+		/** number of lookups answered from this segment, counted without the lock */
+		private long hitCount;
+
+		/**
+		 * @param capacity - int of the most entries to hold
+		 */
+		private Segment(int capacity)
+		{
+			this.capacity = capacity;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.calc;
+
+/**
+ * Immutable surface area and current values for a part geometry.  These
+ * depend only on the width, length, sides, pieces and selection, not on the
+ * weights, so one instance can be shared by every run of the same geometry.
+ */
+public final class GeometryResult
+{
+	/** width of the work piece */
+	private final double width;
+	/** length of the work piece */
+	private final double length;
+	/** number of sides plated */
+	private final double nbrSidesPlated;
+	/** number of pieces plated */
+	private final double nbrPieces;
+	/** selection value - coupon or panel */
+	private final double selection;
+	/** total surface area of a work piece */
+	private final double surfaceArea;
+	/** the total surface area of all work pieces */
+	private final double totalSurfaceArea;
+	/** amps used */
+	private final double ampsUsed;
+	/** number of amp hours used for plating */
+	private final double ampHoursUsed;
+	/** total number of amps used for plating */
+	private final double totalAmpsUsed;
+	/** total number of amp hours used */
+	private final double totalAmpHoursUsed;
+
+	/**
+	 * Calculates the surface area and current values for the geometry.
+	 * @param width - width of the work piece
+	 * @param length - length of the work piece
+	 * @param nbrSidesPlated - number of sides plated
+	 * @param nbrPieces - number of pieces plated
+	 * @param selection - 1 for a coupon, 2 for a panel
+	 */
+	public GeometryResult(double width, double length, double nbrSidesPlated, double nbrPieces, double selection)
+	{
+		super();
+		this.width = width;
+		this.length = length;
+		this.nbrSidesPlated = nbrSidesPlated;
+		this.nbrPieces = nbrPieces;
+		this.selection = selection;
+
+		this.surfaceArea = PlatingMath.surfaceArea(length, width, nbrSidesPlated);
+		this.totalSurfaceArea = PlatingMath.totalSurfaceArea(this.surfaceArea, nbrPieces);
+		this.ampsUsed = PlatingMath.ampsUsed(this.surfaceArea, selection);
+		this.ampHoursUsed = PlatingMath.ampHoursUsed(this.surfaceArea);
+		this.totalAmpsUsed = PlatingMath.total(nbrPieces, this.ampsUsed);
+		this.totalAmpHoursUsed = PlatingMath.total(nbrPieces, this.ampHoursUsed);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "GeometryResult [width=" + width + ", length=" + length
+				+ ", nbrSidesPlated=" + nbrSidesPlated + ", nbrPieces=" + nbrPieces
+				+ ", selection=" + selection + ", surfaceArea=" + surfaceArea
+				+ ", totalSurfaceArea=" + totalSurfaceArea + ", ampsUsed=" + ampsUsed
+				+ ", ampHoursUsed=" + ampHoursUsed + ", totalAmpsUsed=" + totalAmpsUsed
+				+ ", totalAmpHoursUsed=" + totalAmpHoursUsed + "]";
+	}
+
+	/**
+	 * @return the width
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the length
+	 */
+	public double getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the nbrSidesPlated
+	 */
+	public double getNbrSidesPlated() {
+		return nbrSidesPlated;
+	}
+
+	/**
+	 * @return the nbrPieces
+	 */
+	public double getNbrPieces() {
+		return nbrPieces;
+	}
+
+	/**
+	 * @return the selection
+	 */
+	public double getSelection() {
+		return selection;
+	}
+
+	/**
+	 * @return the surfaceArea
+	 */
+	public double getSurfaceArea() {
+		return surfaceArea;
+	}
+
+	/**
+	 * @return the totalSurfaceArea
+	 */
+	public double getTotalSurfaceArea() {
+		return totalSurfaceArea;
+	}
+
+	/**
+	 * @return the ampsUsed
+	 */
+	public double getAmpsUsed() {
+		return ampsUsed;
+	}
+
+	/**
+	 * @return the ampHoursUsed
+	 */
+	public double getAmpHoursUsed() {
+		return ampHoursUsed;
+	}
+
+	/**
+	 * @return the totalAmpsUsed
+	 */
+	public double getTotalAmpsUsed() {
+		return totalAmpsUsed;
+	}
+
+	/**
+	 * @return the totalAmpHoursUsed
+	 */
+	public double getTotalAmpHoursUsed() {
+		return totalAmpHoursUsed;
+	}
+}
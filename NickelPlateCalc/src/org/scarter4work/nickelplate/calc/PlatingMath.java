@@ -0,0 +1,148 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.calc;
+
+/**
+ * Stateless plating formulas on primitive values.  Each method computes one
+ * step of the report and none of them allocate, so they can be called from
+ * the hot path of a batch or service without producing garbage.  Calculator
+ * and ColumnarCalculator both delegate here so there is a single copy of
+ * every formula.
+ */
+public final class PlatingMath
+{
+	/** amp factor */
+	public static final double AMP_FACTOR = 0.03855;
+	/** minutes per hour */
+	public static final double MIN_PER_HOUR = 60;
+	/** amp hour factor */
+	public static final double AMP_HOUR_FACTOR = 2.203;
+	/** thickness factor */
+	public static final double THICKNESS_FACTOR = 150;
+	/** maximum thickness per side for a piece to be in specification */
+	public static final double MAX_THICKNESS_PER_SIDE = 0.0002;
+
+	/** no instances */
+	private PlatingMath()
+	{
+		super();
+	}
+
+	/**
+	 * Calculates the plated surface area of a single work piece.
+	 * @param length - length of the work piece
+	 * @param width - width of the work piece
+	 * @param nbrSidesPlated - number of sides plated
+	 * @return double of the surface area of one piece
+	 */
+	public static double surfaceArea(double length, double width, double nbrSidesPlated)
+	{
+		return length * width * nbrSidesPlated;
+	}
+
+	/**
+	 * Calculates the plated surface area of all work pieces.
+	 * @param surfaceArea - surface area of one piece
+	 * @param nbrPieces - number of pieces plated
+	 * @return double of the total surface area
+	 */
+	public static double totalSurfaceArea(double surfaceArea, double nbrPieces)
+	{
+		return surfaceArea * nbrPieces;
+	}
+
+	/**
+	 * Calculates the amps needed to plate a single work piece.
+	 * @param surfaceArea - surface area of one piece
+	 * @param selection - 1 for a coupon, 2 for a panel
+	 * @return double of the amps used for one piece
+	 */
+	public static double ampsUsed(double surfaceArea, double selection)
+	{
+		return surfaceArea * AMP_FACTOR * selection;
+	}
+
+	/**
+	 * Calculates the amp hours needed to plate a single work piece.
+	 * @param surfaceArea - surface area of one piece
+	 * @return double of the amp hours used for one piece
+	 */
+	public static double ampHoursUsed(double surfaceArea)
+	{
+		return (surfaceArea * AMP_HOUR_FACTOR) / MIN_PER_HOUR;
+	}
+
+	/**
+	 * Scales a single piece value up to all pieces plated.
+	 * @param nbrPieces - number of pieces plated
+	 * @param value - amps or amp hours for one piece
+	 * @return double of the total for all pieces
+	 */
+	public static double total(double nbrPieces, double value)
+	{
+		return nbrPieces * value;
+	}
+
+	/**
+	 * Calculates the weight gained during plating.
+	 * @param startWeight - weight before plating
+	 * @param finalWeight - weight after plating
+	 * @return double of the difference between the measurements
+	 */
+	public static double delta(double startWeight, double finalWeight)
+	{
+		return finalWeight - startWeight;
+	}
+
+	/**
+	 * Calculates the nickel thickness per side.
+	 * @param delta - weight gained during plating
+	 * @param totalSurfaceArea - total surface area of all pieces
+	 * @param nbrPieces - number of pieces plated
+	 * @return double of the thickness of nickel per side
+	 */
+	public static double thicknessPerSide(double delta, double totalSurfaceArea, double nbrPieces)
+	{
+		return (delta / (totalSurfaceArea / nbrPieces)) / THICKNESS_FACTOR;
+	}
+
+	/**
+	 * @param thicknessPerSide - thickness of nickel per side
+	 * @return boolean true if the thickness is within specification
+	 */
+	public static boolean isInSpecification(double thicknessPerSide)
+	{
+		return !(thicknessPerSide > MAX_THICKNESS_PER_SIDE);
+	}
+
+	/**
+	 * Runs every calculation for a work piece and returns the full result.
+	 * @param startWeight - weight before plating
+	 * @param width - width of the work piece
+	 * @param length - length of the work piece
+	 * @param nbrSidesPlated - number of sides plated
+	 * @param nbrPieces - number of pieces plated
+	 * @param selection - 1 for a coupon, 2 for a panel
+	 * @param finalWeight - weight after plating
+	 * @return PlatingResult of the inputs and calculated values
+	 */
+	public static PlatingResult calculate(double startWeight, double width, double length,
+			double nbrSidesPlated, double nbrPieces, double selection, double finalWeight)
+	{
+		return new PlatingResult(startWeight, width, length, nbrSidesPlated, nbrPieces, selection, finalWeight);
+	}
+
+	/**
+	 * Completes the calculations for a work piece whose geometry values are
+	 * already known, for example from a GeometryCache.
+	 * @param geometry - GeometryResult of the surface area and current values
+	 * @param startWeight - weight before plating
+	 * @param finalWeight - weight after plating
+	 * @return PlatingResult of the inputs and calculated values
+	 */
+	public static PlatingResult calculate(GeometryResult geometry, double startWeight, double finalWeight)
+	{
+		return new PlatingResult(geometry, startWeight, finalWeight);
+	}
+}
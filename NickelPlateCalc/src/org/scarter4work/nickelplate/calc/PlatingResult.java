@@ -0,0 +1,231 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.calc;
+
+/**
+ * Immutable result of running every plating calculation for one work piece.
+ * Instances are created through PlatingMath.calculate and hold only primitive
+ * values, so they are safe to share between threads.
+ */
+public final class PlatingResult
+{
+	/** start weight of the work piece */
+	private final double startWeight;
+	/** final weight of the work piece */
+	private final double finalWeight;
+	/** number of sides plated */
+	private final double nbrSidesPlated;
+	/** number of pieces plated */
+	private final double nbrPieces;
+	/** width of the work piece */
+	private final double width;
+	/** length of the work piece */
+	private final double length;
+	/** selection value - coupon or panel */
+	private final double selection;
+	/** total surface area of a work piece */
+	private final double surfaceArea;
+	/** the total surface area of all work pieces */
+	private final double totalSurfaceArea;
+	/** amps used */
+	private final double ampsUsed;
+	/** number of amp hours used for plating */
+	private final double ampHoursUsed;
+	/** total number of amps used for plating */
+	private final double totalAmpsUsed;
+	/** total number of amp hours used */
+	private final double totalAmpHoursUsed;
+	/** difference between measurements */
+	private final double delta;
+	/** thickness of nickel per side of the work piece */
+	private final double thicknessPerSide;
+
+	/**
+	 * Calculates every value from the work piece inputs.
+	 * @param startWeight - weight before plating
+	 * @param width - width of the work piece
+	 * @param length - length of the work piece
+	 * @param nbrSidesPlated - number of sides plated
+	 * @param nbrPieces - number of pieces plated
+	 * @param selection - 1 for a coupon, 2 for a panel
+	 * @param finalWeight - weight after plating
+	 */
+	PlatingResult(double startWeight, double width, double length,
+			double nbrSidesPlated, double nbrPieces, double selection, double finalWeight)
+	{
+		super();
+		this.startWeight = startWeight;
+		this.width = width;
+		this.length = length;
+		this.nbrSidesPlated = nbrSidesPlated;
+		this.nbrPieces = nbrPieces;
+		this.selection = selection;
+		this.finalWeight = finalWeight;
+
+		this.surfaceArea = PlatingMath.surfaceArea(length, width, nbrSidesPlated);
+		this.totalSurfaceArea = PlatingMath.totalSurfaceArea(this.surfaceArea, nbrPieces);
+		this.ampsUsed = PlatingMath.ampsUsed(this.surfaceArea, selection);
+		this.ampHoursUsed = PlatingMath.ampHoursUsed(this.surfaceArea);
+		this.totalAmpsUsed = PlatingMath.total(nbrPieces, this.ampsUsed);
+		this.totalAmpHoursUsed = PlatingMath.total(nbrPieces, this.ampHoursUsed);
+		this.delta = PlatingMath.delta(startWeight, finalWeight);
+		this.thicknessPerSide = PlatingMath.thicknessPerSide(this.delta, this.totalSurfaceArea, nbrPieces);
+	}
+
+	/**
+	 * Completes a result from the cached geometry values and the weights.
+	 * @param geometry - GeometryResult of the surface area and current values
+	 * @param startWeight - weight before plating
+	 * @param finalWeight - weight after plating
+	 */
+	PlatingResult(GeometryResult geometry, double startWeight, double finalWeight)
+	{
+		super();
+		this.startWeight = startWeight;
+		this.width = geometry.getWidth();
+		this.length = geometry.getLength();
+		this.nbrSidesPlated = geometry.getNbrSidesPlated();
+		this.nbrPieces = geometry.getNbrPieces();
+		this.selection = geometry.getSelection();
+		this.finalWeight = finalWeight;
+
+		this.surfaceArea = geometry.getSurfaceArea();
+		this.totalSurfaceArea = geometry.getTotalSurfaceArea();
+		this.ampsUsed = geometry.getAmpsUsed();
+		this.ampHoursUsed = geometry.getAmpHoursUsed();
+		this.totalAmpsUsed = geometry.getTotalAmpsUsed();
+		this.totalAmpHoursUsed = geometry.getTotalAmpHoursUsed();
+		this.delta = PlatingMath.delta(startWeight, finalWeight);
+		this.thicknessPerSide = PlatingMath.thicknessPerSide(this.delta, this.totalSurfaceArea, this.nbrPieces);
+	}
+
+	/**
+	 * @return boolean true if the thickness per side is within specification
+	 */
+	public boolean isInSpecification()
+	{
+		return PlatingMath.isInSpecification(this.thicknessPerSide);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "PlatingResult [startWeight=" + startWeight + ", finalWeight="
+				+ finalWeight + ", ampsUsed=" + ampsUsed + ", totalAmpsUsed="
+				+ totalAmpsUsed + ", ampHoursUsed=" + ampHoursUsed
+				+ ", totalAmpHoursUsed=" + totalAmpHoursUsed
+				+ ", nbrSidesPlated=" + nbrSidesPlated + ", nbrPieces="
+				+ nbrPieces + ", width=" + width + ", length=" + length
+				+ ", thicknessPerSide=" + thicknessPerSide + ", delta=" + delta
+				+ ", totalSurfaceArea=" + totalSurfaceArea + ", surfaceArea="
+				+ surfaceArea + ", selection=" + selection + "]";
+	}
+
+	/**
+	 * @return the startWeight
+	 */
+	public double getStartWeight() {
+		return startWeight;
+	}
+
+	/**
+	 * @return the finalWeight
+	 */
+	public double getFinalWeight() {
+		return finalWeight;
+	}
+
+	/**
+	 * @return the nbrSidesPlated
+	 */
+	public double getNbrSidesPlated() {
+		return nbrSidesPlated;
+	}
+
+	/**
+	 * @return the nbrPieces
+	 */
+	public double getNbrPieces() {
+		return nbrPieces;
+	}
+
+	/**
+	 * @return the width
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the length
+	 */
+	public double getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the selection
+	 */
+	public double getSelection() {
+		return selection;
+	}
+
+	/**
+	 * @return the surfaceArea
+	 */
+	public double getSurfaceArea() {
+		return surfaceArea;
+	}
+
+	/**
+	 * @return the totalSurfaceArea
+	 */
+	public double getTotalSurfaceArea() {
+		return totalSurfaceArea;
+	}
+
+	/**
+	 * @return the ampsUsed
+	 */
+	public double getAmpsUsed() {
+		return ampsUsed;
+	}
+
+	/**
+	 * @return the ampHoursUsed
+	 */
+	public double getAmpHoursUsed() {
+		return ampHoursUsed;
+	}
+
+	/**
+	 * @return the totalAmpsUsed
+	 */
+	public double getTotalAmpsUsed() {
+		return totalAmpsUsed;
+	}
+
+	/**
+	 * @return the totalAmpHoursUsed
+	 */
+	public double getTotalAmpHoursUsed() {
+		return totalAmpHoursUsed;
+	}
+
+	/**
+	 * @return the delta
+	 */
+	public double getDelta() {
+		return delta;
+	}
+
+	/**
+	 * @return the thicknessPerSide
+	 */
+	public double getThicknessPerSide() {
+		return thicknessPerSide;
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.calc;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ColumnarCalculator's loops written with the incubating Vector API.  Each
+ * lane does the same multiplications and divisions in the same order as
+ * PlatingMath, and lane arithmetic is plain IEEE double arithmetic, so the
+ * results are bit for bit those of the scalar loops.  The rows left over
+ * after the last whole vector are done with PlatingMath itself.
+ * <p>
+ * This class can only be loaded when the JVM was started with
+ * --add-modules jdk.incubator.vector; ColumnarCalculator checks for the
+ * module before touching it.
+ */
+final class VectorColumnKernels
+{
+	/** widest vector shape the hardware supports */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/** no instances */
+	private VectorColumnKernels()
+	{
+		super();
+	}
+
+	/**
+	 * @param length - double [] of the length column
+	 * @param width - double [] of the width column
+	 * @param sides - double [] of the number of sides plated column
+	 * @param pieces - double [] of the number of pieces column
+	 * @param area - double [] of the surface area column to fill
+	 * @param totalArea - double [] of the total surface area column to fill
+	 * @param count - int of the number of rows filled in
+	 */
+	static void surfaceAreas(double [] length, double [] width, double [] sides, double [] pieces,
+			double [] area, double [] totalArea, int count)
+	{
+		int bound = SPECIES.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length())
+		{
+			DoubleVector a = DoubleVector.fromArray(SPECIES, length, i)
+					.mul(DoubleVector.fromArray(SPECIES, width, i))
+					.mul(DoubleVector.fromArray(SPECIES, sides, i));
+			a.intoArray(area, i);
+			a.mul(DoubleVector.fromArray(SPECIES, pieces, i)).intoArray(totalArea, i);
+		}
+		for (; i < count; i++)
+		{
+			area[i] = PlatingMath.surfaceArea(length[i], width[i], sides[i]);
+			totalArea[i] = PlatingMath.totalSurfaceArea(area[i], pieces[i]);
+		}
+	}
+
+	/**
+	 * @param area - double [] of the surface area column
+	 * @param selection - double [] of the selection column
+	 * @param pieces - double [] of the number of pieces column
+	 * @param amps - double [] of the amps column to fill
+	 * @param ampHours - double [] of the amp hours column to fill
+	 * @param totalAmps - double [] of the total amps column to fill
+	 * @param totalAmpHours - double [] of the total amp hours column to fill
+	 * @param count - int of the number of rows filled in
+	 */
+	static void currentValues(double [] area, double [] selection, double [] pieces, double [] amps,
+			double [] ampHours, double [] totalAmps, double [] totalAmpHours, int count)
+	{
+		int bound = SPECIES.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length())
+		{
+			DoubleVector a = DoubleVector.fromArray(SPECIES, area, i);
+			DoubleVector p = DoubleVector.fromArray(SPECIES, pieces, i);
+			DoubleVector amp = a.mul(PlatingMath.AMP_FACTOR).mul(DoubleVector.fromArray(SPECIES, selection, i));
+			DoubleVector ampHour = a.mul(PlatingMath.AMP_HOUR_FACTOR).div(PlatingMath.MIN_PER_HOUR);
+			amp.intoArray(amps, i);
+			ampHour.intoArray(ampHours, i);
+			p.mul(amp).intoArray(totalAmps, i);
+			p.mul(ampHour).intoArray(totalAmpHours, i);
+		}
+		for (; i < count; i++)
+		{
+			amps[i] = PlatingMath.ampsUsed(area[i], selection[i]);
+			ampHours[i] = PlatingMath.ampHoursUsed(area[i]);
+			totalAmps[i] = PlatingMath.total(pieces[i], amps[i]);
+			totalAmpHours[i] = PlatingMath.total(pieces[i], ampHours[i]);
+		}
+	}
+
+	/**
+	 * @param start - double [] of the start weight column
+	 * @param end - double [] of the final weight column
+	 * @param totalArea - double [] of the total surface area column
+	 * @param pieces - double [] of the number of pieces column
+	 * @param delta - double [] of the weight gained column to fill
+	 * @param thickness - double [] of the thickness per side column to fill
+	 * @param count - int of the number of rows filled in
+	 */
+	static void nickelThickness(double [] start, double [] end, double [] totalArea, double [] pieces,
+			double [] delta, double [] thickness, int count)
+	{
+		int bound = SPECIES.loopBound(count);
+		int i = 0;
+		for (; i < bound; i += SPECIES.length())
+		{
+			DoubleVector d = DoubleVector.fromArray(SPECIES, end, i).sub(DoubleVector.fromArray(SPECIES, start, i));
+			d.intoArray(delta, i);
+			DoubleVector areaPerPiece = DoubleVector.fromArray(SPECIES, totalArea, i)
+					.div(DoubleVector.fromArray(SPECIES, pieces, i));
+			d.div(areaPerPiece).div(PlatingMath.THICKNESS_FACTOR).intoArray(thickness, i);
+		}
+		for (; i < count; i++)
+		{
+			delta[i] = PlatingMath.delta(start[i], end[i]);
+			thickness[i] = PlatingMath.thicknessPerSide(delta[i], totalArea[i], pieces[i]);
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.catalog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.scarter4work.nickelplate.calc.Calculator;
+
+/**
+ * Part catalog read in place from a memory mapped file written by
+ * PartCatalogWriter.  Opening reads only the header, so startup costs the
+ * same for ten parts or ten million, and the operating system pages in the
+ * fence table and the entries as lookups touch them.  A lookup is a binary
+ * search of the fence table followed by one of a single block of entries,
+ * with no allocation.  The catalog is safe to read from any number of
+ * threads.
+ */
+public class PartCatalog implements Closeable
+{
+	/** system property naming the catalog file */
+	public static final String CATALOG_FILE_PROPERTY = "nickelplate.catalog.file";
+
+	/** the catalog file */
+	private final FileChannel channel;
+
+	/** the mapped file */
+	private final ByteBuffer mapped;
+
+	/** number of entries */
+	private final int entryCount;
+
+	/** entries per fence */
+	private final int fenceInterval;
+
+	/** number of fences */
+	private final int fenceCount;
+
+	/** offset of the first entry */
+	private final int entriesOffset;
+
+	/** file creation time */
+	private final long createdMillis;
+
+	/**
+	 * Opens and maps the catalog.
+	 * @param path - Path of the catalog file
+	 * @throws IOException if the file cannot be read or is not a part catalog
+	 */
+	public PartCatalog(Path path) throws IOException
+	{
+		super();
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try
+		{
+			long size = this.channel.size();
+			if (size < PartCatalogFormat.HEADER_SIZE)
+				throw new IOException("Not a part catalog file: " + path);
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("Part catalog is too large to map: " + path);
+			this.mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(PartCatalogFormat.ORDER);
+
+			if (this.mapped.getInt(PartCatalogFormat.MAGIC_OFFSET) != PartCatalogFormat.MAGIC)
+				throw new IOException("Not a part catalog file: " + path);
+			short version = this.mapped.getShort(PartCatalogFormat.VERSION_OFFSET);
+			if (version != PartCatalogFormat.VERSION)
+				throw new IOException("Unsupported part catalog version " + version + ": " + path);
+			if (this.mapped.getShort(PartCatalogFormat.HEADER_SIZE_OFFSET) != PartCatalogFormat.HEADER_SIZE
+					|| this.mapped.getInt(PartCatalogFormat.ENTRY_SIZE_OFFSET) != PartCatalogFormat.ENTRY_SIZE)
+				throw new IOException("Part catalog header is damaged: " + path);
+
+			long entries = this.mapped.getLong(PartCatalogFormat.ENTRY_COUNT_OFFSET);
+			this.fenceInterval = this.mapped.getInt(PartCatalogFormat.FENCE_INTERVAL_OFFSET);
+			if (entries < 0 || this.fenceInterval <= 0)
+				throw new IOException("Part catalog header is damaged: " + path);
+			long fences = PartCatalogFormat.fenceCount(entries, this.fenceInterval);
+			long expected = PartCatalogFormat.HEADER_SIZE + fences * Long.BYTES + entries * PartCatalogFormat.ENTRY_SIZE;
+			if (expected != size)
+				throw new IOException("Part catalog is truncated or damaged, expected " + expected + " bytes but found "
+						+ size + ": " + path);
+
+			this.entryCount = (int) entries;
+			this.fenceCount = (int) fences;
+			this.entriesOffset = PartCatalogFormat.HEADER_SIZE + this.fenceCount * Long.BYTES;
+			this.createdMillis = this.mapped.getLong(PartCatalogFormat.CREATED_OFFSET);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens the catalog named by the nickelplate.catalog.file system property.
+	 * @return PartCatalog, or null when the property is not set
+	 * @throws IOException if the catalog cannot be opened
+	 */
+	public static PartCatalog fromSystemProperties() throws IOException
+	{
+		String filename = System.getProperty(CATALOG_FILE_PROPERTY);
+		if (filename == null || filename.isEmpty())
+			return null;
+		return new PartCatalog(Paths.get(filename));
+	}
+
+	/**
+	 * Finds a part.
+	 * @param partNumber - long of the part number
+	 * @return int of the part's entry index, or -1 if it is not in the catalog
+	 */
+	public int lookup(long partNumber)
+	{
+		// last fence at or below the part number
+		int low = 0;
+		int high = this.fenceCount - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			if (this.mapped.getLong(PartCatalogFormat.HEADER_SIZE + middle * Long.BYTES) <= partNumber)
+				low = middle + 1;
+			else
+				high = middle - 1;
+		}
+		if (high < 0)
+			return -1;
+
+		// then the part within that fence's block
+		low = high * this.fenceInterval;
+		high = Math.min(low + this.fenceInterval, this.entryCount) - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			long found = this.getPartNumber(middle);
+			if (found < partNumber)
+				low = middle + 1;
+			else if (found > partNumber)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	/**
+	 * Fills in the calculator's width, length, sides plated and single piece
+	 * surface area from the catalog.
+	 * @param partNumber - long of the part number
+	 * @param calculator - Calculator to fill in
+	 * @return boolean true if the part was found
+	 */
+	public boolean prefill(long partNumber, Calculator calculator)
+	{
+		int index = this.lookup(partNumber);
+		if (index < 0)
+			return false;
+		calculator.setGeometry(this.getWidth(index), this.getLength(index), this.getNbrSidesPlated(index),
+				this.getSurfaceArea(index));
+		return true;
+	}
+
+	/**
+	 * @param index - int of an entry index
+	 * @return long of the entry's part number
+	 */
+	public long getPartNumber(int index)
+	{
+		return this.mapped.getLong(this.offset(index) + PartCatalogFormat.PART_NUMBER);
+	}
+
+	/**
+	 * @param index - int of an entry index
+	 * @return double of the entry's width
+	 */
+	public double getWidth(int index)
+	{
+		return this.mapped.getDouble(this.offset(index) + PartCatalogFormat.WIDTH);
+	}
+
+	/**
+	 * @param index - int of an entry index
+	 * @return double of the entry's length
+	 */
+	public double getLength(int index)
+	{
+		return this.mapped.getDouble(this.offset(index) + PartCatalogFormat.LENGTH);
+	}
+
+	/**
+	 * @param index - int of an entry index
+	 * @return double of the entry's number of sides plated
+	 */
+	public double getNbrSidesPlated(int index)
+	{
+		return this.mapped.getDouble(this.offset(index) + PartCatalogFormat.NBR_SIDES);
+	}
+
+	/**
+	 * @param index - int of an entry index
+	 * @return double of the entry's single piece surface area
+	 */
+	public double getSurfaceArea(int index)
+	{
+		return this.mapped.getDouble(this.offset(index) + PartCatalogFormat.SURFACE_AREA);
+	}
+
+	/**
+	 * @param index - int of an entry index
+	 * @return int of the entry's offset in the file
+	 */
+	private int offset(int index)
+	{
+		if (index < 0 || index >= this.entryCount)
+			throw new IndexOutOfBoundsException("Entry " + index + " of " + this.entryCount);
+		return this.entriesOffset + index * PartCatalogFormat.ENTRY_SIZE;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+
+	/**
+	 * @return the entryCount
+	 */
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * @return the createdMillis
+	 */
+	public long getCreatedMillis() {
+		return createdMillis;
+	}
+}
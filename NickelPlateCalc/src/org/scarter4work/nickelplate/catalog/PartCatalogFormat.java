@@ -0,0 +1,91 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.catalog;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the part catalog file, all little endian.  Entries are sorted by
+ * part number and every FENCE_INTERVAL'th part number is repeated in a fence
+ * table ahead of them, so a lookup searches the small fence table and then a
+ * single block of entries, touching only a few pages of the mapping.
+ * <pre>
+ * header (64 bytes)
+ *   0  int    magic 'NPPC'
+ *   4  short  format version
+ *   6  short  header size
+ *   8  int    entry size
+ *  12  int    fence interval
+ *  16  long   number of entries
+ *  24  long   file creation time, epoch milliseconds
+ *  32..63     reserved, zero
+ *
+ * fence table, one long per block of fence interval entries
+ *   part number of the block's first entry
+ *
+ * entry (40 bytes), ascending by part number
+ *   0  long   part number
+ *   8  double width
+ *  16  double length
+ *  24  double number of sides plated
+ *  32  double surface area of one piece
+ * </pre>
+ */
+final class PartCatalogFormat
+{
+	/** file magic, 'NPPC' */
+	static final int MAGIC = 0x4E505043;
+	/** current format version */
+	static final short VERSION = 1;
+	/** size of the header */
+	static final int HEADER_SIZE = 64;
+	/** size of a version 1 entry */
+	static final int ENTRY_SIZE = 40;
+	/** entries per fence */
+	static final int FENCE_INTERVAL = 64;
+	/** byte order of every value */
+	static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/** header magic offset */
+	static final int MAGIC_OFFSET = 0;
+	/** header version offset */
+	static final int VERSION_OFFSET = 4;
+	/** header size offset */
+	static final int HEADER_SIZE_OFFSET = 6;
+	/** header entry size offset */
+	static final int ENTRY_SIZE_OFFSET = 8;
+	/** header fence interval offset */
+	static final int FENCE_INTERVAL_OFFSET = 12;
+	/** header entry count offset */
+	static final int ENTRY_COUNT_OFFSET = 16;
+	/** header creation time offset */
+	static final int CREATED_OFFSET = 24;
+
+	/** entry part number offset */
+	static final int PART_NUMBER = 0;
+	/** entry width offset */
+	static final int WIDTH = 8;
+	/** entry length offset */
+	static final int LENGTH = 16;
+	/** entry number of sides offset */
+	static final int NBR_SIDES = 24;
+	/** entry surface area offset */
+	static final int SURFACE_AREA = 32;
+
+	/** no instances */
+	private PartCatalogFormat()
+	{
+		super();
+	}
+
+	/**
+	 * @param entryCount - long of the number of entries
+	 * @param fenceInterval - int of the entries per fence
+	 * @return long of the number of fences
+	 */
+	static long fenceCount(long entryCount, int fenceInterval)
+	{
+		return (entryCount + fenceInterval - 1) / fenceInterval;
+	}
+}
@@ -0,0 +1,245 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.catalog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.scarter4work.nickelplate.calc.PlatingMath;
+
+/**
+ * Builds a part catalog file.  Parts are collected in memory in any order,
+ * then sorted and written to a temporary file that replaces the catalog in
+ * one step, so a running program that has the old catalog mapped keeps
+ * reading the old copy.
+ */
+public class PartCatalogWriter
+{
+	/** number of fields in a part record */
+	public static final int FIELD_COUNT = 4;
+
+	/** size of the write buffer */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** part numbers */
+	private long [] partNumbers = new long[1024];
+	/** widths */
+	private double [] widths = new double[1024];
+	/** lengths */
+	private double [] lengths = new double[1024];
+	/** numbers of sides plated */
+	private double [] nbrSides = new double[1024];
+	/** parts added */
+	private int size;
+
+	/** default constructor */
+	public PartCatalogWriter()
+	{
+		super();
+	}
+
+	/**
+	 * Adds a part.
+	 * @param partNumber - long of the part number
+	 * @param width - width of the part
+	 * @param length - length of the part
+	 * @param nbrSidesPlated - number of sides plated
+	 */
+	public void add(long partNumber, double width, double length, double nbrSidesPlated)
+	{
+		if (this.size == this.partNumbers.length)
+		{
+			int capacity = this.size * 2;
+			this.partNumbers = Arrays.copyOf(this.partNumbers, capacity);
+			this.widths = Arrays.copyOf(this.widths, capacity);
+			this.lengths = Arrays.copyOf(this.lengths, capacity);
+			this.nbrSides = Arrays.copyOf(this.nbrSides, capacity);
+		}
+		this.partNumbers[this.size] = partNumber;
+		this.widths[this.size] = width;
+		this.lengths[this.size] = length;
+		this.nbrSides[this.size] = nbrSidesPlated;
+		this.size++;
+	}
+
+	/**
+	 * Adds the parts in a catalog listing, one part per line holding the part
+	 * number, width, length and number of sides plated separated by a comma
+	 * or a tab.  Blank lines, lines starting with '#' and any line whose first
+	 * field is not a part number are skipped.
+	 * @param input - Reader of the part records
+	 * @return int of the number of parts added
+	 * @throws IOException
+	 * @throws IllegalArgumentException if a record is malformed
+	 */
+	public int read(Reader input) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(input);
+		int added = 0;
+		String line;
+		while ((line = reader.readLine()) != null)
+		{
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.charAt(0) == '#' || !Character.isDigit(trimmed.charAt(0)))
+				continue;
+			String [] values = trimmed.split(trimmed.indexOf('\t') >= 0 ? "\t" : ",", -1);
+			if (values.length != FIELD_COUNT)
+				throw new IllegalArgumentException("Expected " + FIELD_COUNT + " fields: " + line);
+			try
+			{
+				this.add(Long.parseLong(values[0].trim()), Double.parseDouble(values[1].trim()),
+						Double.parseDouble(values[2].trim()), Double.parseDouble(values[3].trim()));
+			}
+			catch (NumberFormatException e)
+			{
+				throw new IllegalArgumentException("Malformed part record: " + line, e);
+			}
+			added++;
+		}
+		return added;
+	}
+
+	/**
+	 * Sorts the parts and writes the catalog.
+	 * @param path - Path of the catalog file, replaced if it exists
+	 * @throws IOException
+	 * @throws IllegalArgumentException if a part number was added twice
+	 */
+	public void write(Path path) throws IOException
+	{
+		int [] order = this.sortedOrder();
+
+		Path absolute = path.toAbsolutePath();
+		Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(PartCatalogFormat.ORDER);
+			buffer.putInt(PartCatalogFormat.MAGIC_OFFSET, PartCatalogFormat.MAGIC);
+			buffer.putShort(PartCatalogFormat.VERSION_OFFSET, PartCatalogFormat.VERSION);
+			buffer.putShort(PartCatalogFormat.HEADER_SIZE_OFFSET, (short) PartCatalogFormat.HEADER_SIZE);
+			buffer.putInt(PartCatalogFormat.ENTRY_SIZE_OFFSET, PartCatalogFormat.ENTRY_SIZE);
+			buffer.putInt(PartCatalogFormat.FENCE_INTERVAL_OFFSET, PartCatalogFormat.FENCE_INTERVAL);
+			buffer.putLong(PartCatalogFormat.ENTRY_COUNT_OFFSET, this.size);
+			buffer.putLong(PartCatalogFormat.CREATED_OFFSET, System.currentTimeMillis());
+			buffer.position(PartCatalogFormat.HEADER_SIZE);
+
+			for (int i = 0; i < this.size; i += PartCatalogFormat.FENCE_INTERVAL)
+			{
+				if (buffer.remaining() < Long.BYTES)
+					drain(channel, buffer);
+				buffer.putLong(this.partNumbers[order[i]]);
+			}
+			for (int i = 0; i < this.size; i++)
+			{
+				if (buffer.remaining() < PartCatalogFormat.ENTRY_SIZE)
+					drain(channel, buffer);
+				int part = order[i];
+				buffer.putLong(this.partNumbers[part]);
+				buffer.putDouble(this.widths[part]);
+				buffer.putDouble(this.lengths[part]);
+				buffer.putDouble(this.nbrSides[part]);
+				buffer.putDouble(PlatingMath.surfaceArea(this.lengths[part], this.widths[part], this.nbrSides[part]));
+			}
+			drain(channel, buffer);
+			channel.force(true);
+		}
+		Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Orders the parts by part number without boxing.  When the part numbers
+	 * span less than 2^31 each part is packed into one long as its part number
+	 * less the smallest, shifted up 32 bits, over its index, so a primitive
+	 * sort orders them.  A wider span falls back to sorting a copy of the part
+	 * numbers and placing each part at its own number's rank.
+	 * @return int [] of the part indexes in part number order
+	 * @throws IllegalArgumentException if a part number was added twice
+	 */
+	int [] sortedOrder()
+	{
+		int [] order = new int[this.size];
+		if (this.size == 0)
+			return order;
+		long min = this.partNumbers[0];
+		long max = min;
+		for (int i = 1; i < this.size; i++)
+		{
+			min = Math.min(min, this.partNumbers[i]);
+			max = Math.max(max, this.partNumbers[i]);
+		}
+
+		long span = max - min;
+		if (span >= 0 && span <= Integer.MAX_VALUE)
+		{
+			long [] packed = new long[this.size];
+			for (int i = 0; i < this.size; i++)
+			{
+				packed[i] = (this.partNumbers[i] - min) << 32 | i;
+			}
+			Arrays.sort(packed);
+			for (int i = 0; i < this.size; i++)
+			{
+				order[i] = (int) packed[i];
+				if (i > 0 && packed[i] >>> 32 == packed[i - 1] >>> 32)
+					throw duplicate(this.partNumbers[order[i]]);
+			}
+		}
+		else
+		{
+			long [] sorted = Arrays.copyOf(this.partNumbers, this.size);
+			Arrays.sort(sorted);
+			for (int i = 1; i < this.size; i++)
+			{
+				if (sorted[i] == sorted[i - 1])
+					throw duplicate(sorted[i]);
+			}
+			for (int i = 0; i < this.size; i++)
+			{
+				order[Arrays.binarySearch(sorted, this.partNumbers[i])] = i;
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * @param partNumber - long of the repeated part number
+	 * @return IllegalArgumentException naming it
+	 */
+	private static IllegalArgumentException duplicate(long partNumber)
+	{
+		return new IllegalArgumentException("Part number " + partNumber + " is in the catalog twice.");
+	}
+
+	/**
+	 * Writes out the buffer and clears it.
+	 * @param channel - FileChannel to write to
+	 * @param buffer - ByteBuffer to drain
+	 * @throws IOException
+	 */
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * @return int of the number of parts added
+	 */
+	public int getSize() {
+		return size;
+	}
+}
@@ -0,0 +1,17 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+/**
+ * Receives the runs read back from a run journal.
+ */
+public interface JournalListener
+{
+	/**
+	 * Called for each intact journal entry in order.
+	 * @param sequence - long of the entry's sequence number
+	 * @param run - RunRecordCursor positioned on the run, valid only during the call
+	 */
+	void onRun(long sequence, RunRecordCursor run);
+}
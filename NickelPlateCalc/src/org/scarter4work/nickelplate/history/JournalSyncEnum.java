@@ -0,0 +1,19 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+/**
+ * When the run journal forces appended records to the storage device.
+ */
+public enum JournalSyncEnum
+{
+	/** every append is written and forced before it returns */
+	RECORD,
+	/** appends are written and forced together every few records or milliseconds,
+	 * each append returns once its group is on the device */
+	GROUP,
+	/** every append is written to the file but never forced, so it survives a
+	 * crash of the program but not of the machine */
+	NONE;
+}
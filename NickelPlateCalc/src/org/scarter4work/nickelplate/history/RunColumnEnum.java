@@ -0,0 +1,85 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import java.util.function.ToDoubleFunction;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Measured and calculated values of a plating run held as columns by
+ * RunColumnStore.
+ */
+public enum RunColumnEnum
+{
+	START_WEIGHT("startWeight", RunHistoryFormat.START_WEIGHT, PlatingResult::getStartWeight),
+	WIDTH("width", RunHistoryFormat.WIDTH, PlatingResult::getWidth),
+	LENGTH("length", RunHistoryFormat.LENGTH, PlatingResult::getLength),
+	NBR_SIDES("nbrSidesPlated", RunHistoryFormat.NBR_SIDES, PlatingResult::getNbrSidesPlated),
+	NBR_PIECES("nbrPieces", RunHistoryFormat.NBR_PIECES, PlatingResult::getNbrPieces),
+	SELECTION("selection", RunHistoryFormat.SELECTION, PlatingResult::getSelection),
+	FINAL_WEIGHT("finalWeight", RunHistoryFormat.FINAL_WEIGHT, PlatingResult::getFinalWeight),
+	SURFACE_AREA("surfaceArea", RunHistoryFormat.SURFACE_AREA, PlatingResult::getSurfaceArea),
+	TOTAL_SURFACE_AREA("totalSurfaceArea", RunHistoryFormat.TOTAL_SURFACE_AREA, PlatingResult::getTotalSurfaceArea),
+	AMPS_USED("ampsUsed", RunHistoryFormat.AMPS_USED, PlatingResult::getAmpsUsed),
+	AMP_HOURS_USED("ampHoursUsed", RunHistoryFormat.AMP_HOURS_USED, PlatingResult::getAmpHoursUsed),
+	TOTAL_AMPS_USED("totalAmpsUsed", RunHistoryFormat.TOTAL_AMPS_USED, PlatingResult::getTotalAmpsUsed),
+	TOTAL_AMP_HOURS_USED("totalAmpHoursUsed", RunHistoryFormat.TOTAL_AMP_HOURS_USED, PlatingResult::getTotalAmpHoursUsed),
+	DELTA("delta", RunHistoryFormat.DELTA, PlatingResult::getDelta),
+	THICKNESS_PER_SIDE("thicknessPerSide", RunHistoryFormat.THICKNESS_PER_SIDE, PlatingResult::getThicknessPerSide);
+
+	/** name used in reports and on the command line */
+	private String label;
+
+	/** offset of the value in a run history record */
+	private int recordOffset;
+
+	/** reads the value from a result */
+	private ToDoubleFunction<PlatingResult> getter;
+
+	/** default constructor */
+	private RunColumnEnum(String label, int recordOffset, ToDoubleFunction<PlatingResult> getter)
+	{
+		this.label = label;
+		this.recordOffset = recordOffset;
+		this.getter = getter;
+	}
+
+	/**
+	 * @param result - PlatingResult of a run
+	 * @return double of this column's value in the result
+	 */
+	double valueOf(PlatingResult result)
+	{
+		return this.getter.applyAsDouble(result);
+	}
+
+	/**
+	 * @param label - String of a column label
+	 * @return RunColumnEnum with the label, or null if there is none
+	 */
+	public static RunColumnEnum getByLabel(String label)
+	{
+		for (RunColumnEnum column : values())
+		{
+			if (column.label.equals(label))
+				return column;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the label
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return the recordOffset
+	 */
+	int getRecordOffset() {
+		return recordOffset;
+	}
+}
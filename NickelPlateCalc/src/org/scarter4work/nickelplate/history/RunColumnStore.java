@@ -0,0 +1,644 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Column store of plating runs held outside the Java heap, for analysis of
+ * years of history.  Runs are appended into chunks of a fixed number of rows
+ * and each chunk keeps every field in its own direct buffer, so the heap
+ * holds only a few objects per million runs and garbage collection does not
+ * slow as the store grows.  An aggregate reads just the columns it needs,
+ * 8 bytes a run for thickness rather than the 144 byte history record.
+ * <p>
+ * The direct memory used is about 141 bytes a run, and the JVM limits the
+ * total with -XX:MaxDirectMemorySize, which defaults to the maximum heap
+ * size.  A new chunk starts with room for a few thousand runs and doubles
+ * as it fills, up to the chunk size, so a small store holds little more
+ * memory than its runs need.  Close the store to hand its memory back at
+ * once rather than when the collector finds it.  Appends must come from one
+ * thread at a time; reads and aggregates of the runs appended before they
+ * started may run on any number of threads, but not alongside close.
+ */
+public class RunColumnStore implements Closeable
+{
+	/** default number of runs in a chunk */
+	public static final int DEFAULT_CHUNK_ROWS = 1 << 20;
+
+	/** runs a new chunk has room for before it first grows */
+	public static final int INITIAL_CHUNK_ROWS = 1 << 12;
+
+	/** frees a direct buffer's memory, null if the JVM does not offer it */
+	private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+	/** bytes in a flags value */
+	private static final int FLAG_BYTES = 1;
+
+	/** columns in ordinal order */
+	private static final RunColumnEnum [] COLUMNS = RunColumnEnum.values();
+
+	/** runs in a chunk, a power of two */
+	private final int chunkRows;
+
+	/** log2 of chunkRows */
+	private final int chunkShift;
+
+	/** time zone that months are taken in */
+	private final ZoneId zone;
+
+	/** chunks in row order, replaced whole when a chunk is added */
+	private volatile Chunk [] chunks = new Chunk[0];
+
+	/** number of runs appended */
+	private volatile long rowCount;
+
+	/**
+	 * Creates a store with the default chunk size, taking months in the
+	 * system time zone.
+	 */
+	public RunColumnStore()
+	{
+		this(DEFAULT_CHUNK_ROWS, ZoneId.systemDefault());
+	}
+
+	/**
+	 * Creates a store.
+	 * @param chunkRows - int of the runs in a chunk, rounded up to a power of two
+	 * @param zone - ZoneId that months are taken in
+	 */
+	public RunColumnStore(int chunkRows, ZoneId zone)
+	{
+		super();
+		if (chunkRows <= 0 || chunkRows > (1 << 24))
+			throw new IllegalArgumentException("Chunk rows must be from 1 to " + (1 << 24) + ": " + chunkRows);
+		this.chunkShift = 32 - Integer.numberOfLeadingZeros(chunkRows - 1);
+		this.chunkRows = 1 << this.chunkShift;
+		this.zone = zone;
+	}
+
+	/**
+	 * Appends a run.
+	 * @param timestamp - long of the run time in epoch milliseconds
+	 * @param partId - long of the part id
+	 * @param tankId - int of the tank id
+	 * @param result - PlatingResult of the run
+	 */
+	public void append(long timestamp, long partId, int tankId, PlatingResult result)
+	{
+		long row = this.rowCount;
+		int index = (int) (row & (this.chunkRows - 1));
+		Chunk chunk = this.chunkForAppend(row, index);
+		chunk.timestamps.putLong(index * Long.BYTES, timestamp);
+		chunk.partIds.putLong(index * Long.BYTES, partId);
+		chunk.tankIds.putInt(index * Integer.BYTES, tankId);
+		chunk.flags.put(index, (byte) (result.isInSpecification() ? RunHistoryFormat.FLAG_IN_SPECIFICATION : 0));
+		for (int i = 0; i < COLUMNS.length; i++)
+		{
+			chunk.columns[i].putDouble(index * Double.BYTES, COLUMNS[i].valueOf(result));
+		}
+		this.rowCount = row + 1;
+	}
+
+	/**
+	 * Appends every record of a run history.
+	 * @param reader - RunHistoryReader of the history
+	 * @return long of the number of runs appended
+	 */
+	public long appendAll(RunHistoryReader reader)
+	{
+		long row = this.rowCount;
+		long first = row;
+		RunRecordCursor cursor = reader.cursor();
+		while (cursor.next())
+		{
+			int index = (int) (row & (this.chunkRows - 1));
+			Chunk chunk = this.chunkForAppend(row, index);
+			chunk.timestamps.putLong(index * Long.BYTES, cursor.getTimestamp());
+			chunk.partIds.putLong(index * Long.BYTES, cursor.getPartId());
+			chunk.tankIds.putInt(index * Integer.BYTES, cursor.getTankId());
+			chunk.flags.put(index, (byte) (cursor.isInSpecification() ? RunHistoryFormat.FLAG_IN_SPECIFICATION : 0));
+			for (int i = 0; i < COLUMNS.length; i++)
+			{
+				chunk.columns[i].putDouble(index * Double.BYTES, cursor.getDouble(COLUMNS[i].getRecordOffset()));
+			}
+			row++;
+			if ((row & (this.chunkRows - 1)) == 0)
+				this.rowCount = row;
+		}
+		this.rowCount = row;
+		return row - first;
+	}
+
+	/**
+	 * Finds the chunk for the next row, adding a chunk or growing the last
+	 * one when it is full.  A grown chunk is a copy, so readers still on the
+	 * old one see the rows they started with.
+	 * @param row - long of the next row to be written
+	 * @param index - int of the row's index within its chunk
+	 * @return Chunk to write the row into
+	 */
+	private Chunk chunkForAppend(long row, int index)
+	{
+		int chunkIndex = (int) (row >>> this.chunkShift);
+		Chunk [] current = this.chunks;
+		if (chunkIndex < current.length && index < current[chunkIndex].capacity)
+			return current[chunkIndex];
+
+		if (chunkIndex == current.length)
+		{
+			current = Arrays.copyOf(current, chunkIndex + 1);
+			current[chunkIndex] = new Chunk(Math.min(this.chunkRows, INITIAL_CHUNK_ROWS), null, 0);
+		}
+		else
+		{
+			current = current.clone();
+			Chunk full = current[chunkIndex];
+			current[chunkIndex] = new Chunk(Math.min(this.chunkRows, full.capacity * 2), full, index);
+		}
+		this.chunks = current;
+		return current[chunkIndex];
+	}
+
+	/**
+	 * Sums one column over every run.
+	 * @param column - RunColumnEnum to sum
+	 * @return double of the sum
+	 */
+	public double sum(RunColumnEnum column)
+	{
+		long rows = this.rowCount;
+		double sum = 0;
+		for (int c = 0; (long) c << this.chunkShift < rows; c++)
+		{
+			ByteBuffer values = this.getChunk(c).columns[column.ordinal()];
+			int count = (int) Math.min(this.chunkRows, rows - ((long) c << this.chunkShift));
+			for (int i = 0; i < count; i++)
+			{
+				sum += values.getDouble(i * Double.BYTES);
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Summarizes columns over every run, grouped.
+	 * @param group - RunGroupEnum of the grouping
+	 * @param columns - RunColumnEnum... to summarize
+	 * @return Map of the group key to a summary per column, in column order, by ascending key
+	 */
+	public Map<Long, RunColumnSummary []> aggregate(RunGroupEnum group, RunColumnEnum... columns)
+	{
+		return this.aggregate(group, Long.MIN_VALUE, Long.MAX_VALUE, columns);
+	}
+
+	/**
+	 * Summarizes columns over the runs in a time range, grouped.  Month keys
+	 * are the year times 100 plus the month, part and tank keys are the ids
+	 * and the one key of ALL is 0.
+	 * @param group - RunGroupEnum of the grouping
+	 * @param fromMillis - long of the earliest run time included, epoch milliseconds
+	 * @param toMillis - long of the run time after the last included, epoch milliseconds
+	 * @param columns - RunColumnEnum... to summarize
+	 * @return Map of the group key to a summary per column, in column order, by ascending key
+	 */
+	public Map<Long, RunColumnSummary []> aggregate(RunGroupEnum group, long fromMillis, long toMillis,
+			RunColumnEnum... columns)
+	{
+		long rows = this.rowCount;
+		GroupTable groups = new GroupTable(columns.length);
+		MonthKeys months = new MonthKeys(this.zone);
+		boolean filtered = fromMillis != Long.MIN_VALUE || toMillis != Long.MAX_VALUE;
+		ByteBuffer [] values = new ByteBuffer[columns.length];
+
+		for (int c = 0; (long) c << this.chunkShift < rows; c++)
+		{
+			Chunk chunk = this.getChunk(c);
+			for (int k = 0; k < columns.length; k++)
+			{
+				values[k] = chunk.columns[columns[k].ordinal()];
+			}
+			int count = (int) Math.min(this.chunkRows, rows - ((long) c << this.chunkShift));
+			for (int i = 0; i < count; i++)
+			{
+				long timestamp = 0;
+				if (filtered || group == RunGroupEnum.MONTH)
+				{
+					timestamp = chunk.timestamps.getLong(i * Long.BYTES);
+					if (timestamp < fromMillis || timestamp >= toMillis)
+						continue;
+				}
+
+				long key;
+				switch (group)
+				{
+					case MONTH: key = months.keyOf(timestamp); break;
+					case PART: key = chunk.partIds.getLong(i * Long.BYTES); break;
+					case TANK: key = chunk.tankIds.getInt(i * Integer.BYTES); break;
+					default: key = 0;
+				}
+
+				RunColumnSummary [] summaries = groups.get(key);
+				for (int k = 0; k < summaries.length; k++)
+				{
+					summaries[k].add(values[k].getDouble(i * Double.BYTES));
+				}
+			}
+		}
+		return groups.toMap();
+	}
+
+	/**
+	 * @param row - long of a run index
+	 * @return long of the run time in epoch milliseconds
+	 */
+	public long getTimestamp(long row)
+	{
+		return this.chunkOf(row).timestamps.getLong(this.indexOf(row) * Long.BYTES);
+	}
+
+	/**
+	 * @param row - long of a run index
+	 * @return long of the part id
+	 */
+	public long getPartId(long row)
+	{
+		return this.chunkOf(row).partIds.getLong(this.indexOf(row) * Long.BYTES);
+	}
+
+	/**
+	 * @param row - long of a run index
+	 * @return int of the tank id
+	 */
+	public int getTankId(long row)
+	{
+		return this.chunkOf(row).tankIds.getInt(this.indexOf(row) * Integer.BYTES);
+	}
+
+	/**
+	 * @param row - long of a run index
+	 * @return boolean true if the run was within specification
+	 */
+	public boolean isInSpecification(long row)
+	{
+		return (this.chunkOf(row).flags.get(this.indexOf(row)) & RunHistoryFormat.FLAG_IN_SPECIFICATION) != 0;
+	}
+
+	/**
+	 * @param row - long of a run index
+	 * @param column - RunColumnEnum to read
+	 * @return double of the run's value in the column
+	 */
+	public double getValue(long row, RunColumnEnum column)
+	{
+		return this.chunkOf(row).columns[column.ordinal()].getDouble(this.indexOf(row) * Double.BYTES);
+	}
+
+	/**
+	 * @param row - long of a run index
+	 * @return Chunk holding the run
+	 */
+	private Chunk chunkOf(long row)
+	{
+		if (row < 0 || row >= this.rowCount)
+			throw new IndexOutOfBoundsException("Run " + row + " of " + this.rowCount);
+		return this.getChunk((int) (row >>> this.chunkShift));
+	}
+
+	/**
+	 * @param row - long of a run index
+	 * @return int of the run's index within its chunk
+	 */
+	private int indexOf(long row)
+	{
+		return (int) (row & (this.chunkRows - 1));
+	}
+
+	/**
+	 * @param chunkIndex - int of a chunk index
+	 * @return Chunk at the index
+	 */
+	private Chunk getChunk(int chunkIndex)
+	{
+		return this.chunks[chunkIndex];
+	}
+
+	/**
+	 * @return long of the number of runs appended
+	 */
+	public long getRowCount()
+	{
+		return this.rowCount;
+	}
+
+	/**
+	 * @return long of the bytes of direct memory held
+	 */
+	public long getDirectBytes()
+	{
+		long rows = 0;
+		for (Chunk chunk : this.chunks)
+		{
+			rows += chunk.capacity;
+		}
+		return rows * Chunk.ROW_BYTES;
+	}
+
+	/**
+	 * Empties the store and frees its direct memory.  No read or aggregate
+	 * may be running, and the store may be appended to again afterwards.
+	 */
+	@Override
+	public void close()
+	{
+		Chunk [] closed = this.chunks;
+		this.chunks = new Chunk[0];
+		this.rowCount = 0;
+		for (Chunk chunk : closed)
+		{
+			chunk.free();
+		}
+	}
+
+	/**
+	 * Frees a direct buffer now, where the JVM allows it; otherwise its
+	 * memory goes back when the buffer is collected.
+	 * @param buffer - ByteBuffer to free, unused afterwards
+	 */
+	private static void free(ByteBuffer buffer)
+	{
+		if (INVOKE_CLEANER == null)
+			return;
+		try
+		{
+			INVOKE_CLEANER.invoke(buffer);
+		}
+		catch (Throwable ex)
+		{
+			// left to the collector
+		}
+	}
+
+	/**
+	 * @return MethodHandle of the JDK's Unsafe.invokeCleaner bound to its instance, or null
+	 */
+	private static MethodHandle findCleaner()
+	{
+		try
+		{
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			return MethodHandles.lookup().findVirtual(unsafeClass, "invokeCleaner",
+					MethodType.methodType(void.class, ByteBuffer.class)).bindTo(theUnsafe.get(null));
+		}
+		catch (ReflectiveOperationException | RuntimeException ex)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * @return the chunkRows
+	 */
+	public int getChunkRows() {
+		return chunkRows;
+	}
+
+	/**
+	 * @return the zone
+	 */
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	/**
+	 * One block of rows, a direct buffer per field, with room for up to the
+	 * store's chunk rows.
+	 */
+	private static final class Chunk
+	{
+		/** bytes of direct memory per row */
+		private static final int ROW_BYTES = Long.BYTES * 2 + Integer.BYTES + FLAG_BYTES + Double.BYTES * COLUMNS.length;
+
+		/** run times */
+		private final ByteBuffer timestamps;
+		/** part ids */
+		private final ByteBuffer partIds;
+		/** tank ids */
+		private final ByteBuffer tankIds;
+		/** flags */
+		private final ByteBuffer flags;
+		/** double columns by RunColumnEnum ordinal */
+		private final ByteBuffer [] columns = new ByteBuffer[COLUMNS.length];
+		/** rows the chunk has room for */
+		private final int capacity;
+
+		/**
+		 * @param rows - int of the rows the chunk has room for
+		 * @param from - Chunk to copy the first rows of, null for none
+		 * @param copyRows - int of the rows to copy
+		 */
+		private Chunk(int rows, Chunk from, int copyRows)
+		{
+			this.capacity = rows;
+			this.timestamps = allocate(rows, Long.BYTES, from != null ? from.timestamps : null, copyRows);
+			this.partIds = allocate(rows, Long.BYTES, from != null ? from.partIds : null, copyRows);
+			this.tankIds = allocate(rows, Integer.BYTES, from != null ? from.tankIds : null, copyRows);
+			this.flags = allocate(rows, FLAG_BYTES, from != null ? from.flags : null, copyRows);
+			for (int i = 0; i < this.columns.length; i++)
+			{
+				this.columns[i] = allocate(rows, Double.BYTES, from != null ? from.columns[i] : null, copyRows);
+			}
+		}
+
+		/**
+		 * @param rows - int of the rows to make room for
+		 * @param width - int of the bytes a row takes
+		 * @param from - ByteBuffer to copy the first rows of, null for none
+		 * @param copyRows - int of the rows to copy
+		 * @return ByteBuffer of direct memory in native order
+		 */
+		private static ByteBuffer allocate(int rows, int width, ByteBuffer from, int copyRows)
+		{
+			ByteBuffer buffer = ByteBuffer.allocateDirect(rows * width).order(ByteOrder.nativeOrder());
+			if (from != null)
+				buffer.put(0, from, 0, copyRows * width);
+			return buffer;
+		}
+
+		/**
+		 * Frees every buffer of the chunk.
+		 */
+		private void free()
+		{
+			RunColumnStore.free(this.timestamps);
+			RunColumnStore.free(this.partIds);
+			RunColumnStore.free(this.tankIds);
+			RunColumnStore.free(this.flags);
+			for (ByteBuffer column : this.columns)
+			{
+				RunColumnStore.free(column);
+			}
+		}
+	}
+
+	/**
+	 * Month key of run times, recalculated only when a run falls outside the
+	 * month of the previous one, which for a history in time order is once
+	 * a month.
+	 */
+	private static final class MonthKeys
+	{
+		/** time zone of the months */
+		private final ZoneId zone;
+		/** start of the current month, epoch milliseconds */
+		private long start = Long.MAX_VALUE;
+		/** start of the next month, epoch milliseconds */
+		private long end = Long.MIN_VALUE;
+		/** key of the current month */
+		private long key;
+
+		/**
+		 * @param zone - ZoneId of the months
+		 */
+		private MonthKeys(ZoneId zone)
+		{
+			this.zone = zone;
+		}
+
+		/**
+		 * @param timestamp - long of a run time in epoch milliseconds
+		 * @return long of the year times 100 plus the month
+		 */
+		private long keyOf(long timestamp)
+		{
+			if (timestamp < this.start || timestamp >= this.end)
+			{
+				ZonedDateTime time = Instant.ofEpochMilli(timestamp).atZone(this.zone);
+				ZonedDateTime month = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+				this.start = month.toInstant().toEpochMilli();
+				this.end = month.plusMonths(1).toInstant().toEpochMilli();
+				this.key = time.getYear() * 100L + time.getMonthValue();
+			}
+			return this.key;
+		}
+	}
+
+	/**
+	 * Open addressing table of group keys to their summaries, so grouping a
+	 * run does not box its key.
+	 */
+	private static final class GroupTable
+	{
+		/** summaries per group */
+		private final int width;
+		/** keys by slot */
+		private long [] keys = new long[64];
+		/** summaries by slot, null when the slot is empty */
+		private RunColumnSummary [][] summaries = new RunColumnSummary[64][];
+		/** groups held */
+		private int size;
+		/** key of the last lookup */
+		private long lastKey;
+		/** summaries of the last lookup */
+		private RunColumnSummary [] last;
+
+		/**
+		 * @param width - int of the summaries per group
+		 */
+		private GroupTable(int width)
+		{
+			this.width = width;
+		}
+
+		/**
+		 * @param key - long of a group key
+		 * @return RunColumnSummary [] of the group, added if new
+		 */
+		private RunColumnSummary [] get(long key)
+		{
+			if (this.last != null && key == this.lastKey)
+				return this.last;
+			int mask = this.keys.length - 1;
+			int slot = (int) (key ^ (key >>> 32)) * 0x9E3779B9 & mask;
+			while (this.summaries[slot] != null && this.keys[slot] != key)
+			{
+				slot = (slot + 1) & mask;
+			}
+			if (this.summaries[slot] == null)
+			{
+				if ((this.size + 1) * 2 > this.keys.length)
+				{
+					this.grow();
+					return this.get(key);
+				}
+				RunColumnSummary [] added = new RunColumnSummary[this.width];
+				for (int i = 0; i < added.length; i++)
+				{
+					added[i] = new RunColumnSummary();
+				}
+				this.keys[slot] = key;
+				this.summaries[slot] = added;
+				this.size++;
+			}
+			this.lastKey = key;
+			this.last = this.summaries[slot];
+			return this.last;
+		}
+
+		/**
+		 * Doubles the table.
+		 */
+		private void grow()
+		{
+			long [] oldKeys = this.keys;
+			RunColumnSummary [][] oldSummaries = this.summaries;
+			this.keys = new long[oldKeys.length * 2];
+			this.summaries = new RunColumnSummary[oldKeys.length * 2][];
+			int mask = this.keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++)
+			{
+				if (oldSummaries[i] == null)
+					continue;
+				int slot = (int) (oldKeys[i] ^ (oldKeys[i] >>> 32)) * 0x9E3779B9 & mask;
+				while (this.summaries[slot] != null)
+				{
+					slot = (slot + 1) & mask;
+				}
+				this.keys[slot] = oldKeys[i];
+				this.summaries[slot] = oldSummaries[i];
+			}
+		}
+
+		/**
+		 * @return Map of the groups by ascending key
+		 */
+		private Map<Long, RunColumnSummary []> toMap()
+		{
+			Map<Long, RunColumnSummary []> map = new TreeMap<>();
+			for (int i = 0; i < this.keys.length; i++)
+			{
+				if (this.summaries[i] != null)
+					map.put(this.keys[i], this.summaries[i]);
+			}
+			return map;
+		}
+	}
+}
@@ -0,0 +1,274 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import java.util.Arrays;
+
+/**
+ * Count, sum, extremes and distribution of one column over a group of runs.
+ * The distribution is a log linear histogram in the style of the latency
+ * histograms, bucketed straight from the bits of each double: the exponent
+ * and the top six bits of the mantissa pick the bucket, so every value is
+ * known to within 1/64 (1.6%) at any magnitude and adding one costs a shift.
+ * Only the range of buckets actually used is allocated, which for a column
+ * like thickness is a few hundred counts however many runs are added.
+ * Zeros and subnormal values are counted on their own rather than in the
+ * lowest bucket, which would stretch the range down to bucket 0, and NaN
+ * values are counted apart from the rest.  Percentiles are reported as the
+ * largest value of the bucket they fall in, kept within the smallest and
+ * largest values seen.  Not thread safe.
+ */
+public class RunColumnSummary
+{
+	/** bits of the double below the bucket index */
+	private static final int BUCKET_SHIFT = 52 - 6;
+
+	/** bits of the smallest normal double, below which values count as zero */
+	private static final long MIN_NORMAL_BITS = Double.doubleToRawLongBits(Double.MIN_NORMAL);
+
+	/** buckets of zero and positive values */
+	private final BucketCounts positive = new BucketCounts();
+
+	/** buckets of negative values, by magnitude */
+	private final BucketCounts negative = new BucketCounts();
+
+	/** number of values added, not counting NaN */
+	private long count;
+
+	/** number of zero and subnormal values */
+	private long zeroCount;
+
+	/** number of NaN values seen */
+	private long nanCount;
+
+	/** sum of the values */
+	private double sum;
+
+	/** smallest value */
+	private double min = Double.POSITIVE_INFINITY;
+
+	/** largest value */
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/** default constructor */
+	public RunColumnSummary()
+	{
+		super();
+	}
+
+	/**
+	 * Adds a value.  NaN values are only counted by getNanCount.
+	 * @param value - double to add
+	 */
+	public void add(double value)
+	{
+		if (value != value)
+		{
+			this.nanCount++;
+			return;
+		}
+		this.count++;
+		this.sum += value;
+		if (value < this.min)
+			this.min = value;
+		if (value > this.max)
+			this.max = value;
+		long bits = Double.doubleToRawLongBits(value);
+		long magnitude = bits & Long.MAX_VALUE;
+		if (magnitude < MIN_NORMAL_BITS)
+			this.zeroCount++;
+		else if (bits < 0)
+			this.negative.increment((int) (magnitude >>> BUCKET_SHIFT));
+		else
+			this.positive.increment((int) (bits >>> BUCKET_SHIFT));
+	}
+
+	/**
+	 * Adds every value of another summary to this one.
+	 * @param other - RunColumnSummary to merge in
+	 */
+	public void merge(RunColumnSummary other)
+	{
+		this.count += other.count;
+		this.zeroCount += other.zeroCount;
+		this.nanCount += other.nanCount;
+		this.sum += other.sum;
+		this.min = Math.min(this.min, other.min);
+		this.max = Math.max(this.max, other.max);
+		this.positive.merge(other.positive);
+		this.negative.merge(other.negative);
+	}
+
+	/**
+	 * @param percentile - double from 0 to 100
+	 * @return double of the value at the percentile, NaN when empty
+	 */
+	public double getValueAtPercentile(double percentile)
+	{
+		if (this.count == 0)
+			return Double.NaN;
+		long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * this.count);
+		rank = Math.max(1, rank);
+
+		// negative values run from the largest magnitude down
+		long seen = 0;
+		for (int i = this.negative.counts.length - 1; i >= 0; i--)
+		{
+			seen += this.negative.counts[i];
+			if (seen >= rank)
+				return this.clamp(-Double.longBitsToDouble((long) (this.negative.first + i) << BUCKET_SHIFT));
+		}
+		// zero and subnormal values are reported as zero
+		seen += this.zeroCount;
+		if (seen >= rank)
+			return this.clamp(0.0);
+		for (int i = 0; i < this.positive.counts.length; i++)
+		{
+			seen += this.positive.counts[i];
+			if (seen >= rank)
+				return this.clamp(Double.longBitsToDouble(((long) (this.positive.first + i + 1) << BUCKET_SHIFT) - 1));
+		}
+		return this.max;
+	}
+
+	/**
+	 * @param value - double of a bucket's reported value
+	 * @return double of the value kept within the smallest and largest seen
+	 */
+	private double clamp(double value)
+	{
+		return Math.min(this.max, Math.max(this.min, value));
+	}
+
+	/**
+	 * @return double of the mean, NaN when empty
+	 */
+	public double getMean()
+	{
+		return this.count == 0 ? Double.NaN : this.sum / this.count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "RunColumnSummary [count=" + count + ", sum=" + sum + ", mean=" + getMean() + ", min=" + getMin()
+				+ ", p50=" + getValueAtPercentile(50) + ", p90=" + getValueAtPercentile(90)
+				+ ", p99=" + getValueAtPercentile(99) + ", max=" + getMax() + "]";
+	}
+
+	/**
+	 * @return the count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the zeroCount, of zero and subnormal values
+	 */
+	public long getZeroCount() {
+		return zeroCount;
+	}
+
+	/**
+	 * @return the nanCount
+	 */
+	public long getNanCount() {
+		return nanCount;
+	}
+
+	/**
+	 * @return the sum
+	 */
+	public double getSum() {
+		return sum;
+	}
+
+	/**
+	 * @return the min, NaN when empty
+	 */
+	public double getMin() {
+		return count == 0 ? Double.NaN : min;
+	}
+
+	/**
+	 * @return the max, NaN when empty
+	 */
+	public double getMax() {
+		return count == 0 ? Double.NaN : max;
+	}
+
+	/**
+	 * @return int of the bucket counts allocated, for checking the range stays small
+	 */
+	int getBucketCapacity()
+	{
+		return this.positive.counts.length + this.negative.counts.length;
+	}
+
+	/**
+	 * Counts over the range of bucket indexes used so far, grown by doubling
+	 * toward whichever end a new bucket falls past.
+	 */
+	private static final class BucketCounts
+	{
+		/** buckets allocated for the first value, one power of two range */
+		private static final int INITIAL_BUCKETS = 64;
+
+		/** bucket index of counts[0] */
+		private int first;
+
+		/** counts from bucket first on */
+		private long [] counts = new long[0];
+
+		/**
+		 * @param index - int of the bucket to count
+		 */
+		private void increment(int index)
+		{
+			this.add(index, 1);
+		}
+
+		/**
+		 * @param index - int of the bucket
+		 * @param amount - long to add to its count
+		 */
+		private void add(int index, long amount)
+		{
+			if (this.counts.length == 0)
+			{
+				this.first = index;
+				this.counts = new long[INITIAL_BUCKETS];
+			}
+			else if (index < this.first)
+			{
+				int end = this.first + this.counts.length;
+				int grownFirst = Math.max(0, end - Math.max(this.counts.length * 2, end - index));
+				long [] grown = new long[end - grownFirst];
+				System.arraycopy(this.counts, 0, grown, this.first - grownFirst, this.counts.length);
+				this.counts = grown;
+				this.first = grownFirst;
+			}
+			else if (index >= this.first + this.counts.length)
+			{
+				this.counts = Arrays.copyOf(this.counts, Math.max(this.counts.length * 2, index - this.first + 1));
+			}
+			this.counts[index - this.first] += amount;
+		}
+
+		/**
+		 * @param other - BucketCounts to add to these
+		 */
+		private void merge(BucketCounts other)
+		{
+			for (int i = 0; i < other.counts.length; i++)
+			{
+				if (other.counts[i] != 0)
+					this.add(other.first + i, other.counts[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+/**
+ * Ways RunColumnStore can group runs when aggregating.  Month keys are the
+ * year times 100 plus the month, 202403 for March 2024, in the store's
+ * time zone.
+ */
+public enum RunGroupEnum
+{
+	ALL("all"),
+	MONTH("month"),
+	PART("part"),
+	TANK("tank");
+
+	/** name used in reports and on the command line */
+	private String label;
+
+	/** default constructor */
+	private RunGroupEnum(String label)
+	{
+		this.label = label;
+	}
+
+	/**
+	 * @param label - String of a grouping label
+	 * @return RunGroupEnum with the label, or null if there is none
+	 */
+	public static RunGroupEnum getByLabel(String label)
+	{
+		for (RunGroupEnum group : values())
+		{
+			if (group.label.equals(label))
+				return group;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the label
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
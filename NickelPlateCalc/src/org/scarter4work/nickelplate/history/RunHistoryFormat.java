@@ -0,0 +1,188 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Layout of the plating run history file.  The file is a fixed size header
+ * followed by fixed size records, all little endian, so record n always sits
+ * at HEADER_SIZE + n * RECORD_SIZE and can be read in place.
+ * <pre>
+ * header (64 bytes)
+ *   0  int    magic 'NPRH'
+ *   4  short  format version
+ *   6  short  header size
+ *   8  int    record size
+ *  12  int    reserved
+ *  16  long   file creation time, epoch milliseconds
+ *  24..63     reserved, zero
+ *
+ * record (144 bytes)
+ *   0  long   run time, epoch milliseconds
+ *   8  long   part id
+ *  16  int    tank id
+ *  20  int    flags, bit 0 set when in specification
+ *  24  double start weight      80  double surface area
+ *  32  double width             88  double total surface area
+ *  40  double length            96  double amps used
+ *  48  double number of sides  104  double amp hours used
+ *  56  double number of pieces 112  double total amps used
+ *  64  double selection        120  double total amp hours used
+ *  72  double final weight     128  double delta
+ *                              136  double thickness per side
+ * </pre>
+ * Readers use the record size in the header, so later versions may append
+ * fields to the end of a record without breaking older readers.
+ */
+public final class RunHistoryFormat
+{
+	/** file magic, 'NPRH' */
+	public static final int MAGIC = 0x4E505248;
+	/** current format version */
+	public static final short VERSION = 1;
+	/** size of the header */
+	public static final int HEADER_SIZE = 64;
+	/** size of a version 1 record */
+	public static final int RECORD_SIZE = 144;
+	/** byte order of every value */
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/** header magic offset */
+	static final int MAGIC_OFFSET = 0;
+	/** header version offset */
+	static final int VERSION_OFFSET = 4;
+	/** header size offset */
+	static final int HEADER_SIZE_OFFSET = 6;
+	/** header record size offset */
+	static final int RECORD_SIZE_OFFSET = 8;
+	/** header creation time offset */
+	static final int CREATED_OFFSET = 16;
+
+	/** run time offset */
+	public static final int TIMESTAMP = 0;
+	/** part id offset */
+	public static final int PART_ID = 8;
+	/** tank id offset */
+	public static final int TANK_ID = 16;
+	/** flags offset */
+	public static final int FLAGS = 20;
+	/** start weight offset */
+	public static final int START_WEIGHT = 24;
+	/** width offset */
+	public static final int WIDTH = 32;
+	/** length offset */
+	public static final int LENGTH = 40;
+	/** number of sides offset */
+	public static final int NBR_SIDES = 48;
+	/** number of pieces offset */
+	public static final int NBR_PIECES = 56;
+	/** selection offset */
+	public static final int SELECTION = 64;
+	/** final weight offset */
+	public static final int FINAL_WEIGHT = 72;
+	/** surface area offset */
+	public static final int SURFACE_AREA = 80;
+	/** total surface area offset */
+	public static final int TOTAL_SURFACE_AREA = 88;
+	/** amps used offset */
+	public static final int AMPS_USED = 96;
+	/** amp hours used offset */
+	public static final int AMP_HOURS_USED = 104;
+	/** total amps used offset */
+	public static final int TOTAL_AMPS_USED = 112;
+	/** total amp hours used offset */
+	public static final int TOTAL_AMP_HOURS_USED = 120;
+	/** delta offset */
+	public static final int DELTA = 128;
+	/** thickness per side offset */
+	public static final int THICKNESS_PER_SIDE = 136;
+
+	/** flag set when the run was within specification */
+	public static final int FLAG_IN_SPECIFICATION = 1;
+
+	/** no instances */
+	private RunHistoryFormat()
+	{
+		super();
+	}
+
+	/**
+	 * Writes a header at the buffer's position.
+	 * @param buffer - little endian ByteBuffer with HEADER_SIZE bytes remaining
+	 * @param createdMillis - long of the file creation time
+	 */
+	static void writeHeader(ByteBuffer buffer, long createdMillis)
+	{
+		int base = buffer.position();
+		for (int i = 0; i < HEADER_SIZE; i++)
+		{
+			buffer.put(base + i, (byte) 0);
+		}
+		buffer.putInt(base + MAGIC_OFFSET, MAGIC);
+		buffer.putShort(base + VERSION_OFFSET, VERSION);
+		buffer.putShort(base + HEADER_SIZE_OFFSET, (short) HEADER_SIZE);
+		buffer.putInt(base + RECORD_SIZE_OFFSET, RECORD_SIZE);
+		buffer.putLong(base + CREATED_OFFSET, createdMillis);
+		buffer.position(base + HEADER_SIZE);
+	}
+
+	/**
+	 * Checks the header at the start of the buffer and returns its record size.
+	 * @param buffer - little endian ByteBuffer holding the header at index 0
+	 * @return int of the record size declared by the header
+	 * @throws IOException if the header is not a run history header
+	 */
+	static int readRecordSize(ByteBuffer buffer) throws IOException
+	{
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(MAGIC_OFFSET) != MAGIC)
+			throw new IOException("Not a plating run history file.");
+		short version = buffer.getShort(VERSION_OFFSET);
+		if (version < 1)
+			throw new IOException("Unsupported run history version " + version);
+		if (buffer.getShort(HEADER_SIZE_OFFSET) != HEADER_SIZE)
+			throw new IOException("Unsupported run history header size " + buffer.getShort(HEADER_SIZE_OFFSET));
+		int recordSize = buffer.getInt(RECORD_SIZE_OFFSET);
+		if (recordSize < RECORD_SIZE)
+			throw new IOException("Run history record size " + recordSize + " is smaller than " + RECORD_SIZE);
+		return recordSize;
+	}
+
+	/**
+	 * Writes a record at the buffer's position.
+	 * @param buffer - little endian ByteBuffer with RECORD_SIZE bytes remaining
+	 * @param timestamp - long of the run time in epoch milliseconds
+	 * @param partId - long of the part id
+	 * @param tankId - int of the tank id
+	 * @param result - PlatingResult of the run
+	 */
+	public static void writeRecord(ByteBuffer buffer, long timestamp, long partId, int tankId, PlatingResult result)
+	{
+		int base = buffer.position();
+		buffer.putLong(base + TIMESTAMP, timestamp);
+		buffer.putLong(base + PART_ID, partId);
+		buffer.putInt(base + TANK_ID, tankId);
+		buffer.putInt(base + FLAGS, result.isInSpecification() ? FLAG_IN_SPECIFICATION : 0);
+		buffer.putDouble(base + START_WEIGHT, result.getStartWeight());
+		buffer.putDouble(base + WIDTH, result.getWidth());
+		buffer.putDouble(base + LENGTH, result.getLength());
+		buffer.putDouble(base + NBR_SIDES, result.getNbrSidesPlated());
+		buffer.putDouble(base + NBR_PIECES, result.getNbrPieces());
+		buffer.putDouble(base + SELECTION, result.getSelection());
+		buffer.putDouble(base + FINAL_WEIGHT, result.getFinalWeight());
+		buffer.putDouble(base + SURFACE_AREA, result.getSurfaceArea());
+		buffer.putDouble(base + TOTAL_SURFACE_AREA, result.getTotalSurfaceArea());
+		buffer.putDouble(base + AMPS_USED, result.getAmpsUsed());
+		buffer.putDouble(base + AMP_HOURS_USED, result.getAmpHoursUsed());
+		buffer.putDouble(base + TOTAL_AMPS_USED, result.getTotalAmpsUsed());
+		buffer.putDouble(base + TOTAL_AMP_HOURS_USED, result.getTotalAmpHoursUsed());
+		buffer.putDouble(base + DELTA, result.getDelta());
+		buffer.putDouble(base + THICKNESS_PER_SIDE, result.getThicknessPerSide());
+		buffer.position(base + RECORD_SIZE);
+	}
+}
@@ -0,0 +1,177 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a run history file in place.  The records are memory mapped in
+ * windows of whole records and read through a RunRecordCursor straight from
+ * the mapping, so a scan copies nothing and allocates nothing per record.
+ * The reader sees the records present when it was opened.
+ */
+public class RunHistoryReader implements Closeable
+{
+	/** default size of a mapped window, rounded down to whole records */
+	public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+	/** the history file, null when reading a buffer */
+	private final FileChannel channel;
+
+	/** size of a record */
+	private final int recordSize;
+
+	/** number of records */
+	private final long recordCount;
+
+	/** file creation time */
+	private final long createdMillis;
+
+	/** number of records in a full window */
+	private final int recordsPerWindow;
+
+	/** windows of records, in file order */
+	private final ByteBuffer [] windows;
+
+	/**
+	 * Opens and maps the file with the default window size.
+	 * @param path - Path of the history file
+	 * @throws IOException
+	 */
+	public RunHistoryReader(Path path) throws IOException
+	{
+		this(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Opens and maps the file.
+	 * @param path - Path of the history file
+	 * @param windowSize - int of the largest number of bytes mapped in one window
+	 * @throws IOException
+	 */
+	public RunHistoryReader(Path path, int windowSize) throws IOException
+	{
+		super();
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try
+		{
+			long size = this.channel.size();
+			if (size < RunHistoryFormat.HEADER_SIZE)
+				throw new IOException("Not a plating run history file: " + path);
+			ByteBuffer header = ByteBuffer.allocate(RunHistoryFormat.HEADER_SIZE).order(RunHistoryFormat.ORDER);
+			while (header.hasRemaining())
+			{
+				this.channel.read(header, header.position());
+			}
+			header.flip();
+
+			this.recordSize = RunHistoryFormat.readRecordSize(header);
+			this.createdMillis = header.getLong(RunHistoryFormat.CREATED_OFFSET);
+			this.recordCount = (size - RunHistoryFormat.HEADER_SIZE) / this.recordSize;
+			this.recordsPerWindow = windowSize / this.recordSize;
+			if (this.recordsPerWindow <= 0)
+				throw new IllegalArgumentException("Window size " + windowSize + " is smaller than a record");
+
+			int windowCount = (int) ((this.recordCount + this.recordsPerWindow - 1) / this.recordsPerWindow);
+			this.windows = new ByteBuffer[windowCount];
+			for (int i = 0; i < windowCount; i++)
+			{
+				long first = (long) i * this.recordsPerWindow;
+				long records = Math.min(this.recordsPerWindow, this.recordCount - first);
+				this.windows[i] = this.channel.map(FileChannel.MapMode.READ_ONLY,
+						RunHistoryFormat.HEADER_SIZE + first * this.recordSize,
+						records * this.recordSize).order(RunHistoryFormat.ORDER);
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the history held in a buffer, for example one already mapped or
+	 * received over the network.  The buffer is not copied and its position
+	 * is left unchanged.
+	 * @param buffer - ByteBuffer holding a run history from its position to its limit
+	 * @throws IOException if the buffer does not hold a run history
+	 */
+	public RunHistoryReader(ByteBuffer buffer) throws IOException
+	{
+		super();
+		this.channel = null;
+		ByteBuffer history = buffer.slice().order(RunHistoryFormat.ORDER);
+		this.recordSize = RunHistoryFormat.readRecordSize(history);
+		this.createdMillis = history.getLong(RunHistoryFormat.CREATED_OFFSET);
+		this.recordCount = (history.limit() - RunHistoryFormat.HEADER_SIZE) / this.recordSize;
+		this.recordsPerWindow = (int) Math.max(1, this.recordCount);
+
+		history.position(RunHistoryFormat.HEADER_SIZE);
+		history.limit(RunHistoryFormat.HEADER_SIZE + (int) this.recordCount * this.recordSize);
+		this.windows = new ByteBuffer[] { history.slice().order(RunHistoryFormat.ORDER) };
+	}
+
+	/**
+	 * Creates a cursor positioned before the first record.  Each thread
+	 * scanning the history needs its own cursor.
+	 * @return RunRecordCursor over the records
+	 */
+	public RunRecordCursor cursor()
+	{
+		return new RunRecordCursor(this);
+	}
+
+	/**
+	 * @param index - int of the window index
+	 * @return ByteBuffer of the window
+	 */
+	ByteBuffer getWindow(int index)
+	{
+		return this.windows[index];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (this.channel != null)
+			this.channel.close();
+	}
+
+	/**
+	 * @return the recordSize
+	 */
+	public int getRecordSize() {
+		return recordSize;
+	}
+
+	/**
+	 * @return the recordCount
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return the createdMillis
+	 */
+	public long getCreatedMillis() {
+		return createdMillis;
+	}
+
+	/**
+	 * @return the recordsPerWindow
+	 */
+	int getRecordsPerWindow() {
+		return recordsPerWindow;
+	}
+}
@@ -0,0 +1,166 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Appends plating runs to a run history file.  Records are collected in a
+ * direct buffer and written to the file a buffer at a time.  Opening an
+ * existing file appends to it; a partial record left at the end by a crash
+ * is cut off first so every record stays aligned.
+ */
+public class RunHistoryWriter implements Closeable
+{
+	/** default number of records buffered before a write */
+	public static final int DEFAULT_BUFFERED_RECORDS = 512;
+
+	/** part or tank id recorded when it is not known */
+	public static final int UNKNOWN_ID = 0;
+
+	/** the history file */
+	private final FileChannel channel;
+
+	/** records waiting to be written */
+	private final ByteBuffer buffer;
+
+	/** number of records in the file including the buffered ones */
+	private long recordCount;
+
+	/**
+	 * Opens the file with the default buffer size.
+	 * @param path - Path of the history file, created if it does not exist
+	 * @throws IOException
+	 */
+	public RunHistoryWriter(Path path) throws IOException
+	{
+		this(path, DEFAULT_BUFFERED_RECORDS);
+	}
+
+	/**
+	 * Opens the file.
+	 * @param path - Path of the history file, created if it does not exist
+	 * @param bufferedRecords - int of the number of records buffered before a write
+	 * @throws IOException
+	 */
+	public RunHistoryWriter(Path path, int bufferedRecords) throws IOException
+	{
+		super();
+		if (bufferedRecords <= 0)
+			throw new IllegalArgumentException("Buffered records must be positive: " + bufferedRecords);
+
+		this.buffer = ByteBuffer.allocateDirect(bufferedRecords * RunHistoryFormat.RECORD_SIZE)
+				.order(RunHistoryFormat.ORDER);
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try
+		{
+			this.open();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the header of a new file or checks the header of an existing one
+	 * and positions the channel after the last whole record.
+	 * @throws IOException
+	 */
+	private void open() throws IOException
+	{
+		long size = this.channel.size();
+		if (size == 0)
+		{
+			ByteBuffer header = ByteBuffer.allocate(RunHistoryFormat.HEADER_SIZE).order(RunHistoryFormat.ORDER);
+			RunHistoryFormat.writeHeader(header, System.currentTimeMillis());
+			header.flip();
+			while (header.hasRemaining())
+			{
+				this.channel.write(header);
+			}
+			return;
+		}
+
+		if (size < RunHistoryFormat.HEADER_SIZE)
+			throw new IOException("Not a plating run history file.");
+		ByteBuffer header = ByteBuffer.allocate(RunHistoryFormat.HEADER_SIZE).order(RunHistoryFormat.ORDER);
+		while (header.hasRemaining())
+		{
+			this.channel.read(header, header.position());
+		}
+		header.flip();
+		int recordSize = RunHistoryFormat.readRecordSize(header);
+		if (recordSize != RunHistoryFormat.RECORD_SIZE)
+			throw new IOException("Cannot append to run history with record size " + recordSize);
+
+		this.recordCount = (size - RunHistoryFormat.HEADER_SIZE) / recordSize;
+		long end = RunHistoryFormat.HEADER_SIZE + this.recordCount * recordSize;
+		if (end < size)
+			this.channel.truncate(end);
+		this.channel.position(end);
+	}
+
+	/**
+	 * Adds a run to the history.
+	 * @param timestamp - long of the run time in epoch milliseconds
+	 * @param partId - long of the part id
+	 * @param tankId - int of the tank id
+	 * @param result - PlatingResult of the run
+	 * @throws IOException
+	 */
+	public void write(long timestamp, long partId, int tankId, PlatingResult result) throws IOException
+	{
+		if (this.buffer.remaining() < RunHistoryFormat.RECORD_SIZE)
+			this.flush();
+		RunHistoryFormat.writeRecord(this.buffer, timestamp, partId, tankId, result);
+		this.recordCount++;
+	}
+
+	/**
+	 * Writes the buffered records to the file.
+	 * @throws IOException
+	 */
+	public void flush() throws IOException
+	{
+		this.buffer.flip();
+		while (this.buffer.hasRemaining())
+		{
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			this.flush();
+		}
+		finally
+		{
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * @return the recordCount
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+}
@@ -0,0 +1,740 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Crash safe, append only journal of completed runs.  Every entry carries a
+ * sequence number and a CRC32C checksum around a run history record:
+ * <pre>
+ *   0  int    payload size
+ *   4  int    CRC32C of bytes 8 to the end of the entry
+ *   8  long   sequence number, counting from 1
+ *  16  ...    run history record, see RunHistoryFormat
+ * </pre>
+ * Opening a journal checks every entry and truncates the file at the first
+ * one that is incomplete or fails its checksum, which is what a crash part
+ * way through an append leaves behind.
+ * <p>
+ * With group sync, appending threads only fill a buffer; a sync thread
+ * writes and forces the buffer every group of records or milliseconds,
+ * whichever comes first, and then releases every append in the group.  It
+ * does not sit out the interval when every entry in the buffer already has
+ * a thread waiting on it, since no more are coming from those threads.  New
+ * appends fill a second buffer while the first is forced, so one force
+ * covers many records no matter how many threads are appending.
+ * <p>
+ * System properties for fromSystemProperties:
+ * nickelplate.journal.file (no journal when not set),
+ * nickelplate.journal.sync (default RECORD),
+ * nickelplate.journal.groupRecords (default 256) and
+ * nickelplate.journal.groupMillis (default 5).
+ */
+public class RunJournal implements Closeable
+{
+	/** file magic, 'NPRJ' */
+	public static final int MAGIC = 0x4E50524A;
+	/** current journal version */
+	public static final short VERSION = 1;
+	/** size of the journal header */
+	public static final int HEADER_SIZE = 64;
+	/** size of the framing around a record */
+	public static final int FRAME_SIZE = 16;
+	/** size of an entry */
+	public static final int ENTRY_SIZE = FRAME_SIZE + RunHistoryFormat.RECORD_SIZE;
+
+	/** default records in a group */
+	public static final int DEFAULT_GROUP_RECORDS = 256;
+	/** default milliseconds between group syncs */
+	public static final long DEFAULT_GROUP_MILLIS = 5;
+
+	/** system property naming the journal file */
+	public static final String FILE_PROPERTY = "nickelplate.journal.file";
+	/** system property for the sync policy */
+	public static final String SYNC_PROPERTY = "nickelplate.journal.sync";
+	/** system property for the records in a group */
+	public static final String GROUP_RECORDS_PROPERTY = "nickelplate.journal.groupRecords";
+	/** system property for the milliseconds between group syncs */
+	public static final String GROUP_MILLIS_PROPERTY = "nickelplate.journal.groupMillis";
+
+	/** payload size offset in an entry */
+	private static final int SIZE_OFFSET = 0;
+	/** checksum offset in an entry */
+	private static final int CRC_OFFSET = 4;
+	/** sequence offset in an entry */
+	private static final int SEQUENCE_OFFSET = 8;
+
+	/** the journal file */
+	private final FileChannel channel;
+
+	/** sync policy */
+	private final JournalSyncEnum sync;
+
+	/** records in a group */
+	private final int groupRecords;
+
+	/** nanoseconds between group syncs */
+	private final long groupNanos;
+
+	/** guards the buffers and sequence numbers */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** signalled when the sync thread has work */
+	private final Condition syncNeeded = this.lock.newCondition();
+
+	/** signalled when more entries are durable */
+	private final Condition synced = this.lock.newCondition();
+
+	/** lets one thread at a time write to the channel */
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	/** checksum used under the lock */
+	private final CRC32C crc = new CRC32C();
+
+	/** buffer being filled by appends */
+	private ByteBuffer active;
+
+	/** buffer being written, empty otherwise */
+	private ByteBuffer spare;
+
+	/** last sequence number handed out */
+	private long lastSequence;
+
+	/** last sequence number written and, unless sync is NONE, forced */
+	private long syncedSequence;
+
+	/** number of entries in the active buffer */
+	private int pending;
+
+	/** threads waiting on entries in the active buffer */
+	private int pendingWaiters;
+
+	/** last sequence number taken by a write */
+	private long writingSequence;
+
+	/** number of times the journal was forced */
+	private volatile long forceCount;
+
+	/** entries found intact when the journal was opened */
+	private final long recoveredCount;
+
+	/** bytes cut off the end when the journal was opened */
+	private final long truncatedBytes;
+
+	/** failure of the sync thread, reported to appenders */
+	private IOException failure;
+
+	/** true once closed */
+	private boolean closed;
+
+	/** group sync thread, null unless sync is GROUP */
+	private final Thread syncThread;
+
+	/**
+	 * Opens the journal with the default group size.
+	 * @param path - Path of the journal, created if it does not exist
+	 * @param sync - JournalSyncEnum of the sync policy
+	 * @throws IOException
+	 */
+	public RunJournal(Path path, JournalSyncEnum sync) throws IOException
+	{
+		this(path, sync, DEFAULT_GROUP_RECORDS, DEFAULT_GROUP_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Opens the journal, recovering it if the last append was torn.
+	 * @param path - Path of the journal, created if it does not exist
+	 * @param sync - JournalSyncEnum of the sync policy
+	 * @param groupRecords - int of the most records in a group
+	 * @param groupInterval - long of the longest time between group syncs
+	 * @param unit - TimeUnit of the interval
+	 * @throws IOException
+	 */
+	public RunJournal(Path path, JournalSyncEnum sync, int groupRecords, long groupInterval, TimeUnit unit) throws IOException
+	{
+		super();
+		if (groupRecords <= 0)
+			throw new IllegalArgumentException("Group records must be positive: " + groupRecords);
+		if (groupInterval <= 0)
+			throw new IllegalArgumentException("Group interval must be positive: " + groupInterval);
+
+		this.sync = sync;
+		this.groupRecords = groupRecords;
+		this.groupNanos = unit.toNanos(groupInterval);
+		int capacity = (sync == JournalSyncEnum.GROUP ? groupRecords : 1) * ENTRY_SIZE;
+		this.active = ByteBuffer.allocateDirect(capacity).order(RunHistoryFormat.ORDER);
+		this.spare = ByteBuffer.allocateDirect(capacity).order(RunHistoryFormat.ORDER);
+
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try
+		{
+			long size = this.channel.size();
+			this.recoveredCount = size == 0 ? this.create() : this.recover();
+			this.truncatedBytes = size - this.channel.size();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			this.channel.close();
+			throw e;
+		}
+		this.syncedSequence = this.lastSequence;
+		this.writingSequence = this.lastSequence;
+
+		if (sync == JournalSyncEnum.GROUP)
+		{
+			this.syncThread = new Thread(this::runSync, "nickelplate-journal-sync");
+			this.syncThread.setDaemon(true);
+			this.syncThread.start();
+		}
+		else
+		{
+			this.syncThread = null;
+		}
+	}
+
+	/**
+	 * Opens the journal named by the system properties.
+	 * @return RunJournal, or null if no journal file is set
+	 * @throws IOException
+	 */
+	public static RunJournal fromSystemProperties() throws IOException
+	{
+		String file = System.getProperty(FILE_PROPERTY);
+		if (file == null || file.isEmpty())
+			return null;
+
+		JournalSyncEnum sync = JournalSyncEnum.valueOf(System.getProperty(SYNC_PROPERTY, JournalSyncEnum.RECORD.name()).trim().toUpperCase());
+		int groupRecords = Integer.getInteger(GROUP_RECORDS_PROPERTY, DEFAULT_GROUP_RECORDS).intValue();
+		long groupMillis = Long.getLong(GROUP_MILLIS_PROPERTY, DEFAULT_GROUP_MILLIS).longValue();
+		return new RunJournal(Paths.get(file), sync, groupRecords, groupMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Writes the header of a new journal.
+	 * @return long of the number of entries, always 0
+	 * @throws IOException
+	 */
+	private long create() throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(RunHistoryFormat.ORDER);
+		header.putInt(MAGIC);
+		header.putShort(VERSION);
+		header.putShort((short) HEADER_SIZE);
+		header.putInt(ENTRY_SIZE);
+		header.putInt(0);
+		header.putLong(System.currentTimeMillis());
+		header.position(0);
+		while (header.hasRemaining())
+		{
+			this.channel.write(header);
+		}
+		this.channel.force(true);
+		return 0;
+	}
+
+	/**
+	 * Checks every entry, truncates the journal after the last good one and
+	 * positions the channel to append after it.
+	 * @return long of the number of good entries
+	 * @throws IOException
+	 */
+	private long recover() throws IOException
+	{
+		long size = this.channel.size();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(RunHistoryFormat.ORDER);
+		if (size >= HEADER_SIZE)
+		{
+			while (header.hasRemaining())
+			{
+				this.channel.read(header, header.position());
+			}
+		}
+		if (size < HEADER_SIZE || header.getInt(0) != MAGIC)
+			throw new IOException("Not a plating run journal.");
+		if (header.getShort(4) != VERSION || header.getInt(8) != ENTRY_SIZE)
+			throw new IOException("Unsupported run journal version " + header.getShort(4));
+
+		ByteBuffer block = ByteBuffer.allocateDirect(1024 * ENTRY_SIZE).order(RunHistoryFormat.ORDER);
+		long position = HEADER_SIZE;
+		long count = 0;
+		boolean intact = true;
+		while (intact && position < size)
+		{
+			block.clear();
+			int read = 0;
+			while (block.hasRemaining() && position + read < size)
+			{
+				int n = this.channel.read(block, position + read);
+				if (n < 0)
+					break;
+				read += n;
+			}
+
+			for (int offset = 0; offset + ENTRY_SIZE <= read; offset += ENTRY_SIZE)
+			{
+				if (!this.isIntact(block, offset, count + 1))
+				{
+					intact = false;
+					break;
+				}
+				position += ENTRY_SIZE;
+				count++;
+			}
+			// a partial entry at the end of the file
+			if (intact && read < block.capacity())
+				intact = false;
+		}
+
+		if (position < size)
+		{
+			this.channel.truncate(position);
+			this.channel.force(true);
+		}
+		this.channel.position(position);
+		this.lastSequence = count;
+		return count;
+	}
+
+	/**
+	 * @param block - ByteBuffer holding the entry
+	 * @param offset - int of the entry offset in the block
+	 * @param sequence - long of the expected sequence number
+	 * @return boolean true if the entry is complete and its checksum matches
+	 */
+	private boolean isIntact(ByteBuffer block, int offset, long sequence)
+	{
+		if (block.getInt(offset + SIZE_OFFSET) != RunHistoryFormat.RECORD_SIZE
+				|| block.getLong(offset + SEQUENCE_OFFSET) != sequence)
+			return false;
+		return block.getInt(offset + CRC_OFFSET) == checksum(this.crc, block, offset);
+	}
+
+	/**
+	 * @param crc - CRC32C to use
+	 * @param buffer - ByteBuffer holding the entry
+	 * @param offset - int of the entry offset in the buffer
+	 * @return int of the checksum of the entry after the checksum field
+	 */
+	private static int checksum(CRC32C crc, ByteBuffer buffer, int offset)
+	{
+		ByteBuffer covered = buffer.duplicate();
+		covered.limit(offset + ENTRY_SIZE).position(offset + SEQUENCE_OFFSET);
+		crc.reset();
+		crc.update(covered);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Appends a run and waits until the sync policy considers it safe.
+	 * @param timestamp - long of the run time in epoch milliseconds
+	 * @param partId - long of the part id
+	 * @param tankId - int of the tank id
+	 * @param result - PlatingResult of the run
+	 * @return long of the sequence number of the entry
+	 * @throws IOException
+	 */
+	public long append(long timestamp, long partId, int tankId, PlatingResult result) throws IOException
+	{
+		long sequence = this.appendAsync(timestamp, partId, tankId, result);
+		this.awaitSynced(sequence);
+		return sequence;
+	}
+
+	/**
+	 * Appends a run without waiting for a group sync.  Use awaitSynced with
+	 * the returned sequence number, or with the last of several, to wait.
+	 * With RECORD and NONE the entry is already written when this returns.
+	 * @param timestamp - long of the run time in epoch milliseconds
+	 * @param partId - long of the part id
+	 * @param tankId - int of the tank id
+	 * @param result - PlatingResult of the run
+	 * @return long of the sequence number of the entry
+	 * @throws IOException
+	 */
+	public long appendAsync(long timestamp, long partId, int tankId, PlatingResult result) throws IOException
+	{
+		long sequence;
+		while (true)
+		{
+			this.lock.lock();
+			try
+			{
+				this.checkOpen();
+				if (this.active.remaining() >= ENTRY_SIZE)
+				{
+					sequence = ++this.lastSequence;
+					int offset = this.active.position();
+					this.active.putInt(offset + SIZE_OFFSET, RunHistoryFormat.RECORD_SIZE);
+					this.active.putLong(offset + SEQUENCE_OFFSET, sequence);
+					this.active.position(offset + FRAME_SIZE);
+					RunHistoryFormat.writeRecord(this.active, timestamp, partId, tankId, result);
+					this.active.putInt(offset + CRC_OFFSET, checksum(this.crc, this.active, offset));
+					this.pending++;
+					if (this.sync == JournalSyncEnum.GROUP && (this.pending == 1 || this.pending >= this.groupRecords))
+						this.syncNeeded.signal();
+					break;
+				}
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+			// the buffer is full, write it here rather than wait for the sync thread
+			this.write();
+		}
+
+		if (this.sync != JournalSyncEnum.GROUP)
+			this.write();
+		return sequence;
+	}
+
+	/**
+	 * Waits until the entry with the sequence number is written and, unless
+	 * sync is NONE, forced.
+	 * @param sequence - long of the sequence number
+	 * @throws IOException if the journal could not be written
+	 */
+	public void awaitSynced(long sequence) throws IOException
+	{
+		this.lock.lock();
+		try
+		{
+			if (this.sync == JournalSyncEnum.GROUP && sequence > this.writingSequence)
+			{
+				// once every buffered entry has a waiter, nothing is gained by waiting longer
+				this.pendingWaiters++;
+				if (this.pendingWaiters >= this.pending)
+					this.syncNeeded.signal();
+			}
+			while (this.syncedSequence < sequence)
+			{
+				if (this.failure != null)
+					throw new IOException("Run journal sync failed.", this.failure);
+				this.synced.await();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for the run journal.");
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes and forces everything appended so far.
+	 * @throws IOException
+	 */
+	public void sync() throws IOException
+	{
+		this.write();
+	}
+
+	/**
+	 * Writes the active buffer to the journal and forces it.  Appends keep
+	 * filling the other buffer meanwhile.
+	 * @throws IOException
+	 */
+	private void write() throws IOException
+	{
+		this.writeLock.lock();
+		try
+		{
+			ByteBuffer buffer;
+			long upTo;
+			this.lock.lock();
+			try
+			{
+				if (this.pending == 0)
+					return;
+				buffer = this.active;
+				this.active = this.spare;
+				this.spare = buffer;
+				upTo = this.lastSequence;
+				this.writingSequence = upTo;
+				this.pending = 0;
+				this.pendingWaiters = 0;
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+
+			try
+			{
+				buffer.flip();
+				while (buffer.hasRemaining())
+				{
+					this.channel.write(buffer);
+				}
+				if (this.sync != JournalSyncEnum.NONE)
+				{
+					this.channel.force(false);
+					this.forceCount++;
+				}
+			}
+			catch (IOException e)
+			{
+				this.fail(e);
+				throw e;
+			}
+			finally
+			{
+				buffer.clear();
+			}
+
+			this.lock.lock();
+			try
+			{
+				this.syncedSequence = upTo;
+				this.synced.signalAll();
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+		}
+		finally
+		{
+			this.writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Body of the group sync thread.
+	 */
+	private void runSync()
+	{
+		while (true)
+		{
+			this.lock.lock();
+			try
+			{
+				while (this.pending == 0 && !this.closed)
+				{
+					this.syncNeeded.await();
+				}
+				if (this.pending == 0)
+					return;
+
+				// give the group time to fill
+				long remaining = this.groupNanos;
+				while (this.pending < this.groupRecords && this.pendingWaiters < this.pending
+						&& !this.closed && remaining > 0)
+				{
+					remaining = this.syncNeeded.awaitNanos(remaining);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+			finally
+			{
+				this.lock.unlock();
+			}
+
+			try
+			{
+				this.write();
+			}
+			catch (IOException e)
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Records a write failure and releases every waiting append.
+	 * @param e - IOException that occurred
+	 */
+	private void fail(IOException e)
+	{
+		this.lock.lock();
+		try
+		{
+			this.failure = e;
+			this.synced.signalAll();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @throws IOException if the journal is closed or has failed
+	 */
+	private void checkOpen() throws IOException
+	{
+		if (this.closed)
+			throw new IOException("Run journal is closed.");
+		if (this.failure != null)
+			throw new IOException("Run journal sync failed.", this.failure);
+	}
+
+	/**
+	 * Reads every entry of a journal in order.  The cursor handed to the
+	 * listener is only valid during the call.
+	 * @param path - Path of the journal
+	 * @param listener - JournalListener given each entry
+	 * @return long of the number of entries read
+	 * @throws IOException if the file is not a journal
+	 */
+	public static long replay(Path path, JournalListener listener) throws IOException
+	{
+		try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(RunHistoryFormat.ORDER);
+			while (header.hasRemaining() && file.read(header, header.position()) > 0)
+			{
+				// keep reading until the header is full or the file ends
+			}
+			if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(8) != ENTRY_SIZE)
+				throw new IOException("Not a plating run journal: " + path);
+
+			CRC32C crc = new CRC32C();
+			ByteBuffer block = ByteBuffer.allocateDirect(1024 * ENTRY_SIZE).order(RunHistoryFormat.ORDER);
+			RunRecordCursor cursor = new RunRecordCursor(block);
+			long position = HEADER_SIZE;
+			long count = 0;
+			while (true)
+			{
+				block.clear();
+				int read = file.read(block, position);
+				if (read < ENTRY_SIZE)
+					return count;
+
+				for (int offset = 0; offset + ENTRY_SIZE <= read; offset += ENTRY_SIZE)
+				{
+					long sequence = block.getLong(offset + SEQUENCE_OFFSET);
+					if (block.getInt(offset + SIZE_OFFSET) != RunHistoryFormat.RECORD_SIZE
+							|| sequence != count + 1
+							|| block.getInt(offset + CRC_OFFSET) != checksum(crc, block, offset))
+						return count;
+					cursor.moveTo(offset + FRAME_SIZE, count);
+					listener.onRun(sequence, cursor);
+					count++;
+				}
+				position += (read / ENTRY_SIZE) * (long) ENTRY_SIZE;
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.lock.lock();
+		try
+		{
+			if (this.closed)
+				return;
+			// refuse new appends and let the sync thread finish the last group
+			this.closed = true;
+			this.syncNeeded.signalAll();
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+
+		try
+		{
+			if (this.syncThread != null)
+				this.syncThread.join();
+			this.write();
+			if (this.sync == JournalSyncEnum.NONE)
+				this.channel.force(false);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted closing the run journal.");
+		}
+		finally
+		{
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * @return the sync
+	 */
+	public JournalSyncEnum getSync() {
+		return sync;
+	}
+
+	/**
+	 * @return the last sequence number handed out
+	 */
+	public long getLastSequence() {
+		this.lock.lock();
+		try
+		{
+			return lastSequence;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the last sequence number written and, unless sync is NONE, forced
+	 */
+	public long getSyncedSequence() {
+		this.lock.lock();
+		try
+		{
+			return syncedSequence;
+		}
+		finally
+		{
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of times the journal was forced
+	 */
+	public long getForceCount() {
+		return forceCount;
+	}
+
+	/**
+	 * @return the recoveredCount
+	 */
+	public long getRecoveredCount() {
+		return recoveredCount;
+	}
+
+	/**
+	 * @return the truncatedBytes
+	 */
+	public long getTruncatedBytes() {
+		return truncatedBytes;
+	}
+}
@@ -0,0 +1,272 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Moves over the records of a run history and reads the fields of the
+ * current record directly from the underlying buffer.  A cursor is not
+ * thread safe; create one per scanning thread.
+ */
+public final class RunRecordCursor
+{
+	/** the history being read */
+	private final RunHistoryReader reader;
+
+	/** size of a record */
+	private final int recordSize;
+
+	/** window holding the current record */
+	private ByteBuffer window;
+
+	/** offset of the current record in the window */
+	private int offset;
+
+	/** index of the current record, -1 before the first */
+	private long index = -1;
+
+	/**
+	 * @param reader - RunHistoryReader to read
+	 */
+	RunRecordCursor(RunHistoryReader reader)
+	{
+		super();
+		this.reader = reader;
+		this.recordSize = reader.getRecordSize();
+	}
+
+	/**
+	 * Creates a cursor that is moved by its owner rather than by next or seek,
+	 * as used when replaying a journal.
+	 * @param window - ByteBuffer holding the records
+	 */
+	RunRecordCursor(ByteBuffer window)
+	{
+		super();
+		this.reader = null;
+		this.recordSize = RunHistoryFormat.RECORD_SIZE;
+		this.window = window;
+	}
+
+	/**
+	 * Moves to the next record.
+	 * @return boolean true if there was a next record
+	 */
+	public boolean next()
+	{
+		long nextIndex = this.index + 1;
+		if (this.reader == null || nextIndex >= this.reader.getRecordCount())
+			return false;
+
+		if (this.window != null && this.offset + (this.recordSize << 1) <= this.window.limit())
+		{
+			this.offset += this.recordSize;
+			this.index = nextIndex;
+		}
+		else
+		{
+			this.seek(nextIndex);
+		}
+		return true;
+	}
+
+	/**
+	 * Moves to a record by index.
+	 * @param recordIndex - long of the record index
+	 * @throws IllegalStateException if the cursor is moved by its owner
+	 * @throws IndexOutOfBoundsException if there is no such record
+	 */
+	public void seek(long recordIndex)
+	{
+		if (this.reader == null)
+			throw new IllegalStateException("This cursor is moved by its owner and cannot seek.");
+		if (recordIndex < 0 || recordIndex >= this.reader.getRecordCount())
+			throw new IndexOutOfBoundsException("Record " + recordIndex + " outside 0 to " + (this.reader.getRecordCount() - 1));
+		int perWindow = this.reader.getRecordsPerWindow();
+		this.window = this.reader.getWindow((int) (recordIndex / perWindow));
+		this.offset = (int) (recordIndex % perWindow) * this.recordSize;
+		this.index = recordIndex;
+	}
+
+	/**
+	 * Moves to a record at a known offset in the window.
+	 * @param recordOffset - int of the offset of the record in the window
+	 * @param recordIndex - long of the record index
+	 */
+	void moveTo(int recordOffset, long recordIndex)
+	{
+		this.offset = recordOffset;
+		this.index = recordIndex;
+	}
+
+	/**
+	 * @return long of the index of the current record
+	 */
+	public long getIndex()
+	{
+		return this.index;
+	}
+
+	/**
+	 * @return long of the run time in epoch milliseconds
+	 */
+	public long getTimestamp()
+	{
+		return this.window.getLong(this.offset + RunHistoryFormat.TIMESTAMP);
+	}
+
+	/**
+	 * @return long of the part id
+	 */
+	public long getPartId()
+	{
+		return this.window.getLong(this.offset + RunHistoryFormat.PART_ID);
+	}
+
+	/**
+	 * @return int of the tank id
+	 */
+	public int getTankId()
+	{
+		return this.window.getInt(this.offset + RunHistoryFormat.TANK_ID);
+	}
+
+	/**
+	 * @return boolean true if the run was within specification
+	 */
+	public boolean isInSpecification()
+	{
+		return (this.window.getInt(this.offset + RunHistoryFormat.FLAGS) & RunHistoryFormat.FLAG_IN_SPECIFICATION) != 0;
+	}
+
+	/**
+	 * @return double of the start weight
+	 */
+	public double getStartWeight()
+	{
+		return this.getDouble(RunHistoryFormat.START_WEIGHT);
+	}
+
+	/**
+	 * @return double of the width
+	 */
+	public double getWidth()
+	{
+		return this.getDouble(RunHistoryFormat.WIDTH);
+	}
+
+	/**
+	 * @return double of the length
+	 */
+	public double getLength()
+	{
+		return this.getDouble(RunHistoryFormat.LENGTH);
+	}
+
+	/**
+	 * @return double of the number of sides plated
+	 */
+	public double getNbrSidesPlated()
+	{
+		return this.getDouble(RunHistoryFormat.NBR_SIDES);
+	}
+
+	/**
+	 * @return double of the number of pieces
+	 */
+	public double getNbrPieces()
+	{
+		return this.getDouble(RunHistoryFormat.NBR_PIECES);
+	}
+
+	/**
+	 * @return double of the selection
+	 */
+	public double getSelection()
+	{
+		return this.getDouble(RunHistoryFormat.SELECTION);
+	}
+
+	/**
+	 * @return double of the final weight
+	 */
+	public double getFinalWeight()
+	{
+		return this.getDouble(RunHistoryFormat.FINAL_WEIGHT);
+	}
+
+	/**
+	 * @return double of the surface area of a piece
+	 */
+	public double getSurfaceArea()
+	{
+		return this.getDouble(RunHistoryFormat.SURFACE_AREA);
+	}
+
+	/**
+	 * @return double of the total surface area
+	 */
+	public double getTotalSurfaceArea()
+	{
+		return this.getDouble(RunHistoryFormat.TOTAL_SURFACE_AREA);
+	}
+
+	/**
+	 * @return double of the amps used per piece
+	 */
+	public double getAmpsUsed()
+	{
+		return this.getDouble(RunHistoryFormat.AMPS_USED);
+	}
+
+	/**
+	 * @return double of the amp hours used per piece
+	 */
+	public double getAmpHoursUsed()
+	{
+		return this.getDouble(RunHistoryFormat.AMP_HOURS_USED);
+	}
+
+	/**
+	 * @return double of the total amps used
+	 */
+	public double getTotalAmpsUsed()
+	{
+		return this.getDouble(RunHistoryFormat.TOTAL_AMPS_USED);
+	}
+
+	/**
+	 * @return double of the total amp hours used
+	 */
+	public double getTotalAmpHoursUsed()
+	{
+		return this.getDouble(RunHistoryFormat.TOTAL_AMP_HOURS_USED);
+	}
+
+	/**
+	 * @return double of the weight gained
+	 */
+	public double getDelta()
+	{
+		return this.getDouble(RunHistoryFormat.DELTA);
+	}
+
+	/**
+	 * @return double of the thickness per side
+	 */
+	public double getThicknessPerSide()
+	{
+		return this.getDouble(RunHistoryFormat.THICKNESS_PER_SIDE);
+	}
+
+	/**
+	 * @param field - int of the field offset in the record
+	 * @return double of the field in the current record
+	 */
+	double getDouble(int field)
+	{
+		return this.window.getDouble(this.offset + field);
+	}
+}
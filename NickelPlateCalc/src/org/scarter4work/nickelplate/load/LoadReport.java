@@ -0,0 +1,178 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.load;
+
+import java.io.IOException;
+
+import org.scarter4work.nickelplate.metrics.LatencySnapshot;
+
+/**
+ * Results of a SessionLoadHarness run.  Times are in nanoseconds and cover
+ * only the sessions after the warm up.
+ */
+public final class LoadReport
+{
+	/** sessions run, warm up included */
+	private final long sessionCount;
+	/** sessions measured */
+	private final long measuredCount;
+	/** time from the first measured session being due to the last one finishing */
+	private final long elapsedNanos;
+	/** sessions scheduled each second, 0 when run as fast as they complete */
+	private final double targetSessionsPerSecond;
+	/** time each measured session took */
+	private final LatencySnapshot serviceTimes;
+	/** time from each measured session being due to it finishing */
+	private final LatencySnapshot responseTimes;
+	/** bytes allocated by the measured sessions, -1 when the JVM does not count them */
+	private final long allocatedBytes;
+	/** most bytes allocated by one measured session, -1 when the JVM does not count them */
+	private final long maxAllocatedBytes;
+
+	/**
+	 * @param sessionCount - sessions run, warm up included
+	 * @param measuredCount - sessions measured
+	 * @param elapsedNanos - time taken by the measured sessions
+	 * @param targetSessionsPerSecond - sessions scheduled each second, 0 for as fast as they complete
+	 * @param serviceTimes - LatencySnapshot of the time each session took
+	 * @param responseTimes - LatencySnapshot of the time from each session being due to it finishing
+	 * @param allocatedBytes - bytes allocated by the measured sessions, -1 when not counted
+	 * @param maxAllocatedBytes - most bytes allocated by one session, -1 when not counted
+	 */
+	LoadReport(long sessionCount, long measuredCount, long elapsedNanos, double targetSessionsPerSecond,
+			LatencySnapshot serviceTimes, LatencySnapshot responseTimes, long allocatedBytes, long maxAllocatedBytes)
+	{
+		super();
+		this.sessionCount = sessionCount;
+		this.measuredCount = measuredCount;
+		this.elapsedNanos = elapsedNanos;
+		this.targetSessionsPerSecond = targetSessionsPerSecond;
+		this.serviceTimes = serviceTimes;
+		this.responseTimes = responseTimes;
+		this.allocatedBytes = allocatedBytes;
+		this.maxAllocatedBytes = maxAllocatedBytes;
+	}
+
+	/**
+	 * @return double of the measured sessions completed each second
+	 */
+	public double getSessionsPerSecond()
+	{
+		return this.elapsedNanos == 0 ? 0 : this.measuredCount / (this.elapsedNanos / 1_000_000_000.0);
+	}
+
+	/**
+	 * @return double of the mean bytes allocated by a session, -1 when not counted
+	 */
+	public double getAllocatedBytesPerSession()
+	{
+		if (this.allocatedBytes < 0)
+			return -1;
+		return this.measuredCount == 0 ? 0 : (double) this.allocatedBytes / this.measuredCount;
+	}
+
+	/**
+	 * Writes the report as a few lines of text.  Latencies are in microseconds.
+	 * @param out - Appendable to write to
+	 * @throws IOException
+	 */
+	public void dump(Appendable out) throws IOException
+	{
+		String separator = System.lineSeparator();
+		out.append(String.format("Measured %d of %d sessions in %d ms (%.0f sessions/sec, target %s)",
+				this.measuredCount, this.sessionCount, this.elapsedNanos / 1_000_000, this.getSessionsPerSecond(),
+				this.targetSessionsPerSecond > 0 ? String.format("%.0f", this.targetSessionsPerSecond) : "unpaced"))
+				.append(separator);
+		out.append(String.format("%-16s %10s %10s %10s %10s %10s", "latency", "mean us", "p50 us", "p99 us",
+				"p99.9 us", "max us")).append(separator);
+		appendLatency(out, "service", this.serviceTimes);
+		appendLatency(out, "response", this.responseTimes);
+		if (this.allocatedBytes < 0)
+			out.append("allocation not counted by this JVM").append(separator);
+		else
+			out.append(String.format("allocated %.0f bytes/session, %d at most", this.getAllocatedBytesPerSession(),
+					this.maxAllocatedBytes)).append(separator);
+	}
+
+	/**
+	 * @param out - Appendable to write to
+	 * @param label - String naming the latency
+	 * @param snapshot - LatencySnapshot of the latency
+	 * @throws IOException
+	 */
+	private static void appendLatency(Appendable out, String label, LatencySnapshot snapshot) throws IOException
+	{
+		out.append(String.format("%-16s %10.3f %10.3f %10.3f %10.3f %10.3f", label, snapshot.getMean() / 1000.0,
+				snapshot.getValueAtPercentile(50) / 1000.0, snapshot.getValueAtPercentile(99) / 1000.0,
+				snapshot.getValueAtPercentile(99.9) / 1000.0, snapshot.getMax() / 1000.0))
+				.append(System.lineSeparator());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "LoadReport [sessionCount=" + sessionCount + ", measuredCount=" + measuredCount + ", elapsedNanos="
+				+ elapsedNanos + ", sessionsPerSecond=" + getSessionsPerSecond() + ", serviceTimes=" + serviceTimes
+				+ ", responseTimes=" + responseTimes + ", allocatedBytesPerSession=" + getAllocatedBytesPerSession()
+				+ "]";
+	}
+
+	/**
+	 * @return the sessionCount
+	 */
+	public long getSessionCount() {
+		return sessionCount;
+	}
+
+	/**
+	 * @return the measuredCount
+	 */
+	public long getMeasuredCount() {
+		return measuredCount;
+	}
+
+	/**
+	 * @return the elapsedNanos
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return the targetSessionsPerSecond
+	 */
+	public double getTargetSessionsPerSecond() {
+		return targetSessionsPerSecond;
+	}
+
+	/**
+	 * @return the serviceTimes
+	 */
+	public LatencySnapshot getServiceTimes() {
+		return serviceTimes;
+	}
+
+	/**
+	 * @return the responseTimes
+	 */
+	public LatencySnapshot getResponseTimes() {
+		return responseTimes;
+	}
+
+	/**
+	 * @return the allocatedBytes
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * @return the maxAllocatedBytes
+	 */
+	public long getMaxAllocatedBytes() {
+		return maxAllocatedBytes;
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.load;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import org.scarter4work.nickelplate.calc.PlatingMath;
+
+/**
+ * Makes up operator sessions of the console prompt flow as a shop floor
+ * would key them in, for load testing and for scripts to replay with
+ * --session.  Each session is the seven answers of PrompterOrderEnum's
+ * flow, start weight through final weight, and the quit answer, one per
+ * line.
+ * <p>
+ * Most workpieces are coupons of the common test sizes up to 12" x 12",
+ * plated in batches; the rest are panels of standard sheet sizes, a few at a
+ * time.  Most are plated on both sides.  Start weights are those of 0.032"
+ * steel with a little spread, and the weight gained is that of a thickness
+ * drawn around the middle of the specification, or above the maximum for
+ * the given share of out of specification runs.  Weights are rounded to
+ * 0.1 mg as an analytical balance reports them.
+ */
+public class OperatorSessionGenerator
+{
+	/** default share of the sessions that plate out of specification */
+	public static final double DEFAULT_OUT_OF_SPEC_FRACTION = 0.05;
+
+	/** coupon widths and lengths in inches, in pairs */
+	private static final double [] COUPON_SIZES = { 1, 2, 1, 4, 2, 2, 2, 3, 3, 4, 4, 4, 4, 6, 6, 6, 6, 12, 12, 12 };
+
+	/** how often each coupon size comes up, same order as COUPON_SIZES */
+	private static final int [] COUPON_WEIGHTS = { 8, 10, 6, 14, 18, 10, 16, 6, 4, 8 };
+
+	/** panel widths in inches */
+	private static final double [] PANEL_WIDTHS = { 12, 18, 24, 36 };
+
+	/** panel lengths in inches */
+	private static final double [] PANEL_LENGTHS = { 18, 24, 36, 48 };
+
+	/** share of the workpieces that are coupons */
+	private static final double COUPON_FRACTION = 0.75;
+
+	/** share of the workpieces plated on both sides */
+	private static final double TWO_SIDED_FRACTION = 0.8;
+
+	/** grams per square inch of 0.032" steel sheet */
+	private static final double GRAMS_PER_SQUARE_INCH = 4.1;
+
+	/** mean thickness per side of an in specification run */
+	private static final double MEAN_THICKNESS = 0.0001;
+
+	/** standard deviation of the thickness per side of an in specification run */
+	private static final double THICKNESS_DEVIATION = 0.00003;
+
+	/** source of the values */
+	private final SplittableRandom random;
+
+	/** share of the sessions that plate out of specification */
+	private final double outOfSpecFraction;
+
+	/** total of COUPON_WEIGHTS */
+	private final int couponWeightTotal;
+
+	/** sessions made so far */
+	private long sessionCount;
+
+	/** sessions made so far that plate out of specification */
+	private long outOfSpecCount;
+
+	/**
+	 * @param seed - long seeding the values, so a load can be repeated
+	 * @param outOfSpecFraction - double from 0 to 1 of the sessions that plate out of specification
+	 */
+	public OperatorSessionGenerator(long seed, double outOfSpecFraction)
+	{
+		super();
+		if (!(outOfSpecFraction >= 0 && outOfSpecFraction <= 1))
+			throw new IllegalArgumentException("Out of specification share must be from 0 to 1, not " + outOfSpecFraction);
+		this.random = new SplittableRandom(seed);
+		this.outOfSpecFraction = outOfSpecFraction;
+		int total = 0;
+		for (int weight : COUPON_WEIGHTS)
+		{
+			total += weight;
+		}
+		this.couponWeightTotal = total;
+	}
+
+	/**
+	 * Appends the answers of the next session.
+	 * @param out - Appendable to write the answers to
+	 * @param last - boolean true to answer the quit prompt with Y, false with N
+	 * @throws IOException
+	 */
+	public void appendSession(Appendable out, boolean last) throws IOException
+	{
+		double width;
+		double length;
+		double pieces;
+		double selection;
+		if (this.random.nextDouble() < COUPON_FRACTION)
+		{
+			int size = this.pickCoupon();
+			width = COUPON_SIZES[2 * size];
+			length = COUPON_SIZES[2 * size + 1];
+			// batches of a few up to 50, most often around 6
+			pieces = Math.min(50, 1 + (long) (-Math.log(1 - this.random.nextDouble()) * 5));
+			selection = 1;
+		}
+		else
+		{
+			width = PANEL_WIDTHS[this.random.nextInt(PANEL_WIDTHS.length)];
+			length = PANEL_LENGTHS[this.random.nextInt(PANEL_LENGTHS.length)];
+			pieces = 1 + this.random.nextInt(4);
+			selection = 2;
+		}
+		double sides = this.random.nextDouble() < TWO_SIDED_FRACTION ? 2 : 1;
+
+		double thickness;
+		if (this.random.nextDouble() < this.outOfSpecFraction)
+		{
+			thickness = PlatingMath.MAX_THICKNESS_PER_SIDE * (1.05 + 0.5 * this.random.nextDouble());
+			this.outOfSpecCount++;
+		}
+		else
+		{
+			double drawn = MEAN_THICKNESS + THICKNESS_DEVIATION * this.random.nextGaussian();
+			thickness = Math.max(0.1 * MEAN_THICKNESS, Math.min(0.97 * PlatingMath.MAX_THICKNESS_PER_SIDE, drawn));
+		}
+
+		// inverse of PlatingMath.thicknessPerSide for the area of one piece
+		double areaPerPiece = PlatingMath.surfaceArea(length, width, sides);
+		double gain = thickness * PlatingMath.THICKNESS_FACTOR * areaPerPiece;
+		double startWeight = pieces * width * length * GRAMS_PER_SQUARE_INCH * (0.95 + 0.1 * this.random.nextDouble());
+
+		String separator = System.lineSeparator();
+		out.append(String.format(Locale.ROOT, "%.4f", startWeight)).append(separator);
+		out.append(format(width)).append(separator);
+		out.append(format(length)).append(separator);
+		out.append(format(sides)).append(separator);
+		out.append(format(pieces)).append(separator);
+		out.append(format(selection)).append(separator);
+		out.append(String.format(Locale.ROOT, "%.4f", startWeight + gain)).append(separator);
+		out.append(last ? "Y" : "N").append(separator);
+		this.sessionCount++;
+	}
+
+	/**
+	 * Appends the answers of several sessions, the last one quitting.
+	 * @param out - Appendable to write the answers to
+	 * @param sessions - long of the sessions to make
+	 * @throws IOException
+	 */
+	public void appendSessions(Appendable out, long sessions) throws IOException
+	{
+		for (long i = 1; i <= sessions; i++)
+		{
+			this.appendSession(out, i == sessions);
+		}
+	}
+
+	/**
+	 * @return int of a coupon size drawn by COUPON_WEIGHTS
+	 */
+	private int pickCoupon()
+	{
+		int draw = this.random.nextInt(this.couponWeightTotal);
+		for (int i = 0; i < COUPON_WEIGHTS.length; i++)
+		{
+			draw -= COUPON_WEIGHTS[i];
+			if (draw < 0)
+				return i;
+		}
+		return COUPON_WEIGHTS.length - 1;
+	}
+
+	/**
+	 * @param value - double of a whole number
+	 * @return String of the value as an operator keys it in
+	 */
+	private static String format(double value)
+	{
+		return Long.toString((long) value);
+	}
+
+	/**
+	 * @return the outOfSpecFraction
+	 */
+	public double getOutOfSpecFraction() {
+		return outOfSpecFraction;
+	}
+
+	/**
+	 * @return the sessionCount
+	 */
+	public long getSessionCount() {
+		return sessionCount;
+	}
+
+	/**
+	 * @return the outOfSpecCount
+	 */
+	public long getOutOfSpecCount() {
+		return outOfSpecCount;
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.load;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.scarter4work.nickelplate.NickelPlate;
+import org.scarter4work.nickelplate.metrics.LatencyHistogram;
+
+/**
+ * Replays operator sessions through the console prompt flow and measures
+ * them.  Each session runs through NickelPlate.runSession exactly as a
+ * scripted --session does, prompts, calculations, rendering and run records
+ * included, and is timed and its allocation counted on its own.
+ * <p>
+ * Sessions are started on a fixed schedule when a rate is set, and as fast
+ * as they complete otherwise.  On a schedule the response time counts from
+ * when the session was due, not when it started, so a stall that holds up
+ * the sessions behind it shows in their times as it would to the operators
+ * waiting; the service time counts only the session itself.  The first
+ * sessions warm the JVM up and are not measured.
+ */
+public class SessionLoadHarness
+{
+	/** system property for the number of sessions run before measuring */
+	public static final String WARMUP_PROPERTY = "nickelplate.loadTest.warmupSessions";
+
+	/** default number of sessions run before measuring */
+	public static final int DEFAULT_WARMUP_SESSIONS = 1000;
+
+	/** time before a due session that the wait stops parking and spins, parking oversleeps by tens of microseconds */
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+	/** program whose reader holds the sessions' answers */
+	private final NickelPlate app;
+
+	/** sessions run before measuring */
+	private long warmupSessions = DEFAULT_WARMUP_SESSIONS;
+
+	/** sessions to start each second, 0 for as fast as they complete */
+	private double sessionsPerSecond;
+
+	/**
+	 * @param app - NickelPlate set up over the sessions' answers and an output to discard or keep
+	 */
+	public SessionLoadHarness(NickelPlate app)
+	{
+		super();
+		this.app = app;
+	}
+
+	/**
+	 * Runs the sessions until the answers end or a session quits, then
+	 * closes the program's output and run records.
+	 * @return LoadReport of the measured sessions
+	 * @throws IOException if a session fails
+	 */
+	public LoadReport run() throws IOException
+	{
+		LatencyHistogram serviceTimes = new LatencyHistogram(1);
+		LatencyHistogram responseTimes = new LatencyHistogram(1);
+		com.sun.management.ThreadMXBean allocation = allocationCounter();
+		long intervalNanos = this.sessionsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / this.sessionsPerSecond) : 0;
+
+		long sessions = 0;
+		long measured = 0;
+		long allocatedBytes = 0;
+		long maxAllocatedBytes = 0;
+		long measureStart = System.nanoTime();
+		long measureEnd = measureStart;
+		long next = measureStart;
+		try
+		{
+			String quit;
+			do
+			{
+				if (sessions == this.warmupSessions)
+				{
+					measureStart = System.nanoTime();
+					next = Math.max(next, measureStart);
+				}
+				if (intervalNanos > 0)
+					awaitDue(next);
+
+				long bytesBefore = allocation != null ? allocation.getCurrentThreadAllocatedBytes() : 0;
+				long begin = System.nanoTime();
+				quit = this.app.runSession();
+				long end = System.nanoTime();
+				long bytes = allocation != null ? allocation.getCurrentThreadAllocatedBytes() - bytesBefore : 0;
+				if (quit == null)
+					break;
+
+				if (sessions >= this.warmupSessions)
+				{
+					serviceTimes.record(end - begin);
+					responseTimes.record(end - (intervalNanos > 0 ? next : begin));
+					allocatedBytes += bytes;
+					maxAllocatedBytes = Math.max(maxAllocatedBytes, bytes);
+					measured++;
+					measureEnd = end;
+				}
+				sessions++;
+				next += intervalNanos;
+
+			} while (!quit.equals("Y"));
+		}
+		finally
+		{
+			this.app.close();
+		}
+
+		return new LoadReport(sessions, measured, measured > 0 ? measureEnd - measureStart : 0, this.sessionsPerSecond,
+				serviceTimes.snapshot(), responseTimes.snapshot(), allocation != null ? allocatedBytes : -1,
+				allocation != null ? maxAllocatedBytes : -1);
+	}
+
+	/**
+	 * Waits until a session is due, parking until shortly before and then
+	 * spinning, so the harness's own lateness does not count as response time.
+	 * @param due - long of the nanoTime the session is due
+	 */
+	private static void awaitDue(long due)
+	{
+		long wait = due - System.nanoTime();
+		if (wait > SPIN_NANOS)
+			LockSupport.parkNanos(wait - SPIN_NANOS);
+		while (due - System.nanoTime() > 0)
+		{
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * @return ThreadMXBean counting the current thread's allocation, null when the JVM cannot
+	 */
+	private static com.sun.management.ThreadMXBean allocationCounter()
+	{
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+			return null;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported())
+			return null;
+		if (!threads.isThreadAllocatedMemoryEnabled())
+			threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+
+	/**
+	 * @return the warmupSessions
+	 */
+	public long getWarmupSessions() {
+		return warmupSessions;
+	}
+
+	/**
+	 * @param warmupSessions the warmupSessions to set
+	 */
+	public void setWarmupSessions(long warmupSessions) {
+		if (warmupSessions < 0)
+			throw new IllegalArgumentException("Warm up sessions cannot be negative: " + warmupSessions);
+		this.warmupSessions = warmupSessions;
+	}
+
+	/**
+	 * @return the sessionsPerSecond
+	 */
+	public double getSessionsPerSecond() {
+		return sessionsPerSecond;
+	}
+
+	/**
+	 * @param sessionsPerSecond the sessionsPerSecond to set, 0 for as fast as they complete
+	 */
+	public void setSessionsPerSecond(double sessionsPerSecond) {
+		if (!(sessionsPerSecond >= 0))
+			throw new IllegalArgumentException("Session rate cannot be negative: " + sessionsPerSecond);
+		this.sessionsPerSecond = sessionsPerSecond;
+	}
+}
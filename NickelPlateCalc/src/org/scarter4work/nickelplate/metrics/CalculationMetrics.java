@@ -0,0 +1,181 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.EventType;
+
+/**
+ * Process wide latency histograms for each calculation stage and counts of
+ * results in and out of specification.  A stage is timed with
+ * <pre>
+ *   long start = CalculationMetrics.startStage();
+ *   ...
+ *   CalculationMetrics.endStage(StageEnum.SURFACE_AREAS, start);
+ * </pre>
+ * which costs two clock reads and one add into the calling thread's stripe
+ * of the stage histogram.  Nothing is allocated unless a recording has the
+ * CalculationStage event turned on, and then only for the events the
+ * recording will keep.  The metrics are on by default and can be turned off
+ * with the system property nickelplate.metrics.enabled=false, after which
+ * the calls compile down to nothing.
+ */
+public final class CalculationMetrics
+{
+	/** system property that turns the metrics on or off */
+	public static final String ENABLED_PROPERTY = "nickelplate.metrics.enabled";
+
+	/** true when metrics are collected */
+	public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+
+	/** flight recorder type of the stage event, checked before creating one */
+	private static final EventType STAGE_EVENT = EventType.getEventType(CalculationStageEvent.class);
+
+	/** histograms by stage ordinal */
+	private static final LatencyHistogram [] STAGES = new LatencyHistogram[StageEnum.values().length];
+
+	/** results within specification */
+	private static final LongAdder IN_SPECIFICATION = new LongAdder();
+
+	/** results out of specification */
+	private static final LongAdder OUT_OF_SPECIFICATION = new LongAdder();
+
+	static
+	{
+		for (int i = 0; i < STAGES.length; i++)
+		{
+			STAGES[i] = new LatencyHistogram();
+		}
+	}
+
+	/** no instances */
+	private CalculationMetrics()
+	{
+		super();
+	}
+
+	/**
+	 * @return long of the start time to pass to endStage
+	 */
+	public static long startStage()
+	{
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the time since the stage started.  The clock read is the main
+	 * cost, so a stage that directly follows another can start from the
+	 * returned end time instead of calling startStage.
+	 * @param stage - StageEnum of the stage
+	 * @param start - long returned by startStage or a previous endStage
+	 * @return long of the end time
+	 */
+	public static long endStage(StageEnum stage, long start)
+	{
+		if (!ENABLED)
+			return 0;
+		long end = System.nanoTime();
+		long nanos = end - start;
+		STAGES[stage.ordinal()].record(nanos);
+
+		if (STAGE_EVENT.isEnabled())
+			commitEvent(stage, nanos);
+		return end;
+	}
+
+	/**
+	 * Commits a stage event if the recording's threshold keeps it.
+	 * @param stage - StageEnum of the stage
+	 * @param nanos - long of the stage duration
+	 */
+	private static void commitEvent(StageEnum stage, long nanos)
+	{
+		CalculationStageEvent event = new CalculationStageEvent();
+		if (event.shouldCommit())
+		{
+			event.stage = stage.getLabel();
+			event.stageDuration = nanos;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Counts a calculated result.
+	 * @param inSpecification - true if the result was within specification
+	 */
+	public static void recordResult(boolean inSpecification)
+	{
+		if (!ENABLED)
+			return;
+		if (inSpecification)
+			IN_SPECIFICATION.increment();
+		else
+			OUT_OF_SPECIFICATION.increment();
+	}
+
+	/**
+	 * @param stage - StageEnum of the stage
+	 * @return LatencySnapshot of the stage's latencies so far
+	 */
+	public static LatencySnapshot getSnapshot(StageEnum stage)
+	{
+		return STAGES[stage.ordinal()].snapshot();
+	}
+
+	/**
+	 * @return long of the results within specification
+	 */
+	public static long getInSpecificationCount()
+	{
+		return IN_SPECIFICATION.sum();
+	}
+
+	/**
+	 * @return long of the results out of specification
+	 */
+	public static long getOutOfSpecificationCount()
+	{
+		return OUT_OF_SPECIFICATION.sum();
+	}
+
+	/**
+	 * Clears every histogram and counter.
+	 */
+	public static void reset()
+	{
+		for (LatencyHistogram histogram : STAGES)
+		{
+			histogram.reset();
+		}
+		IN_SPECIFICATION.reset();
+		OUT_OF_SPECIFICATION.reset();
+	}
+
+	/**
+	 * Writes the metrics as a table, one line per stage that has been timed.
+	 * Latencies are in microseconds.
+	 * @param out - Appendable to write to
+	 * @throws IOException
+	 */
+	public static void dump(Appendable out) throws IOException
+	{
+		String separator = System.lineSeparator();
+		out.append(String.format("%-16s %12s %10s %10s %10s %10s %10s", "stage", "count", "mean us",
+				"p50 us", "p99 us", "p99.9 us", "max us")).append(separator);
+		for (StageEnum stage : StageEnum.values())
+		{
+			LatencySnapshot snapshot = getSnapshot(stage);
+			if (snapshot.getCount() == 0)
+				continue;
+			out.append(String.format("%-16s %12d %10.3f %10.3f %10.3f %10.3f %10.3f", stage.getLabel(),
+					snapshot.getCount(), snapshot.getMean() / 1000.0,
+					snapshot.getValueAtPercentile(50) / 1000.0, snapshot.getValueAtPercentile(99) / 1000.0,
+					snapshot.getValueAtPercentile(99.9) / 1000.0, snapshot.getMax() / 1000.0)).append(separator);
+		}
+		out.append(String.format("in specification %d, out of specification %d",
+				getInSpecificationCount(), getOutOfSpecificationCount())).append(separator);
+	}
+}
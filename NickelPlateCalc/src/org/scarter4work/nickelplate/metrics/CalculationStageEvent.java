@@ -0,0 +1,34 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event committed at the end of each timed calculation
+ * stage.  The event carries the stage's own measured duration so it matches
+ * the histograms exactly.
+ */
+@Name("org.scarter4work.nickelplate.CalculationStage")
+@Label("Calculation Stage")
+@Category("Nickel Plate")
+@Description("Time spent in one stage of a nickel plate calculation")
+@StackTrace(false)
+class CalculationStageEvent extends Event
+{
+	/** stage label */
+	@Label("Stage")
+	String stage;
+
+	/** stage duration */
+	@Label("Stage Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	long stageDuration;
+}
@@ -0,0 +1,160 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of latencies in nanoseconds with log linear buckets,
+ * in the style of HdrHistogram.  Each power of two range is split into 64
+ * equal buckets, so any recorded value is known to within 1/64 (1.6%) at
+ * every magnitude.  Recording is a couple of shifts and one atomic add.  The
+ * counts are striped by thread, each stripe a whole run of buckets in one
+ * array, so threads timing the same stage rarely add to the same counter;
+ * a snapshot sums the stripes.
+ */
+public class LatencyHistogram
+{
+	/** bits of precision below the leading bit */
+	static final int SUB_BUCKET_BITS = 6;
+
+	/** buckets in each power of two range */
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/** highest bit position tracked, values above are counted as the largest trackable value */
+	static final int MAX_BIT = 45;
+
+	/** largest value tracked exactly, about 9.7 hours in nanoseconds */
+	public static final long MAX_TRACKABLE = (1L << (MAX_BIT + 1)) - 1;
+
+	/** number of buckets */
+	static final int BUCKET_COUNT = ((MAX_BIT - SUB_BUCKET_BITS + 2) << SUB_BUCKET_BITS);
+
+	/** most stripes a histogram is split into */
+	static final int MAX_STRIPES = 8;
+
+	/** counts by stripe then bucket, stripe s starting at s * BUCKET_COUNT */
+	private final AtomicLongArray counts;
+
+	/** mask selecting a stripe from a thread id */
+	private final int stripeMask;
+
+	/** sum of the recorded values */
+	private final LongAdder total = new LongAdder();
+
+	/** largest recorded value */
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Creates a histogram striped for the number of available processors.
+	 */
+	public LatencyHistogram()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a histogram.
+	 * @param concurrency - int of the expected number of concurrent recorders
+	 */
+	public LatencyHistogram(int concurrency)
+	{
+		super();
+		int stripes = Integer.highestOneBit(Math.max(1, Math.min(concurrency, MAX_STRIPES)) * 2 - 1);
+		this.counts = new AtomicLongArray(stripes * BUCKET_COUNT);
+		this.stripeMask = stripes - 1;
+	}
+
+	/**
+	 * Records one latency.
+	 * @param nanos - long of the latency in nanoseconds, negative values count as 0
+	 */
+	public void record(long nanos)
+	{
+		long value = nanos < 0 ? 0 : Math.min(nanos, MAX_TRACKABLE);
+		this.counts.getAndIncrement(this.stripeOffset() + bucketIndex(value));
+		this.total.add(value);
+		this.max.accumulate(value);
+	}
+
+	/**
+	 * Copies the counts recorded so far.  Recording may continue while the
+	 * copy is taken, so a busy histogram's copy may include part of a record.
+	 * @return LatencySnapshot of the counts
+	 */
+	public LatencySnapshot snapshot()
+	{
+		long [] counts = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int offset = 0; offset < this.counts.length(); offset += BUCKET_COUNT)
+		{
+			for (int i = 0; i < BUCKET_COUNT; i++)
+			{
+				long value = this.counts.get(offset + i);
+				counts[i] += value;
+				count += value;
+			}
+		}
+		return new LatencySnapshot(counts, count, this.total.sum(), this.max.get());
+	}
+
+	/**
+	 * Clears every count.  Records made while clearing may be kept or lost.
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < this.counts.length(); i++)
+		{
+			this.counts.set(i, 0);
+		}
+		this.total.reset();
+		this.max.reset();
+	}
+
+	/**
+	 * @return int of the start of the calling thread's stripe
+	 */
+	private int stripeOffset()
+	{
+		if (this.stripeMask == 0)
+			return 0;
+		return ((int) Thread.currentThread().getId() & this.stripeMask) * BUCKET_COUNT;
+	}
+
+	/**
+	 * @return int of the number of stripes
+	 */
+	int getStripeCount()
+	{
+		return this.stripeMask + 1;
+	}
+
+	/**
+	 * @param value - long between 0 and MAX_TRACKABLE
+	 * @return int of the bucket holding the value
+	 */
+	static int bucketIndex(long value)
+	{
+		if (value < SUB_BUCKET_COUNT)
+			return (int) value;
+		int bit = 63 - Long.numberOfLeadingZeros(value);
+		int shift = bit - SUB_BUCKET_BITS;
+		return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+	}
+
+	/**
+	 * @param index - int of a bucket index
+	 * @return long of the largest value counted in the bucket
+	 */
+	static long highestValue(int index)
+	{
+		if (index < SUB_BUCKET_COUNT)
+			return index;
+		int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		long lowest = (long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
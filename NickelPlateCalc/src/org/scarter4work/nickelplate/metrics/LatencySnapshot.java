@@ -0,0 +1,95 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.metrics;
+
+/**
+ * Point in time copy of a LatencyHistogram.  Percentiles are reported as the
+ * largest value of the bucket they fall in, so they never understate a
+ * latency by more than the bucket width.
+ */
+public final class LatencySnapshot
+{
+	/** counts by bucket */
+	private final long [] counts;
+	/** number of recorded values */
+	private final long count;
+	/** sum of the recorded values */
+	private final long total;
+	/** largest recorded value */
+	private final long max;
+
+	/**
+	 * @param counts - long [] of counts by bucket
+	 * @param count - number of recorded values
+	 * @param total - sum of the recorded values
+	 * @param max - largest recorded value
+	 */
+	LatencySnapshot(long [] counts, long count, long total, long max)
+	{
+		super();
+		this.counts = counts;
+		this.count = count;
+		this.total = total;
+		this.max = max;
+	}
+
+	/**
+	 * @param percentile - double from 0 to 100
+	 * @return long of the latency in nanoseconds at the percentile, 0 when empty
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		if (this.count == 0)
+			return 0;
+		long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * this.count);
+		rank = Math.max(1, rank);
+		long seen = 0;
+		for (int i = 0; i < this.counts.length; i++)
+		{
+			seen += this.counts[i];
+			if (seen >= rank)
+				return Math.min(LatencyHistogram.highestValue(i), this.max);
+		}
+		return this.max;
+	}
+
+	/**
+	 * @return double of the mean latency in nanoseconds, 0 when empty
+	 */
+	public double getMean()
+	{
+		return this.count == 0 ? 0 : (double) this.total / this.count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "LatencySnapshot [count=" + count + ", mean=" + getMean()
+				+ ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99)
+				+ ", p99.9=" + getValueAtPercentile(99.9) + ", max=" + max + "]";
+	}
+
+	/**
+	 * @return the count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the total
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the max
+	 */
+	public long getMax() {
+		return max;
+	}
+}
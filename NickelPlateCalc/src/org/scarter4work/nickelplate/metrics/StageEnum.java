@@ -0,0 +1,33 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.metrics;
+
+/**
+ * Stages of a calculation that are timed by CalculationMetrics.
+ */
+public enum StageEnum
+{
+	READ_INPUT("readInput"),
+	SURFACE_AREAS("surfaceAreas"),
+	CURRENT_VALUES("currentValues"),
+	NICKEL_THICKNESS("nickelThickness"),
+	CALCULATE("calculate"),
+	RENDER_OUTPUT("renderOutput");
+
+	/** name used when the metrics are reported */
+	private String label;
+
+	/** default constructor */
+	private StageEnum(String label)
+	{
+		this.label = label;
+	}
+
+	/**
+	 * @return the label
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
@@ -3,23 +3,58 @@
  */
 package org.scarter4work.nickelplate.prompter;
 
-import java.io.FileInputStream;
-import java.util.HashMap;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import org.scarter4work.nickelplate.metrics.CalculationMetrics;
+import org.scarter4work.nickelplate.metrics.StageEnum;
 
 /**
- * This class is responsible for delivering all the console prompts for the 
+ * This class is responsible for delivering all the console prompts for the
  * nickel plate application.
+ * <p>
+ * The text comes from a properties file named on construction, or from
+ * nickelplate_text.properties in the working directory, or failing both from
+ * the copy bundled on the classpath.  It is read the first time a prompt or
+ * output is asked for and held in arrays indexed by enum ordinal.  A reload
+ * builds a complete new set of arrays and swaps it in, so readers always see
+ * one consistent version of the text.
  */
-public class ConsolePrompter 
+public class ConsolePrompter
 {
-	/** property file name */
-	private String filename = "./nickelplate_text.properties";
-	
-	/** properties for prompt text */
-	Map<String,String> prompts = new HashMap<String,String>();
-	
+	/** name of the properties file and classpath resource */
+	public static final String PROPERTIES_NAME = "nickelplate_text.properties";
+
+	/** time the watcher waits for a file to stop changing before reloading it */
+	private static final long SETTLE_MILLIS = 200;
+
+	/** property file name, null for the default */
+	private String filename;
+
+	/** loaded text, null until first used */
+	private volatile PromptTable table;
+
+	/** watch service of the running watcher, null when not watching */
+	private WatchService watchService;
+
 	/** default constructor */
 	public ConsolePrompter(String filename)
 	{
@@ -27,101 +62,402 @@ public class ConsolePrompter
 		// set filename override only if set
 		if (filename != null && filename.length() > 0)
 			this.filename = filename;
-		this.initializeProperties();
 	}
-	
+
 	/**
 	 * Returns the prompt from the properties file for the given index value.
-	 * Using the index, it retrieves the corresponding key from the PrompterOrderEnum
+	 * Using the index, it retrieves the corresponding entry from the PrompterOrderEnum
 	 * to fetch the correct value from the properties file.
 	 * @param index - 1 based index of the prompt to retrieve
 	 * @return String of the value of the prompt
 	 */
 	public String getPrompt(int index)
 	{
-		// verify that we have a properties object on this class
-		if (this.prompts == null) this.initializeProperties();
-		
-		// look up the key for the index using the enum
-		String key = PrompterOrderEnum.getKeyByIndex(index);
-		
-		// get the value from properties using the key
-		String value = this.prompts.get(key);
-		
-		return value;
-	}
-	
-	/**
-	 * Given the output enumeration passed in, we get the output
-	 * text from the hashmap using the key of the output enum. 
-	 * Then we perform any string replacements with formatting
-	 * required, and return the final output to the console.
+		PrompterOrderEnum prompt = PrompterOrderEnum.getByIndex(index);
+		if (prompt == null)
+			return null;
+
+		return this.getTable().prompts[prompt.ordinal()];
+	}
+
+	/**
+	 * Given the output enumeration passed in, we get the compiled output
+	 * template for it and render the params into it with the formatting
+	 * declared on the enum, returning the final output for the console.
 	 * @param outputEnum - OutputEnum
 	 * @param params - List<Double> of calculated answers to replace into the output
 	 * @return String of the formatted output ready to display to the console
 	 */
 	public String getOutput(OutputEnum outputEnum, Double... params)
 	{
-		String retVal = "";
-		
+		double [] values = new double[params.length];
+		for (int i = 0; i < params.length; i++)
+		{
+			values[i] = params[i].doubleValue();
+		}
+
+		return this.appendOutput(new StringBuilder(), outputEnum, values).toString();
+	}
+
+	/**
+	 * Renders the output for the enumeration passed in onto the end of the
+	 * buffer.  Nothing is appended if the number of params does not match
+	 * the formats of the output.
+	 * @param out - StringBuilder to append the output to
+	 * @param outputEnum - OutputEnum
+	 * @param params - double [] of calculated answers to replace into the output
+	 * @return StringBuilder passed in
+	 */
+	public StringBuilder appendOutput(StringBuilder out, OutputEnum outputEnum, double... params)
+	{
 		// verify that the formats match the number of params
 		if (outputEnum.getFormats().length != params.length)
-			return retVal;
-		
-		// get the raw output value from the hashmap
-		String value = this.prompts.get(outputEnum.getKey());
-		
-		// for each value of the passed in params array
-		for (int i = 0; i < params.length; i++)
+			return out;
+
+		// get the compiled template for the output
+		OutputTemplate template = this.getTable().templates[outputEnum.ordinal()];
+		if (template == null)
+			return out;
+
+		long start = CalculationMetrics.startStage();
+		template.render(out, params);
+		CalculationMetrics.endStage(StageEnum.RENDER_OUTPUT, start);
+		return out;
+	}
+
+	/**
+	 * Reads the properties again and swaps the new text in.
+	 * @throws RuntimeException if the properties could not be loaded, in
+	 * which case the current text is kept
+	 */
+	public synchronized void reload()
+	{
+		this.table = this.load();
+	}
+
+	/**
+	 * @return Map of every prompt and output message by property key, loading the text if needed
+	 */
+	public Map<String,String> getText()
+	{
+		PromptTable current = this.getTable();
+		Map<String,String> text = new LinkedHashMap<>();
+		for (PrompterOrderEnum prompt : PrompterOrderEnum.values())
+		{
+			if (current.prompts[prompt.ordinal()] != null)
+				text.put(prompt.getKey(), current.prompts[prompt.ordinal()]);
+		}
+		for (OutputEnum outputEnum : OutputEnum.values())
+		{
+			if (current.outputs[outputEnum.ordinal()] != null)
+				text.put(outputEnum.getKey(), current.outputs[outputEnum.ordinal()]);
+		}
+		return text;
+	}
+
+	/**
+	 * Uses text saved earlier, for example in a warm start snapshot, in place
+	 * of reading the properties.  Nothing changes if text is already loaded.
+	 * @param text - Map of the messages by property key, as returned by getText
+	 * @return boolean true if the text was used
+	 */
+	public synchronized boolean preload(Map<String,String> text)
+	{
+		if (this.table != null)
+			return false;
+		this.table = build(text::get);
+		return true;
+	}
+
+	/**
+	 * Identifies the version of the text source: the external file's path,
+	 * size and modification time, or the bundled resource's location, size
+	 * and time.  Text saved under one stamp is current while the stamp is.
+	 * @return String of the stamp
+	 * @throws IOException if the source cannot be found
+	 */
+	public String getTextStamp() throws IOException
+	{
+		Path file = this.getExternalFile();
+		if (file != null)
+			return file.toAbsolutePath() + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+
+		URL resource = ConsolePrompter.class.getClassLoader().getResource(PROPERTIES_NAME);
+		if (resource == null)
+			throw new FileNotFoundException("Resource not found: " + PROPERTIES_NAME);
+		// a plain file is stat'ed directly, a URL connection loads a good many classes the first time
+		if ("file".equals(resource.getProtocol()))
+		{
+			try
+			{
+				Path resourceFile = Paths.get(resource.toURI());
+				return resource + ":" + Files.size(resourceFile) + ":" + Files.getLastModifiedTime(resourceFile).toMillis();
+			}
+			catch (URISyntaxException | IllegalArgumentException ex)
+			{
+				// fall back on the connection
+			}
+		}
+		URLConnection connection = resource.openConnection();
+		return resource + ":" + connection.getContentLengthLong() + ":" + connection.getLastModified();
+	}
+
+	/**
+	 * Starts reloading the text whenever the external properties file
+	 * changes.  Nothing is watched when the text comes from the classpath.
+	 * @return boolean true if the file is being watched
+	 * @throws IOException if the file's directory cannot be watched
+	 */
+	public synchronized boolean startWatching() throws IOException
+	{
+		if (this.watchService != null)
+			return true;
+		Path file = this.getExternalFile();
+		if (file == null)
+			return false;
+
+		Path absolute = file.toAbsolutePath();
+		WatchService service = absolute.getFileSystem().newWatchService();
+		absolute.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		this.watchService = service;
+
+		Thread watcher = new Thread(() -> this.watch(service, absolute.getFileName()), "nickelplate-prompt-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+		return true;
+	}
+
+	/**
+	 * Stops watching the properties file.
+	 */
+	public synchronized void stopWatching()
+	{
+		if (this.watchService == null)
+			return;
+		try
+		{
+			this.watchService.close();
+		}
+		catch (IOException ex)
 		{
-			String format = outputEnum.getFormats()[i];
-			Double param = params[i];
-			
-			// format the param into a string
-			String subValue = String.format(format, param);
-			
-			// replace the formated value into the raw output
-			value = value.replaceFirst("(\\{.*?\\})", subValue);
+			// the watcher thread ends either way
 		}
+		this.watchService = null;
+	}
 
-		// set the return value to the value
-		retVal = value;
-		
-		return retVal;
+	/**
+	 * Body of the watcher thread.  Editors often write a file in several
+	 * steps, so a reload waits until the file has been quiet for a moment,
+	 * and a file that no longer has every entry the current text has is
+	 * taken to be half written and ignored.
+	 * @param service - WatchService registered on the file's directory
+	 * @param name - Path of the file name within the directory
+	 */
+	private void watch(WatchService service, Path name)
+	{
+		try
+		{
+			while (true)
+			{
+				WatchKey key = service.take();
+				boolean changed = false;
+				while (key != null)
+				{
+					for (WatchEvent<?> event : key.pollEvents())
+					{
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context()))
+							changed = true;
+					}
+					key.reset();
+					key = changed ? service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS) : null;
+				}
+				if (changed)
+					this.reloadChanged();
+			}
+		}
+		catch (InterruptedException | ClosedWatchServiceException ex)
+		{
+			// stopped
+		}
 	}
-	
+
 	/**
-	 * Initializes the properties file to get prompts for the app from.
+	 * Reloads after a change to the file, keeping the current text if the new
+	 * file cannot be read or is missing entries.
 	 */
-	private void initializeProperties()
+	private synchronized void reloadChanged()
 	{
 		try
 		{
-			Properties properties = new Properties();
-			properties.load(new FileInputStream(this.filename));
-			
-			for (Map.Entry<?,?> entry : properties.entrySet())
+			PromptTable loaded = this.load();
+			PromptTable current = this.table;
+			if (current != null && !loaded.covers(current))
 			{
-				this.prompts.put((String)entry.getKey(), (String)entry.getValue());
+				System.err.println("Prompt text reload skipped, entries are missing from " + this.getExternalFile());
+				return;
 			}
+			this.table = loaded;
+		}
+		catch (RuntimeException ex)
+		{
+			System.err.println("Prompt text reload failed, keeping the current text: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * @return PromptTable of the current text, loading it on first use
+	 */
+	private PromptTable getTable()
+	{
+		PromptTable current = this.table;
+		if (current == null)
+		{
+			synchronized (this)
+			{
+				current = this.table;
+				if (current == null)
+				{
+					current = this.load();
+					this.table = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Reads the properties and resolves every prompt and output message.
+	 * @return PromptTable of the text
+	 */
+	private PromptTable load()
+	{
+		Properties properties = new Properties();
+		try (InputStream in = this.openProperties())
+		{
+			properties.load(in);
 		}
 		catch (Exception ex)
 		{
 			throw new RuntimeException("No entries were found or properties file could not be loaded.", ex);
 		}
+		return build(properties::getProperty);
 	}
 
 	/**
-	 * @return the filename
+	 * Resolves every prompt and output message from the text given.
+	 * @param source - UnaryOperator giving the text of a property key, or null
+	 * @return PromptTable of the text
+	 */
+	private static PromptTable build(UnaryOperator<String> source)
+	{
+		PrompterOrderEnum [] prompts = PrompterOrderEnum.values();
+		String [] text = new String[prompts.length];
+		for (PrompterOrderEnum prompt : prompts)
+		{
+			text[prompt.ordinal()] = source.apply(prompt.getKey());
+		}
+
+		// compile each output message once up front
+		Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		OutputEnum [] outputs = OutputEnum.values();
+		String [] outputText = new String[outputs.length];
+		OutputTemplate [] templates = new OutputTemplate[outputs.length];
+		for (OutputEnum outputEnum : outputs)
+		{
+			String value = source.apply(outputEnum.getKey());
+			outputText[outputEnum.ordinal()] = value;
+			if (value != null)
+				templates[outputEnum.ordinal()] = new OutputTemplate(value, outputEnum.getFormats(), locale);
+		}
+
+		return new PromptTable(text, outputText, templates);
+	}
+
+	/**
+	 * @return InputStream of the external properties file or the bundled resource
+	 * @throws IOException
+	 */
+	private InputStream openProperties() throws IOException
+	{
+		Path file = this.getExternalFile();
+		if (file != null)
+			return Files.newInputStream(file);
+
+		InputStream in = ConsolePrompter.class.getClassLoader().getResourceAsStream(PROPERTIES_NAME);
+		if (in == null)
+			throw new FileNotFoundException("Resource not found: " + PROPERTIES_NAME);
+		return in;
+	}
+
+	/**
+	 * @return Path of the external properties file, or null to use the bundled copy
+	 */
+	private Path getExternalFile()
+	{
+		if (this.filename != null)
+			return Paths.get(this.filename);
+
+		Path local = Paths.get(PROPERTIES_NAME);
+		return Files.isRegularFile(local) ? local : null;
+	}
+
+	/**
+	 * @return the filename, null when the default is used
 	 */
 	public String getFilename() {
 		return filename;
 	}
 
 	/**
-	 * @param filename the filename to set
+	 * @param filename the filename to set, the text is read again on next use
 	 */
-	public void setFilename(String filename) {
+	public synchronized void setFilename(String filename) {
 		this.filename = filename;
+		this.table = null;
+	}
+
+	/**
+	 * One loaded version of the prompt and output text.
+	 */
+	private static final class PromptTable
+	{
+		/** prompt text by PrompterOrderEnum ordinal */
+		private final String [] prompts;
+		/** output text by OutputEnum ordinal */
+		private final String [] outputs;
+		/** compiled output by OutputEnum ordinal */
+		private final OutputTemplate [] templates;
+
+		/**
+		 * @param prompts - String [] of prompt text by ordinal
+		 * @param outputs - String [] of output text by ordinal
+		 * @param templates - OutputTemplate [] of compiled output by ordinal
+		 */
+		private PromptTable(String [] prompts, String [] outputs, OutputTemplate [] templates)
+		{
+			this.prompts = prompts;
+			this.outputs = outputs;
+			this.templates = templates;
+		}
+
+		/**
+		 * @param other - PromptTable to compare with
+		 * @return boolean true if this table has every entry the other has
+		 */
+		private boolean covers(PromptTable other)
+		{
+			for (int i = 0; i < this.prompts.length; i++)
+			{
+				if (this.prompts[i] == null && other.prompts[i] != null)
+					return false;
+			}
+			for (int i = 0; i < this.templates.length; i++)
+			{
+				if (this.templates[i] == null && other.templates[i] != null)
+					return false;
+			}
+			return true;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.prompter;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes each result as a comma separated line starting with the output's
+ * label.  Every line has the same columns, the fields of all the outputs in
+ * the order they first appear, under one header written before the first
+ * record, so the file loads as a single table.  A result fills its own
+ * fields' columns and leaves the rest empty, for example
+ * <pre>
+ *   output,totalSurfaceArea,totalAmpsUsed,totalAmpHoursUsed,thicknessPerSide,...
+ *   thickness,,,,0.00009524528559866465,...
+ * </pre>
+ * Values that are not finite numbers are left empty as well.
+ */
+final class CsvOutputWriter extends StructuredOutputWriter
+{
+	/** names of the columns after the output label */
+	static final String [] COLUMNS;
+
+	/** by OutputEnum ordinal then column, the index of the value in that column or -1 */
+	private static final int [][] VALUE_INDEX;
+
+	static
+	{
+		List<String> columns = new ArrayList<>();
+		for (OutputEnum output : OutputEnum.values())
+		{
+			for (String field : output.getFields())
+			{
+				if (!columns.contains(field))
+					columns.add(field);
+			}
+		}
+		COLUMNS = columns.toArray(new String[columns.size()]);
+
+		VALUE_INDEX = new int[OutputEnum.values().length][COLUMNS.length];
+		for (OutputEnum output : OutputEnum.values())
+		{
+			int [] index = VALUE_INDEX[output.ordinal()];
+			Arrays.fill(index, -1);
+			String [] fields = output.getFields();
+			for (int i = 0; i < fields.length; i++)
+			{
+				index[columns.indexOf(fields[i])] = i;
+			}
+		}
+	}
+
+	/** true once the header has been written */
+	private boolean headerWritten;
+
+	/**
+	 * @param out - Writer to write the records to
+	 * @param closeOutput - boolean true to close the writer when this is closed
+	 */
+	CsvOutputWriter(Writer out, boolean closeOutput)
+	{
+		super(out, closeOutput);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.prompter.StructuredOutputWriter#appendRecord(java.lang.StringBuilder, org.scarter4work.nickelplate.prompter.OutputEnum, double[])
+	 */
+	@Override
+	protected void appendRecord(StringBuilder record, OutputEnum output, double [] values)
+	{
+		if (!this.headerWritten)
+		{
+			record.append("output");
+			for (String column : COLUMNS)
+			{
+				record.append(',').append(column);
+			}
+			record.append('\n');
+			this.headerWritten = true;
+		}
+
+		int [] index = VALUE_INDEX[output.ordinal()];
+		record.append(output.getLabel());
+		for (int column = 0; column < index.length; column++)
+		{
+			record.append(',');
+			if (index[column] >= 0 && Double.isFinite(values[index[column]]))
+				RoundTripDecimal.append(record, values[index[column]]);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.prompter;
+
+import java.io.IOException;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats a double the same way String.format does for a fixed point
+ * pattern such as %5.2f, but writes the digits straight to the output
+ * without building intermediate strings.  Values whose rounding cannot be
+ * decided safely from the binary value, and patterns other than a plain
+ * width and precision, are handed to String.format so the output is always
+ * identical to it.
+ */
+final class FixedPointFormat
+{
+	/** largest scaled value the fast path handles */
+	private static final double MAX_SCALED = 1e11;
+
+	/** how close to a half the fraction may be before the exact path is used */
+	private static final double HALF_TOLERANCE = 1e-4;
+
+	/** powers of ten by precision */
+	private static final long [] POWERS_OF_TEN = {
+		1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+	};
+
+	/** original pattern */
+	private final String pattern;
+
+	/** locale used by the exact path */
+	private final Locale locale;
+
+	/** minimum field width */
+	private final int width;
+
+	/** digits after the decimal separator, -1 when the pattern is not a plain fixed point one */
+	private final int precision;
+
+	/** decimal separator for the locale */
+	private final char decimalSeparator;
+
+	/**
+	 * Creates the format for the pattern passed in.
+	 * @param pattern - String of the String.format pattern
+	 * @param locale - Locale the output is formatted for
+	 */
+	FixedPointFormat(String pattern, Locale locale)
+	{
+		super();
+		this.pattern = pattern;
+		this.locale = locale;
+
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+		this.decimalSeparator = symbols.getDecimalSeparator();
+
+		// only %<width>.<precision>f is handled directly
+		int width = -1;
+		int precision = -1;
+		int dot = pattern.indexOf('.');
+		if (symbols.getZeroDigit() == '0' && pattern.length() > 3 && pattern.charAt(0) == '%'
+				&& dot > 0 && pattern.charAt(pattern.length() - 1) == 'f')
+		{
+			width = parseDigits(pattern, 1, dot);
+			precision = parseDigits(pattern, dot + 1, pattern.length() - 1);
+			if (precision >= POWERS_OF_TEN.length)
+				precision = -1;
+		}
+		this.width = Math.max(width, 0);
+		this.precision = width < 0 ? -1 : precision;
+	}
+
+	/**
+	 * Writes the formatted value to the output.
+	 * @param out - Appendable to write to
+	 * @param value - double to format
+	 * @throws IOException
+	 */
+	void format(Appendable out, double value) throws IOException
+	{
+		if (this.precision < 0 || Double.isNaN(value) || Double.isInfinite(value))
+		{
+			out.append(String.format(this.locale, this.pattern, value));
+			return;
+		}
+
+		boolean negative = (Double.doubleToRawLongBits(value) & Long.MIN_VALUE) != 0;
+		double scaled = Math.abs(value) * POWERS_OF_TEN[this.precision];
+		double whole = Math.floor(scaled);
+		double fraction = scaled - whole;
+
+		// String.format rounds half up on the shortest decimal form, which the
+		// binary value cannot tell apart when the fraction is too close to a half
+		if (scaled >= MAX_SCALED || Math.abs(fraction - 0.5) < HALF_TOLERANCE)
+		{
+			out.append(String.format(this.locale, this.pattern, value));
+			return;
+		}
+
+		long digits = (long) whole + (fraction > 0.5 ? 1 : 0);
+		long power = POWERS_OF_TEN[this.precision];
+		long integerPart = digits / power;
+		long fractionPart = digits % power;
+
+		// pad to the field width
+		int length = countDigits(integerPart) + (negative ? 1 : 0) + (this.precision > 0 ? this.precision + 1 : 0);
+		for (int i = length; i < this.width; i++)
+		{
+			out.append(' ');
+		}
+
+		if (negative)
+			out.append('-');
+		appendDigits(out, integerPart, countDigits(integerPart));
+		if (this.precision > 0)
+		{
+			out.append(this.decimalSeparator);
+			appendDigits(out, fractionPart, this.precision);
+		}
+	}
+
+	/**
+	 * Parses a run of decimal digits.
+	 * @param text - String holding the digits
+	 * @param start - index of the first digit
+	 * @param end - index after the last digit
+	 * @return int of the value, 0 for an empty run or -1 if a non digit is found
+	 */
+	private static int parseDigits(String text, int start, int end)
+	{
+		int value = 0;
+		for (int i = start; i < end; i++)
+		{
+			char c = text.charAt(i);
+			if (c < '0' || c > '9')
+				return -1;
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * @param value - non negative long
+	 * @return int of the number of decimal digits in the value, at least one
+	 */
+	private static int countDigits(long value)
+	{
+		int count = 1;
+		while (value >= 10)
+		{
+			value /= 10;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the value left padded with zeros to the number of digits given.
+	 * @param out - Appendable to write to
+	 * @param value - non negative long
+	 * @param count - number of digits to write
+	 * @throws IOException
+	 */
+	private static void appendDigits(Appendable out, long value, int count) throws IOException
+	{
+		long divisor = 1;
+		for (int i = 1; i < count; i++)
+		{
+			divisor *= 10;
+		}
+		for (int i = 0; i < count; i++)
+		{
+			out.append((char) ('0' + (value / divisor) % 10));
+			divisor /= 10;
+		}
+	}
+}
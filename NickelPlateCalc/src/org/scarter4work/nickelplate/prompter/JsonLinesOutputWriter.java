@@ -0,0 +1,45 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.prompter;
+
+import java.io.Writer;
+
+/**
+ * Writes each result as a JSON object on a line of its own, for example
+ * <pre>
+ * {"output":"thickness","thicknessPerSide":9.524528559866465E-5}
+ * </pre>
+ * Values that are not finite numbers are written as null.
+ */
+final class JsonLinesOutputWriter extends StructuredOutputWriter
+{
+	/**
+	 * @param out - Writer to write the records to
+	 * @param closeOutput - boolean true to close the writer when this is closed
+	 */
+	JsonLinesOutputWriter(Writer out, boolean closeOutput)
+	{
+		super(out, closeOutput);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.prompter.StructuredOutputWriter#appendRecord(java.lang.StringBuilder, org.scarter4work.nickelplate.prompter.OutputEnum, double[])
+	 */
+	@Override
+	protected void appendRecord(StringBuilder record, OutputEnum output, double [] values)
+	{
+		// labels and field names are plain identifiers, so nothing needs escaping
+		record.append("{\"output\":\"").append(output.getLabel()).append('"');
+		String [] fields = output.getFields();
+		for (int i = 0; i < fields.length; i++)
+		{
+			record.append(",\"").append(fields[i]).append("\":");
+			if (Double.isFinite(values[i]))
+				RoundTripDecimal.append(record, values[i]);
+			else
+				record.append("null");
+		}
+		record.append('}');
+	}
+}
@@ -8,24 +8,34 @@ package org.scarter4work.nickelplate.prompter;
  */
 public enum OutputEnum 
 {
-	SURFACE_AREA("ouptut.surfaceArea", new String [] {"%5.1f"}),
-	AMPS_REQUIRED("output.ampsRequired", new String [] {"%5.2f"}),
-	AMP_HOURS("output.ampHours", new String [] {"%5.2f"}),
-	THICKNESS("output.thickness", new String [] {"%6.5f"}),
-	SUMMARY("output.summary", new String [] {"%5.1f","%5.2f","%3.0f","%5.0f","%5.2f","%5.2f","%5.2f","%6.5f"}),
-	THICK_ERROR("output.thickness.error", new String [] {});
+	SURFACE_AREA("ouptut.surfaceArea", "surfaceArea", new String [] {"%5.1f"}, new String [] {"totalSurfaceArea"}),
+	AMPS_REQUIRED("output.ampsRequired", "ampsRequired", new String [] {"%5.2f"}, new String [] {"totalAmpsUsed"}),
+	AMP_HOURS("output.ampHours", "ampHours", new String [] {"%5.2f"}, new String [] {"totalAmpHoursUsed"}),
+	THICKNESS("output.thickness", "thickness", new String [] {"%6.5f"}, new String [] {"thicknessPerSide"}),
+	SUMMARY("output.summary", "summary", new String [] {"%5.1f","%5.2f","%3.0f","%5.0f","%5.2f","%5.2f","%5.2f","%6.5f"},
+			new String [] {"totalAmpsUsed","totalAmpHoursUsed","nbrSidesPlated","nbrPieces","width","length",
+					"totalSurfaceArea","thicknessPerSide"}),
+	THICK_ERROR("output.thickness.error", "thicknessError", new String [] {}, new String [] {});
 
 	/** key */
 	private String key;
 	
+	/** name of the record in structured output */
+	private String label;
+	
 	/** format values */
 	private String [] formats;
 	
+	/** name of each value in structured output */
+	private String [] fields;
+	
 	/** default constructor */
-	private OutputEnum(String key, String [] formats)
+	private OutputEnum(String key, String label, String [] formats, String [] fields)
 	{
 		this.key = key;
+		this.label = label;
 		this.formats = formats;
+		this.fields = fields;
 	}
 
 	/**
@@ -42,6 +52,20 @@ public enum OutputEnum
 		this.key = key;
 	}
 
+	/**
+	 * @return the label
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return the fields
+	 */
+	public String[] getFields() {
+		return fields;
+	}
+
 	/**
 	 * @return the formats
 	 */
@@ -55,4 +79,4 @@ public enum OutputEnum
 	public void setFormats(String[] formats) {
 		this.formats = formats;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
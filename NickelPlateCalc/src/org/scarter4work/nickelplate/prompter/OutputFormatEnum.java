@@ -0,0 +1,44 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.prompter;
+
+/**
+ * Machine readable forms the calculated results can be written in, next to
+ * the text shown to the operator.
+ */
+public enum OutputFormatEnum
+{
+	JSON("json"),
+	CSV("csv");
+
+	/** label used to select the format */
+	private String label;
+
+	/** default constructor */
+	private OutputFormatEnum(String label)
+	{
+		this.label = label;
+	}
+
+	/**
+	 * @param label - String of the format label, case is ignored
+	 * @return OutputFormatEnum of the label, or null if there is none
+	 */
+	public static OutputFormatEnum getByLabel(String label)
+	{
+		for (OutputFormatEnum format : values())
+		{
+			if (format.label.equalsIgnoreCase(label))
+				return format;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the label
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
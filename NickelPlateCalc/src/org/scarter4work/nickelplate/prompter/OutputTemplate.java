@@ -0,0 +1,153 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.prompter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An output message from the properties file compiled into literal text and
+ * positional {n} placeholders.  Rendering walks the segments once and
+ * formats each parameter directly into the output, so no regular expressions
+ * or intermediate copies of the message are needed.
+ */
+public final class OutputTemplate
+{
+	/** literal text ahead of each placeholder, plus the trailing text */
+	private final String [] literals;
+
+	/** parameter index of each placeholder */
+	private final int [] indexes;
+
+	/** raw placeholder text, written when the parameter is not available */
+	private final String [] placeholders;
+
+	/** number format of each parameter */
+	private final FixedPointFormat [] formats;
+
+	/** number of parameters the message expects */
+	private final int parameterCount;
+
+	/**
+	 * Compiles the message text using the formats declared for it.
+	 * @param text - String of the raw message from the properties file
+	 * @param formats - String [] of the String.format pattern for each parameter
+	 * @param locale - Locale the numbers are formatted for
+	 */
+	public OutputTemplate(String text, String [] formats, Locale locale)
+	{
+		super();
+		this.parameterCount = formats.length;
+		this.formats = new FixedPointFormat[formats.length];
+		for (int i = 0; i < formats.length; i++)
+		{
+			this.formats[i] = new FixedPointFormat(formats[i], locale);
+		}
+
+		List<String> literals = new ArrayList<>();
+		List<Integer> indexes = new ArrayList<>();
+		List<String> placeholders = new ArrayList<>();
+
+		// split the text on every {n} placeholder
+		int start = 0;
+		int open = text.indexOf('{');
+		while (open >= 0)
+		{
+			int close = text.indexOf('}', open);
+			if (close < 0)
+				break;
+
+			int index = parseIndex(text, open + 1, close);
+			if (index >= 0)
+			{
+				literals.add(text.substring(start, open));
+				indexes.add(index);
+				placeholders.add(text.substring(open, close + 1));
+				start = close + 1;
+			}
+			open = text.indexOf('{', open + 1);
+		}
+		literals.add(text.substring(start));
+
+		this.literals = literals.toArray(new String[literals.size()]);
+		this.placeholders = placeholders.toArray(new String[placeholders.size()]);
+		this.indexes = new int[indexes.size()];
+		for (int i = 0; i < this.indexes.length; i++)
+		{
+			this.indexes[i] = indexes.get(i);
+		}
+	}
+
+	/**
+	 * Renders the message with the parameters passed in.
+	 * @param out - Appendable to write the message to
+	 * @param params - double [] of the values for each placeholder
+	 * @throws IOException
+	 */
+	public void render(Appendable out, double... params) throws IOException
+	{
+		for (int i = 0; i < this.indexes.length; i++)
+		{
+			out.append(this.literals[i]);
+
+			int index = this.indexes[i];
+			if (index < params.length && index < this.formats.length)
+				this.formats[index].format(out, params[index]);
+			else
+				out.append(this.placeholders[i]);
+		}
+		out.append(this.literals[this.indexes.length]);
+	}
+
+	/**
+	 * Renders the message with the parameters passed in.
+	 * @param out - StringBuilder to write the message to
+	 * @param params - double [] of the values for each placeholder
+	 * @return StringBuilder passed in
+	 */
+	public StringBuilder render(StringBuilder out, double... params)
+	{
+		try
+		{
+			this.render((Appendable) out, params);
+		}
+		catch (IOException ex)
+		{
+			throw new IllegalStateException("StringBuilder does not throw IOException.", ex);
+		}
+		return out;
+	}
+
+	/**
+	 * Parses the placeholder index between the braces.
+	 * @param text - String of the message
+	 * @param start - index after the opening brace
+	 * @param end - index of the closing brace
+	 * @return int of the parameter index, or -1 if it is not a placeholder
+	 */
+	private static int parseIndex(String text, int start, int end)
+	{
+		if (start == end)
+			return -1;
+
+		int value = 0;
+		for (int i = start; i < end; i++)
+		{
+			char c = text.charAt(i);
+			if (c < '0' || c > '9' || value > Integer.MAX_VALUE / 10 - 1)
+				return -1;
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * @return the parameterCount
+	 */
+	public int getParameterCount() {
+		return parameterCount;
+	}
+}
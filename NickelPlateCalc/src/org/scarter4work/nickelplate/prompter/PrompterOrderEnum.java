@@ -19,6 +19,14 @@ public enum PrompterOrderEnum
 	FINAL_WEIGHT(8, "entry.weight2.prompt"),
 	QUIT(9, "entry.quit.prompt");
 
+	/** prompts by index, slot 0 unused */
+	private static volatile PrompterOrderEnum [] byIndex;
+
+	static
+	{
+		reindex();
+	}
+
 	/** index */
 	private int index;
 	/** key name */
@@ -38,12 +46,41 @@ public enum PrompterOrderEnum
 	 */
 	public static String getKeyByIndex(int index)
 	{
-		for (PrompterOrderEnum po : PrompterOrderEnum.values())
+		PrompterOrderEnum po = getByIndex(index);
+		return po == null ? null : po.getKey();
+	}
+	
+	/**
+	 * Returns the prompt for the index keyed in.
+	 * @param index - index of the prompt to return
+	 * @return PrompterOrderEnum for the given index, null if there is none
+	 */
+	public static PrompterOrderEnum getByIndex(int index)
+	{
+		PrompterOrderEnum [] table = byIndex;
+		if (index < 0 || index >= table.length)
+			return null;
+		return table[index];
+	}
+	
+	/**
+	 * Rebuilds the index lookup table from the current indexes.
+	 */
+	private static synchronized void reindex()
+	{
+		PrompterOrderEnum [] values = values();
+		int highest = 0;
+		for (PrompterOrderEnum po : values)
+		{
+			highest = Math.max(highest, po.getIndex());
+		}
+		PrompterOrderEnum [] table = new PrompterOrderEnum[highest + 1];
+		for (PrompterOrderEnum po : values)
 		{
-			if (po.getIndex() == index)
-				return po.getKey();
+			if (po.getIndex() >= 0)
+				table[po.getIndex()] = po;
 		}
-		return null;
+		byIndex = table;
 	}
 	
 	/**
@@ -58,6 +95,7 @@ public enum PrompterOrderEnum
 	 */
 	public void setIndex(int index) {
 		this.index = index;
+		reindex();
 	}
 
 	/**
@@ -73,4 +111,4 @@ public enum PrompterOrderEnum
 	public void setKey(String key) {
 		this.key = key;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
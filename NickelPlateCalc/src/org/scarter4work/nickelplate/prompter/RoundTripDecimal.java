@@ -0,0 +1,148 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.prompter;
+
+/**
+ * Writes doubles as decimals that read back to exactly the same double,
+ * without the garbage StringBuilder.append(double) makes for the small
+ * fractions thicknesses are.  Numbers of 1 or more, and fractions too small
+ * for the exact powers of ten, are still left to StringBuilder, which writes
+ * those without garbage or rarely enough not to matter.
+ * <p>
+ * A fraction is tried with 1 significant digit, then 2 and so on.  Up to
+ * 2^53 both the digits and an exact power of ten are exact doubles, so their
+ * quotient is the correctly rounded value of the decimal, the same double a
+ * parser reads, and one division checks a candidate exactly.  Past that the
+ * fraction is written with 17 significant digits, which always read back,
+ * taken from the exact product of the fraction and a power of ten.
+ */
+final class RoundTripDecimal
+{
+	/** powers of ten that are exact doubles */
+	private static final double [] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/** largest integer below which every integer is an exact double */
+	private static final double MAX_EXACT = 0x1p53;
+
+	/** significant digits that always read back to the same double */
+	private static final int ROUND_TRIP_DIGITS = 17;
+
+	/** splits a double into two halves of 26 bits for an exact product */
+	private static final double SPLITTER = 0x1p27 + 1;
+
+	/** no instances */
+	private RoundTripDecimal()
+	{
+		super();
+	}
+
+	/**
+	 * Appends a finite double.
+	 * @param out - StringBuilder to append to
+	 * @param value - double to append, finite
+	 */
+	static void append(StringBuilder out, double value)
+	{
+		double magnitude = Math.abs(value);
+		if (magnitude == 0 || magnitude >= 1)
+		{
+			out.append(value);
+			return;
+		}
+
+		// decimal places of the first significant digit, give or take the rounding of log10
+		int leading = -(int) Math.floor(Math.log10(magnitude));
+		for (int places = leading; places < POWERS_OF_TEN.length; places++)
+		{
+			double digits = Math.rint(magnitude * POWERS_OF_TEN[places]);
+			if (digits >= MAX_EXACT)
+				break;
+			if (digits / POWERS_OF_TEN[places] == magnitude)
+			{
+				appendFraction(out, value < 0, (long) digits, places);
+				return;
+			}
+		}
+
+		// the places that put exactly 17 digits before the point
+		int places = leading + ROUND_TRIP_DIGITS - 1;
+		while (places > 0 && places < POWERS_OF_TEN.length && magnitude * POWERS_OF_TEN[places] >= 1e17)
+		{
+			places--;
+		}
+		while (places < POWERS_OF_TEN.length && magnitude * POWERS_OF_TEN[places] < 1e16)
+		{
+			places++;
+		}
+		if (places >= POWERS_OF_TEN.length)
+		{
+			out.append(value);
+			return;
+		}
+
+		// the rounded product is an integer this large, so the exact error rounds it to the nearest
+		double power = POWERS_OF_TEN[places];
+		double product = magnitude * power;
+		double error = productError(magnitude, power, product);
+		appendFraction(out, value < 0, (long) product + Math.round(error), places);
+	}
+
+	/**
+	 * Dekker's exact product: a * b is exactly product + the returned error
+	 * as long as nothing overflows or underflows.
+	 * @param a - double factor
+	 * @param b - double factor
+	 * @param product - double of a * b as rounded
+	 * @return double of the rounding error of the product
+	 */
+	private static double productError(double a, double b, double product)
+	{
+		double split = SPLITTER * a;
+		double aHigh = split - (split - a);
+		double aLow = a - aHigh;
+		split = SPLITTER * b;
+		double bHigh = split - (split - b);
+		double bLow = b - bHigh;
+		return ((aHigh * bHigh - product) + aHigh * bLow + aLow * bHigh) + aLow * bLow;
+	}
+
+	/**
+	 * Appends digits * 10^-places in plain notation.
+	 * @param out - StringBuilder to append to
+	 * @param negative - boolean true to write a minus sign
+	 * @param digits - long of the significant digits
+	 * @param places - int of the decimal places the digits are shifted right
+	 */
+	private static void appendFraction(StringBuilder out, boolean negative, long digits, int places)
+	{
+		while (places > 0 && digits % 10 == 0)
+		{
+			digits /= 10;
+			places--;
+		}
+		if (negative)
+			out.append('-');
+		if (places == 0)
+		{
+			// rounded up to a whole number
+			out.append(digits).append(".0");
+			return;
+		}
+
+		int length = 1;
+		for (long rest = digits / 10; rest > 0; rest /= 10)
+		{
+			length++;
+		}
+		out.append("0.");
+		for (int i = length; i < places; i++)
+		{
+			out.append('0');
+		}
+		out.append(digits);
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.prompter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Writes calculated results in a machine readable form, one record per
+ * OutputEnum result, for systems such as the MES that cannot read the text
+ * shown to the operator.  Each record is built from the primitive values in
+ * a reused buffer and copied to the output through a reused char array, so
+ * writing a record creates no strings, boxes or arrays once the buffers
+ * have grown to the longest record.  Passing the values as a reused double
+ * array rather than separate arguments avoids the varargs array as well.
+ * <p>
+ * Numbers are written with full precision rather than the rounding of the
+ * text output.  A writer is not thread safe.
+ */
+public abstract class StructuredOutputWriter implements Closeable, Flushable
+{
+	/** system property naming the file structured output is written to, '-' for standard out */
+	public static final String FILE_PROPERTY = "nickelplate.output.file";
+
+	/** system property selecting the format, json (the default) or csv */
+	public static final String FORMAT_PROPERTY = "nickelplate.output.format";
+
+	/** size of the write buffer */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** file name that stands for standard out */
+	private static final String STREAM_NAME = "-";
+
+	/** destination of the records */
+	private final Writer out;
+
+	/** true to close the destination when the writer is closed */
+	private final boolean closeOutput;
+
+	/** record being built */
+	private final StringBuilder record = new StringBuilder(256);
+
+	/** characters of the record being copied to the destination */
+	private char [] chars = new char[256];
+
+	/** number of records written */
+	private long recordCount;
+
+	/**
+	 * @param out - Writer to write the records to
+	 * @param closeOutput - boolean true to close the writer when this is closed
+	 */
+	protected StructuredOutputWriter(Writer out, boolean closeOutput)
+	{
+		super();
+		this.out = out;
+		this.closeOutput = closeOutput;
+	}
+
+	/**
+	 * Creates a writer in the format given.
+	 * @param format - OutputFormatEnum of the records
+	 * @param out - Writer to write the records to, closed when the writer is
+	 * @return StructuredOutputWriter
+	 */
+	public static StructuredOutputWriter create(OutputFormatEnum format, Writer out)
+	{
+		return create(format, out, true);
+	}
+
+	/**
+	 * Creates a writer from the nickelplate.output system properties.
+	 * @return StructuredOutputWriter, or null if no output file is set
+	 * @throws IOException if the file cannot be created
+	 */
+	public static StructuredOutputWriter fromSystemProperties() throws IOException
+	{
+		String file = System.getProperty(FILE_PROPERTY);
+		if (file == null || file.isEmpty())
+			return null;
+		String label = System.getProperty(FORMAT_PROPERTY, OutputFormatEnum.JSON.getLabel());
+		OutputFormatEnum format = OutputFormatEnum.getByLabel(label);
+		if (format == null)
+			throw new IllegalArgumentException("Unknown output format " + label + ", expected json or csv.");
+
+		// standard out is shared with the rest of the program, so it is only flushed
+		if (STREAM_NAME.equals(file))
+			return create(format, new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8),
+					BUFFER_SIZE), false);
+		return create(format, Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8), true);
+	}
+
+	/**
+	 * @param format - OutputFormatEnum of the records
+	 * @param out - Writer to write the records to
+	 * @param closeOutput - boolean true to close the writer when this is closed
+	 * @return StructuredOutputWriter
+	 */
+	private static StructuredOutputWriter create(OutputFormatEnum format, Writer out, boolean closeOutput)
+	{
+		switch (format)
+		{
+			case CSV:
+				return new CsvOutputWriter(out, closeOutput);
+			default:
+				return new JsonLinesOutputWriter(out, closeOutput);
+		}
+	}
+
+	/**
+	 * Writes one result.  The record is buffered until the writer is flushed.
+	 * @param output - OutputEnum of the result
+	 * @param values - double [] of the result's values, in the order of the output's fields
+	 * @throws IOException
+	 */
+	public void write(OutputEnum output, double... values) throws IOException
+	{
+		if (values.length != output.getFields().length)
+			throw new IllegalArgumentException(output + " has " + output.getFields().length + " values, not "
+					+ values.length);
+		this.record.setLength(0);
+		this.appendRecord(this.record, output, values);
+		this.record.append('\n');
+
+		int length = this.record.length();
+		if (length > this.chars.length)
+			this.chars = new char[Math.max(length, this.chars.length * 2)];
+		this.record.getChars(0, length, this.chars, 0);
+		this.out.write(this.chars, 0, length);
+		this.recordCount++;
+	}
+
+	/**
+	 * Appends one result as a record, without the line end.
+	 * @param record - StringBuilder to append to
+	 * @param output - OutputEnum of the result
+	 * @param values - double [] of the result's values
+	 */
+	protected abstract void appendRecord(StringBuilder record, OutputEnum output, double [] values);
+
+	/* (non-Javadoc)
+	 * @see java.io.Flushable#flush()
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		this.out.flush();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (this.closeOutput)
+			this.out.close();
+		else
+			this.out.flush();
+	}
+
+	/**
+	 * @return the recordCount
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+}
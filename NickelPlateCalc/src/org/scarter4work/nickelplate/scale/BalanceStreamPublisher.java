@@ -0,0 +1,162 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes the weight readings balances send as lines of text, in the same
+ * form as the weight log read by ScaleLogReader: a workpiece id, a kind and
+ * a weight separated by commas, tabs or spaces, for example
+ * <code>10452,S,102.315</code>.  Blank lines and lines starting with '#' are
+ * skipped, and lines that cannot be parsed are counted and skipped.
+ * <p>
+ * Several balances may be read at once, each on its own thread.  A reading
+ * is only read from its stream once the pipeline has room for it, so when
+ * the pipeline falls behind the balances' connections fill and the balances
+ * are held back by TCP flow control rather than readings piling up here.
+ */
+public class BalanceStreamPublisher extends SubmissionPublisher<WeightReading>
+{
+	/** size of the read buffer */
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	/** number of readings published */
+	private final LongAdder readingCount = new LongAdder();
+
+	/** number of lines that could not be parsed */
+	private final LongAdder malformedCount = new LongAdder();
+
+	/**
+	 * @param executor - Executor delivering the readings, such as WeightPipeline.getExecutor()
+	 * @param bufferCapacity - int of the readings buffered for each subscriber
+	 */
+	public BalanceStreamPublisher(Executor executor, int bufferCapacity)
+	{
+		super(executor, bufferCapacity);
+	}
+
+	/**
+	 * Publishes every reading in the stream.  The stream is not closed, and
+	 * neither is the publisher, so more streams may follow.
+	 * @param input - Reader of a balance's readings
+	 * @return long of the readings published from the stream
+	 * @throws IOException
+	 */
+	public long read(Reader input) throws IOException
+	{
+		BufferedReader reader = input instanceof BufferedReader ? (BufferedReader) input
+				: new BufferedReader(input, BUFFER_SIZE);
+		long count = 0;
+		String line;
+		while ((line = reader.readLine()) != null)
+		{
+			WeightReading reading = this.parse(line);
+			if (reading == null)
+				continue;
+			this.submit(reading);
+			this.readingCount.increment();
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Reads every balance that connects, each on its own daemon thread, until
+	 * the server socket is closed.
+	 * @param server - ServerSocket the balances connect to
+	 */
+	public void serve(ServerSocket server)
+	{
+		while (!server.isClosed())
+		{
+			try
+			{
+				Socket connection = server.accept();
+				Thread reader = new Thread(() -> this.readConnection(connection), "nickelplate-balance-"
+						+ connection.getRemoteSocketAddress());
+				reader.setDaemon(true);
+				reader.start();
+			}
+			catch (IOException ex)
+			{
+				// closed
+			}
+		}
+	}
+
+	/**
+	 * Reads one balance's connection until it closes.
+	 * @param connection - Socket of the balance
+	 */
+	private void readConnection(Socket connection)
+	{
+		try (Socket socket = connection)
+		{
+			this.read(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			System.err.println("Balance " + connection.getRemoteSocketAddress() + " dropped: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * @param line - String of a line from a balance
+	 * @return WeightReading of the line, or null if it is blank, a comment or malformed
+	 */
+	private WeightReading parse(String line)
+	{
+		String text = line.trim();
+		if (text.isEmpty() || text.charAt(0) == '#')
+			return null;
+		String [] fields = text.split("[,\\t ]+");
+		if (fields.length != 3)
+		{
+			this.malformedCount.increment();
+			return null;
+		}
+		WeightKindEnum kind = WeightKindEnum.getByCode(fields[1]);
+		if (kind == null)
+		{
+			this.malformedCount.increment();
+			return null;
+		}
+		try
+		{
+			return new WeightReading(Long.parseLong(fields[0]), kind, Double.parseDouble(fields[2]),
+					System.currentTimeMillis());
+		}
+		catch (NumberFormatException ex)
+		{
+			this.malformedCount.increment();
+			return null;
+		}
+	}
+
+	/**
+	 * @return long of the readings published
+	 */
+	public long getReadingCount()
+	{
+		return this.readingCount.sum();
+	}
+
+	/**
+	 * @return long of the lines that could not be parsed
+	 */
+	public long getMalformedCount()
+	{
+		return this.malformedCount.sum();
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+/**
+ * Open addressing map from workpiece id to start weight for the workpieces
+ * still waiting on a final weight.  Keys and values are kept in primitive
+ * arrays so pairing does not box.
+ */
+class PendingWeights
+{
+	/** smallest table size */
+	private static final int MIN_CAPACITY = 16;
+
+	/** workpiece ids */
+	private long [] keys;
+	/** start weights */
+	private double [] values;
+	/** slots in use */
+	private boolean [] used;
+	/** number of entries */
+	private int size;
+
+	/** default constructor */
+	PendingWeights()
+	{
+		super();
+		this.allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * Stores the start weight for the workpiece, replacing any earlier one.
+	 * @param key - workpiece id
+	 * @param value - start weight
+	 */
+	void put(long key, double value)
+	{
+		if ((this.size + 1) * 4 > this.keys.length * 3)
+			this.resize(this.keys.length * 2);
+
+		int mask = this.keys.length - 1;
+		int slot = hash(key) & mask;
+		while (this.used[slot])
+		{
+			if (this.keys[slot] == key)
+			{
+				this.values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		this.used[slot] = true;
+		this.keys[slot] = key;
+		this.values[slot] = value;
+		this.size++;
+	}
+
+	/**
+	 * Removes the start weight for the workpiece.
+	 * @param key - workpiece id
+	 * @return double of the start weight, or NaN if there was none
+	 */
+	double remove(long key)
+	{
+		int mask = this.keys.length - 1;
+		int slot = hash(key) & mask;
+		while (this.used[slot])
+		{
+			if (this.keys[slot] == key)
+			{
+				double value = this.values[slot];
+				this.delete(slot);
+				return value;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return Double.NaN;
+	}
+
+	/** removes every entry */
+	void clear()
+	{
+		this.allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * @return int of the number of workpieces waiting on a final weight
+	 */
+	int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Empties the slot and shifts back any entries that probed past it.
+	 * @param slot - index of the slot to empty
+	 */
+	private void delete(int slot)
+	{
+		int mask = this.keys.length - 1;
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (this.used[next])
+		{
+			int home = hash(this.keys[next]) & mask;
+			// move the entry if the hole lies between its home slot and where it sits
+			if (((next - home) & mask) >= ((next - hole) & mask))
+			{
+				this.keys[hole] = this.keys[next];
+				this.values[hole] = this.values[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		this.used[hole] = false;
+		this.size--;
+	}
+
+	/**
+	 * Rehashes every entry into a table of the capacity given.
+	 * @param capacity - new table size, a power of two
+	 */
+	private void resize(int capacity)
+	{
+		long [] oldKeys = this.keys;
+		double [] oldValues = this.values;
+		boolean [] oldUsed = this.used;
+		this.allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldUsed[i])
+				this.put(oldKeys[i], oldValues[i]);
+		}
+	}
+
+	/**
+	 * @param capacity - table size, a power of two
+	 */
+	private void allocate(int capacity)
+	{
+		this.keys = new long[capacity];
+		this.values = new double[capacity];
+		this.used = new boolean[capacity];
+		this.size = 0;
+	}
+
+	/**
+	 * @param key - workpiece id
+	 * @return int of the mixed hash of the id
+	 */
+	private static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Middle stage of a WeightPipeline.  Each item received is turned into at
+ * most one item for the next stage.  The stage asks upstream for no more than
+ * its buffer holds and asks for another item only once one has been passed
+ * on, and passing on blocks while the slowest subscriber's buffer is full, so
+ * a slow subscriber holds back every stage before it instead of letting items
+ * pile up in memory.
+ * @param <I> - type of item received
+ * @param <O> - type of item passed on
+ */
+abstract class PipelineStage<I, O> extends SubmissionPublisher<O> implements Flow.Processor<I, O>
+{
+	/** number of items asked for up front */
+	private final int bufferCapacity;
+
+	/** subscription to the previous stage */
+	private Flow.Subscription subscription;
+
+	/**
+	 * @param executor - Executor delivering to this stage's subscribers
+	 * @param bufferCapacity - int of the items buffered for each subscriber
+	 */
+	PipelineStage(Executor executor, int bufferCapacity)
+	{
+		super(executor, bufferCapacity);
+		this.bufferCapacity = bufferCapacity;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onSubscribe(java.util.concurrent.Flow.Subscription)
+	 */
+	@Override
+	public void onSubscribe(Flow.Subscription subscription)
+	{
+		this.subscription = subscription;
+		subscription.request(this.bufferCapacity);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onNext(java.lang.Object)
+	 */
+	@Override
+	public void onNext(I item)
+	{
+		try
+		{
+			O next = this.process(item);
+			if (next != null)
+				this.submit(next);
+		}
+		catch (RuntimeException ex)
+		{
+			this.subscription.cancel();
+			this.closeExceptionally(ex);
+			return;
+		}
+		this.subscription.request(1);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onError(java.lang.Throwable)
+	 */
+	@Override
+	public void onError(Throwable throwable)
+	{
+		this.closeExceptionally(throwable);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onComplete()
+	 */
+	@Override
+	public void onComplete()
+	{
+		this.close();
+	}
+
+	/**
+	 * Called for each item in turn, never concurrently.
+	 * @param item - item received
+	 * @return item to pass on, or null to pass nothing on
+	 */
+	protected abstract O process(I item);
+}
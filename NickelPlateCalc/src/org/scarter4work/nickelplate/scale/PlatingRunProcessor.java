@@ -0,0 +1,76 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.util.concurrent.Executor;
+import java.util.function.LongFunction;
+
+import org.scarter4work.nickelplate.calc.GeometryResult;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+import org.scarter4work.nickelplate.metrics.CalculationMetrics;
+import org.scarter4work.nickelplate.metrics.StageEnum;
+
+/**
+ * Pipeline stage calculating the plating run of each weight pair.  The
+ * balances only report weights, so the geometry of each workpiece is looked
+ * up by its id; pairs whose geometry is unknown are counted and skipped.
+ */
+public class PlatingRunProcessor extends PipelineStage<WeightPair, WeighedRun>
+{
+	/** geometry by workpiece id, null when unknown */
+	private final LongFunction<GeometryResult> geometry;
+
+	/** number of runs passed on, written only by the stage's delivery thread */
+	private volatile long runCount;
+
+	/** number of pairs skipped because their geometry was unknown */
+	private volatile long unknownGeometryCount;
+
+	/**
+	 * @param executor - Executor delivering to this stage's subscribers
+	 * @param bufferCapacity - int of the runs buffered for each subscriber
+	 * @param geometry - LongFunction giving the GeometryResult of a workpiece id, or null when unknown
+	 */
+	public PlatingRunProcessor(Executor executor, int bufferCapacity, LongFunction<GeometryResult> geometry)
+	{
+		super(executor, bufferCapacity);
+		this.geometry = geometry;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.scale.PipelineStage#process(java.lang.Object)
+	 */
+	@Override
+	protected WeighedRun process(WeightPair pair)
+	{
+		GeometryResult known = this.geometry.apply(pair.getWorkpieceId());
+		if (known == null)
+		{
+			this.unknownGeometryCount++;
+			return null;
+		}
+
+		long start = CalculationMetrics.startStage();
+		PlatingResult result = PlatingMath.calculate(known, pair.getStartWeight(), pair.getFinalWeight());
+		CalculationMetrics.endStage(StageEnum.CALCULATE, start);
+		CalculationMetrics.recordResult(result.isInSpecification());
+		this.runCount++;
+		return new WeighedRun(pair.getWorkpieceId(), pair.getTimestamp(), result);
+	}
+
+	/**
+	 * @return the runCount
+	 */
+	public long getRunCount() {
+		return runCount;
+	}
+
+	/**
+	 * @return the unknownGeometryCount
+	 */
+	public long getUnknownGeometryCount() {
+		return unknownGeometryCount;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * End of a WeightPipeline, handing each run to a WeighedRunListener.  Runs
+ * are asked for as the listener finishes with them, so a listener that falls
+ * behind fills its buffer and holds the pipeline back.  A listener that fails
+ * cancels its subscription and the failure is reported through the future.
+ */
+final class RunSubscriber implements Flow.Subscriber<WeighedRun>
+{
+	/** listener told of each run */
+	private final WeighedRunListener listener;
+
+	/** number of runs asked for up front */
+	private final int bufferCapacity;
+
+	/** completes when the runs end, exceptionally if the pipeline or listener failed */
+	private final CompletableFuture<Long> done = new CompletableFuture<>();
+
+	/** subscription to the calculation stage */
+	private Flow.Subscription subscription;
+
+	/** number of runs handled, written only by the delivery thread */
+	private volatile long runCount;
+
+	/**
+	 * @param listener - WeighedRunListener told of each run
+	 * @param bufferCapacity - int of the runs asked for up front
+	 */
+	RunSubscriber(WeighedRunListener listener, int bufferCapacity)
+	{
+		super();
+		this.listener = listener;
+		this.bufferCapacity = bufferCapacity;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onSubscribe(java.util.concurrent.Flow.Subscription)
+	 */
+	@Override
+	public void onSubscribe(Flow.Subscription subscription)
+	{
+		this.subscription = subscription;
+		subscription.request(this.bufferCapacity);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onNext(java.lang.Object)
+	 */
+	@Override
+	public void onNext(WeighedRun run)
+	{
+		try
+		{
+			this.listener.onRun(run);
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			this.subscription.cancel();
+			this.done.completeExceptionally(ex);
+			return;
+		}
+		this.runCount++;
+		this.subscription.request(1);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onError(java.lang.Throwable)
+	 */
+	@Override
+	public void onError(Throwable throwable)
+	{
+		this.done.completeExceptionally(throwable);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Flow.Subscriber#onComplete()
+	 */
+	@Override
+	public void onComplete()
+	{
+		this.done.complete(Long.valueOf(this.runCount));
+	}
+
+	/**
+	 * @return CompletableFuture completing with the number of runs handled
+	 */
+	CompletableFuture<Long> getDone()
+	{
+		return this.done;
+	}
+
+	/**
+	 * @return the listener
+	 */
+	WeighedRunListener getListener() {
+		return listener;
+	}
+}
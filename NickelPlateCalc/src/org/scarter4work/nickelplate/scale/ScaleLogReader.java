@@ -0,0 +1,435 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the weight log written by the balances and pairs each workpiece's
+ * start and final weights.  The log is memory mapped a window at a time and
+ * records are parsed straight from the mapped bytes, so files of any size can
+ * be read without creating a String per line.
+ * <p>
+ * Each line of the log holds a workpiece id, a kind and a weight separated by
+ * commas, tabs or spaces, for example <code>10452,S,102.315</code>.  The kind
+ * starts with S for a start weight or F for a final weight, so START and FINAL
+ * are accepted too.  Blank lines and lines starting with '#' are skipped, and
+ * lines that cannot be parsed are counted and skipped.
+ * <p>
+ * Pairs are handed to a WeightPairListener, normally a WeightPairCalculator
+ * that knows each workpiece's geometry and passes the calculated runs on:
+ * <pre>
+ * WeightPairCalculator runs = new WeightPairCalculator(id -&gt; geometry);
+ * runs.addListener(run -&gt; output.println(run.getResult()));
+ * reader.read(runs);
+ * </pre>
+ * --weight-log reads or follows a log this way.
+ */
+public class ScaleLogReader implements Closeable
+{
+	/** default size of each mapped window */
+	public static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+	/** longest number the fast parse handles exactly */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/** powers of ten that are exact doubles */
+	private static final double [] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	/** channel of the log file */
+	private final FileChannel channel;
+
+	/** size of each mapped window */
+	private final int windowSize;
+
+	/** start weights waiting on a final weight */
+	private final PendingWeights pending = new PendingWeights();
+
+	/** scratch space for numbers the fast parse cannot handle */
+	private final byte [] scratch = new byte[64];
+
+	/** file offset of the next unread line */
+	private long position;
+
+	/** number of weight records read */
+	private long recordCount;
+
+	/** number of start and final weights paired */
+	private long pairCount;
+
+	/** number of lines that could not be parsed */
+	private long malformedCount;
+
+	/** number of final weights with no start weight */
+	private long unmatchedCount;
+
+	/**
+	 * Opens the log with the default window size.
+	 * @param path - Path of the weight log
+	 * @throws IOException
+	 */
+	public ScaleLogReader(Path path) throws IOException
+	{
+		this(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Opens the log.
+	 * @param path - Path of the weight log
+	 * @param windowSize - number of bytes mapped at a time, longer than any line
+	 * @throws IOException
+	 */
+	public ScaleLogReader(Path path, int windowSize) throws IOException
+	{
+		super();
+		if (windowSize <= 0)
+			throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+		this.windowSize = windowSize;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+	}
+
+	/**
+	 * Reads the log from the last position to its current end, treating a
+	 * last line with no line feed as complete.
+	 * @param listener - WeightPairListener to receive the pairs
+	 * @return long of the number of pairs found
+	 * @throws IOException
+	 */
+	public long read(WeightPairListener listener) throws IOException
+	{
+		return this.scan(listener, true);
+	}
+
+	/**
+	 * Follows the log as the balances append to it, remapping whenever the
+	 * file grows.  A partly written last line is left until its line feed
+	 * arrives.  If the file shrinks it is taken to have been rotated and is
+	 * read again from the start.  Returns only when the thread is interrupted.
+	 * @param listener - WeightPairListener to receive the pairs
+	 * @param pollMillis - how long to wait between checks for new data
+	 * @throws IOException
+	 * @throws InterruptedException when the thread is interrupted
+	 */
+	public void tail(WeightPairListener listener, long pollMillis) throws IOException, InterruptedException
+	{
+		while (true)
+		{
+			long before = this.position;
+			this.scan(listener, false);
+			if (this.position == before)
+				Thread.sleep(pollMillis);
+			if (Thread.interrupted())
+				throw new InterruptedException();
+		}
+	}
+
+	/**
+	 * Maps and parses every complete line between the position and the end of file.
+	 * @param listener - WeightPairListener to receive the pairs
+	 * @param endIsComplete - true if a last line with no line feed should be parsed
+	 * @return long of the number of pairs found
+	 * @throws IOException
+	 */
+	private long scan(WeightPairListener listener, boolean endIsComplete) throws IOException
+	{
+		long pairsBefore = this.pairCount;
+		long size = this.channel.size();
+
+		// a shorter file has been rotated, so start over
+		if (size < this.position)
+		{
+			this.position = 0;
+			this.pending.clear();
+		}
+
+		while (this.position < size)
+		{
+			int length = (int) Math.min(this.windowSize, size - this.position);
+			boolean lastWindow = this.position + length == size;
+			MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+
+			int consumed = this.parseWindow(buffer, length, listener, lastWindow && endIsComplete);
+			if (consumed == 0)
+			{
+				if (!lastWindow)
+					throw new IOException("Line at offset " + this.position + " is longer than the "
+							+ this.windowSize + " byte window.");
+				break;
+			}
+			this.position += consumed;
+		}
+
+		return this.pairCount - pairsBefore;
+	}
+
+	/**
+	 * Parses each complete line in the mapped window.
+	 * @param buffer - MappedByteBuffer of the window
+	 * @param length - number of bytes in the window
+	 * @param listener - WeightPairListener to receive the pairs
+	 * @param endIsComplete - true if trailing bytes with no line feed form a line
+	 * @return int of the number of bytes consumed
+	 */
+	private int parseWindow(MappedByteBuffer buffer, int length, WeightPairListener listener, boolean endIsComplete)
+	{
+		int start = 0;
+		for (int i = 0; i < length; i++)
+		{
+			if (buffer.get(i) == '\n')
+			{
+				this.parseLine(buffer, start, i, listener);
+				start = i + 1;
+			}
+		}
+
+		if (endIsComplete && start < length)
+		{
+			this.parseLine(buffer, start, length, listener);
+			start = length;
+		}
+		return start;
+	}
+
+	/**
+	 * Parses one weight record and pairs it with any earlier start weight.
+	 * @param buffer - MappedByteBuffer holding the line
+	 * @param start - index of the first byte of the line
+	 * @param end - index after the last byte of the line
+	 * @param listener - WeightPairListener to receive the pair
+	 */
+	private void parseLine(MappedByteBuffer buffer, int start, int end, WeightPairListener listener)
+	{
+		// trim the line
+		while (end > start && buffer.get(end - 1) <= ' ') end--;
+		while (start < end && buffer.get(start) <= ' ') start++;
+		if (start == end || buffer.get(start) == '#')
+			return;
+
+		// workpiece id
+		int pos = start;
+		long id = 0;
+		while (pos < end && isDigit(buffer.get(pos)) && id <= (Long.MAX_VALUE - 9) / 10)
+		{
+			id = id * 10 + (buffer.get(pos) - '0');
+			pos++;
+		}
+		if (pos == start || pos == end || !isSeparator(buffer.get(pos)))
+		{
+			this.malformedCount++;
+			return;
+		}
+		pos = skipSeparators(buffer, pos, end);
+
+		// kind of weight
+		byte kind = pos < end ? buffer.get(pos) : 0;
+		boolean isStart = kind == 'S' || kind == 's';
+		boolean isFinal = kind == 'F' || kind == 'f';
+		while (pos < end && !isSeparator(buffer.get(pos))) pos++;
+		pos = skipSeparators(buffer, pos, end);
+		if (!isStart && !isFinal || pos == end)
+		{
+			this.malformedCount++;
+			return;
+		}
+
+		double weight = this.parseWeight(buffer, pos, end);
+		if (Double.isNaN(weight))
+		{
+			this.malformedCount++;
+			return;
+		}
+		this.recordCount++;
+
+		if (isStart)
+		{
+			this.pending.put(id, weight);
+		}
+		else
+		{
+			double startWeight = this.pending.remove(id);
+			if (Double.isNaN(startWeight))
+			{
+				this.unmatchedCount++;
+				return;
+			}
+			this.pairCount++;
+			listener.onWeights(id, startWeight, weight);
+		}
+	}
+
+	/**
+	 * Parses a plain decimal number.  Numbers with few enough digits are
+	 * computed exactly from the digits, anything else is handed to
+	 * Double.parseDouble.
+	 * @param buffer - MappedByteBuffer holding the number
+	 * @param start - index of the first byte of the number
+	 * @param end - index after the last byte of the number
+	 * @return double of the number, or NaN if it is not a number
+	 */
+	private double parseWeight(MappedByteBuffer buffer, int start, int end)
+	{
+		int pos = start;
+		boolean negative = false;
+		byte sign = buffer.get(pos);
+		if (sign == '-' || sign == '+')
+		{
+			negative = sign == '-';
+			pos++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		boolean exact = true;
+		for (; pos < end; pos++)
+		{
+			byte b = buffer.get(pos);
+			if (b == '.' && fractionDigits < 0)
+			{
+				fractionDigits = 0;
+			}
+			else if (isDigit(b))
+			{
+				digits++;
+				if (fractionDigits >= 0)
+					fractionDigits++;
+				mantissa = mantissa * 10 + (b - '0');
+				if (mantissa >= MAX_EXACT_MANTISSA)
+					exact = false;
+			}
+			else
+			{
+				break;
+			}
+		}
+
+		if (digits == 0)
+			return Double.NaN;
+		if (pos < end)
+			return this.parseSlow(buffer, start, end);
+
+		fractionDigits = Math.max(fractionDigits, 0);
+		if (!exact || fractionDigits >= POWERS_OF_TEN.length)
+			return this.parseSlow(buffer, start, end);
+
+		double value = mantissa / POWERS_OF_TEN[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses the number with Double.parseDouble.
+	 * @param buffer - MappedByteBuffer holding the number
+	 * @param start - index of the first byte of the number
+	 * @param end - index after the last byte of the number
+	 * @return double of the number, or NaN if it is not a number
+	 */
+	private double parseSlow(MappedByteBuffer buffer, int start, int end)
+	{
+		int length = end - start;
+		if (length > this.scratch.length)
+			return Double.NaN;
+		for (int i = 0; i < length; i++)
+		{
+			this.scratch[i] = buffer.get(start + i);
+		}
+		try
+		{
+			return Double.parseDouble(new String(this.scratch, 0, length, StandardCharsets.US_ASCII));
+		}
+		catch (NumberFormatException ex)
+		{
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * @param buffer - MappedByteBuffer holding the line
+	 * @param pos - index to start from
+	 * @param end - index after the last byte of the line
+	 * @return int of the index of the next byte that is not a separator
+	 */
+	private static int skipSeparators(MappedByteBuffer buffer, int pos, int end)
+	{
+		while (pos < end && isSeparator(buffer.get(pos))) pos++;
+		return pos;
+	}
+
+	/**
+	 * @param b - byte to check
+	 * @return boolean true if the byte is a decimal digit
+	 */
+	private static boolean isDigit(byte b)
+	{
+		return b >= '0' && b <= '9';
+	}
+
+	/**
+	 * @param b - byte to check
+	 * @return boolean true if the byte separates fields
+	 */
+	private static boolean isSeparator(byte b)
+	{
+		return b == ',' || b == '\t' || b == ' ';
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+
+	/**
+	 * @return the number of workpieces waiting on a final weight
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * @return the position
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return the recordCount
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return the pairCount
+	 */
+	public long getPairCount() {
+		return pairCount;
+	}
+
+	/**
+	 * @return the malformedCount
+	 */
+	public long getMalformedCount() {
+		return malformedCount;
+	}
+
+	/**
+	 * @return the unmatchedCount
+	 */
+	public long getUnmatchedCount() {
+		return unmatchedCount;
+	}
+}
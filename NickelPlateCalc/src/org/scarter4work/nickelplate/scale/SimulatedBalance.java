@@ -0,0 +1,139 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes made up weight readings as a busy plating line would, for
+ * trying out a WeightPipeline and its backpressure without a balance.
+ * Several workpieces are on the line at once, so start and final weights of
+ * different workpieces are interleaved.  Each start weight is within 5% of
+ * the nominal weight and each workpiece gains within 10% of the nominal gain.
+ * <p>
+ * Readings are submitted from the thread calling run, which blocks whenever
+ * the pipeline's first buffer is full; those waits are counted as stalls.
+ */
+public class SimulatedBalance extends SubmissionPublisher<WeightReading>
+{
+	/** nominal start weight */
+	private final double nominalWeight;
+
+	/** nominal weight gained in plating */
+	private final double nominalGain;
+
+	/** source of the weights */
+	private final SplittableRandom random;
+
+	/** number of readings published */
+	private volatile long readingCount;
+
+	/** number of readings that had to wait for room in the buffer */
+	private volatile long stallCount;
+
+	/**
+	 * @param executor - Executor delivering the readings, such as WeightPipeline.getExecutor()
+	 * @param bufferCapacity - int of the readings buffered for each subscriber
+	 * @param nominalWeight - double of the nominal start weight
+	 * @param nominalGain - double of the nominal weight gained in plating
+	 * @param seed - long seeding the weights, so a run can be repeated
+	 */
+	public SimulatedBalance(Executor executor, int bufferCapacity, double nominalWeight, double nominalGain, long seed)
+	{
+		super(executor, bufferCapacity);
+		this.nominalWeight = nominalWeight;
+		this.nominalGain = nominalGain;
+		this.random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * Publishes a start and a final weight for each workpiece, numbered from
+	 * 1, then closes.  Workpiece n's final weight follows workpiece
+	 * n + open - 1's start weight.
+	 * @param pieces - long of the workpieces to weigh
+	 * @param open - int of the workpieces on the line at once
+	 * @param eventsPerSecond - double of the readings to publish each second, 0 for as fast as the pipeline takes them
+	 * @return long of the readings published
+	 */
+	public long run(long pieces, int open, double eventsPerSecond)
+	{
+		if (open < 1)
+			throw new IllegalArgumentException("At least one workpiece must be on the line, not " + open);
+		double [] starts = new double[open];
+		long intervalNanos = eventsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / eventsPerSecond) : 0;
+		long next = System.nanoTime();
+		try
+		{
+			for (long id = 1; id <= pieces + open; id++)
+			{
+				if (id <= pieces)
+				{
+					double start = this.nominalWeight * (0.95 + 0.1 * this.random.nextDouble());
+					starts[(int) (id % open)] = start;
+					next = this.pace(next, intervalNanos);
+					this.publish(new WeightReading(id, WeightKindEnum.START, start, System.currentTimeMillis()));
+				}
+				long finished = id - open + 1;
+				if (finished >= 1 && finished <= pieces)
+				{
+					double gain = this.nominalGain * (0.9 + 0.2 * this.random.nextDouble());
+					next = this.pace(next, intervalNanos);
+					this.publish(new WeightReading(finished, WeightKindEnum.FINAL,
+							starts[(int) (finished % open)] + gain, System.currentTimeMillis()));
+				}
+			}
+		}
+		finally
+		{
+			this.close();
+		}
+		return this.readingCount;
+	}
+
+	/**
+	 * Submits the reading, counting a stall when the buffer is already full.
+	 * @param reading - WeightReading to publish
+	 */
+	private void publish(WeightReading reading)
+	{
+		if (this.estimateMaximumLag() >= this.getMaxBufferCapacity())
+			this.stallCount++;
+		this.submit(reading);
+		this.readingCount++;
+	}
+
+	/**
+	 * Waits until the next reading is due.
+	 * @param next - long of the nanoTime the next reading is due
+	 * @param intervalNanos - long of the nanoseconds between readings, 0 for no pacing
+	 * @return long of the nanoTime the reading after is due
+	 */
+	private long pace(long next, long intervalNanos)
+	{
+		if (intervalNanos == 0)
+			return next;
+		long wait = next - System.nanoTime();
+		if (wait > 0)
+			LockSupport.parkNanos(wait);
+		return next + intervalNanos;
+	}
+
+	/**
+	 * @return the readingCount
+	 */
+	public long getReadingCount() {
+		return readingCount;
+	}
+
+	/**
+	 * @return the stallCount
+	 */
+	public long getStallCount() {
+		return stallCount;
+	}
+}
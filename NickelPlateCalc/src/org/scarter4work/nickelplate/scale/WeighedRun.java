@@ -0,0 +1,61 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Calculated plating run of a workpiece whose weights came from a balance.
+ */
+public final class WeighedRun
+{
+	/** id of the workpiece */
+	private final long workpieceId;
+	/** time of the final weight, epoch milliseconds */
+	private final long timestamp;
+	/** calculated values */
+	private final PlatingResult result;
+
+	/**
+	 * @param workpieceId - id of the workpiece
+	 * @param timestamp - long of the time of the final weight in epoch milliseconds
+	 * @param result - PlatingResult of the run
+	 */
+	public WeighedRun(long workpieceId, long timestamp, PlatingResult result)
+	{
+		super();
+		this.workpieceId = workpieceId;
+		this.timestamp = timestamp;
+		this.result = result;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "WeighedRun [workpieceId=" + workpieceId + ", timestamp=" + timestamp + ", result=" + result + "]";
+	}
+
+	/**
+	 * @return the workpieceId
+	 */
+	public long getWorkpieceId() {
+		return workpieceId;
+	}
+
+	/**
+	 * @return the timestamp
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return the result
+	 */
+	public PlatingResult getResult() {
+		return result;
+	}
+}
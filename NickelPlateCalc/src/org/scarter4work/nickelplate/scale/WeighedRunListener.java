@@ -0,0 +1,23 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.io.IOException;
+
+/**
+ * Receives the runs calculated by a WeightPipeline, for example to show,
+ * journal or chart them.
+ */
+public interface WeighedRunListener
+{
+	/**
+	 * Called for each run, in the order the final weights arrived.  The
+	 * pipeline does not pass on more runs than the listener has finished
+	 * with plus its buffer, so a slow listener slows the balances rather
+	 * than piling up runs.
+	 * @param run - WeighedRun calculated
+	 * @throws IOException if the run cannot be handled, which stops this listener
+	 */
+	void onRun(WeighedRun run) throws IOException;
+}
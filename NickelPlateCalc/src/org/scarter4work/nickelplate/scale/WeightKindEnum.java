@@ -0,0 +1,46 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+/**
+ * Whether a balance reading was taken before or after plating.
+ */
+public enum WeightKindEnum
+{
+	START("S"),
+	FINAL("F");
+
+	/** code used in the weight log and balance streams */
+	private String code;
+
+	/** default constructor */
+	private WeightKindEnum(String code)
+	{
+		this.code = code;
+	}
+
+	/**
+	 * @param text - String of a kind, S or START for a start weight, F or FINAL for a final weight
+	 * @return WeightKindEnum of the kind, or null if it is neither
+	 */
+	public static WeightKindEnum getByCode(String text)
+	{
+		if (text.isEmpty())
+			return null;
+		char first = Character.toUpperCase(text.charAt(0));
+		for (WeightKindEnum kind : values())
+		{
+			if (kind.code.charAt(0) == first)
+				return kind;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the code
+	 */
+	public String getCode() {
+		return code;
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+/**
+ * Start and final weights of one workpiece, paired by WeightPairingProcessor.
+ */
+public final class WeightPair
+{
+	/** id of the workpiece */
+	private final long workpieceId;
+	/** weight before plating */
+	private final double startWeight;
+	/** weight after plating */
+	private final double finalWeight;
+	/** time of the final weight, epoch milliseconds */
+	private final long timestamp;
+
+	/**
+	 * @param workpieceId - id of the workpiece
+	 * @param startWeight - weight before plating
+	 * @param finalWeight - weight after plating
+	 * @param timestamp - long of the time of the final weight in epoch milliseconds
+	 */
+	public WeightPair(long workpieceId, double startWeight, double finalWeight, long timestamp)
+	{
+		super();
+		this.workpieceId = workpieceId;
+		this.startWeight = startWeight;
+		this.finalWeight = finalWeight;
+		this.timestamp = timestamp;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "WeightPair [workpieceId=" + workpieceId + ", startWeight=" + startWeight + ", finalWeight="
+				+ finalWeight + ", timestamp=" + timestamp + "]";
+	}
+
+	/**
+	 * @return the workpieceId
+	 */
+	public long getWorkpieceId() {
+		return workpieceId;
+	}
+
+	/**
+	 * @return the startWeight
+	 */
+	public double getStartWeight() {
+		return startWeight;
+	}
+
+	/**
+	 * @return the finalWeight
+	 */
+	public double getFinalWeight() {
+		return finalWeight;
+	}
+
+	/**
+	 * @return the timestamp
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongFunction;
+
+import org.scarter4work.nickelplate.calc.GeometryResult;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+import org.scarter4work.nickelplate.metrics.CalculationMetrics;
+import org.scarter4work.nickelplate.metrics.StageEnum;
+
+/**
+ * Calculates the plating run of each weight pair as it is found and hands
+ * it to the listeners, on the thread that found it.  This is the
+ * synchronous counterpart of a WeightPipeline's PlatingRunProcessor, for
+ * readers such as ScaleLogReader that produce pairs themselves.  The
+ * geometry of each workpiece is looked up by its id; pairs whose geometry
+ * is unknown are counted and skipped.
+ * <p>
+ * WeightPairListener cannot throw checked exceptions, so an IOException
+ * from a listener is passed up wrapped in an UncheckedIOException.
+ */
+public class WeightPairCalculator implements WeightPairListener
+{
+	/** geometry by workpiece id, null when unknown */
+	private final LongFunction<GeometryResult> geometry;
+
+	/** listeners receiving the runs */
+	private final List<WeighedRunListener> listeners = new CopyOnWriteArrayList<>();
+
+	/** number of runs calculated */
+	private long runCount;
+
+	/** number of pairs skipped because their geometry was unknown */
+	private long unknownGeometryCount;
+
+	/**
+	 * @param geometry - LongFunction giving the GeometryResult of a workpiece id, or null when unknown
+	 */
+	public WeightPairCalculator(LongFunction<GeometryResult> geometry)
+	{
+		super();
+		this.geometry = geometry;
+	}
+
+	/**
+	 * Adds a listener for the calculated runs.
+	 * @param listener - WeighedRunListener to receive each run
+	 */
+	public void addListener(WeighedRunListener listener)
+	{
+		this.listeners.add(listener);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.scale.WeightPairListener#onWeights(long, double, double)
+	 */
+	@Override
+	public void onWeights(long workpieceId, double startWeight, double finalWeight)
+	{
+		GeometryResult known = this.geometry.apply(workpieceId);
+		if (known == null)
+		{
+			this.unknownGeometryCount++;
+			return;
+		}
+
+		long start = CalculationMetrics.startStage();
+		PlatingResult result = PlatingMath.calculate(known, startWeight, finalWeight);
+		CalculationMetrics.endStage(StageEnum.CALCULATE, start);
+		CalculationMetrics.recordResult(result.isInSpecification());
+		this.runCount++;
+
+		WeighedRun run = new WeighedRun(workpieceId, System.currentTimeMillis(), result);
+		try
+		{
+			for (WeighedRunListener listener : this.listeners)
+			{
+				listener.onRun(run);
+			}
+		}
+		catch (IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * @return the runCount
+	 */
+	public long getRunCount() {
+		return runCount;
+	}
+
+	/**
+	 * @return the unknownGeometryCount
+	 */
+	public long getUnknownGeometryCount() {
+		return unknownGeometryCount;
+	}
+}
@@ -0,0 +1,18 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+/**
+ * Receives a start and final weight once both have been logged for a workpiece.
+ */
+public interface WeightPairListener
+{
+	/**
+	 * Called for each workpiece whose final weight follows its start weight.
+	 * @param workpieceId - id of the workpiece on the balance
+	 * @param startWeight - weight before plating
+	 * @param finalWeight - weight after plating
+	 */
+	void onWeights(long workpieceId, double startWeight, double finalWeight);
+}
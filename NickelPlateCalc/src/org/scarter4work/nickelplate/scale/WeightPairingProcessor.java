@@ -0,0 +1,112 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Pipeline stage pairing each workpiece's start and final weights.  Start
+ * weights wait in a primitive map until the final weight arrives, so pairing
+ * does not box.  The map is capped: a start weight arriving while the cap's
+ * worth of workpieces are already waiting is dropped and counted rather than
+ * letting forgotten workpieces grow the map without end.
+ */
+public class WeightPairingProcessor extends PipelineStage<WeightReading, WeightPair>
+{
+	/** start weights waiting on a final weight */
+	private final PendingWeights pending = new PendingWeights();
+
+	/** most workpieces waiting on a final weight */
+	private final int maxPending;
+
+	/** number of pairs passed on, written only by the stage's delivery thread */
+	private volatile long pairCount;
+
+	/** number of final weights with no start weight */
+	private volatile long unmatchedCount;
+
+	/** number of start weights dropped because too many were waiting */
+	private volatile long droppedCount;
+
+	/** number of workpieces waiting on a final weight */
+	private volatile int pendingCount;
+
+	/**
+	 * @param executor - Executor delivering to this stage's subscribers
+	 * @param bufferCapacity - int of the pairs buffered for each subscriber
+	 * @param maxPending - int of the most workpieces waiting on a final weight
+	 */
+	public WeightPairingProcessor(Executor executor, int bufferCapacity, int maxPending)
+	{
+		super(executor, bufferCapacity);
+		if (maxPending < 1)
+			throw new IllegalArgumentException("The pending limit must be at least 1, not " + maxPending);
+		this.maxPending = maxPending;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.scale.PipelineStage#process(java.lang.Object)
+	 */
+	@Override
+	protected WeightPair process(WeightReading reading)
+	{
+		long id = reading.getWorkpieceId();
+		if (reading.getKind() == WeightKindEnum.START)
+		{
+			// a repeated start weight replaces the earlier one, so only new ids are refused
+			double earlier = this.pending.remove(id);
+			if (Double.isNaN(earlier) && this.pending.size() >= this.maxPending)
+				this.droppedCount++;
+			else
+				this.pending.put(id, reading.getWeight());
+			this.pendingCount = this.pending.size();
+			return null;
+		}
+
+		double start = this.pending.remove(id);
+		this.pendingCount = this.pending.size();
+		if (Double.isNaN(start))
+		{
+			this.unmatchedCount++;
+			return null;
+		}
+		this.pairCount++;
+		return new WeightPair(id, start, reading.getWeight(), reading.getTimestamp());
+	}
+
+	/**
+	 * @return the maxPending
+	 */
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	/**
+	 * @return the pairCount
+	 */
+	public long getPairCount() {
+		return pairCount;
+	}
+
+	/**
+	 * @return the unmatchedCount
+	 */
+	public long getUnmatchedCount() {
+		return unmatchedCount;
+	}
+
+	/**
+	 * @return the droppedCount
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @return the pendingCount
+	 */
+	public int getPendingCount() {
+		return pendingCount;
+	}
+}
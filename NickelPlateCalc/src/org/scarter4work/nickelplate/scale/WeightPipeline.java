@@ -0,0 +1,229 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.function.LongFunction;
+
+import org.scarter4work.nickelplate.calc.GeometryResult;
+
+/**
+ * Reactive pipeline from the balances to the calculator, built on
+ * java.util.concurrent.Flow.  Weight readings from a publisher, such as a
+ * BalanceStreamPublisher or SimulatedBalance, are paired by workpiece, each
+ * pair is calculated and each run is handed to every listener, for example
+ * one showing the results, one journaling them and one feeding SPC:
+ * <pre>
+ * try (WeightPipeline pipeline = new WeightPipeline(id -&gt; geometry))
+ * {
+ *     pipeline.addListener(run -&gt; output.println(run.getResult()));
+ *     pipeline.addListener(run -&gt; spc.record(part, tank, run.getResult()));
+ *     pipeline.start(balance);
+ *     balance.run(pieces, open, 0);
+ *     pipeline.await();
+ * }
+ * </pre>
+ * Every stage buffers at most the buffer capacity of items per subscriber and
+ * only asks for more as it passes items on, so when any listener falls behind
+ * the stages in front of it block in turn until the publisher does, and
+ * memory stays bounded however fast the balances report.  Workpieces waiting
+ * on a final weight are capped as well.
+ */
+public class WeightPipeline implements AutoCloseable
+{
+	/** default number of items buffered for each subscriber of each stage */
+	public static final int DEFAULT_BUFFER_CAPACITY = 256;
+
+	/** default most workpieces waiting on a final weight */
+	public static final int DEFAULT_MAX_PENDING = 65536;
+
+	/** threads delivering items between the stages */
+	private final ExecutorService executor;
+
+	/** number of items buffered for each subscriber of each stage */
+	private final int bufferCapacity;
+
+	/** stage pairing start and final weights */
+	private final WeightPairingProcessor pairing;
+
+	/** stage calculating the runs */
+	private final PlatingRunProcessor plating;
+
+	/** subscribers handing the runs to the listeners */
+	private final List<RunSubscriber> subscribers = new ArrayList<>();
+
+	/** true once a publisher has been connected */
+	private boolean started;
+
+	/**
+	 * Creates a pipeline with the default buffer capacity and pending limit.
+	 * @param geometry - LongFunction giving the GeometryResult of a workpiece id, or null when unknown
+	 */
+	public WeightPipeline(LongFunction<GeometryResult> geometry)
+	{
+		this(geometry, DEFAULT_BUFFER_CAPACITY, DEFAULT_MAX_PENDING);
+	}
+
+	/**
+	 * Creates a pipeline.
+	 * @param geometry - LongFunction giving the GeometryResult of a workpiece id, or null when unknown
+	 * @param bufferCapacity - int of the items buffered for each subscriber of each stage
+	 * @param maxPending - int of the most workpieces waiting on a final weight
+	 */
+	public WeightPipeline(LongFunction<GeometryResult> geometry, int bufferCapacity, int maxPending)
+	{
+		super();
+		if (bufferCapacity < 1)
+			throw new IllegalArgumentException("The buffer capacity must be at least 1, not " + bufferCapacity);
+		this.bufferCapacity = bufferCapacity;
+		this.executor = Executors.newCachedThreadPool(task -> {
+			Thread thread = new Thread(task, "nickelplate-weight-pipeline");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.pairing = new WeightPairingProcessor(this.executor, bufferCapacity, maxPending);
+		this.plating = new PlatingRunProcessor(this.executor, bufferCapacity, geometry);
+	}
+
+	/**
+	 * Adds a listener told of every run.  Listeners must be added before the
+	 * pipeline is started.
+	 * @param listener - WeighedRunListener to add
+	 */
+	public synchronized void addListener(WeighedRunListener listener)
+	{
+		if (this.started)
+			throw new IllegalStateException("Listeners must be added before the pipeline is started.");
+		this.subscribers.add(new RunSubscriber(listener, this.bufferCapacity));
+	}
+
+	/**
+	 * Connects the stages, from the listeners back to the publisher, so no
+	 * reading is published before every stage is ready for it.
+	 * @param source - Flow.Publisher of the weight readings
+	 */
+	public synchronized void start(Flow.Publisher<WeightReading> source)
+	{
+		if (this.started)
+			throw new IllegalStateException("The pipeline has already been started.");
+		if (this.subscribers.isEmpty())
+			throw new IllegalStateException("The pipeline has no listeners.");
+		this.started = true;
+		for (RunSubscriber subscriber : this.subscribers)
+		{
+			this.plating.subscribe(subscriber);
+		}
+		this.pairing.subscribe(this.plating);
+		source.subscribe(this.pairing);
+	}
+
+	/**
+	 * Waits for the publisher to finish and every listener to be told of
+	 * every run.
+	 * @return long of the number of runs calculated
+	 * @throws IOException if the publisher or a listener failed, after the other listeners finish
+	 * @throws InterruptedException
+	 */
+	public long await() throws IOException, InterruptedException
+	{
+		Throwable failure = null;
+		for (RunSubscriber subscriber : this.subscribers)
+		{
+			try
+			{
+				subscriber.getDone().get();
+			}
+			catch (ExecutionException ex)
+			{
+				if (failure == null)
+					failure = ex.getCause();
+			}
+		}
+		if (failure instanceof IOException)
+			throw (IOException) failure;
+		if (failure != null)
+			throw new IOException("Weight pipeline failed: " + failure.getMessage(), failure);
+		return this.plating.getRunCount();
+	}
+
+	/**
+	 * Stops the delivery threads.  Readings still in the pipeline are lost.
+	 */
+	@Override
+	public void close()
+	{
+		this.pairing.close();
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * @return Executor the stages deliver on, which publishers may share
+	 */
+	public Executor getExecutor()
+	{
+		return this.executor;
+	}
+
+	/**
+	 * @return long of the weight pairs made
+	 */
+	public long getPairCount()
+	{
+		return this.pairing.getPairCount();
+	}
+
+	/**
+	 * @return long of the final weights that had no start weight
+	 */
+	public long getUnmatchedCount()
+	{
+		return this.pairing.getUnmatchedCount();
+	}
+
+	/**
+	 * @return long of the start weights dropped because too many workpieces were waiting
+	 */
+	public long getDroppedCount()
+	{
+		return this.pairing.getDroppedCount();
+	}
+
+	/**
+	 * @return int of the workpieces waiting on a final weight
+	 */
+	public int getPendingCount()
+	{
+		return this.pairing.getPendingCount();
+	}
+
+	/**
+	 * @return long of the runs calculated
+	 */
+	public long getRunCount()
+	{
+		return this.plating.getRunCount();
+	}
+
+	/**
+	 * @return long of the pairs skipped because their geometry was unknown
+	 */
+	public long getUnknownGeometryCount()
+	{
+		return this.plating.getUnknownGeometryCount();
+	}
+
+	/**
+	 * @return the bufferCapacity
+	 */
+	public int getBufferCapacity() {
+		return bufferCapacity;
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+/**
+ * One weight reported by a balance.
+ */
+public final class WeightReading
+{
+	/** id of the workpiece on the balance */
+	private final long workpieceId;
+	/** start or final weight */
+	private final WeightKindEnum kind;
+	/** weight read */
+	private final double weight;
+	/** time of the reading, epoch milliseconds */
+	private final long timestamp;
+
+	/**
+	 * @param workpieceId - id of the workpiece on the balance
+	 * @param kind - WeightKindEnum of the reading
+	 * @param weight - weight read
+	 * @param timestamp - long of the time of the reading in epoch milliseconds
+	 */
+	public WeightReading(long workpieceId, WeightKindEnum kind, double weight, long timestamp)
+	{
+		super();
+		this.workpieceId = workpieceId;
+		this.kind = kind;
+		this.weight = weight;
+		this.timestamp = timestamp;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "WeightReading [workpieceId=" + workpieceId + ", kind=" + kind + ", weight=" + weight
+				+ ", timestamp=" + timestamp + "]";
+	}
+
+	/**
+	 * @return the workpieceId
+	 */
+	public long getWorkpieceId() {
+		return workpieceId;
+	}
+
+	/**
+	 * @return the kind
+	 */
+	public WeightKindEnum getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the weight
+	 */
+	public double getWeight() {
+		return weight;
+	}
+
+	/**
+	 * @return the timestamp
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+}
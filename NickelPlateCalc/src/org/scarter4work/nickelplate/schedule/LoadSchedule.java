@@ -0,0 +1,225 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.schedule;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * A plan for one shift: the tank and start minute of every load that fits,
+ * in the order the loads were given.  Loads that do not fit are left for a
+ * later shift.
+ */
+public final class LoadSchedule
+{
+	/** column header of the written plan */
+	public static final String HEADER = "loadId,tankId,rectifierId,startMinute,endMinute,amps,ampHours";
+
+	/** loads in the order given */
+	private final List<PlatingLoad> loads;
+	/** tanks in the order given */
+	private final List<PlatingTank> tanks;
+	/** tank index by load, -1 when left out */
+	private final int [] assignedTank;
+	/** start minute by load */
+	private final int [] startMinute;
+	/** length of the shift in minutes */
+	private final int shiftMinutes;
+	/** plans evaluated by the search */
+	private final long evaluations;
+	/** time the search took in nanoseconds */
+	private final long elapsedNanos;
+
+	/**
+	 * @param loads - List of the loads in the order given
+	 * @param tanks - List of the tanks in the order given
+	 * @param assignedTank - int [] of tank index by load, -1 when left out
+	 * @param startMinute - int [] of start minute by load
+	 * @param shiftMinutes - length of the shift in minutes
+	 * @param evaluations - plans evaluated by the search
+	 * @param elapsedNanos - time the search took in nanoseconds
+	 */
+	LoadSchedule(List<PlatingLoad> loads, List<PlatingTank> tanks, int [] assignedTank, int [] startMinute,
+			int shiftMinutes, long evaluations, long elapsedNanos)
+	{
+		super();
+		this.loads = loads;
+		this.tanks = tanks;
+		this.assignedTank = assignedTank;
+		this.startMinute = startMinute;
+		this.shiftMinutes = shiftMinutes;
+		this.evaluations = evaluations;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @param index - int of the load's position in the list given
+	 * @return boolean true if the load is planned for this shift
+	 */
+	public boolean isScheduled(int index)
+	{
+		return this.assignedTank[index] >= 0;
+	}
+
+	/**
+	 * @param index - int of the load's position in the list given
+	 * @return PlatingTank the load is planned in, null if it is left out
+	 */
+	public PlatingTank getTank(int index)
+	{
+		int tank = this.assignedTank[index];
+		return tank < 0 ? null : this.tanks.get(tank);
+	}
+
+	/**
+	 * @param index - int of the load's position in the list given
+	 * @return int of the minute of the shift the load starts, -1 if it is left out
+	 */
+	public int getStartMinute(int index)
+	{
+		return this.isScheduled(index) ? this.startMinute[index] : -1;
+	}
+
+	/**
+	 * @param index - int of the load's position in the list given
+	 * @return int of the minute of the shift the load finishes, -1 if it is left out
+	 */
+	public int getEndMinute(int index)
+	{
+		return this.isScheduled(index) ? this.startMinute[index] + this.loads.get(index).getMinutes() : -1;
+	}
+
+	/**
+	 * @return int of the number of loads planned
+	 */
+	public int getScheduledCount()
+	{
+		int count = 0;
+		for (int tank : this.assignedTank)
+		{
+			if (tank >= 0)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return double of the amp hours of the loads planned
+	 */
+	public double getScheduledAmpHours()
+	{
+		double ampHours = 0;
+		for (int i = 0; i < this.assignedTank.length; i++)
+		{
+			if (this.assignedTank[i] >= 0)
+				ampHours += this.loads.get(i).getTotalAmpHours();
+		}
+		return ampHours;
+	}
+
+	/**
+	 * @return int of the minute the last planned load finishes
+	 */
+	public int getMakespanMinutes()
+	{
+		int makespan = 0;
+		for (int i = 0; i < this.assignedTank.length; i++)
+		{
+			makespan = Math.max(makespan, this.getEndMinute(i));
+		}
+		return makespan;
+	}
+
+	/**
+	 * Finds the most current the rectifier carries at any minute of the plan.
+	 * @param rectifierId - int of the rectifier
+	 * @return double of the peak amps
+	 */
+	public double getPeakAmps(int rectifierId)
+	{
+		double [] amps = new double[this.shiftMinutes];
+		double peak = 0;
+		for (int i = 0; i < this.assignedTank.length; i++)
+		{
+			PlatingTank tank = this.getTank(i);
+			if (tank == null || tank.getRectifierId() != rectifierId)
+				continue;
+			double loadAmps = this.loads.get(i).getTotalAmps();
+			for (int minute = this.startMinute[i]; minute < this.getEndMinute(i); minute++)
+			{
+				amps[minute] += loadAmps;
+				peak = Math.max(peak, amps[minute]);
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * Writes one line per load in the order given, with the tank and times
+	 * left empty for a load that is not planned.
+	 * @param writer - Writer to write to
+	 * @throws IOException
+	 */
+	public void write(Writer writer) throws IOException
+	{
+		String separator = System.lineSeparator();
+		StringBuilder line = new StringBuilder(96);
+		writer.write(HEADER);
+		writer.write(separator);
+		for (int i = 0; i < this.assignedTank.length; i++)
+		{
+			PlatingLoad load = this.loads.get(i);
+			PlatingTank tank = this.getTank(i);
+			line.setLength(0);
+			line.append(load.getLoadId()).append(',');
+			if (tank != null)
+			{
+				line.append(tank.getTankId()).append(',').append(tank.getRectifierId()).append(',')
+						.append(this.getStartMinute(i)).append(',').append(this.getEndMinute(i));
+			}
+			else
+			{
+				line.append(",,,");
+			}
+			line.append(',').append(load.getTotalAmps()).append(',').append(load.getTotalAmpHours());
+			writer.append(line).write(separator);
+		}
+	}
+
+	/**
+	 * @return the loads
+	 */
+	public List<PlatingLoad> getLoads() {
+		return loads;
+	}
+
+	/**
+	 * @return the tanks
+	 */
+	public List<PlatingTank> getTanks() {
+		return tanks;
+	}
+
+	/**
+	 * @return the shiftMinutes
+	 */
+	public int getShiftMinutes() {
+		return shiftMinutes;
+	}
+
+	/**
+	 * @return the evaluations
+	 */
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * @return the elapsedNanos
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+}
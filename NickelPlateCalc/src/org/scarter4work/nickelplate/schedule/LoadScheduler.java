@@ -0,0 +1,378 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.schedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Packs a queue of loads into tanks and start times for one shift, planning
+ * as many amp hours of plating as possible, which is in proportion to the
+ * surface area plated, without any rectifier carrying more than its maximum
+ * current.  A plan is found by local search over the order the
+ * loads are handed to ScheduleDecoder: two loads are swapped, or a load is
+ * moved ahead of another, and the change is kept unless it makes the plan
+ * worse.  Several searches run from different starting orders on a fork
+ * join pool until the time limit, and the best plan wins.
+ * <p>
+ * The first search starts from the loads heaviest current first, which on
+ * its own is a reasonable plan, so even a very short time limit returns something
+ * useful.  With a fixed seed and an iteration limit in place of a time limit
+ * the result is repeatable.
+ */
+public class LoadScheduler
+{
+	/** default length of a shift in minutes */
+	public static final int DEFAULT_SHIFT_MINUTES = 480;
+
+	/** default time the search may take in milliseconds */
+	public static final long DEFAULT_TIME_LIMIT_MILLIS = 500;
+
+	/** default number of changes tried by each search */
+	public static final long DEFAULT_MAX_ITERATIONS = 1_000_000;
+
+	/** length of the shift in minutes */
+	private final int shiftMinutes;
+
+	/** number of worker threads */
+	private final int parallelism;
+
+	/** number of searches, each from its own starting order */
+	private int starts;
+
+	/** time the search may take in milliseconds */
+	private long timeLimitMillis = DEFAULT_TIME_LIMIT_MILLIS;
+
+	/** number of changes tried by each search */
+	private long maxIterations = DEFAULT_MAX_ITERATIONS;
+
+	/** seed of the random changes */
+	private long seed = 1;
+
+	/**
+	 * Creates a scheduler for a standard shift using every available core.
+	 */
+	public LoadScheduler()
+	{
+		this(DEFAULT_SHIFT_MINUTES, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a scheduler running one search per worker thread.
+	 * @param shiftMinutes - int of the length of the shift in minutes
+	 * @param parallelism - int of the number of worker threads
+	 */
+	public LoadScheduler(int shiftMinutes, int parallelism)
+	{
+		super();
+		if (shiftMinutes <= 0)
+			throw new IllegalArgumentException("Shift minutes must be positive: " + shiftMinutes);
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		this.shiftMinutes = shiftMinutes;
+		this.parallelism = parallelism;
+		this.starts = parallelism;
+	}
+
+	/**
+	 * Plans the loads into the tanks.
+	 * @param loads - List of the loads waiting to be plated
+	 * @param tanks - List of the tanks available
+	 * @return LoadSchedule of the best plan found
+	 * @throws IllegalArgumentException if there are no tanks or two tanks
+	 * give the same rectifier different maximum currents
+	 */
+	public LoadSchedule schedule(List<PlatingLoad> loads, List<PlatingTank> tanks)
+	{
+		if (tanks.isEmpty())
+			throw new IllegalArgumentException("There are no tanks to schedule into.");
+		long start = System.nanoTime();
+		long deadline = start + this.timeLimitMillis * 1_000_000L;
+
+		// flatten the loads and tanks into arrays for the decoder
+		int [] loadMinutes = new int[loads.size()];
+		double [] loadAmps = new double[loads.size()];
+		double [] loadAmpHours = new double[loads.size()];
+		for (int i = 0; i < loadMinutes.length; i++)
+		{
+			loadMinutes[i] = loads.get(i).getMinutes();
+			loadAmps[i] = loads.get(i).getTotalAmps();
+			loadAmpHours[i] = loads.get(i).getTotalAmpHours();
+		}
+		Map<Integer, Integer> rectifierIndex = new HashMap<>();
+		List<Double> maxAmps = new ArrayList<>();
+		int [] tankRectifier = new int[tanks.size()];
+		for (int i = 0; i < tankRectifier.length; i++)
+		{
+			PlatingTank tank = tanks.get(i);
+			Integer index = rectifierIndex.get(tank.getRectifierId());
+			if (index == null)
+			{
+				index = maxAmps.size();
+				rectifierIndex.put(tank.getRectifierId(), index);
+				maxAmps.add(tank.getRectifierMaxAmps());
+			}
+			else if (maxAmps.get(index) != tank.getRectifierMaxAmps())
+				throw new IllegalArgumentException("Rectifier " + tank.getRectifierId()
+						+ " is given two maximum currents.");
+			tankRectifier[i] = index;
+		}
+		double [] rectifierMaxAmps = new double[maxAmps.size()];
+		for (int i = 0; i < rectifierMaxAmps.length; i++)
+		{
+			rectifierMaxAmps[i] = maxAmps.get(i);
+		}
+
+		// heaviest current first, then the shortest
+		Integer [] sorted = new Integer[loadMinutes.length];
+		for (int i = 0; i < sorted.length; i++)
+		{
+			sorted[i] = i;
+		}
+		Arrays.sort(sorted, Comparator.<Integer>comparingDouble(i -> -loadAmps[i]).thenComparingInt(i -> loadMinutes[i]));
+		int [] initial = new int[sorted.length];
+		for (int i = 0; i < initial.length; i++)
+		{
+			initial[i] = sorted[i];
+		}
+
+		// run the searches
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		List<ForkJoinTask<Search>> searches = new ArrayList<>(this.starts);
+		try
+		{
+			for (int i = 0; i < this.starts; i++)
+			{
+				int startIndex = i;
+				searches.add(pool.submit(() -> {
+					ScheduleDecoder decoder = new ScheduleDecoder(this.shiftMinutes, loadMinutes, loadAmps,
+							loadAmpHours, tankRectifier, rectifierMaxAmps);
+					return this.search(decoder, initial, startIndex, deadline);
+				}));
+			}
+
+			Search best = null;
+			long evaluations = 0;
+			for (ForkJoinTask<Search> task : searches)
+			{
+				Search search = task.get();
+				evaluations += search.evaluations;
+				if (best == null || search.score > best.score)
+					best = search;
+			}
+
+			ScheduleDecoder decoder = new ScheduleDecoder(this.shiftMinutes, loadMinutes, loadAmps,
+					loadAmpHours, tankRectifier, rectifierMaxAmps);
+			decoder.decode(best.order);
+			return new LoadSchedule(loads, tanks, decoder.getAssignedTank(), decoder.getStartMinute(),
+					this.shiftMinutes, evaluations + 1, System.nanoTime() - start);
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while scheduling.", ex);
+		}
+		catch (ExecutionException ex)
+		{
+			throw new RuntimeException("Scheduling failed.", ex.getCause());
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * One local search.  The first search starts from the heaviest first
+	 * order and the rest from a shuffled copy of it.
+	 * @param decoder - ScheduleDecoder owned by this search
+	 * @param initial - int [] of the heaviest first order
+	 * @param startIndex - int of the search's number
+	 * @param deadline - long nanoTime to stop by
+	 * @return Search of the best order found
+	 */
+	private Search search(ScheduleDecoder decoder, int [] initial, int startIndex, long deadline)
+	{
+		int count = initial.length;
+		int [] order = initial.clone();
+		Random random = new Random(this.seed + startIndex);
+		if (startIndex > 0)
+		{
+			for (int i = count - 1; i > 0; i--)
+			{
+				swap(order, i, random.nextInt(i + 1));
+			}
+		}
+
+		double score = decoder.decode(order);
+		long evaluations = 1;
+		int lastScheduled = decoder.getLastScheduledPosition();
+		if (count < 2)
+			return new Search(order, score, evaluations);
+
+		for (long iteration = 0; iteration < this.maxIterations; iteration++)
+		{
+			int first = random.nextInt(count);
+			int second = random.nextInt(count);
+			if (first == second || (first > lastScheduled && second > lastScheduled))
+				continue;
+			if (System.nanoTime() - deadline > 0)
+				break;
+
+			int from = Math.max(first, second);
+			int to = Math.min(first, second);
+			boolean insert = random.nextBoolean();
+			if (insert)
+				move(order, from, to);
+			else
+				swap(order, from, to);
+
+			double candidate = decoder.decode(order);
+			evaluations++;
+			if (candidate >= score)
+			{
+				score = candidate;
+				lastScheduled = decoder.getLastScheduledPosition();
+			}
+			else if (insert)
+				move(order, to, from);
+			else
+				swap(order, from, to);
+		}
+		return new Search(order, score, evaluations);
+	}
+
+	/**
+	 * @param order - int [] of load indexes
+	 * @param first - int of a position
+	 * @param second - int of a position
+	 */
+	private static void swap(int [] order, int first, int second)
+	{
+		int load = order[first];
+		order[first] = order[second];
+		order[second] = load;
+	}
+
+	/**
+	 * Moves the load at one position to another, shifting the loads between.
+	 * @param order - int [] of load indexes
+	 * @param from - int of the position to take the load from
+	 * @param to - int of the position to put it at
+	 */
+	private static void move(int [] order, int from, int to)
+	{
+		int load = order[from];
+		if (from > to)
+			System.arraycopy(order, to, order, to + 1, from - to);
+		else
+			System.arraycopy(order, from + 1, order, from, to - from);
+		order[to] = load;
+	}
+
+	/**
+	 * @return the shiftMinutes
+	 */
+	public int getShiftMinutes() {
+		return shiftMinutes;
+	}
+
+	/**
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @return the starts
+	 */
+	public int getStarts() {
+		return starts;
+	}
+
+	/**
+	 * @param starts the starts to set
+	 */
+	public void setStarts(int starts) {
+		if (starts <= 0)
+			throw new IllegalArgumentException("Starts must be positive: " + starts);
+		this.starts = starts;
+	}
+
+	/**
+	 * @return the timeLimitMillis
+	 */
+	public long getTimeLimitMillis() {
+		return timeLimitMillis;
+	}
+
+	/**
+	 * @param timeLimitMillis the timeLimitMillis to set
+	 */
+	public void setTimeLimitMillis(long timeLimitMillis) {
+		this.timeLimitMillis = timeLimitMillis;
+	}
+
+	/**
+	 * @return the maxIterations
+	 */
+	public long getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * @param maxIterations the maxIterations to set
+	 */
+	public void setMaxIterations(long maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed the seed to set
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Best order found by one search.
+	 */
+	private static final class Search
+	{
+		/** order of the loads */
+		private final int [] order;
+		/** score of the order */
+		private final double score;
+		/** plans evaluated */
+		private final long evaluations;
+
+		/**
+		 * @param order - int [] of the order of the loads
+		 * @param score - double score of the order
+		 * @param evaluations - long of the plans evaluated
+		 */
+		private Search(int [] order, double score, long evaluations)
+		{
+			this.order = order;
+			this.score = score;
+			this.evaluations = evaluations;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.schedule;
+
+import org.scarter4work.nickelplate.calc.PlatingMath;
+
+/**
+ * A load waiting to be plated, sized with the same current formulas as the
+ * calculator.  The plating time is the amp hours the load needs divided by
+ * the amps it is run at, rounded up to whole minutes.
+ */
+public final class PlatingLoad
+{
+	/** identifier of the load */
+	private final long loadId;
+	/** width of a work piece */
+	private final double width;
+	/** length of a work piece */
+	private final double length;
+	/** number of sides plated */
+	private final double nbrSidesPlated;
+	/** number of pieces in the load */
+	private final double nbrPieces;
+	/** 1 for coupons, 2 for panels */
+	private final double selection;
+	/** amps drawn while the load plates */
+	private final double totalAmps;
+	/** amp hours the load needs */
+	private final double totalAmpHours;
+	/** minutes the load spends in a tank */
+	private final int minutes;
+
+	/**
+	 * @param loadId - identifier of the load
+	 * @param width - width of a work piece
+	 * @param length - length of a work piece
+	 * @param nbrSidesPlated - number of sides plated
+	 * @param nbrPieces - number of pieces in the load
+	 * @param selection - 1 for coupons, 2 for panels
+	 * @throws IllegalArgumentException if the load would draw no current
+	 */
+	public PlatingLoad(long loadId, double width, double length, double nbrSidesPlated, double nbrPieces,
+			double selection)
+	{
+		super();
+		this.loadId = loadId;
+		this.width = width;
+		this.length = length;
+		this.nbrSidesPlated = nbrSidesPlated;
+		this.nbrPieces = nbrPieces;
+		this.selection = selection;
+
+		double surfaceArea = PlatingMath.surfaceArea(length, width, nbrSidesPlated);
+		this.totalAmps = PlatingMath.total(nbrPieces, PlatingMath.ampsUsed(surfaceArea, selection));
+		this.totalAmpHours = PlatingMath.total(nbrPieces, PlatingMath.ampHoursUsed(surfaceArea));
+		if (!(this.totalAmps > 0) || !(this.totalAmpHours > 0) || Double.isInfinite(this.totalAmps))
+			throw new IllegalArgumentException("Load " + loadId + " draws no current.");
+		this.minutes = (int) Math.ceil(this.totalAmpHours / this.totalAmps * PlatingMath.MIN_PER_HOUR);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "PlatingLoad [loadId=" + loadId + ", totalAmps=" + totalAmps + ", totalAmpHours="
+				+ totalAmpHours + ", minutes=" + minutes + "]";
+	}
+
+	/**
+	 * @return the loadId
+	 */
+	public long getLoadId() {
+		return loadId;
+	}
+
+	/**
+	 * @return the width
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the length
+	 */
+	public double getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the nbrSidesPlated
+	 */
+	public double getNbrSidesPlated() {
+		return nbrSidesPlated;
+	}
+
+	/**
+	 * @return the nbrPieces
+	 */
+	public double getNbrPieces() {
+		return nbrPieces;
+	}
+
+	/**
+	 * @return the selection
+	 */
+	public double getSelection() {
+		return selection;
+	}
+
+	/**
+	 * @return the totalAmps
+	 */
+	public double getTotalAmps() {
+		return totalAmps;
+	}
+
+	/**
+	 * @return the totalAmpHours
+	 */
+	public double getTotalAmpHours() {
+		return totalAmpHours;
+	}
+
+	/**
+	 * @return the minutes
+	 */
+	public int getMinutes() {
+		return minutes;
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.schedule;
+
+/**
+ * A plating tank and the rectifier that feeds it.  A tank plates one load at
+ * a time.  Several tanks may share a rectifier, in which case the loads
+ * plating in them at the same time must not draw more than the rectifier's
+ * maximum current between them.
+ */
+public final class PlatingTank
+{
+	/** identifier of the tank */
+	private final int tankId;
+	/** identifier of the rectifier feeding the tank */
+	private final int rectifierId;
+	/** maximum current of the rectifier */
+	private final double rectifierMaxAmps;
+
+	/**
+	 * @param tankId - identifier of the tank
+	 * @param rectifierId - identifier of the rectifier feeding the tank
+	 * @param rectifierMaxAmps - maximum current of the rectifier
+	 * @throws IllegalArgumentException if the maximum current is not positive
+	 */
+	public PlatingTank(int tankId, int rectifierId, double rectifierMaxAmps)
+	{
+		super();
+		if (!(rectifierMaxAmps > 0))
+			throw new IllegalArgumentException("Rectifier " + rectifierId + " maximum amps must be positive: "
+					+ rectifierMaxAmps);
+		this.tankId = tankId;
+		this.rectifierId = rectifierId;
+		this.rectifierMaxAmps = rectifierMaxAmps;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "PlatingTank [tankId=" + tankId + ", rectifierId=" + rectifierId + ", rectifierMaxAmps="
+				+ rectifierMaxAmps + "]";
+	}
+
+	/**
+	 * @return the tankId
+	 */
+	public int getTankId() {
+		return tankId;
+	}
+
+	/**
+	 * @return the rectifierId
+	 */
+	public int getRectifierId() {
+		return rectifierId;
+	}
+
+	/**
+	 * @return the rectifierMaxAmps
+	 */
+	public double getRectifierMaxAmps() {
+		return rectifierMaxAmps;
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.schedule;
+
+import java.util.Arrays;
+
+/**
+ * Turns a priority order of loads into a plan.  Each load in turn goes to the
+ * tank where it can start soonest after the tank's previous load, no earlier
+ * than the minute its rectifier has the current to spare for the whole run,
+ * and is left out if it cannot finish within the shift.  The current drawn
+ * from each rectifier is kept minute by minute.  One decoder belongs to one
+ * search thread and reuses its arrays for every order it decodes.
+ */
+final class ScheduleDecoder
+{
+	/** tolerance when comparing current against a rectifier's maximum */
+	private static final double AMPS_TOLERANCE = 1e-9;
+
+	/** amp hours a minute of finish time is worth, small enough to only break ties */
+	private static final double FINISH_WEIGHT = 1e-9;
+
+	/** length of the shift in minutes */
+	private final int shiftMinutes;
+	/** minutes by load */
+	private final int [] loadMinutes;
+	/** amps by load */
+	private final double [] loadAmps;
+	/** amp hours by load */
+	private final double [] loadAmpHours;
+	/** rectifier index by tank */
+	private final int [] tankRectifier;
+	/** maximum amps by rectifier index */
+	private final double [] rectifierMaxAmps;
+	/** shortest load in minutes */
+	private final int shortestMinutes;
+
+	/** first free minute by tank */
+	private final int [] tankFree;
+	/** amps in use by rectifier index and minute */
+	private final double [][] rectifierAmps;
+	/** tank index by load of the last decode, -1 when left out */
+	private final int [] assignedTank;
+	/** start minute by load of the last decode */
+	private final int [] startMinute;
+
+	/** loads planned by the last decode */
+	private int scheduledCount;
+	/** position in the order of the last load planned by the last decode */
+	private int lastScheduledPosition;
+
+	/**
+	 * @param shiftMinutes - length of the shift in minutes
+	 * @param loadMinutes - int [] of minutes by load
+	 * @param loadAmps - double [] of amps by load
+	 * @param loadAmpHours - double [] of amp hours by load
+	 * @param tankRectifier - int [] of rectifier index by tank
+	 * @param rectifierMaxAmps - double [] of maximum amps by rectifier index
+	 */
+	ScheduleDecoder(int shiftMinutes, int [] loadMinutes, double [] loadAmps, double [] loadAmpHours,
+			int [] tankRectifier, double [] rectifierMaxAmps)
+	{
+		super();
+		this.shiftMinutes = shiftMinutes;
+		this.loadMinutes = loadMinutes;
+		this.loadAmps = loadAmps;
+		this.loadAmpHours = loadAmpHours;
+		this.tankRectifier = tankRectifier;
+		this.rectifierMaxAmps = rectifierMaxAmps;
+		int shortest = Integer.MAX_VALUE;
+		for (int minutes : loadMinutes)
+		{
+			shortest = Math.min(shortest, minutes);
+		}
+		this.shortestMinutes = shortest;
+		this.tankFree = new int[tankRectifier.length];
+		this.rectifierAmps = new double[rectifierMaxAmps.length][shiftMinutes];
+		this.assignedTank = new int[loadMinutes.length];
+		this.startMinute = new int[loadMinutes.length];
+	}
+
+	/**
+	 * Plans the loads in the order given.
+	 * @param order - int [] of load indexes, highest priority first
+	 * @return double score of the plan, higher is better: the amp hours
+	 * planned, then the earliest total finish
+	 */
+	double decode(int [] order)
+	{
+		Arrays.fill(this.tankFree, 0);
+		for (double [] amps : this.rectifierAmps)
+		{
+			Arrays.fill(amps, 0);
+		}
+		Arrays.fill(this.assignedTank, -1);
+		this.scheduledCount = 0;
+		this.lastScheduledPosition = -1;
+		double ampHours = 0;
+		long totalFinish = 0;
+		int tankCount = this.tankFree.length;
+		int openTanks = tankCount;
+
+		for (int position = 0; position < order.length && openTanks > 0; position++)
+		{
+			int load = order[position];
+			int minutes = this.loadMinutes[load];
+			double amps = this.loadAmps[load];
+
+			int bestTank = -1;
+			int bestStart = this.shiftMinutes - minutes + 1;
+			for (int tank = 0; tank < tankCount; tank++)
+			{
+				int start = this.firstFit(this.tankRectifier[tank], this.tankFree[tank], minutes, amps, bestStart);
+				if (start >= 0)
+				{
+					bestTank = tank;
+					bestStart = start;
+				}
+			}
+			if (bestTank < 0)
+				continue;
+
+			int end = bestStart + minutes;
+			double [] rectifier = this.rectifierAmps[this.tankRectifier[bestTank]];
+			for (int minute = bestStart; minute < end; minute++)
+			{
+				rectifier[minute] += amps;
+			}
+			if (this.tankFree[bestTank] + this.shortestMinutes <= this.shiftMinutes
+					&& end + this.shortestMinutes > this.shiftMinutes)
+				openTanks--;
+			this.tankFree[bestTank] = end;
+			this.assignedTank[load] = bestTank;
+			this.startMinute[load] = bestStart;
+			this.scheduledCount++;
+			this.lastScheduledPosition = position;
+			ampHours += this.loadAmpHours[load];
+			totalFinish += end;
+		}
+
+		return ampHours - totalFinish * FINISH_WEIGHT;
+	}
+
+	/**
+	 * Finds the first minute from which the rectifier can carry the load for
+	 * its whole run.  The window is checked from its last minute back, so a
+	 * busy minute lets the search skip past everything before it.
+	 * @param rectifier - int of the rectifier index
+	 * @param from - int of the earliest start
+	 * @param minutes - int of the length of the run
+	 * @param amps - double of the current drawn
+	 * @param limit - int the start must be below
+	 * @return int of the start minute, -1 if there is none below the limit
+	 */
+	private int firstFit(int rectifier, int from, int minutes, double amps, int limit)
+	{
+		double available = this.rectifierMaxAmps[rectifier] + AMPS_TOLERANCE - amps;
+		if (available < 0)
+			return -1;
+		double [] inUse = this.rectifierAmps[rectifier];
+		int start = from;
+		search:
+		while (start < limit)
+		{
+			for (int minute = start + minutes - 1; minute >= start; minute--)
+			{
+				if (inUse[minute] > available)
+				{
+					start = minute + 1;
+					continue search;
+				}
+			}
+			return start;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return int [] of tank index by load of the last decode, -1 when left out
+	 */
+	int [] getAssignedTank()
+	{
+		return this.assignedTank;
+	}
+
+	/**
+	 * @return int [] of start minute by load of the last decode
+	 */
+	int [] getStartMinute()
+	{
+		return this.startMinute;
+	}
+
+	/**
+	 * @return int of the loads planned by the last decode
+	 */
+	int getScheduledCount()
+	{
+		return this.scheduledCount;
+	}
+
+	/**
+	 * @return int of the position in the order of the last load planned, -1 if none
+	 */
+	int getLastScheduledPosition()
+	{
+		return this.lastScheduledPosition;
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.schedule;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.scarter4work.nickelplate.batch.WorkOrderParser;
+
+/**
+ * Reads the load queue and tank list for the scheduler.  A load line holds
+ * width, length, number of sides, number of pieces and selection (1=coupon,
+ * 2=panel), and a tank line holds the tank id, rectifier id and rectifier
+ * maximum amps, separated by a comma or a tab.  Lines are parsed by the
+ * WorkOrderParser, so as with work orders blank lines, lines starting with
+ * '#' and a header ahead of the first record are skipped.  Loads are
+ * numbered from 1 in the order read.
+ */
+public class ScheduleFileReader
+{
+	/** number of fields in a load record */
+	public static final int LOAD_FIELD_COUNT = 5;
+
+	/** number of fields in a tank record */
+	public static final int TANK_FIELD_COUNT = 3;
+
+	/** default constructor */
+	public ScheduleFileReader()
+	{
+		super();
+	}
+
+	/**
+	 * @param input - Reader of the load records
+	 * @return List of the loads in the order read
+	 * @throws IOException
+	 * @throws IllegalArgumentException if a record is malformed
+	 */
+	public List<PlatingLoad> readLoads(Reader input) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(input);
+		WorkOrderParser parser = new WorkOrderParser();
+		List<PlatingLoad> loads = new ArrayList<>();
+		double [] fields = new double[LOAD_FIELD_COUNT];
+		String line;
+		while ((line = reader.readLine()) != null)
+		{
+			if (!parser.isLeadingHeader(line) && parser.parse(line, fields, LOAD_FIELD_COUNT))
+				loads.add(new PlatingLoad(loads.size() + 1, fields[0], fields[1], fields[2], fields[3], fields[4]));
+		}
+		return loads;
+	}
+
+	/**
+	 * @param input - Reader of the tank records
+	 * @return List of the tanks in the order read
+	 * @throws IOException
+	 * @throws IllegalArgumentException if a record is malformed
+	 */
+	public List<PlatingTank> readTanks(Reader input) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(input);
+		WorkOrderParser parser = new WorkOrderParser();
+		List<PlatingTank> tanks = new ArrayList<>();
+		double [] fields = new double[TANK_FIELD_COUNT];
+		String line;
+		while ((line = reader.readLine()) != null)
+		{
+			if (!parser.isLeadingHeader(line) && parser.parse(line, fields, TANK_FIELD_COUNT))
+				tanks.add(new PlatingTank((int) fields[0], (int) fields[1], fields[2]));
+		}
+		return tanks;
+	}
+}
@@ -0,0 +1,391 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.scarter4work.nickelplate.batch.WorkOrderParser;
+import org.scarter4work.nickelplate.calc.GeometryCache;
+import org.scarter4work.nickelplate.calc.GeometryResult;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+import org.scarter4work.nickelplate.history.RunHistoryWriter;
+import org.scarter4work.nickelplate.metrics.CalculationMetrics;
+import org.scarter4work.nickelplate.metrics.StageEnum;
+import org.scarter4work.nickelplate.prompter.ConsolePrompter;
+import org.scarter4work.nickelplate.totals.ShiftAccumulator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the plating calculations over HTTP so line terminals can share one
+ * instance instead of each running the console program.  Every request is
+ * computed with the stateless PlatingMath API and rendered with the shared
+ * prompter, neither of which hold mutable state, so requests run in parallel
+ * without locking.  Each request gets its own thread, a virtual thread when
+ * the JVM provides them.  An optional GeometryCache, itself thread safe,
+ * saves repeating the geometry of part numbers that come up again.
+ * <p>
+ * POST /calculate takes one work order object and returns one result.
+ * POST /calculate/bulk takes an array of work orders and returns an array of
+ * results in the same order.  GET /health returns a small status object,
+ * GET /metrics the stage latencies and specification counts and GET /shift
+ * the running totals of the open shift, when an optional ShiftAccumulator
+ * is set.  Requests add their runs to it from any number of threads.
+ */
+public class CalculationService
+{
+	/** default port */
+	public static final int DEFAULT_PORT = 8084;
+
+	/** JDK http server setting that turns off Nagle's algorithm on its sockets */
+	private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+	/** largest request body accepted */
+	private static final int MAX_BODY_SIZE = 16 * 1024 * 1024;
+
+	/** prompter used to render the output messages */
+	private final ConsolePrompter prompter;
+
+	/** address to listen on */
+	private final InetSocketAddress address;
+
+	/** cache of geometry results, null to calculate every request */
+	private GeometryCache geometryCache;
+
+	/** shift totals every run is added to, null when they are not kept */
+	private ShiftAccumulator shiftAccumulator;
+
+	/** http server */
+	private HttpServer server;
+
+	/** executor running the requests */
+	private ExecutorService executor;
+
+	/**
+	 * Creates the service listening on the loopback interface.
+	 * @param port - int of the port to listen on, 0 for any free port
+	 * @param prompter - ConsolePrompter to render the output messages with
+	 */
+	public CalculationService(int port, ConsolePrompter prompter)
+	{
+		this(new InetSocketAddress("127.0.0.1", port), prompter);
+	}
+
+	/**
+	 * Creates the service.
+	 * @param address - InetSocketAddress to listen on
+	 * @param prompter - ConsolePrompter to render the output messages with
+	 */
+	public CalculationService(InetSocketAddress address, ConsolePrompter prompter)
+	{
+		super();
+		this.address = address;
+		this.prompter = prompter;
+	}
+
+	/**
+	 * Binds the port and starts serving requests.
+	 * @throws IOException
+	 */
+	public synchronized void start() throws IOException
+	{
+		if (this.server != null)
+			throw new IllegalStateException("Service is already started.");
+
+		// small responses otherwise wait on delayed acks, about 40 ms each
+		if (System.getProperty(NODELAY_PROPERTY) == null)
+			System.setProperty(NODELAY_PROPERTY, "true");
+
+		this.executor = newRequestExecutor();
+		this.server = HttpServer.create(this.address, 0);
+		this.server.setExecutor(this.executor);
+		this.server.createContext("/calculate", this::handleCalculate);
+		this.server.createContext("/calculate/bulk", this::handleBulk);
+		this.server.createContext("/health", this::handleHealth);
+		this.server.createContext("/metrics", this::handleMetrics);
+		this.server.createContext("/shift", this::handleShift);
+		this.server.start();
+
+		// pick up text changes without a restart
+		this.prompter.startWatching();
+	}
+
+	/**
+	 * Stops accepting requests, waiting up to the delay for open exchanges to finish.
+	 * @param delaySeconds - int of the seconds to wait
+	 */
+	public synchronized void stop(int delaySeconds)
+	{
+		if (this.server == null)
+			return;
+		this.server.stop(delaySeconds);
+		this.executor.shutdown();
+		this.prompter.stopWatching();
+		this.server = null;
+		this.executor = null;
+	}
+
+	/**
+	 * @return int of the port the service is bound to
+	 */
+	public synchronized int getPort()
+	{
+		if (this.server == null)
+			throw new IllegalStateException("Service is not started.");
+		return this.server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the geometryCache
+	 */
+	public GeometryCache getGeometryCache() {
+		return geometryCache;
+	}
+
+	/**
+	 * @param geometryCache the geometryCache to set before starting, null to calculate every request
+	 */
+	public void setGeometryCache(GeometryCache geometryCache) {
+		this.geometryCache = geometryCache;
+	}
+
+	/**
+	 * @return the shiftAccumulator
+	 */
+	public ShiftAccumulator getShiftAccumulator() {
+		return shiftAccumulator;
+	}
+
+	/**
+	 * @param shiftAccumulator the shiftAccumulator to set before starting, null to keep no shift totals
+	 */
+	public void setShiftAccumulator(ShiftAccumulator shiftAccumulator) {
+		this.shiftAccumulator = shiftAccumulator;
+	}
+
+	/**
+	 * Handles a single work order.
+	 * @param exchange - HttpExchange of the request
+	 * @throws IOException
+	 */
+	private void handleCalculate(HttpExchange exchange) throws IOException
+	{
+		if (!this.checkMethod(exchange, "POST"))
+			return;
+
+		StringBuilder out = new StringBuilder(1024);
+		try
+		{
+			String body = readBody(exchange);
+			long start = CalculationMetrics.startStage();
+			double [] fields = JsonCodec.parseWorkOrder(body);
+			CalculationMetrics.endStage(StageEnum.READ_INPUT, start);
+			JsonCodec.appendResult(out, this.calculate(fields), this.prompter);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			this.sendError(exchange, 400, ex.getMessage());
+			return;
+		}
+		send(exchange, 200, out);
+	}
+
+	/**
+	 * Handles an array of work orders.
+	 * @param exchange - HttpExchange of the request
+	 * @throws IOException
+	 */
+	private void handleBulk(HttpExchange exchange) throws IOException
+	{
+		if (!this.checkMethod(exchange, "POST"))
+			return;
+
+		StringBuilder out;
+		try
+		{
+			String body = readBody(exchange);
+			long start = CalculationMetrics.startStage();
+			List<double []> orders = JsonCodec.parseWorkOrders(body);
+			CalculationMetrics.endStage(StageEnum.READ_INPUT, start);
+			out = new StringBuilder(orders.size() * 1024 + 2);
+			out.append('[');
+			for (int i = 0; i < orders.size(); i++)
+			{
+				if (i > 0)
+					out.append(',');
+				JsonCodec.appendResult(out, this.calculate(orders.get(i)), this.prompter);
+			}
+			out.append(']');
+		}
+		catch (IllegalArgumentException ex)
+		{
+			this.sendError(exchange, 400, ex.getMessage());
+			return;
+		}
+		send(exchange, 200, out);
+	}
+
+	/**
+	 * Handles a health check.
+	 * @param exchange - HttpExchange of the request
+	 * @throws IOException
+	 */
+	private void handleHealth(HttpExchange exchange) throws IOException
+	{
+		if (!this.checkMethod(exchange, "GET"))
+			return;
+		send(exchange, 200, new StringBuilder("{\"status\":\"UP\"}"));
+	}
+
+	/**
+	 * Returns the calculation metrics.
+	 * @param exchange - HttpExchange of the request
+	 * @throws IOException
+	 */
+	private void handleMetrics(HttpExchange exchange) throws IOException
+	{
+		if (!this.checkMethod(exchange, "GET"))
+			return;
+		StringBuilder out = new StringBuilder(1024);
+		JsonCodec.appendMetrics(out);
+		send(exchange, 200, out);
+	}
+
+	/**
+	 * Returns the totals of the open shift and the last closed one.
+	 * @param exchange - HttpExchange of the request
+	 * @throws IOException
+	 */
+	private void handleShift(HttpExchange exchange) throws IOException
+	{
+		if (!this.checkMethod(exchange, "GET"))
+			return;
+		if (this.shiftAccumulator == null)
+		{
+			this.sendError(exchange, 404, "Shift totals are not kept.");
+			return;
+		}
+		StringBuilder out = new StringBuilder(1024);
+		JsonCodec.appendShifts(out, this.shiftAccumulator.snapshot(), this.shiftAccumulator.getLastClosed());
+		send(exchange, 200, out);
+	}
+
+	/**
+	 * Rejects the request with a 405 if it does not use the method given.
+	 * @param exchange - HttpExchange of the request
+	 * @param method - String of the allowed method
+	 * @return boolean true if the request may continue
+	 * @throws IOException
+	 */
+	private boolean checkMethod(HttpExchange exchange, String method) throws IOException
+	{
+		if (method.equals(exchange.getRequestMethod()))
+			return true;
+		exchange.getResponseHeaders().set("Allow", method);
+		this.sendError(exchange, 405, "Use " + method);
+		return false;
+	}
+
+	/**
+	 * Sends an error object.
+	 * @param exchange - HttpExchange of the request
+	 * @param status - int of the HTTP status
+	 * @param message - String of the error message
+	 * @throws IOException
+	 */
+	private void sendError(HttpExchange exchange, int status, String message) throws IOException
+	{
+		StringBuilder out = new StringBuilder();
+		JsonCodec.appendError(out, message);
+		send(exchange, status, out);
+	}
+
+	/**
+	 * Runs every calculation for the work order.
+	 * @param fields - double [] of the work order values
+	 * @return PlatingResult of the calculated values
+	 */
+	private PlatingResult calculate(double [] fields)
+	{
+		long start = CalculationMetrics.startStage();
+		PlatingResult result;
+		if (this.geometryCache != null)
+		{
+			GeometryResult geometry = this.geometryCache.get(fields[WorkOrderParser.WIDTH], fields[WorkOrderParser.LENGTH],
+					fields[WorkOrderParser.NBR_SIDES], fields[WorkOrderParser.NBR_PIECES], fields[WorkOrderParser.SELECTION]);
+			result = PlatingMath.calculate(geometry, fields[WorkOrderParser.START_WEIGHT], fields[WorkOrderParser.FINAL_WEIGHT]);
+		}
+		else
+			result = PlatingMath.calculate(fields[WorkOrderParser.START_WEIGHT], fields[WorkOrderParser.WIDTH],
+					fields[WorkOrderParser.LENGTH], fields[WorkOrderParser.NBR_SIDES], fields[WorkOrderParser.NBR_PIECES],
+					fields[WorkOrderParser.SELECTION], fields[WorkOrderParser.FINAL_WEIGHT]);
+		CalculationMetrics.endStage(StageEnum.CALCULATE, start);
+		CalculationMetrics.recordResult(result.isInSpecification());
+		if (this.shiftAccumulator != null)
+			this.shiftAccumulator.record(RunHistoryWriter.UNKNOWN_ID, result);
+		return result;
+	}
+
+	/**
+	 * @param exchange - HttpExchange of the request
+	 * @return String of the UTF-8 request body
+	 * @throws IOException
+	 */
+	private static String readBody(HttpExchange exchange) throws IOException
+	{
+		try (InputStream in = exchange.getRequestBody())
+		{
+			byte [] body = in.readNBytes(MAX_BODY_SIZE + 1);
+			if (body.length > MAX_BODY_SIZE)
+				throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_SIZE + " bytes.");
+			return new String(body, StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Sends a JSON response and closes the exchange.
+	 * @param exchange - HttpExchange of the request
+	 * @param status - int of the HTTP status
+	 * @param body - CharSequence of the JSON body
+	 * @throws IOException
+	 */
+	private static void send(HttpExchange exchange, int status, CharSequence body) throws IOException
+	{
+		byte [] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Creates an executor that starts a virtual thread per request when the
+	 * JVM has them, and otherwise a new or reused platform thread per request.
+	 * @return ExecutorService for the requests
+	 */
+	static ExecutorService newRequestExecutor()
+	{
+		try
+		{
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		}
+		catch (ReflectiveOperationException ex)
+		{
+			return Executors.newCachedThreadPool();
+		}
+	}
+}
@@ -0,0 +1,388 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.scarter4work.nickelplate.batch.WorkOrderParser;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+import org.scarter4work.nickelplate.metrics.CalculationMetrics;
+import org.scarter4work.nickelplate.metrics.LatencySnapshot;
+import org.scarter4work.nickelplate.metrics.StageEnum;
+import org.scarter4work.nickelplate.prompter.ConsolePrompter;
+import org.scarter4work.nickelplate.prompter.OutputEnum;
+import org.scarter4work.nickelplate.totals.ShiftSnapshot;
+
+/**
+ * Reads work orders from and writes results to the small JSON documents used
+ * by the calculation service.  A work order is a flat object of numbers, and a
+ * bulk request is an array of them, so only that much of JSON is parsed.
+ */
+final class JsonCodec
+{
+	/** JSON field name of each work order value, by WorkOrderParser index */
+	static final String [] FIELD_NAMES = {
+		"startWeight", "width", "length", "nbrSides", "nbrPieces", "selection", "finalWeight"
+	};
+
+	/** text being parsed */
+	private final String text;
+
+	/** parse position */
+	private int pos;
+
+	/**
+	 * @param text - String of the JSON document
+	 */
+	private JsonCodec(String text)
+	{
+		super();
+		this.text = text;
+	}
+
+	/**
+	 * Parses a single work order object.
+	 * @param body - String of the JSON request body
+	 * @return double [] of the work order values by WorkOrderParser index
+	 * @throws IllegalArgumentException if the body is not a valid work order
+	 */
+	static double [] parseWorkOrder(String body)
+	{
+		JsonCodec codec = new JsonCodec(body);
+		double [] fields = codec.readWorkOrder();
+		codec.expectEnd();
+		return fields;
+	}
+
+	/**
+	 * Parses an array of work order objects.
+	 * @param body - String of the JSON request body
+	 * @return List of double [] work order values
+	 * @throws IllegalArgumentException if the body is not an array of work orders
+	 */
+	static List<double []> parseWorkOrders(String body)
+	{
+		JsonCodec codec = new JsonCodec(body);
+		List<double []> orders = new ArrayList<>();
+		codec.expect('[');
+		if (!codec.consume(']'))
+		{
+			do
+			{
+				orders.add(codec.readWorkOrder());
+			} while (codec.consume(','));
+			codec.expect(']');
+		}
+		codec.expectEnd();
+		return orders;
+	}
+
+	/**
+	 * Writes the result as a JSON object, including the console renderings of
+	 * each output message.
+	 * @param out - StringBuilder to append to
+	 * @param result - PlatingResult to write
+	 * @param prompter - ConsolePrompter to render the messages with
+	 */
+	static void appendResult(StringBuilder out, PlatingResult result, ConsolePrompter prompter)
+	{
+		out.append('{');
+		appendNumber(out, "startWeight", result.getStartWeight()).append(',');
+		appendNumber(out, "width", result.getWidth()).append(',');
+		appendNumber(out, "length", result.getLength()).append(',');
+		appendNumber(out, "nbrSides", result.getNbrSidesPlated()).append(',');
+		appendNumber(out, "nbrPieces", result.getNbrPieces()).append(',');
+		appendNumber(out, "selection", result.getSelection()).append(',');
+		appendNumber(out, "finalWeight", result.getFinalWeight()).append(',');
+		appendNumber(out, "surfaceArea", result.getSurfaceArea()).append(',');
+		appendNumber(out, "totalSurfaceArea", result.getTotalSurfaceArea()).append(',');
+		appendNumber(out, "ampsUsed", result.getAmpsUsed()).append(',');
+		appendNumber(out, "ampHoursUsed", result.getAmpHoursUsed()).append(',');
+		appendNumber(out, "totalAmpsUsed", result.getTotalAmpsUsed()).append(',');
+		appendNumber(out, "totalAmpHoursUsed", result.getTotalAmpHoursUsed()).append(',');
+		appendNumber(out, "delta", result.getDelta()).append(',');
+		appendNumber(out, "thicknessPerSide", result.getThicknessPerSide()).append(',');
+		out.append("\"inSpecification\":").append(result.isInSpecification()).append(',');
+
+		// console renderings of each message
+		StringBuilder message = new StringBuilder(256);
+		out.append("\"output\":{");
+		appendMessage(out, message, prompter, OutputEnum.SURFACE_AREA, result.getTotalSurfaceArea()).append(',');
+		appendMessage(out, message, prompter, OutputEnum.AMPS_REQUIRED, result.getTotalAmpsUsed()).append(',');
+		appendMessage(out, message, prompter, OutputEnum.AMP_HOURS, result.getTotalAmpHoursUsed()).append(',');
+		if (result.isInSpecification())
+			appendMessage(out, message, prompter, OutputEnum.THICKNESS, result.getThicknessPerSide()).append(',');
+		else
+			appendMessage(out, message, prompter, OutputEnum.THICK_ERROR).append(',');
+		appendMessage(out, message, prompter, OutputEnum.SUMMARY,
+				result.getTotalAmpsUsed(), result.getTotalAmpHoursUsed(), result.getNbrSidesPlated(),
+				result.getNbrPieces(), result.getWidth(), result.getLength(),
+				result.getTotalSurfaceArea(), result.getThicknessPerSide());
+		out.append("}}");
+	}
+
+	/**
+	 * Writes an error object.
+	 * @param out - StringBuilder to append to
+	 * @param message - String of the error message
+	 */
+	static void appendError(StringBuilder out, String message)
+	{
+		out.append("{\"error\":");
+		appendString(out, message == null ? "" : message);
+		out.append('}');
+	}
+
+	/**
+	 * Writes the calculation metrics: counts and latency percentiles in
+	 * nanoseconds for each stage, and the specification counts.
+	 * @param out - StringBuilder to append to
+	 */
+	static void appendMetrics(StringBuilder out)
+	{
+		out.append("{\"enabled\":").append(CalculationMetrics.ENABLED);
+		out.append(",\"inSpecification\":").append(CalculationMetrics.getInSpecificationCount());
+		out.append(",\"outOfSpecification\":").append(CalculationMetrics.getOutOfSpecificationCount());
+		out.append(",\"stages\":{");
+		StageEnum [] stages = StageEnum.values();
+		for (int i = 0; i < stages.length; i++)
+		{
+			LatencySnapshot snapshot = CalculationMetrics.getSnapshot(stages[i]);
+			if (i > 0)
+				out.append(',');
+			out.append('"').append(stages[i].getLabel()).append("\":{");
+			out.append("\"count\":").append(snapshot.getCount());
+			appendNumber(out.append(','), "mean", snapshot.getMean());
+			out.append(",\"p50\":").append(snapshot.getValueAtPercentile(50));
+			out.append(",\"p99\":").append(snapshot.getValueAtPercentile(99));
+			out.append(",\"p999\":").append(snapshot.getValueAtPercentile(99.9));
+			out.append(",\"max\":").append(snapshot.getMax()).append('}');
+		}
+		out.append("}}");
+	}
+
+	/**
+	 * Writes the open shift's totals and those of the last closed shift.
+	 * @param out - StringBuilder to append to
+	 * @param open - ShiftSnapshot of the open shift
+	 * @param lastClosed - ShiftSnapshot of the last closed shift, null before the first rollover
+	 */
+	static void appendShifts(StringBuilder out, ShiftSnapshot open, ShiftSnapshot lastClosed)
+	{
+		out.append("{\"open\":");
+		appendShift(out, open);
+		out.append(",\"lastClosed\":");
+		if (lastClosed == null)
+			out.append("null");
+		else
+			appendShift(out, lastClosed);
+		out.append('}');
+	}
+
+	/**
+	 * Writes one shift's totals, overall and by tank.
+	 * @param out - StringBuilder to append to
+	 * @param shift - ShiftSnapshot to write
+	 */
+	private static void appendShift(StringBuilder out, ShiftSnapshot shift)
+	{
+		out.append("{\"shiftNumber\":").append(shift.getShiftNumber());
+		out.append(",\"startMillis\":").append(shift.getStartMillis());
+		if (!shift.isOpen())
+			out.append(",\"endMillis\":").append(shift.getEndMillis());
+		appendNumber(out.append(','), "amps", shift.getTotalAmps());
+		appendNumber(out.append(','), "ampHours", shift.getTotalAmpHours());
+		appendNumber(out.append(','), "pieces", shift.getTotalPieces());
+		out.append(",\"runs\":").append(shift.getTotalRuns());
+		out.append(",\"outOfSpecRuns\":").append(shift.getTotalOutOfSpecRuns());
+		out.append(",\"tanks\":[");
+		for (int i = 0; i < shift.getTankCount(); i++)
+		{
+			if (i > 0)
+				out.append(',');
+			out.append("{\"tank\":").append(i);
+			appendNumber(out.append(','), "amps", shift.getAmps(i));
+			appendNumber(out.append(','), "ampHours", shift.getAmpHours(i));
+			appendNumber(out.append(','), "pieces", shift.getPieces(i));
+			out.append(",\"runs\":").append(shift.getRuns(i));
+			out.append(",\"outOfSpecRuns\":").append(shift.getOutOfSpecRuns(i)).append('}');
+		}
+		out.append("]}");
+	}
+
+	/**
+	 * Writes a named number, using null for values JSON cannot hold.
+	 * @param out - StringBuilder to append to
+	 * @param name - String of the field name
+	 * @param value - double to write
+	 * @return StringBuilder passed in
+	 */
+	private static StringBuilder appendNumber(StringBuilder out, String name, double value)
+	{
+		out.append('"').append(name).append("\":");
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			out.append("null");
+		else
+			out.append(value);
+		return out;
+	}
+
+	/**
+	 * Writes a named rendering of an output message.
+	 * @param out - StringBuilder to append to
+	 * @param message - StringBuilder reused to render the message
+	 * @param prompter - ConsolePrompter to render with
+	 * @param outputEnum - OutputEnum of the message
+	 * @param params - double [] of the message parameters
+	 * @return StringBuilder passed in
+	 */
+	private static StringBuilder appendMessage(StringBuilder out, StringBuilder message,
+			ConsolePrompter prompter, OutputEnum outputEnum, double... params)
+	{
+		message.setLength(0);
+		prompter.appendOutput(message, outputEnum, params);
+		out.append('"').append(outputEnum.name()).append("\":");
+		appendString(out, message);
+		return out;
+	}
+
+	/**
+	 * Writes a quoted and escaped JSON string.
+	 * @param out - StringBuilder to append to
+	 * @param value - CharSequence to write
+	 */
+	static void appendString(StringBuilder out, CharSequence value)
+	{
+		out.append('"');
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			switch (c)
+			{
+				case '"': out.append("\\\""); break;
+				case '\\': out.append("\\\\"); break;
+				case '\n': out.append("\\n"); break;
+				case '\r': out.append("\\r"); break;
+				case '\t': out.append("\\t"); break;
+				default:
+					if (c < ' ')
+						out.append(String.format("\\u%04x", (int) c));
+					else
+						out.append(c);
+			}
+		}
+		out.append('"');
+	}
+
+	/**
+	 * Reads one work order object.
+	 * @return double [] of the work order values
+	 */
+	private double [] readWorkOrder()
+	{
+		double [] fields = new double[WorkOrderParser.FIELD_COUNT];
+		boolean [] seen = new boolean[WorkOrderParser.FIELD_COUNT];
+
+		this.expect('{');
+		if (!this.consume('}'))
+		{
+			do
+			{
+				String name = this.readString();
+				this.expect(':');
+				double value = this.readNumber();
+
+				for (int i = 0; i < FIELD_NAMES.length; i++)
+				{
+					if (FIELD_NAMES[i].equals(name))
+					{
+						fields[i] = value;
+						seen[i] = true;
+					}
+				}
+			} while (this.consume(','));
+			this.expect('}');
+		}
+
+		for (int i = 0; i < seen.length; i++)
+		{
+			if (!seen[i])
+				throw new IllegalArgumentException("Work order is missing " + FIELD_NAMES[i]);
+		}
+		return fields;
+	}
+
+	/**
+	 * @return String of the next quoted string, which may not hold escapes
+	 */
+	private String readString()
+	{
+		this.expect('"');
+		int end = this.text.indexOf('"', this.pos);
+		if (end < 0 || this.text.indexOf('\\', this.pos) >= 0 && this.text.indexOf('\\', this.pos) < end)
+			throw new IllegalArgumentException("Unsupported field name at " + this.pos);
+		String value = this.text.substring(this.pos, end);
+		this.pos = end + 1;
+		return value;
+	}
+
+	/**
+	 * @return double of the next number
+	 */
+	private double readNumber()
+	{
+		this.skipWhitespace();
+		int start = this.pos;
+		while (this.pos < this.text.length() && "+-0123456789.eE".indexOf(this.text.charAt(this.pos)) >= 0)
+			this.pos++;
+		try
+		{
+			return Double.parseDouble(this.text.substring(start, this.pos));
+		}
+		catch (NumberFormatException ex)
+		{
+			throw new IllegalArgumentException("Expected a number at " + start, ex);
+		}
+	}
+
+	/**
+	 * @param c - char expected next
+	 */
+	private void expect(char c)
+	{
+		if (!this.consume(c))
+			throw new IllegalArgumentException("Expected '" + c + "' at " + this.pos);
+	}
+
+	/**
+	 * @param c - char that may come next
+	 * @return boolean true if it was next and has been consumed
+	 */
+	private boolean consume(char c)
+	{
+		this.skipWhitespace();
+		if (this.pos < this.text.length() && this.text.charAt(this.pos) == c)
+		{
+			this.pos++;
+			return true;
+		}
+		return false;
+	}
+
+	/** fails if anything other than whitespace is left */
+	private void expectEnd()
+	{
+		this.skipWhitespace();
+		if (this.pos != this.text.length())
+			throw new IllegalArgumentException("Unexpected content at " + this.pos);
+	}
+
+	/** moves past any whitespace */
+	private void skipWhitespace()
+	{
+		while (this.pos < this.text.length() && Character.isWhitespace(this.text.charAt(this.pos)))
+			this.pos++;
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a running calculation service with a fixed number of concurrent
+ * clients and reports throughput and latency percentiles.
+ * <p>
+ * Arguments: base url, number of clients, requests per client and work
+ * orders per request.  A work order count of 1 uses /calculate, anything
+ * larger uses /calculate/bulk.
+ */
+public class LoadGenerator
+{
+	/** requests sent before measuring */
+	private static final int WARMUP_REQUESTS = 2000;
+
+	/** base url of the service */
+	private final String baseUrl;
+
+	/** number of concurrent clients */
+	private final int clients;
+
+	/** requests sent by each client */
+	private final int requestsPerClient;
+
+	/** work orders per request */
+	private final int ordersPerRequest;
+
+	/** http client shared by the client threads */
+	private final HttpClient client;
+
+	/**
+	 * @param baseUrl - String of the service url, e.g. http://127.0.0.1:8084
+	 * @param clients - int of the number of concurrent clients
+	 * @param requestsPerClient - int of the requests each client sends
+	 * @param ordersPerRequest - int of the work orders in each request
+	 */
+	public LoadGenerator(String baseUrl, int clients, int requestsPerClient, int ordersPerRequest)
+	{
+		super();
+		this.baseUrl = baseUrl;
+		this.clients = clients;
+		this.requestsPerClient = requestsPerClient;
+		this.ordersPerRequest = ordersPerRequest;
+		this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+	}
+
+	/**
+	 * Entry point for running the generator from the command line.
+	 * @param args - String [] of url, clients, requests per client and orders per request
+	 * @throws Exception
+	 */
+	public static void main(String... args) throws Exception
+	{
+		String url = args.length > 0 ? args[0] : "http://127.0.0.1:" + CalculationService.DEFAULT_PORT;
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int requests = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+		int orders = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+		new LoadGenerator(url, clients, requests, orders).run();
+	}
+
+	/**
+	 * Warms the service up, runs the load and prints the results.
+	 * @throws Exception
+	 */
+	public void run() throws Exception
+	{
+		HttpRequest request = this.buildRequest(new Random(42));
+		for (int i = 0; i < WARMUP_REQUESTS; i++)
+		{
+			this.send(request);
+		}
+
+		long [] latencies = new long[this.clients * this.requestsPerClient];
+		AtomicLong failures = new AtomicLong();
+		Thread [] threads = new Thread[this.clients];
+
+		long start = System.nanoTime();
+		for (int c = 0; c < this.clients; c++)
+		{
+			final int offset = c * this.requestsPerClient;
+			final HttpRequest clientRequest = this.buildRequest(new Random(c));
+			threads[c] = new Thread(() -> {
+				for (int i = 0; i < this.requestsPerClient; i++)
+				{
+					long begin = System.nanoTime();
+					if (!this.send(clientRequest))
+						failures.incrementAndGet();
+					latencies[offset + i] = System.nanoTime() - begin;
+				}
+			}, "load-" + c);
+			threads[c].start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		Arrays.sort(latencies);
+		double seconds = elapsed / 1e9;
+		System.out.printf("clients=%d requests=%d ordersPerRequest=%d failures=%d%n",
+				this.clients, latencies.length, this.ordersPerRequest, failures.get());
+		System.out.printf("throughput: %.0f requests/sec, %.0f work orders/sec%n",
+				latencies.length / seconds, latencies.length * (double) this.ordersPerRequest / seconds);
+		System.out.printf("latency: p50=%.3f ms p99=%.3f ms p99.9=%.3f ms max=%.3f ms%n",
+				percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+				percentile(latencies, 0.999) / 1e6, latencies[latencies.length - 1] / 1e6);
+	}
+
+	/**
+	 * Sends the request and reads the whole response.
+	 * @param request - HttpRequest to send
+	 * @return boolean true if the service answered 200
+	 */
+	private boolean send(HttpRequest request)
+	{
+		try
+		{
+			HttpResponse<byte []> response = this.client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+			return response.statusCode() == 200;
+		}
+		catch (Exception ex)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Builds a request of random but realistic work orders.
+	 * @param random - Random to draw the values from
+	 * @return HttpRequest to send
+	 */
+	private HttpRequest buildRequest(Random random)
+	{
+		StringBuilder body = new StringBuilder();
+		if (this.ordersPerRequest > 1)
+			body.append('[');
+		for (int i = 0; i < this.ordersPerRequest; i++)
+		{
+			if (i > 0)
+				body.append(',');
+			double start = 50 + random.nextDouble() * 100;
+			body.append("{\"startWeight\":").append(start)
+				.append(",\"width\":").append(1 + random.nextInt(24))
+				.append(",\"length\":").append(1 + random.nextInt(24))
+				.append(",\"nbrSides\":").append(1 + random.nextInt(2))
+				.append(",\"nbrPieces\":").append(1 + random.nextInt(20))
+				.append(",\"selection\":").append(1 + random.nextInt(2))
+				.append(",\"finalWeight\":").append(start + random.nextDouble() * 0.5)
+				.append('}');
+		}
+		if (this.ordersPerRequest > 1)
+			body.append(']');
+
+		String path = this.ordersPerRequest > 1 ? "/calculate/bulk" : "/calculate";
+		return HttpRequest.newBuilder(URI.create(this.baseUrl + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+				.build();
+	}
+
+	/**
+	 * @param sorted - long [] of sorted latencies
+	 * @param fraction - double of the percentile wanted, 0 to 1
+	 * @return long of the latency at the percentile
+	 */
+	private static long percentile(long [] sorted, double fraction)
+	{
+		int index = (int) Math.ceil(fraction * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.spc;
+
+/**
+ * A rule tripping on one series of results.
+ */
+public final class SpcAlert
+{
+	/** part of the series */
+	private final long partId;
+	/** tank of the series */
+	private final int tankId;
+	/** rule that tripped */
+	private final SpcRuleEnum rule;
+	/** number of the result that tripped it within the series, counting from 1 */
+	private final long sequence;
+	/** value that was judged: the result, the EWMA, or the subgroup average or range */
+	private final double statistic;
+	/** lower limit the value was judged against */
+	private final double lowerLimit;
+	/** upper limit the value was judged against */
+	private final double upperLimit;
+
+	/**
+	 * @param partId - part of the series
+	 * @param tankId - tank of the series
+	 * @param rule - SpcRuleEnum that tripped
+	 * @param sequence - number of the result within the series
+	 * @param statistic - value that was judged
+	 * @param lowerLimit - lower limit the value was judged against
+	 * @param upperLimit - upper limit the value was judged against
+	 */
+	SpcAlert(long partId, int tankId, SpcRuleEnum rule, long sequence, double statistic, double lowerLimit,
+			double upperLimit)
+	{
+		super();
+		this.partId = partId;
+		this.tankId = tankId;
+		this.rule = rule;
+		this.sequence = sequence;
+		this.statistic = statistic;
+		this.lowerLimit = lowerLimit;
+		this.upperLimit = upperLimit;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "SPC alert part " + partId + " tank " + tankId + " result " + sequence + ": " + rule.getLabel()
+				+ " (" + statistic + " against " + lowerLimit + " to " + upperLimit + ")";
+	}
+
+	/**
+	 * @return the partId
+	 */
+	public long getPartId() {
+		return partId;
+	}
+
+	/**
+	 * @return the tankId
+	 */
+	public int getTankId() {
+		return tankId;
+	}
+
+	/**
+	 * @return the rule
+	 */
+	public SpcRuleEnum getRule() {
+		return rule;
+	}
+
+	/**
+	 * @return the sequence
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return the statistic
+	 */
+	public double getStatistic() {
+		return statistic;
+	}
+
+	/**
+	 * @return the lowerLimit
+	 */
+	public double getLowerLimit() {
+		return lowerLimit;
+	}
+
+	/**
+	 * @return the upperLimit
+	 */
+	public double getUpperLimit() {
+		return upperLimit;
+	}
+}
@@ -0,0 +1,17 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.spc;
+
+/**
+ * Receives SPC alerts as soon as a rule trips.
+ */
+public interface SpcAlertListener
+{
+	/**
+	 * Called on the thread that recorded the result, while its series is
+	 * locked, so it should hand the alert off rather than block.
+	 * @param alert - SpcAlert of the rule that tripped
+	 */
+	void onAlert(SpcAlert alert);
+}
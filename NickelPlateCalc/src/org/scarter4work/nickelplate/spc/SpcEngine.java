@@ -0,0 +1,236 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.spc;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Statistical process control over a stream of thickness results.  Results
+ * are kept as one SpcSeries per part and tank, created on the first result
+ * for it, and any number of threads may record at once; results of the same
+ * series are applied one at a time in the order they are recorded.  Alerts
+ * go to the listener as soon as a rule trips, on the recording thread once
+ * the series is unlocked.
+ */
+public class SpcEngine
+{
+	/** system property that turns SPC on */
+	public static final String ENABLED_PROPERTY = "nickelplate.spc.enabled";
+
+	/** system property holding the number of baseline results */
+	public static final String BASELINE_PROPERTY = "nickelplate.spc.baseline";
+
+	/** system property holding the subgroup size */
+	public static final String SUBGROUP_SIZE_PROPERTY = "nickelplate.spc.subgroupSize";
+
+	/** system property holding the EWMA weight */
+	public static final String EWMA_LAMBDA_PROPERTY = "nickelplate.spc.ewmaLambda";
+
+	/** default number of baseline results */
+	public static final int DEFAULT_BASELINE = 100;
+
+	/** default subgroup size */
+	public static final int DEFAULT_SUBGROUP_SIZE = 5;
+
+	/** default EWMA weight */
+	public static final double DEFAULT_EWMA_LAMBDA = 0.2;
+
+	/** results that make up each series' baseline */
+	private final int baselineSize;
+
+	/** results in a subgroup */
+	private final int subgroupSize;
+
+	/** EWMA weight of the newest result */
+	private final double ewmaLambda;
+
+	/** listener told of alerts, may be null */
+	private final SpcAlertListener listener;
+
+	/** series by part and tank */
+	private final ConcurrentHashMap<SeriesKey, SpcSeries> series = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates an engine with the default settings.
+	 * @param listener - SpcAlertListener told of alerts, may be null
+	 */
+	public SpcEngine(SpcAlertListener listener)
+	{
+		this(DEFAULT_BASELINE, DEFAULT_SUBGROUP_SIZE, DEFAULT_EWMA_LAMBDA, listener);
+	}
+
+	/**
+	 * Creates an engine.
+	 * @param baselineSize - int of the results that set each series' limits, at least 2
+	 * @param subgroupSize - int of the results in an X-bar/R subgroup, 2 to 10
+	 * @param ewmaLambda - double of the EWMA weight of the newest result, above 0 up to 1
+	 * @param listener - SpcAlertListener told of alerts, may be null
+	 */
+	public SpcEngine(int baselineSize, int subgroupSize, double ewmaLambda, SpcAlertListener listener)
+	{
+		super();
+		if (baselineSize < 2)
+			throw new IllegalArgumentException("SPC baseline must be at least 2 results: " + baselineSize);
+		if (subgroupSize < SpcSeries.MIN_SUBGROUP_SIZE || subgroupSize > SpcSeries.MAX_SUBGROUP_SIZE)
+			throw new IllegalArgumentException("SPC subgroup size must be " + SpcSeries.MIN_SUBGROUP_SIZE + " to "
+					+ SpcSeries.MAX_SUBGROUP_SIZE + ": " + subgroupSize);
+		if (!(ewmaLambda > 0 && ewmaLambda <= 1))
+			throw new IllegalArgumentException("EWMA lambda must be above 0 and up to 1: " + ewmaLambda);
+		this.baselineSize = baselineSize;
+		this.subgroupSize = subgroupSize;
+		this.ewmaLambda = ewmaLambda;
+		this.listener = listener;
+	}
+
+	/**
+	 * Creates an engine from the nickelplate.spc system properties.
+	 * @param listener - SpcAlertListener told of alerts, may be null
+	 * @return SpcEngine, or null if SPC is not enabled
+	 */
+	public static SpcEngine fromSystemProperties(SpcAlertListener listener)
+	{
+		if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "false")))
+			return null;
+		return withSystemProperties(listener);
+	}
+
+	/**
+	 * Creates an engine with the settings in the nickelplate.spc system
+	 * properties, whether or not SPC is enabled.
+	 * @param listener - SpcAlertListener told of alerts, may be null
+	 * @return SpcEngine
+	 */
+	public static SpcEngine withSystemProperties(SpcAlertListener listener)
+	{
+		int baseline = Integer.getInteger(BASELINE_PROPERTY, DEFAULT_BASELINE).intValue();
+		int subgroupSize = Integer.getInteger(SUBGROUP_SIZE_PROPERTY, DEFAULT_SUBGROUP_SIZE).intValue();
+		double lambda = Double.parseDouble(System.getProperty(EWMA_LAMBDA_PROPERTY, Double.toString(DEFAULT_EWMA_LAMBDA)));
+		return new SpcEngine(baseline, subgroupSize, lambda, listener);
+	}
+
+	/**
+	 * Records a result's thickness.
+	 * @param partId - long of the part
+	 * @param tankId - int of the tank
+	 * @param result - PlatingResult of the run
+	 */
+	public void record(long partId, int tankId, PlatingResult result)
+	{
+		this.record(partId, tankId, result.getThicknessPerSide());
+	}
+
+	/**
+	 * Records a thickness result.
+	 * @param partId - long of the part
+	 * @param tankId - int of the tank
+	 * @param thicknessPerSide - double of the thickness per side
+	 */
+	public void record(long partId, int tankId, double thicknessPerSide)
+	{
+		SeriesKey key = new SeriesKey(partId, tankId);
+		SpcSeries target = this.series.get(key);
+		if (target == null)
+			target = this.series.computeIfAbsent(key, k -> new SpcSeries(k.partId, k.tankId, this.baselineSize,
+					this.subgroupSize, this.ewmaLambda, this.listener));
+		target.record(thicknessPerSide);
+	}
+
+	/**
+	 * @param partId - long of the part
+	 * @param tankId - int of the tank
+	 * @return SpcSeries of the part and tank, null if nothing has been recorded for it
+	 */
+	public SpcSeries getSeries(long partId, int tankId)
+	{
+		return this.series.get(new SeriesKey(partId, tankId));
+	}
+
+	/**
+	 * @return Collection of every series, a live view
+	 */
+	public Collection<SpcSeries> getSeries()
+	{
+		return Collections.unmodifiableCollection(this.series.values());
+	}
+
+	/**
+	 * @return long of the alerts raised over every series
+	 */
+	public long getAlertCount()
+	{
+		long alerts = 0;
+		for (SpcSeries each : this.series.values())
+		{
+			alerts += each.getAlertCount();
+		}
+		return alerts;
+	}
+
+	/**
+	 * @return the baselineSize
+	 */
+	public int getBaselineSize() {
+		return baselineSize;
+	}
+
+	/**
+	 * @return the subgroupSize
+	 */
+	public int getSubgroupSize() {
+		return subgroupSize;
+	}
+
+	/**
+	 * @return the ewmaLambda
+	 */
+	public double getEwmaLambda() {
+		return ewmaLambda;
+	}
+
+	/**
+	 * Part and tank identifying a series.
+	 */
+	private static final class SeriesKey
+	{
+		/** part */
+		private final long partId;
+		/** tank */
+		private final int tankId;
+
+		/**
+		 * @param partId - part
+		 * @param tankId - tank
+		 */
+		private SeriesKey(long partId, int tankId)
+		{
+			this.partId = partId;
+			this.tankId = tankId;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(partId) + tankId;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof SeriesKey))
+				return false;
+			SeriesKey other = (SeriesKey) obj;
+			return partId == other.partId && tankId == other.tankId;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.spc;
+
+/**
+ * Out of control signals raised by the SPC engine.  The first four are the
+ * Western Electric zone rules on individual results, judged against the
+ * center line and sigma of the series' baseline.
+ */
+public enum SpcRuleEnum
+{
+	/** one result beyond 3 sigma */
+	BEYOND_3_SIGMA("one result beyond 3 sigma"),
+	/** two of three results beyond 2 sigma on the same side */
+	TWO_OF_THREE_BEYOND_2_SIGMA("two of three results beyond 2 sigma"),
+	/** four of five results beyond 1 sigma on the same side */
+	FOUR_OF_FIVE_BEYOND_1_SIGMA("four of five results beyond 1 sigma"),
+	/** eight results in a row on the same side of the center line */
+	EIGHT_ON_ONE_SIDE("eight results in a row on one side"),
+	/** exponentially weighted moving average outside its limits */
+	EWMA_OUT_OF_CONTROL("EWMA outside its control limits"),
+	/** subgroup average outside the X-bar limits */
+	XBAR_OUT_OF_CONTROL("subgroup average outside the X-bar limits"),
+	/** subgroup range outside the R limits */
+	RANGE_OUT_OF_CONTROL("subgroup range outside the R limits");
+
+	/** description used in alerts */
+	private final String label;
+
+	/**
+	 * @param label - String description used in alerts
+	 */
+	private SpcRuleEnum(String label)
+	{
+		this.label = label;
+	}
+
+	/**
+	 * @return the label
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
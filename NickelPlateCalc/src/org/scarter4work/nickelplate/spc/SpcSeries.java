@@ -0,0 +1,441 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.spc;
+
+import java.util.Arrays;
+
+/**
+ * Control chart state for the thickness results of one part in one tank,
+ * updated one result at a time in constant memory.
+ * <p>
+ * The mean and variance of every result are kept with Welford's method.  The
+ * first baseline results set the center line and sigma the rules judge
+ * against, and the X-bar and R limits from the subgroups within them; no
+ * rule is checked until the baseline is complete.  Subgroups are counted
+ * back from the end of the baseline, so the last baseline subgroup ends with
+ * the last baseline result and none mixes baseline and monitored results;
+ * when the baseline is not a whole number of subgroups its first few results
+ * are in no subgroup.  After the baseline each result is checked against
+ * the Western Electric zone rules and the EWMA limits, and each completed
+ * subgroup against the X-bar and R limits.  A rule raises one alert when it
+ * trips and not again until it has cleared.  The listener is told of alerts
+ * after the series' lock is released, so it may take its time or read the
+ * series without holding up other recording threads.
+ */
+public final class SpcSeries
+{
+	/** X-bar limit factor A2 by subgroup size */
+	private static final double [] A2 = { 0, 0, 1.880, 1.023, 0.729, 0.577, 0.483, 0.419, 0.373, 0.337, 0.308 };
+	/** lower range limit factor D3 by subgroup size */
+	private static final double [] D3 = { 0, 0, 0, 0, 0, 0, 0, 0.076, 0.136, 0.184, 0.223 };
+	/** upper range limit factor D4 by subgroup size */
+	private static final double [] D4 = { 0, 0, 3.267, 2.574, 2.282, 2.114, 2.004, 1.924, 1.864, 1.816, 1.777 };
+
+	/** smallest subgroup size */
+	public static final int MIN_SUBGROUP_SIZE = 2;
+	/** largest subgroup size */
+	public static final int MAX_SUBGROUP_SIZE = A2.length - 1;
+
+	/** width of the EWMA limits in sigmas */
+	private static final double EWMA_WIDTH = 3;
+
+	/** mask of the last three results */
+	private static final int LAST_3 = 0b111;
+	/** mask of the last five results */
+	private static final int LAST_5 = 0b11111;
+	/** results in a row on one side that trip the run rule */
+	private static final int RUN_LENGTH = 8;
+
+	/** part of the series */
+	private final long partId;
+	/** tank of the series */
+	private final int tankId;
+	/** results that make up the baseline */
+	private final int baselineSize;
+	/** results in a subgroup */
+	private final int subgroupSize;
+	/** EWMA weight of the newest result */
+	private final double lambda;
+	/** listener told of alerts, may be null */
+	private final SpcAlertListener listener;
+	/** baseline results before the first subgroup, so subgroups end with the baseline */
+	private final int subgroupOffset;
+
+	/** results recorded */
+	private long count;
+	/** running mean */
+	private double mean;
+	/** running sum of squared differences from the mean */
+	private double m2;
+	/** smallest result */
+	private double min = Double.POSITIVE_INFINITY;
+	/** largest result */
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/** center line, set when the baseline completes */
+	private double center;
+	/** sigma of individual results, set when the baseline completes */
+	private double sigma;
+
+	/** results in the open subgroup */
+	private int subgroupCount;
+	/** sum of the open subgroup */
+	private double subgroupSum;
+	/** smallest result of the open subgroup */
+	private double subgroupMin;
+	/** largest result of the open subgroup */
+	private double subgroupMax;
+	/** subgroups completed within the baseline */
+	private long baselineSubgroups;
+	/** sum of the baseline subgroup averages */
+	private double baselineAverageSum;
+	/** sum of the baseline subgroup ranges */
+	private double baselineRangeSum;
+	/** grand average of the baseline subgroups */
+	private double xbarCenter;
+	/** average range of the baseline subgroups */
+	private double averageRange;
+
+	/** current EWMA */
+	private double ewma;
+	/** (1 - lambda) to the power of twice the results since the baseline */
+	private double ewmaDecay = 1;
+
+	/** bits of the recent results above 2 sigma, newest lowest */
+	private int above2;
+	/** bits of the recent results below 2 sigma */
+	private int below2;
+	/** bits of the recent results above 1 sigma */
+	private int above1;
+	/** bits of the recent results below 1 sigma */
+	private int below1;
+	/** results in a row above the center line, negative for below */
+	private int run;
+
+	/** bits by rule ordinal of the rules currently tripped */
+	private int tripped;
+	/** alerts raised */
+	private long alertCount;
+	/** alerts raised by the result being recorded, for the listener once the lock is released */
+	private final SpcAlert [] raised = new SpcAlert[SpcRuleEnum.values().length];
+	/** number of alerts in raised */
+	private int raisedCount;
+
+	/**
+	 * @param partId - part of the series
+	 * @param tankId - tank of the series
+	 * @param baselineSize - results that make up the baseline
+	 * @param subgroupSize - results in a subgroup, 2 to 10
+	 * @param lambda - EWMA weight of the newest result, above 0 up to 1
+	 * @param listener - SpcAlertListener told of alerts, may be null
+	 */
+	SpcSeries(long partId, int tankId, int baselineSize, int subgroupSize, double lambda, SpcAlertListener listener)
+	{
+		super();
+		this.partId = partId;
+		this.tankId = tankId;
+		this.baselineSize = baselineSize;
+		this.subgroupSize = subgroupSize;
+		this.lambda = lambda;
+		this.listener = listener;
+		this.subgroupOffset = baselineSize % subgroupSize;
+	}
+
+	/**
+	 * Adds a result and checks every rule, then tells the listener of any
+	 * alerts raised.
+	 * @param value - double of the thickness per side
+	 */
+	void record(double value)
+	{
+		SpcAlert [] alerts;
+		synchronized (this)
+		{
+			this.add(value);
+			if (this.raisedCount == 0)
+				return;
+			alerts = Arrays.copyOf(this.raised, this.raisedCount);
+			Arrays.fill(this.raised, null);
+			this.raisedCount = 0;
+		}
+		for (SpcAlert alert : alerts)
+		{
+			this.listener.onAlert(alert);
+		}
+	}
+
+	/**
+	 * Adds a result and checks every rule, under the series' lock.
+	 * @param value - double of the thickness per side
+	 */
+	private void add(double value)
+	{
+		this.count++;
+		double difference = value - this.mean;
+		this.mean += difference / this.count;
+		this.m2 += difference * (value - this.mean);
+		this.min = Math.min(this.min, value);
+		this.max = Math.max(this.max, value);
+
+		boolean monitoring = this.count > this.baselineSize;
+		if (monitoring)
+			this.checkIndividual(value);
+		if (this.count > this.subgroupOffset)
+			this.addToSubgroup(value, monitoring);
+
+		if (this.count == this.baselineSize)
+		{
+			this.center = this.mean;
+			this.sigma = this.getStandardDeviation();
+			this.ewma = this.center;
+			if (this.baselineSubgroups > 0)
+			{
+				this.xbarCenter = this.baselineAverageSum / this.baselineSubgroups;
+				this.averageRange = this.baselineRangeSum / this.baselineSubgroups;
+			}
+		}
+	}
+
+	/**
+	 * Checks the zone, run and EWMA rules for a result after the baseline.
+	 * @param value - double of the result
+	 */
+	private void checkIndividual(double value)
+	{
+		double z = this.sigma > 0 ? (value - this.center) / this.sigma
+				: value == this.center ? 0 : Math.copySign(Double.POSITIVE_INFINITY, value - this.center);
+
+		this.above2 = ((this.above2 << 1) | (z > 2 ? 1 : 0)) & LAST_3;
+		this.below2 = ((this.below2 << 1) | (z < -2 ? 1 : 0)) & LAST_3;
+		this.above1 = ((this.above1 << 1) | (z > 1 ? 1 : 0)) & LAST_5;
+		this.below1 = ((this.below1 << 1) | (z < -1 ? 1 : 0)) & LAST_5;
+		if (z > 0)
+			this.run = this.run > 0 ? this.run + 1 : 1;
+		else if (z < 0)
+			this.run = this.run < 0 ? this.run - 1 : -1;
+		else
+			this.run = 0;
+
+		this.check(SpcRuleEnum.BEYOND_3_SIGMA, Math.abs(z) > 3, value, 3);
+		this.check(SpcRuleEnum.TWO_OF_THREE_BEYOND_2_SIGMA,
+				Integer.bitCount(this.above2) >= 2 || Integer.bitCount(this.below2) >= 2, value, 2);
+		this.check(SpcRuleEnum.FOUR_OF_FIVE_BEYOND_1_SIGMA,
+				Integer.bitCount(this.above1) >= 4 || Integer.bitCount(this.below1) >= 4, value, 1);
+		this.check(SpcRuleEnum.EIGHT_ON_ONE_SIDE, Math.abs(this.run) >= RUN_LENGTH, value, 0);
+
+		double weight = 1 - this.lambda;
+		this.ewma = this.lambda * value + weight * this.ewma;
+		this.ewmaDecay *= weight * weight;
+		double halfWidth = EWMA_WIDTH * this.sigma * Math.sqrt(this.lambda / (2 - this.lambda) * (1 - this.ewmaDecay));
+		this.check(SpcRuleEnum.EWMA_OUT_OF_CONTROL, Math.abs(this.ewma - this.center) > halfWidth,
+				this.ewma, this.center - halfWidth, this.center + halfWidth);
+	}
+
+	/**
+	 * Adds the result to the open subgroup, checking the X-bar and R limits
+	 * when it completes.
+	 * @param value - double of the result
+	 * @param monitoring - true once the baseline is complete
+	 */
+	private void addToSubgroup(double value, boolean monitoring)
+	{
+		if (this.subgroupCount == 0)
+		{
+			this.subgroupSum = 0;
+			this.subgroupMin = value;
+			this.subgroupMax = value;
+		}
+		this.subgroupCount++;
+		this.subgroupSum += value;
+		this.subgroupMin = Math.min(this.subgroupMin, value);
+		this.subgroupMax = Math.max(this.subgroupMax, value);
+		if (this.subgroupCount < this.subgroupSize)
+			return;
+
+		this.subgroupCount = 0;
+		double average = this.subgroupSum / this.subgroupSize;
+		double range = this.subgroupMax - this.subgroupMin;
+		if (!monitoring)
+		{
+			this.baselineSubgroups++;
+			this.baselineAverageSum += average;
+			this.baselineRangeSum += range;
+		}
+		else if (this.baselineSubgroups > 0)
+		{
+			double halfWidth = A2[this.subgroupSize] * this.averageRange;
+			double lower = this.xbarCenter - halfWidth;
+			double upper = this.xbarCenter + halfWidth;
+			this.check(SpcRuleEnum.XBAR_OUT_OF_CONTROL, average < lower || average > upper, average, lower, upper);
+			lower = D3[this.subgroupSize] * this.averageRange;
+			upper = D4[this.subgroupSize] * this.averageRange;
+			this.check(SpcRuleEnum.RANGE_OUT_OF_CONTROL, range < lower || range > upper, range, lower, upper);
+		}
+	}
+
+	/**
+	 * Checks a zone rule, judged against center plus and minus a number of sigmas.
+	 * @param rule - SpcRuleEnum being checked
+	 * @param violated - true if the rule's condition holds
+	 * @param value - double of the result
+	 * @param sigmas - double of the zone edge in sigmas
+	 */
+	private void check(SpcRuleEnum rule, boolean violated, double value, double sigmas)
+	{
+		this.check(rule, violated, value, this.center - sigmas * this.sigma, this.center + sigmas * this.sigma);
+	}
+
+	/**
+	 * Raises an alert when a rule trips, and clears it when the condition
+	 * no longer holds.
+	 * @param rule - SpcRuleEnum being checked
+	 * @param violated - true if the rule's condition holds
+	 * @param statistic - double of the value judged
+	 * @param lowerLimit - double of the lower limit
+	 * @param upperLimit - double of the upper limit
+	 */
+	private void check(SpcRuleEnum rule, boolean violated, double statistic, double lowerLimit, double upperLimit)
+	{
+		int bit = 1 << rule.ordinal();
+		if (!violated)
+		{
+			this.tripped &= ~bit;
+			return;
+		}
+		if ((this.tripped & bit) != 0)
+			return;
+		this.tripped |= bit;
+		this.alertCount++;
+		if (this.listener != null)
+			this.raised[this.raisedCount++] = new SpcAlert(this.partId, this.tankId, rule, this.count, statistic,
+					lowerLimit, upperLimit);
+	}
+
+	/**
+	 * @return double of the sample variance of every result, 0 with fewer than two
+	 */
+	public synchronized double getVariance()
+	{
+		return this.count < 2 ? 0 : this.m2 / (this.count - 1);
+	}
+
+	/**
+	 * @return double of the sample standard deviation of every result
+	 */
+	public synchronized double getStandardDeviation()
+	{
+		return Math.sqrt(this.getVariance());
+	}
+
+	/**
+	 * @return boolean true once the baseline is complete and rules are checked
+	 */
+	public synchronized boolean isMonitoring()
+	{
+		return this.count >= this.baselineSize;
+	}
+
+	/**
+	 * @param rule - SpcRuleEnum to ask about
+	 * @return boolean true if the rule has tripped and not yet cleared
+	 */
+	public synchronized boolean isTripped(SpcRuleEnum rule)
+	{
+		return (this.tripped & (1 << rule.ordinal())) != 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString() {
+		return "SpcSeries [partId=" + partId + ", tankId=" + tankId + ", count=" + count + ", mean=" + mean
+				+ ", standardDeviation=" + getStandardDeviation() + ", min=" + min + ", max=" + max
+				+ ", center=" + center + ", sigma=" + sigma + ", ewma=" + ewma + ", alertCount=" + alertCount + "]";
+	}
+
+	/**
+	 * @return the partId
+	 */
+	public long getPartId() {
+		return partId;
+	}
+
+	/**
+	 * @return the tankId
+	 */
+	public int getTankId() {
+		return tankId;
+	}
+
+	/**
+	 * @return the count
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean
+	 */
+	public synchronized double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return the min
+	 */
+	public synchronized double getMin() {
+		return min;
+	}
+
+	/**
+	 * @return the max
+	 */
+	public synchronized double getMax() {
+		return max;
+	}
+
+	/**
+	 * @return the center
+	 */
+	public synchronized double getCenter() {
+		return center;
+	}
+
+	/**
+	 * @return the sigma
+	 */
+	public synchronized double getSigma() {
+		return sigma;
+	}
+
+	/**
+	 * @return the ewma
+	 */
+	public synchronized double getEwma() {
+		return ewma;
+	}
+
+	/**
+	 * @return the xbarCenter
+	 */
+	public synchronized double getXbarCenter() {
+		return xbarCenter;
+	}
+
+	/**
+	 * @return the averageRange
+	 */
+	public synchronized double getAverageRange() {
+		return averageRange;
+	}
+
+	/**
+	 * @return the alertCount
+	 */
+	public synchronized long getAlertCount() {
+		return alertCount;
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.sweep;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.scarter4work.nickelplate.batch.BatchProcessor;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Writes sweep results as comma separated lines with the same columns as a
+ * batch run, preceded by the point's index in the grid.
+ */
+public class CsvSweepSink implements SweepSink
+{
+	/** header written ahead of the result lines */
+	public static final String HEADER = "point," + BatchProcessor.HEADER;
+
+	/** buffered output */
+	private final BufferedWriter writer;
+
+	/** reusable line buffer */
+	private final StringBuilder line = new StringBuilder(256);
+
+	/**
+	 * Writes the header.
+	 * @param output - Writer to write the lines to
+	 * @throws IOException
+	 */
+	public CsvSweepSink(Writer output) throws IOException
+	{
+		super();
+		this.writer = output instanceof BufferedWriter ? (BufferedWriter) output : new BufferedWriter(output, 64 * 1024);
+		this.writer.write(HEADER);
+		this.writer.newLine();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.sweep.SweepSink#write(long, org.scarter4work.nickelplate.calc.PlatingResult)
+	 */
+	@Override
+	public void write(long point, PlatingResult result) throws IOException
+	{
+		StringBuilder text = this.line;
+		text.setLength(0);
+		text.append(point).append(',');
+		text.append(result.getStartWeight()).append(',');
+		text.append(result.getWidth()).append(',');
+		text.append(result.getLength()).append(',');
+		text.append(result.getNbrSidesPlated()).append(',');
+		text.append(result.getNbrPieces()).append(',');
+		text.append(result.getSelection()).append(',');
+		text.append(result.getFinalWeight()).append(',');
+		text.append(result.getSurfaceArea()).append(',');
+		text.append(result.getTotalSurfaceArea()).append(',');
+		text.append(result.getTotalAmpsUsed()).append(',');
+		text.append(result.getTotalAmpHoursUsed()).append(',');
+		text.append(result.getThicknessPerSide()).append(',');
+		text.append(result.isInSpecification());
+		this.writer.append(text);
+		this.writer.newLine();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.sweep.SweepSink#flush()
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		this.writer.flush();
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.sweep;
+
+import java.io.IOException;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+import org.scarter4work.nickelplate.history.RunHistoryWriter;
+
+/**
+ * Writes sweep results as run history records, with the point's index in the
+ * grid as the part id, so a sweep can be read back with RunHistoryReader.
+ */
+public class HistorySweepSink implements SweepSink
+{
+	/** history file being written */
+	private final RunHistoryWriter writer;
+
+	/** timestamp given to every record */
+	private final long timestamp;
+
+	/**
+	 * @param writer - RunHistoryWriter to append to, closed by the caller
+	 * @param timestamp - long of the epoch milliseconds given to every record
+	 */
+	public HistorySweepSink(RunHistoryWriter writer, long timestamp)
+	{
+		super();
+		this.writer = writer;
+		this.timestamp = timestamp;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.sweep.SweepSink#write(long, org.scarter4work.nickelplate.calc.PlatingResult)
+	 */
+	@Override
+	public void write(long point, PlatingResult result) throws IOException
+	{
+		this.writer.write(this.timestamp, point, RunHistoryWriter.UNKNOWN_ID, result);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.scarter4work.nickelplate.sweep.SweepSink#flush()
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		this.writer.flush();
+	}
+}
@@ -0,0 +1,541 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.sweep;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Evaluates the plating formulas over every combination of a grid of work
+ * order values, for seeing how thickness and current move with a line setup
+ * before committing to it.  Points are numbered with selection varying
+ * fastest, then pieces, final weight, start weight, sides, length and width.
+ * No point is calculated until it is needed: the grid is walked in chunks on
+ * a fork join pool, and finished chunks are handed to the sink strictly in
+ * point order with only a few chunks in flight, so memory use does not grow
+ * with the grid.
+ * <p>
+ * With pruning on, points out of specification are left out.  Thickness
+ * depends only on the weight gain and the area of one piece, so a width,
+ * length, sides and weight combination that is out of specification is
+ * skipped with all its piece counts and selections without calculating
+ * them, and when the final weights ascend, the heavier final weights after
+ * it are skipped as well.
+ */
+public class ParameterSweep
+{
+	/** points calculated by a chunk task, roughly */
+	private static final int POINTS_PER_CHUNK = 4096;
+
+	/** chunks in flight per worker thread */
+	private static final int CHUNKS_PER_WORKER = 2;
+
+	/** relative margin over the limit a skipped combination must be, so rounding cannot drop an in specification point */
+	private static final double PRUNE_MARGIN = 1e-9;
+
+	/** number of worker threads */
+	private final int parallelism;
+
+	/** start weights */
+	private SweepAxis startWeights;
+	/** final weights */
+	private SweepAxis finalWeights;
+	/** widths */
+	private SweepAxis widths;
+	/** lengths */
+	private SweepAxis lengths;
+	/** numbers of sides plated */
+	private SweepAxis nbrSidesPlated;
+	/** numbers of pieces */
+	private SweepAxis nbrPieces;
+	/** selections, 1 for coupon and 2 for panel */
+	private SweepAxis selections;
+
+	/** true to leave out points out of specification */
+	private boolean pruneOutOfSpecification;
+
+	/** points written by the last run */
+	private long writtenCount;
+
+	/** points pruned by the last run */
+	private long prunedCount;
+
+	/** elapsed time of the last run in nanoseconds */
+	private long elapsedNanos;
+
+	/**
+	 * Creates a sweep using every available core.
+	 */
+	public ParameterSweep()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a sweep.
+	 * @param parallelism - int of the number of worker threads
+	 */
+	public ParameterSweep(int parallelism)
+	{
+		super();
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Creates a sweep from properties named after the work order fields,
+	 * startWeight, finalWeight, width, length, nbrSides, nbrPieces and
+	 * selection, each holding from:to:step or a comma separated list, plus
+	 * prune=true to leave out points out of specification.
+	 * @param properties - Properties of the grid
+	 * @return ParameterSweep of the grid using every available core
+	 * @throws IllegalArgumentException if an axis is missing or invalid
+	 */
+	public static ParameterSweep fromProperties(Properties properties)
+	{
+		ParameterSweep sweep = new ParameterSweep();
+		sweep.setStartWeights(axis(properties, "startWeight"));
+		sweep.setFinalWeights(axis(properties, "finalWeight"));
+		sweep.setWidths(axis(properties, "width"));
+		sweep.setLengths(axis(properties, "length"));
+		sweep.setNbrSidesPlated(axis(properties, "nbrSides"));
+		sweep.setNbrPieces(axis(properties, "nbrPieces"));
+		sweep.setSelections(axis(properties, "selection"));
+		sweep.setPruneOutOfSpecification(Boolean.parseBoolean(properties.getProperty("prune", "false")));
+		return sweep;
+	}
+
+	/**
+	 * @param properties - Properties of the grid
+	 * @param key - String of the axis name
+	 * @return SweepAxis parsed from the property
+	 */
+	private static SweepAxis axis(Properties properties, String key)
+	{
+		String value = properties.getProperty(key);
+		if (value == null)
+			throw new IllegalArgumentException("No values given for sweep axis " + key);
+		return SweepAxis.parse(value);
+	}
+
+	/**
+	 * @return long of the number of points in the grid
+	 * @throws IllegalArgumentException if an axis has not been set
+	 */
+	public long getPointCount()
+	{
+		this.checkAxes();
+		return Math.multiplyExact(this.getOuterCount(), this.getInnerCount());
+	}
+
+	/**
+	 * Calculates a single point of the grid.
+	 * @param point - long of the point's index
+	 * @return PlatingResult at the point
+	 */
+	public PlatingResult evaluate(long point)
+	{
+		if (point < 0 || point >= this.getPointCount())
+			throw new IllegalArgumentException("Point outside the grid: " + point);
+		long inner = this.getInnerCount();
+		Combination combination = new Combination();
+		combination.set(point / inner);
+		int index = (int) (point % inner);
+		return this.calculate(combination, index / this.selections.size(), index % this.selections.size());
+	}
+
+	/**
+	 * Walks the whole grid and writes every point, or every point in
+	 * specification when pruning, to the sink in point order.
+	 * @param sink - SweepSink to write to
+	 * @return long of the number of points written
+	 * @throws IOException
+	 */
+	public long run(SweepSink sink) throws IOException
+	{
+		long outerCount = this.getPointCount() / this.getInnerCount();
+		long outerPerChunk = Math.max(1, POINTS_PER_CHUNK / this.getInnerCount());
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+		int maxInFlight = this.parallelism * CHUNKS_PER_WORKER;
+
+		long written = 0;
+		long pruned = 0;
+		long start = System.nanoTime();
+		try
+		{
+			for (long from = 0; from < outerCount; from += outerPerChunk)
+			{
+				if (inFlight.size() == maxInFlight)
+				{
+					Chunk chunk = inFlight.poll().join();
+					written += chunk.write(sink);
+					pruned += chunk.pruned;
+				}
+				long chunkFrom = from;
+				long chunkTo = Math.min(outerCount, from + outerPerChunk);
+				inFlight.add(pool.submit(ForkJoinTask.adapt(() -> this.calculateChunk(chunkFrom, chunkTo))));
+			}
+			while (!inFlight.isEmpty())
+			{
+				Chunk chunk = inFlight.poll().join();
+				written += chunk.write(sink);
+				pruned += chunk.pruned;
+			}
+			sink.flush();
+		}
+		finally
+		{
+			for (ForkJoinTask<Chunk> task : inFlight)
+			{
+				task.cancel(true);
+			}
+			pool.shutdownNow();
+		}
+
+		this.writtenCount = written;
+		this.prunedCount = pruned;
+		this.elapsedNanos = System.nanoTime() - start;
+		return written;
+	}
+
+	/**
+	 * Calculates the points of a range of width, length, sides and weight
+	 * combinations.
+	 * @param from - long of the first combination
+	 * @param to - long after the last combination
+	 * @return Chunk of the results
+	 */
+	private Chunk calculateChunk(long from, long to)
+	{
+		int pieceCount = this.nbrPieces.size();
+		int selectionCount = this.selections.size();
+		int finalCount = this.finalWeights.size();
+		int inner = pieceCount * selectionCount;
+		Chunk chunk = new Chunk((int) ((to - from) * inner));
+		double limit = PlatingMath.MAX_THICKNESS_PER_SIDE * (1 + PRUNE_MARGIN);
+		Combination combination = new Combination();
+
+		for (long outer = from; outer < to; outer++)
+		{
+			combination.set(outer);
+			if (this.pruneOutOfSpecification)
+			{
+				double surfaceArea = PlatingMath.surfaceArea(combination.length, combination.width, combination.nbrSidesPlated);
+				double thickness = PlatingMath.thicknessPerSide(
+						PlatingMath.delta(combination.startWeight, combination.finalWeight), surfaceArea, 1);
+				if (thickness > limit)
+				{
+					// heavier final weights only gain more
+					long skipped = 1;
+					if (this.finalWeights.isAscending())
+						skipped = Math.min(finalCount - combination.finalIndex, to - outer);
+					chunk.pruned += skipped * inner;
+					outer += skipped - 1;
+					continue;
+				}
+			}
+
+			long point = outer * inner;
+			for (int pieces = 0; pieces < pieceCount; pieces++)
+			{
+				for (int selection = 0; selection < selectionCount; selection++, point++)
+				{
+					PlatingResult result = this.calculate(combination, pieces, selection);
+					if (this.pruneOutOfSpecification && !result.isInSpecification())
+						chunk.pruned++;
+					else
+						chunk.add(point, result);
+				}
+			}
+		}
+		return chunk;
+	}
+
+	/**
+	 * @param combination - Combination of the outer axis values
+	 * @param pieces - int of the index on the pieces axis
+	 * @param selection - int of the index on the selection axis
+	 * @return PlatingResult at the point
+	 */
+	private PlatingResult calculate(Combination combination, int pieces, int selection)
+	{
+		return PlatingMath.calculate(combination.startWeight, combination.width, combination.length,
+				combination.nbrSidesPlated, this.nbrPieces.get(pieces), this.selections.get(selection),
+				combination.finalWeight);
+	}
+
+	/**
+	 * @return long of the number of width, length, sides and weight combinations
+	 */
+	private long getOuterCount()
+	{
+		long count = this.widths.size();
+		count = Math.multiplyExact(count, this.lengths.size());
+		count = Math.multiplyExact(count, this.nbrSidesPlated.size());
+		count = Math.multiplyExact(count, this.startWeights.size());
+		return Math.multiplyExact(count, this.finalWeights.size());
+	}
+
+	/**
+	 * @return long of the number of piece and selection combinations
+	 */
+	private long getInnerCount()
+	{
+		return (long) this.nbrPieces.size() * this.selections.size();
+	}
+
+	/**
+	 * @throws IllegalArgumentException if an axis has not been set
+	 */
+	private void checkAxes()
+	{
+		if (this.startWeights == null || this.finalWeights == null || this.widths == null || this.lengths == null
+				|| this.nbrSidesPlated == null || this.nbrPieces == null || this.selections == null)
+			throw new IllegalArgumentException("Every sweep axis must be set.");
+	}
+
+	/**
+	 * @return the number of points written per second by the last run
+	 */
+	public double getPointsPerSecond()
+	{
+		if (this.elapsedNanos == 0)
+			return 0;
+		return (this.writtenCount + this.prunedCount) / (this.elapsedNanos / 1_000_000_000.0);
+	}
+
+	/**
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @return the startWeights
+	 */
+	public SweepAxis getStartWeights() {
+		return startWeights;
+	}
+
+	/**
+	 * @param startWeights the startWeights to set
+	 */
+	public void setStartWeights(SweepAxis startWeights) {
+		this.startWeights = startWeights;
+	}
+
+	/**
+	 * @return the finalWeights
+	 */
+	public SweepAxis getFinalWeights() {
+		return finalWeights;
+	}
+
+	/**
+	 * @param finalWeights the finalWeights to set
+	 */
+	public void setFinalWeights(SweepAxis finalWeights) {
+		this.finalWeights = finalWeights;
+	}
+
+	/**
+	 * @return the widths
+	 */
+	public SweepAxis getWidths() {
+		return widths;
+	}
+
+	/**
+	 * @param widths the widths to set
+	 */
+	public void setWidths(SweepAxis widths) {
+		this.widths = widths;
+	}
+
+	/**
+	 * @return the lengths
+	 */
+	public SweepAxis getLengths() {
+		return lengths;
+	}
+
+	/**
+	 * @param lengths the lengths to set
+	 */
+	public void setLengths(SweepAxis lengths) {
+		this.lengths = lengths;
+	}
+
+	/**
+	 * @return the nbrSidesPlated
+	 */
+	public SweepAxis getNbrSidesPlated() {
+		return nbrSidesPlated;
+	}
+
+	/**
+	 * @param nbrSidesPlated the nbrSidesPlated to set
+	 */
+	public void setNbrSidesPlated(SweepAxis nbrSidesPlated) {
+		this.nbrSidesPlated = nbrSidesPlated;
+	}
+
+	/**
+	 * @return the nbrPieces
+	 */
+	public SweepAxis getNbrPieces() {
+		return nbrPieces;
+	}
+
+	/**
+	 * @param nbrPieces the nbrPieces to set
+	 */
+	public void setNbrPieces(SweepAxis nbrPieces) {
+		this.nbrPieces = nbrPieces;
+	}
+
+	/**
+	 * @return the selections
+	 */
+	public SweepAxis getSelections() {
+		return selections;
+	}
+
+	/**
+	 * @param selections the selections to set
+	 */
+	public void setSelections(SweepAxis selections) {
+		this.selections = selections;
+	}
+
+	/**
+	 * @return the pruneOutOfSpecification
+	 */
+	public boolean isPruneOutOfSpecification() {
+		return pruneOutOfSpecification;
+	}
+
+	/**
+	 * @param pruneOutOfSpecification the pruneOutOfSpecification to set
+	 */
+	public void setPruneOutOfSpecification(boolean pruneOutOfSpecification) {
+		this.pruneOutOfSpecification = pruneOutOfSpecification;
+	}
+
+	/**
+	 * @return the writtenCount
+	 */
+	public long getWrittenCount() {
+		return writtenCount;
+	}
+
+	/**
+	 * @return the prunedCount
+	 */
+	public long getPrunedCount() {
+		return prunedCount;
+	}
+
+	/**
+	 * @return the elapsedNanos
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Values of the width, length, sides and weight axes at one combination.
+	 */
+	private final class Combination
+	{
+		/** width */
+		private double width;
+		/** length */
+		private double length;
+		/** number of sides plated */
+		private double nbrSidesPlated;
+		/** start weight */
+		private double startWeight;
+		/** final weight */
+		private double finalWeight;
+		/** index on the final weight axis */
+		private int finalIndex;
+
+		/**
+		 * @param outer - long of the combination's index
+		 */
+		private void set(long outer)
+		{
+			ParameterSweep sweep = ParameterSweep.this;
+			long rest = outer;
+			this.finalIndex = (int) (rest % sweep.finalWeights.size());
+			this.finalWeight = sweep.finalWeights.get(this.finalIndex);
+			rest /= sweep.finalWeights.size();
+			this.startWeight = sweep.startWeights.get((int) (rest % sweep.startWeights.size()));
+			rest /= sweep.startWeights.size();
+			this.nbrSidesPlated = sweep.nbrSidesPlated.get((int) (rest % sweep.nbrSidesPlated.size()));
+			rest /= sweep.nbrSidesPlated.size();
+			this.length = sweep.lengths.get((int) (rest % sweep.lengths.size()));
+			rest /= sweep.lengths.size();
+			this.width = sweep.widths.get((int) rest);
+		}
+	}
+
+	/**
+	 * Results of one chunk of the grid, in point order.
+	 */
+	private static final class Chunk
+	{
+		/** point indexes */
+		private final long [] points;
+		/** results by position */
+		private final PlatingResult [] results;
+		/** results held */
+		private int size;
+		/** points pruned */
+		private long pruned;
+
+		/**
+		 * @param capacity - int of the most points the chunk can hold
+		 */
+		private Chunk(int capacity)
+		{
+			this.points = new long[capacity];
+			this.results = new PlatingResult[capacity];
+		}
+
+		/**
+		 * @param point - long of the point's index
+		 * @param result - PlatingResult at the point
+		 */
+		private void add(long point, PlatingResult result)
+		{
+			this.points[this.size] = point;
+			this.results[this.size++] = result;
+		}
+
+		/**
+		 * @param sink - SweepSink to write to
+		 * @return int of the number of points written
+		 * @throws IOException
+		 */
+		private int write(SweepSink sink) throws IOException
+		{
+			for (int i = 0; i < this.size; i++)
+			{
+				sink.write(this.points[i], this.results[i]);
+			}
+			return this.size;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.sweep;
+
+import java.util.Arrays;
+
+/**
+ * The values one parameter takes in a sweep, either listed or stepped
+ * through a range.
+ */
+public final class SweepAxis
+{
+	/** values of the parameter */
+	private final double [] values;
+
+	/** true if every value is larger than the one before */
+	private final boolean ascending;
+
+	/**
+	 * @param values - double [] of the values, copied
+	 */
+	private SweepAxis(double [] values)
+	{
+		super();
+		if (values.length == 0)
+			throw new IllegalArgumentException("A sweep axis needs at least one value.");
+		this.values = values.clone();
+		boolean increasing = true;
+		for (int i = 1; i < values.length; i++)
+		{
+			if (!(values[i] > values[i - 1]))
+				increasing = false;
+		}
+		this.ascending = increasing;
+	}
+
+	/**
+	 * @param values - double values of the parameter
+	 * @return SweepAxis of the values in the order given
+	 */
+	public static SweepAxis of(double... values)
+	{
+		return new SweepAxis(values);
+	}
+
+	/**
+	 * Steps from the first value to the last.  The last value is included
+	 * when the steps land on it, allowing for rounding.
+	 * @param from - double of the first value
+	 * @param to - double of the last value
+	 * @param step - double of the positive step
+	 * @return SweepAxis of the values
+	 */
+	public static SweepAxis range(double from, double to, double step)
+	{
+		if (!(step > 0))
+			throw new IllegalArgumentException("Sweep step must be positive: " + step);
+		if (to < from)
+			throw new IllegalArgumentException("Sweep range ends before it starts: " + from + " to " + to);
+		long count = (long) Math.floor((to - from) / step + 1e-9) + 1;
+		if (count > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Sweep range has too many steps: " + count);
+		double [] values = new double[(int) count];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = from + i * step;
+		}
+		return new SweepAxis(values);
+	}
+
+	/**
+	 * Parses an axis written as from:to:step or as a comma separated list.
+	 * @param text - String of the axis
+	 * @return SweepAxis of the values
+	 * @throws IllegalArgumentException if the text is not an axis
+	 */
+	public static SweepAxis parse(String text)
+	{
+		try
+		{
+			String [] parts = text.split(":");
+			if (parts.length == 3)
+				return range(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()),
+						Double.parseDouble(parts[2].trim()));
+			if (parts.length == 1)
+			{
+				String [] items = text.split(",");
+				double [] values = new double[items.length];
+				for (int i = 0; i < items.length; i++)
+				{
+					values[i] = Double.parseDouble(items[i].trim());
+				}
+				return of(values);
+			}
+		}
+		catch (NumberFormatException ex)
+		{
+			throw new IllegalArgumentException("Invalid sweep axis: " + text, ex);
+		}
+		throw new IllegalArgumentException("Invalid sweep axis: " + text);
+	}
+
+	/**
+	 * @return int of the number of values
+	 */
+	public int size()
+	{
+		return this.values.length;
+	}
+
+	/**
+	 * @param index - int of the value's position
+	 * @return double of the value
+	 */
+	public double get(int index)
+	{
+		return this.values[index];
+	}
+
+	/**
+	 * @return boolean true if every value is larger than the one before
+	 */
+	public boolean isAscending()
+	{
+		return this.ascending;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "SweepAxis " + Arrays.toString(values);
+	}
+}
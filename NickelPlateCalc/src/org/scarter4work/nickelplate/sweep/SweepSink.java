@@ -0,0 +1,28 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.sweep;
+
+import java.io.IOException;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Receives the results of a sweep one point at a time, in point order, from
+ * a single thread.
+ */
+public interface SweepSink
+{
+	/**
+	 * @param point - long of the point's index in the grid
+	 * @param result - PlatingResult calculated at the point
+	 * @throws IOException
+	 */
+	void write(long point, PlatingResult result) throws IOException;
+
+	/**
+	 * Pushes out anything buffered once the sweep is done.
+	 * @throws IOException
+	 */
+	void flush() throws IOException;
+}
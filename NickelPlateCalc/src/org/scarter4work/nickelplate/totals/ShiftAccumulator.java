@@ -0,0 +1,365 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.totals;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Live amps and amp hour totals by tank for the current shift, fed by any
+ * number of threads at once.  Each tank keeps its totals in striped adders,
+ * so concurrent runs do not contend on a shared lock or counter.
+ * <p>
+ * A rollover starts a new shift by swapping in fresh totals.  Writers never
+ * wait on it: a writer that raced with the swap simply records into the new
+ * shift.  The rollover only waits for writers already part way through a
+ * record on the old shift, which takes nanoseconds, before it reads the
+ * closed totals.  Those writers are counted in padded stripes picked by
+ * thread, so writers on different threads touch different cache lines.  A
+ * writer raises and lowers the same stripe, so each stripe reaching zero in
+ * turn is a real quiet point for that stripe, unlike the sum of an adder,
+ * which can read zero while a writer is still part way through.
+ * <p>
+ * System properties for fromSystemProperties:
+ * nickelplate.shift.tanks (default 1, 0 for no shift totals) and
+ * nickelplate.shift.minutes (default 0, shifts are only closed by a caller
+ * that rolls them over).  Runs whose tank is not known go to tank 0.
+ */
+public class ShiftAccumulator
+{
+	/** system property of the number of tanks, 0 for no shift totals */
+	public static final String TANKS_PROPERTY = "nickelplate.shift.tanks";
+	/** system property of the shift length in minutes, 0 to never roll over on a timer */
+	public static final String MINUTES_PROPERTY = "nickelplate.shift.minutes";
+	/** default number of tanks */
+	public static final int DEFAULT_TANKS = 1;
+
+	/** number of tanks */
+	private final int tankCount;
+
+	/** totals of the open shift */
+	private volatile Shift current;
+
+	/** snapshot of the last closed shift */
+	private volatile ShiftSnapshot lastClosed;
+
+	/**
+	 * Creates the accumulator and opens the first shift.
+	 * @param tankCount - int of the number of tanks, indexed from 0
+	 */
+	public ShiftAccumulator(int tankCount)
+	{
+		super();
+		if (tankCount <= 0)
+			throw new IllegalArgumentException("Tank count must be positive: " + tankCount);
+		this.tankCount = tankCount;
+		this.current = new Shift(1, System.currentTimeMillis(), tankCount);
+	}
+
+	/**
+	 * Creates the accumulator set up by the nickelplate.shift system properties.
+	 * @return ShiftAccumulator, or null if shift totals are not kept
+	 */
+	public static ShiftAccumulator fromSystemProperties()
+	{
+		int tanks = Integer.getInteger(TANKS_PROPERTY, DEFAULT_TANKS).intValue();
+		if (tanks == 0)
+			return null;
+		return new ShiftAccumulator(tanks);
+	}
+
+	/**
+	 * @return long of the shift length in minutes set by the system properties, 0 for none
+	 */
+	public static long getShiftMinutesProperty()
+	{
+		long minutes = Long.getLong(MINUTES_PROPERTY, 0).longValue();
+		if (minutes < 0)
+			throw new IllegalArgumentException("Shift length must not be negative: " + minutes);
+		return minutes;
+	}
+
+	/**
+	 * Adds the totals of a completed run to its tank.
+	 * @param tank - tank index
+	 * @param result - PlatingResult of the run
+	 */
+	public void record(int tank, PlatingResult result)
+	{
+		this.record(tank, result.getTotalAmpsUsed(), result.getTotalAmpHoursUsed(),
+				result.getNbrPieces(), result.isInSpecification());
+	}
+
+	/**
+	 * Adds the totals of a completed run to its tank.
+	 * @param tank - tank index
+	 * @param totalAmpsUsed - total amps of the run
+	 * @param totalAmpHoursUsed - total amp hours of the run
+	 * @param nbrPieces - pieces plated in the run
+	 * @param inSpecification - true if the run was within specification
+	 */
+	public void record(int tank, double totalAmpsUsed, double totalAmpHoursUsed, double nbrPieces, boolean inSpecification)
+	{
+		if (tank < 0 || tank >= this.tankCount)
+			throw new IndexOutOfBoundsException("Tank " + tank + " outside 0 to " + (this.tankCount - 1));
+
+		while (true)
+		{
+			Shift shift = this.current;
+			int stripe = Shift.stripeIndex();
+			shift.writers.incrementAndGet(stripe);
+			try
+			{
+				// if a rollover swapped the shift, record into the new one instead
+				if (shift != this.current)
+					continue;
+				shift.tanks[tank].add(totalAmpsUsed, totalAmpHoursUsed, nbrPieces, inSpecification);
+				return;
+			}
+			finally
+			{
+				shift.writers.decrementAndGet(stripe);
+			}
+		}
+	}
+
+	/**
+	 * Reads the running totals of the open shift without stopping writers.
+	 * @return ShiftSnapshot of the open shift
+	 */
+	public ShiftSnapshot snapshot()
+	{
+		return this.current.snapshot(-1);
+	}
+
+	/**
+	 * Closes the open shift and starts the next one.
+	 * @return ShiftSnapshot of the closed shift
+	 */
+	public ShiftSnapshot rollover()
+	{
+		Shift closed;
+		synchronized (this)
+		{
+			closed = this.current;
+			this.current = new Shift(closed.number + 1, System.currentTimeMillis(), this.tankCount);
+		}
+
+		// let any record already under way on the closed shift finish
+		closed.awaitWriters();
+
+		ShiftSnapshot snapshot = closed.snapshot(this.current.startMillis);
+		this.lastClosed = snapshot;
+		return snapshot;
+	}
+
+	/**
+	 * Carries the totals of a shift saved before a restart into the open
+	 * shift, which takes on the saved shift's number and start time.  Runs
+	 * already recorded in the open shift are kept.  If the saved shift should
+	 * have ended while the process was down, it still ends at the next
+	 * rollover.
+	 * @param saved - ShiftSnapshot of the saved shift
+	 */
+	public void restore(ShiftSnapshot saved)
+	{
+		if (saved.getTankCount() != this.tankCount)
+			throw new IllegalArgumentException("Saved shift has " + saved.getTankCount() + " tanks, not " + this.tankCount);
+
+		Shift restored = new Shift(saved.getShiftNumber(), saved.getStartMillis(), this.tankCount);
+		for (int i = 0; i < this.tankCount; i++)
+		{
+			restored.tanks[i].add(saved.getAmps(i), saved.getAmpHours(i), saved.getPieces(i), saved.getRuns(i),
+					saved.getOutOfSpecRuns(i));
+		}
+
+		Shift replaced;
+		synchronized (this)
+		{
+			replaced = this.current;
+			this.current = restored;
+		}
+
+		// once the writers on the replaced shift are done, move its runs across
+		replaced.awaitWriters();
+		ShiftSnapshot recorded = replaced.snapshot(-1);
+		for (int i = 0; i < this.tankCount; i++)
+		{
+			restored.tanks[i].add(recorded.getAmps(i), recorded.getAmpHours(i), recorded.getPieces(i),
+					recorded.getRuns(i), recorded.getOutOfSpecRuns(i));
+		}
+	}
+
+	/**
+	 * Rolls the shift over at a fixed interval.
+	 * @param scheduler - ScheduledExecutorService to run the rollovers on
+	 * @param firstBoundary - long of the delay to the next shift boundary
+	 * @param shiftLength - long of the time between shift boundaries
+	 * @param unit - TimeUnit of the delay and shift length
+	 * @param onClose - Consumer given each closed shift, may be null
+	 * @return ScheduledFuture that can cancel the rollovers
+	 */
+	public ScheduledFuture<?> scheduleRollovers(ScheduledExecutorService scheduler, long firstBoundary,
+			long shiftLength, TimeUnit unit, Consumer<ShiftSnapshot> onClose)
+	{
+		return scheduler.scheduleAtFixedRate(() -> {
+			ShiftSnapshot closed = this.rollover();
+			if (onClose != null)
+				onClose.accept(closed);
+		}, firstBoundary, shiftLength, unit);
+	}
+
+	/**
+	 * @return the tankCount
+	 */
+	public int getTankCount() {
+		return tankCount;
+	}
+
+	/**
+	 * @return the snapshot of the last closed shift, or null before the first rollover
+	 */
+	public ShiftSnapshot getLastClosed() {
+		return lastClosed;
+	}
+
+	/**
+	 * Totals of one shift.
+	 */
+	private static final class Shift
+	{
+		/** longs between stripes, so each stripe sits on its own cache line */
+		private static final int STRIPE_PAD = 16;
+		/** number of writer stripes, a power of two */
+		private static final int STRIPES = Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors() * 2));
+
+		/** shift number */
+		private final long number;
+		/** time the shift started */
+		private final long startMillis;
+		/** totals by tank */
+		private final TankTotals [] tanks;
+		/** writers part way through a record, by stripe */
+		private final AtomicLongArray writers = new AtomicLongArray(STRIPES * STRIPE_PAD);
+
+		/**
+		 * @param number - shift number
+		 * @param startMillis - time the shift started
+		 * @param tankCount - number of tanks
+		 */
+		private Shift(long number, long startMillis, int tankCount)
+		{
+			this.number = number;
+			this.startMillis = startMillis;
+			this.tanks = new TankTotals[tankCount];
+			for (int i = 0; i < tankCount; i++)
+			{
+				this.tanks[i] = new TankTotals();
+			}
+		}
+
+		/**
+		 * @return index of the writer stripe for the calling thread
+		 */
+		private static int stripeIndex()
+		{
+			long id = Thread.currentThread().getId();
+			return (int) ((id ^ (id >>> 16)) & (STRIPES - 1)) * STRIPE_PAD;
+		}
+
+		/**
+		 * Waits until no writer is part way through a record on this shift.
+		 * The caller has already swapped the shift out, so no new writer
+		 * stays on it and each stripe drains in turn.
+		 */
+		private void awaitWriters()
+		{
+			for (int i = 0; i < STRIPES; i++)
+			{
+				while (this.writers.get(i * STRIPE_PAD) != 0)
+					Thread.onSpinWait();
+			}
+		}
+
+		/**
+		 * @param endMillis - time the shift ended, or -1 while it is open
+		 * @return ShiftSnapshot of the totals
+		 */
+		private ShiftSnapshot snapshot(long endMillis)
+		{
+			int count = this.tanks.length;
+			double [] amps = new double[count];
+			double [] ampHours = new double[count];
+			double [] pieces = new double[count];
+			long [] runs = new long[count];
+			long [] outOfSpec = new long[count];
+			for (int i = 0; i < count; i++)
+			{
+				TankTotals tank = this.tanks[i];
+				amps[i] = tank.amps.sum();
+				ampHours[i] = tank.ampHours.sum();
+				pieces[i] = tank.pieces.sum();
+				runs[i] = tank.runs.sum();
+				outOfSpec[i] = tank.outOfSpecRuns.sum();
+			}
+			return new ShiftSnapshot(this.number, this.startMillis, endMillis, amps, ampHours, pieces, runs, outOfSpec);
+		}
+	}
+
+	/**
+	 * Striped totals of one tank.
+	 */
+	private static final class TankTotals
+	{
+		/** total amps */
+		private final DoubleAdder amps = new DoubleAdder();
+		/** total amp hours */
+		private final DoubleAdder ampHours = new DoubleAdder();
+		/** pieces plated */
+		private final DoubleAdder pieces = new DoubleAdder();
+		/** runs */
+		private final LongAdder runs = new LongAdder();
+		/** runs out of specification */
+		private final LongAdder outOfSpecRuns = new LongAdder();
+
+		/**
+		 * @param totalAmpsUsed - total amps of the run
+		 * @param totalAmpHoursUsed - total amp hours of the run
+		 * @param nbrPieces - pieces plated in the run
+		 * @param inSpecification - true if the run was within specification
+		 */
+		private void add(double totalAmpsUsed, double totalAmpHoursUsed, double nbrPieces, boolean inSpecification)
+		{
+			this.amps.add(totalAmpsUsed);
+			this.ampHours.add(totalAmpHoursUsed);
+			this.pieces.add(nbrPieces);
+			this.runs.increment();
+			if (!inSpecification)
+				this.outOfSpecRuns.increment();
+		}
+
+		/**
+		 * @param totalAmps - total amps of the runs
+		 * @param totalAmpHours - total amp hours of the runs
+		 * @param totalPieces - pieces plated in the runs
+		 * @param runCount - number of runs
+		 * @param outOfSpecCount - number of the runs out of specification
+		 */
+		private void add(double totalAmps, double totalAmpHours, double totalPieces, long runCount, long outOfSpecCount)
+		{
+			this.amps.add(totalAmps);
+			this.ampHours.add(totalAmpHours);
+			this.pieces.add(totalPieces);
+			this.runs.add(runCount);
+			this.outOfSpecRuns.add(outOfSpecCount);
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.totals;
+
+/**
+ * Point in time copy of the totals for one shift, by tank and overall.
+ */
+public final class ShiftSnapshot
+{
+	/** shift number, counting from 1 */
+	private final long shiftNumber;
+	/** time the shift started in epoch milliseconds */
+	private final long startMillis;
+	/** time the shift ended in epoch milliseconds, or -1 while it is open */
+	private final long endMillis;
+	/** total amps by tank */
+	private final double [] amps;
+	/** total amp hours by tank */
+	private final double [] ampHours;
+	/** pieces plated by tank */
+	private final double [] pieces;
+	/** runs by tank */
+	private final long [] runs;
+	/** runs out of specification by tank */
+	private final long [] outOfSpecRuns;
+
+	/**
+	 * Creates a snapshot, normally taken by a ShiftAccumulator or read back
+	 * from a saved copy.
+	 * @param shiftNumber - shift number
+	 * @param startMillis - time the shift started
+	 * @param endMillis - time the shift ended, or -1 while it is open
+	 * @param amps - double [] of total amps by tank
+	 * @param ampHours - double [] of total amp hours by tank
+	 * @param pieces - double [] of pieces plated by tank
+	 * @param runs - long [] of runs by tank
+	 * @param outOfSpecRuns - long [] of runs out of specification by tank
+	 */
+	public ShiftSnapshot(long shiftNumber, long startMillis, long endMillis, double [] amps, double [] ampHours,
+			double [] pieces, long [] runs, long [] outOfSpecRuns)
+	{
+		super();
+		this.shiftNumber = shiftNumber;
+		this.startMillis = startMillis;
+		this.endMillis = endMillis;
+		this.amps = amps;
+		this.ampHours = ampHours;
+		this.pieces = pieces;
+		this.runs = runs;
+		this.outOfSpecRuns = outOfSpecRuns;
+	}
+
+	/**
+	 * @return int of the number of tanks
+	 */
+	public int getTankCount()
+	{
+		return this.amps.length;
+	}
+
+	/**
+	 * @param tank - tank index
+	 * @return double of the total amps for the tank
+	 */
+	public double getAmps(int tank)
+	{
+		return this.amps[tank];
+	}
+
+	/**
+	 * @param tank - tank index
+	 * @return double of the total amp hours for the tank
+	 */
+	public double getAmpHours(int tank)
+	{
+		return this.ampHours[tank];
+	}
+
+	/**
+	 * @param tank - tank index
+	 * @return double of the pieces plated in the tank
+	 */
+	public double getPieces(int tank)
+	{
+		return this.pieces[tank];
+	}
+
+	/**
+	 * @param tank - tank index
+	 * @return long of the runs in the tank
+	 */
+	public long getRuns(int tank)
+	{
+		return this.runs[tank];
+	}
+
+	/**
+	 * @param tank - tank index
+	 * @return long of the runs in the tank that were out of specification
+	 */
+	public long getOutOfSpecRuns(int tank)
+	{
+		return this.outOfSpecRuns[tank];
+	}
+
+	/**
+	 * @return double of the total amps over all tanks
+	 */
+	public double getTotalAmps()
+	{
+		return sum(this.amps);
+	}
+
+	/**
+	 * @return double of the total amp hours over all tanks
+	 */
+	public double getTotalAmpHours()
+	{
+		return sum(this.ampHours);
+	}
+
+	/**
+	 * @return double of the pieces plated over all tanks
+	 */
+	public double getTotalPieces()
+	{
+		return sum(this.pieces);
+	}
+
+	/**
+	 * @return long of the runs over all tanks
+	 */
+	public long getTotalRuns()
+	{
+		long total = 0;
+		for (long value : this.runs)
+		{
+			total += value;
+		}
+		return total;
+	}
+
+	/**
+	 * @return long of the runs out of specification over all tanks
+	 */
+	public long getTotalOutOfSpecRuns()
+	{
+		long total = 0;
+		for (long value : this.outOfSpecRuns)
+		{
+			total += value;
+		}
+		return total;
+	}
+
+	/**
+	 * @return boolean true while the shift is still open
+	 */
+	public boolean isOpen()
+	{
+		return this.endMillis < 0;
+	}
+
+	/**
+	 * @param values - double [] to add up
+	 * @return double of the sum
+	 */
+	private static double sum(double [] values)
+	{
+		double total = 0;
+		for (double value : values)
+		{
+			total += value;
+		}
+		return total;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ShiftSnapshot [shiftNumber=" + shiftNumber + ", startMillis=" + startMillis
+				+ ", endMillis=" + endMillis + ", totalAmps=" + getTotalAmps()
+				+ ", totalAmpHours=" + getTotalAmpHours() + ", totalPieces=" + getTotalPieces()
+				+ ", totalRuns=" + getTotalRuns() + ", totalOutOfSpecRuns=" + getTotalOutOfSpecRuns() + "]";
+	}
+
+	/**
+	 * @return the shiftNumber
+	 */
+	public long getShiftNumber() {
+		return shiftNumber;
+	}
+
+	/**
+	 * @return the startMillis
+	 */
+	public long getStartMillis() {
+		return startMillis;
+	}
+
+	/**
+	 * @return the endMillis
+	 */
+	public long getEndMillis() {
+		return endMillis;
+	}
+}
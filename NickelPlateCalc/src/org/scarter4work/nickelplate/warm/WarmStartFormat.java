@@ -0,0 +1,87 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.warm;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the warm start snapshot file, all little endian.  The body is
+ * covered by a CRC32 in the header, so a snapshot torn by a crash part way
+ * through a copy is refused rather than half restored.
+ * <pre>
+ * header (64 bytes)
+ *   0  int    magic 'NPWS'
+ *   4  short  format version
+ *   6  short  header size
+ *   8  long   snapshot time, epoch milliseconds
+ *  16  int    number of cached geometries
+ *  20  int    number of tanks in the shift totals, 0 when there are none
+ *  24  long   shift number
+ *  32  long   shift start time, epoch milliseconds
+ *  40  int    size of the text section
+ *  44  int    CRC32 of everything after the header
+ *  48..63     reserved, zero
+ *
+ * geometry (40 bytes), least recently used first within each cache segment
+ *   0  double width
+ *   8  double length
+ *  16  double number of sides plated
+ *  24  double number of pieces
+ *  32  double selection
+ *
+ * tank totals (40 bytes), by tank
+ *   0  double total amps
+ *   8  double total amp hours
+ *  16  double pieces plated
+ *  24  long   runs
+ *  32  long   runs out of specification
+ *
+ * text, absent when its size is 0
+ *   int stamp size, UTF-8 stamp of the text source
+ *   int number of messages, then for each
+ *   int key size, UTF-8 key, int text size, UTF-8 text
+ * </pre>
+ */
+final class WarmStartFormat
+{
+	/** file magic, 'NPWS' */
+	static final int MAGIC = 0x4E505753;
+	/** current format version */
+	static final short VERSION = 1;
+	/** size of the header */
+	static final int HEADER_SIZE = 64;
+	/** size of a geometry */
+	static final int GEOMETRY_SIZE = 40;
+	/** size of a tank's totals */
+	static final int TANK_SIZE = 40;
+	/** byte order of every value */
+	static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/** header magic offset */
+	static final int MAGIC_OFFSET = 0;
+	/** header version offset */
+	static final int VERSION_OFFSET = 4;
+	/** header size offset */
+	static final int HEADER_SIZE_OFFSET = 6;
+	/** header snapshot time offset */
+	static final int CREATED_OFFSET = 8;
+	/** header geometry count offset */
+	static final int GEOMETRY_COUNT_OFFSET = 16;
+	/** header tank count offset */
+	static final int TANK_COUNT_OFFSET = 20;
+	/** header shift number offset */
+	static final int SHIFT_NUMBER_OFFSET = 24;
+	/** header shift start offset */
+	static final int SHIFT_START_OFFSET = 32;
+	/** header text size offset */
+	static final int TEXT_SIZE_OFFSET = 40;
+	/** header body CRC offset */
+	static final int CRC_OFFSET = 44;
+
+	/** no instances */
+	private WarmStartFormat()
+	{
+		super();
+	}
+}
@@ -0,0 +1,519 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.warm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.scarter4work.nickelplate.calc.GeometryCache;
+import org.scarter4work.nickelplate.calc.GeometryResult;
+import org.scarter4work.nickelplate.prompter.ConsolePrompter;
+import org.scarter4work.nickelplate.totals.ShiftAccumulator;
+import org.scarter4work.nickelplate.totals.ShiftSnapshot;
+
+/**
+ * Saves the calculation state a process builds up while it runs, and puts it
+ * back when a new process starts, so a restarted service or batch runs at
+ * full speed straight away instead of warming up again.  The state is the
+ * geometry cache's results, the open shift's totals and the prompt and
+ * output text, each optional.  It is written to a compact file, see
+ * WarmStartFormat, every interval and on stop, and read back through a
+ * memory mapping.
+ * <p>
+ * Cached geometries are saved by their five inputs and recalculated on
+ * restore, which is a few multiplications each.  Shift totals are only
+ * restored into an accumulator with the same number of tanks.  Text is
+ * only restored while its source's stamp is unchanged, so an edited
+ * properties file is read as usual.  A snapshot is written to a temporary
+ * file and moved over the old one, so a crash while saving leaves the
+ * previous snapshot in place.
+ */
+public class WarmStartStore
+{
+	/** system property naming the snapshot file */
+	public static final String FILE_PROPERTY = "nickelplate.warmStart.file";
+
+	/** system property for the seconds between snapshots */
+	public static final String INTERVAL_PROPERTY = "nickelplate.warmStart.intervalSeconds";
+
+	/** default seconds between snapshots */
+	public static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+	/** snapshot file */
+	private final Path path;
+
+	/** geometry cache to save and warm, null for none */
+	private final GeometryCache cache;
+
+	/** shift totals to save and restore, null for none */
+	private final ShiftAccumulator shifts;
+
+	/** prompter whose text is saved and restored, null for none */
+	private final ConsolePrompter prompter;
+
+	/** seconds between snapshots */
+	private long intervalSeconds = DEFAULT_INTERVAL_SECONDS;
+
+	/** thread taking the periodic snapshots, null when stopped */
+	private ScheduledExecutorService scheduler;
+
+	/** number of geometries put back in the cache by the last restore */
+	private int restoredGeometryCount;
+
+	/** true if the last restore carried the shift totals over */
+	private boolean shiftRestored;
+
+	/** true if the last restore supplied the prompter's text */
+	private boolean textRestored;
+
+	/** time the last restore took in nanoseconds */
+	private long restoreNanos;
+
+	/** number of snapshots saved */
+	private volatile long saveCount;
+
+	/**
+	 * @param path - Path of the snapshot file
+	 * @param cache - GeometryCache to save and warm, null for none
+	 * @param shifts - ShiftAccumulator to save and restore, null for none
+	 * @param prompter - ConsolePrompter whose text is saved and restored, null for none
+	 */
+	public WarmStartStore(Path path, GeometryCache cache, ShiftAccumulator shifts, ConsolePrompter prompter)
+	{
+		super();
+		this.path = path;
+		this.cache = cache;
+		this.shifts = shifts;
+		this.prompter = prompter;
+	}
+
+	/**
+	 * Creates a store from the nickelplate.warmStart system properties.
+	 * @param cache - GeometryCache to save and warm, null for none
+	 * @param shifts - ShiftAccumulator to save and restore, null for none
+	 * @param prompter - ConsolePrompter whose text is saved and restored, null for none
+	 * @return WarmStartStore, or null when no snapshot file is set or there is nothing to keep
+	 */
+	public static WarmStartStore fromSystemProperties(GeometryCache cache, ShiftAccumulator shifts,
+			ConsolePrompter prompter)
+	{
+		String filename = System.getProperty(FILE_PROPERTY);
+		if (filename == null || filename.isEmpty())
+			return null;
+		if (cache == null && shifts == null && prompter == null)
+			return null;
+		WarmStartStore store = new WarmStartStore(Paths.get(filename), cache, shifts, prompter);
+		store.setIntervalSeconds(Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_SECONDS).longValue());
+		return store;
+	}
+
+	/**
+	 * Puts the saved state back.  Call it before the cache, totals or text are
+	 * first used.
+	 * @return boolean true if a snapshot was restored, false if there is none yet
+	 * @throws IOException if the snapshot cannot be read or is damaged, in which case nothing is restored
+	 */
+	public synchronized boolean restore() throws IOException
+	{
+		long start = System.nanoTime();
+		this.restoredGeometryCount = 0;
+		this.shiftRestored = false;
+		this.textRestored = false;
+		if (!Files.isRegularFile(this.path))
+			return false;
+
+		ByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if (size < WarmStartFormat.HEADER_SIZE)
+				throw new IOException("Not a warm start snapshot: " + this.path);
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("Warm start snapshot is too large to map: " + this.path);
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(WarmStartFormat.ORDER);
+		}
+
+		int geometryCount = this.checkHeader(mapped);
+		int tankCount = mapped.getInt(WarmStartFormat.TANK_COUNT_OFFSET);
+		int textSize = mapped.getInt(WarmStartFormat.TEXT_SIZE_OFFSET);
+
+		// read every section before changing anything, so a bad snapshot restores nothing
+		int offset = WarmStartFormat.HEADER_SIZE;
+		GeometryResult [] geometries = new GeometryResult[this.cache != null ? geometryCount : 0];
+		for (int i = 0; i < geometries.length; i++)
+		{
+			int at = offset + i * WarmStartFormat.GEOMETRY_SIZE;
+			geometries[i] = new GeometryResult(mapped.getDouble(at), mapped.getDouble(at + 8), mapped.getDouble(at + 16),
+					mapped.getDouble(at + 24), mapped.getDouble(at + 32));
+		}
+		offset += geometryCount * WarmStartFormat.GEOMETRY_SIZE;
+
+		ShiftSnapshot shift = null;
+		if (this.shifts != null && tankCount == this.shifts.getTankCount())
+			shift = readShift(mapped, offset, tankCount);
+		offset += tankCount * WarmStartFormat.TANK_SIZE;
+
+		Map<String,String> text = null;
+		if (this.prompter != null && textSize > 0)
+		{
+			ByteBuffer section = mapped.duplicate().order(WarmStartFormat.ORDER);
+			section.position(offset).limit(offset + textSize);
+			String stamp = readString(section);
+			if (stamp.equals(this.prompter.getTextStamp()))
+				text = readText(section);
+		}
+
+		for (GeometryResult geometry : geometries)
+		{
+			this.cache.put(geometry);
+		}
+		this.restoredGeometryCount = geometries.length;
+		if (shift != null)
+		{
+			this.shifts.restore(shift);
+			this.shiftRestored = true;
+		}
+		if (text != null)
+			this.textRestored = this.prompter.preload(text);
+		this.restoreNanos = System.nanoTime() - start;
+		return true;
+	}
+
+	/**
+	 * Writes a snapshot of the current state.
+	 * @throws IOException
+	 */
+	public synchronized void save() throws IOException
+	{
+		List<GeometryResult> geometries = this.cache != null ? this.cache.getEntries() : Collections.emptyList();
+		ShiftSnapshot shift = this.shifts != null ? this.shifts.snapshot() : null;
+		byte [] text = this.prompter != null ? encodeText(this.prompter.getTextStamp(), this.prompter.getText())
+				: new byte[0];
+		int tankCount = shift != null ? shift.getTankCount() : 0;
+
+		long size = WarmStartFormat.HEADER_SIZE + (long) geometries.size() * WarmStartFormat.GEOMETRY_SIZE
+				+ (long) tankCount * WarmStartFormat.TANK_SIZE + text.length;
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("Warm start snapshot would be too large to map: " + size + " bytes");
+		ByteBuffer buffer = ByteBuffer.allocate((int) size).order(WarmStartFormat.ORDER);
+		buffer.putInt(WarmStartFormat.MAGIC_OFFSET, WarmStartFormat.MAGIC);
+		buffer.putShort(WarmStartFormat.VERSION_OFFSET, WarmStartFormat.VERSION);
+		buffer.putShort(WarmStartFormat.HEADER_SIZE_OFFSET, (short) WarmStartFormat.HEADER_SIZE);
+		buffer.putLong(WarmStartFormat.CREATED_OFFSET, System.currentTimeMillis());
+		buffer.putInt(WarmStartFormat.GEOMETRY_COUNT_OFFSET, geometries.size());
+		buffer.putInt(WarmStartFormat.TANK_COUNT_OFFSET, tankCount);
+		if (shift != null)
+		{
+			buffer.putLong(WarmStartFormat.SHIFT_NUMBER_OFFSET, shift.getShiftNumber());
+			buffer.putLong(WarmStartFormat.SHIFT_START_OFFSET, shift.getStartMillis());
+		}
+		buffer.putInt(WarmStartFormat.TEXT_SIZE_OFFSET, text.length);
+		buffer.position(WarmStartFormat.HEADER_SIZE);
+
+		for (GeometryResult geometry : geometries)
+		{
+			buffer.putDouble(geometry.getWidth());
+			buffer.putDouble(geometry.getLength());
+			buffer.putDouble(geometry.getNbrSidesPlated());
+			buffer.putDouble(geometry.getNbrPieces());
+			buffer.putDouble(geometry.getSelection());
+		}
+		for (int i = 0; i < tankCount; i++)
+		{
+			buffer.putDouble(shift.getAmps(i));
+			buffer.putDouble(shift.getAmpHours(i));
+			buffer.putDouble(shift.getPieces(i));
+			buffer.putLong(shift.getRuns(i));
+			buffer.putLong(shift.getOutOfSpecRuns(i));
+		}
+		buffer.put(text);
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), WarmStartFormat.HEADER_SIZE, (int) size - WarmStartFormat.HEADER_SIZE);
+		buffer.putInt(WarmStartFormat.CRC_OFFSET, (int) crc.getValue());
+		buffer.flip();
+
+		Path absolute = this.path.toAbsolutePath();
+		Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		this.saveCount++;
+	}
+
+	/**
+	 * Starts saving a snapshot every interval on a daemon thread.  A failed
+	 * save is reported on standard error and tried again next interval.
+	 */
+	public synchronized void start()
+	{
+		if (this.scheduler != null)
+			return;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "nickelplate-warm-start");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::saveQuietly, this.intervalSeconds, this.intervalSeconds,
+				TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops the periodic snapshots and saves a last one.
+	 * @throws IOException if the last snapshot cannot be saved
+	 */
+	public void stop() throws IOException
+	{
+		ScheduledExecutorService running;
+		synchronized (this)
+		{
+			running = this.scheduler;
+			this.scheduler = null;
+		}
+		if (running != null)
+			running.shutdownNow();
+		this.save();
+	}
+
+	/**
+	 * Saves a snapshot, reporting rather than throwing a failure.
+	 */
+	private void saveQuietly()
+	{
+		try
+		{
+			this.save();
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			System.err.println("Warm start snapshot failed, keeping the previous one: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Checks the header and the body's CRC.
+	 * @param mapped - ByteBuffer of the whole snapshot
+	 * @return int of the number of geometries
+	 * @throws IOException if the snapshot is not one this version reads or is damaged
+	 */
+	private int checkHeader(ByteBuffer mapped) throws IOException
+	{
+		if (mapped.getInt(WarmStartFormat.MAGIC_OFFSET) != WarmStartFormat.MAGIC)
+			throw new IOException("Not a warm start snapshot: " + this.path);
+		short version = mapped.getShort(WarmStartFormat.VERSION_OFFSET);
+		if (version != WarmStartFormat.VERSION)
+			throw new IOException("Unsupported warm start snapshot version " + version + ": " + this.path);
+		if (mapped.getShort(WarmStartFormat.HEADER_SIZE_OFFSET) != WarmStartFormat.HEADER_SIZE)
+			throw new IOException("Warm start snapshot header is damaged: " + this.path);
+
+		int geometryCount = mapped.getInt(WarmStartFormat.GEOMETRY_COUNT_OFFSET);
+		int tankCount = mapped.getInt(WarmStartFormat.TANK_COUNT_OFFSET);
+		int textSize = mapped.getInt(WarmStartFormat.TEXT_SIZE_OFFSET);
+		if (geometryCount < 0 || tankCount < 0 || textSize < 0)
+			throw new IOException("Warm start snapshot header is damaged: " + this.path);
+		long expected = WarmStartFormat.HEADER_SIZE + (long) geometryCount * WarmStartFormat.GEOMETRY_SIZE
+				+ (long) tankCount * WarmStartFormat.TANK_SIZE + textSize;
+		if (expected != mapped.capacity())
+			throw new IOException("Warm start snapshot is truncated or damaged, expected " + expected
+					+ " bytes but found " + mapped.capacity() + ": " + this.path);
+
+		CRC32 crc = new CRC32();
+		ByteBuffer body = mapped.duplicate();
+		body.position(WarmStartFormat.HEADER_SIZE);
+		crc.update(body);
+		if ((int) crc.getValue() != mapped.getInt(WarmStartFormat.CRC_OFFSET))
+			throw new IOException("Warm start snapshot fails its checksum: " + this.path);
+		return geometryCount;
+	}
+
+	/**
+	 * @param mapped - ByteBuffer of the whole snapshot
+	 * @param offset - int of the first tank's totals
+	 * @param tankCount - int of the number of tanks
+	 * @return ShiftSnapshot of the saved totals
+	 */
+	private static ShiftSnapshot readShift(ByteBuffer mapped, int offset, int tankCount)
+	{
+		double [] amps = new double[tankCount];
+		double [] ampHours = new double[tankCount];
+		double [] pieces = new double[tankCount];
+		long [] runs = new long[tankCount];
+		long [] outOfSpecRuns = new long[tankCount];
+		for (int i = 0; i < tankCount; i++)
+		{
+			int at = offset + i * WarmStartFormat.TANK_SIZE;
+			amps[i] = mapped.getDouble(at);
+			ampHours[i] = mapped.getDouble(at + 8);
+			pieces[i] = mapped.getDouble(at + 16);
+			runs[i] = mapped.getLong(at + 24);
+			outOfSpecRuns[i] = mapped.getLong(at + 32);
+		}
+		return new ShiftSnapshot(mapped.getLong(WarmStartFormat.SHIFT_NUMBER_OFFSET),
+				mapped.getLong(WarmStartFormat.SHIFT_START_OFFSET), -1, amps, ampHours, pieces, runs, outOfSpecRuns);
+	}
+
+	/**
+	 * @param section - ByteBuffer positioned after the text's stamp
+	 * @return Map of the messages by property key
+	 * @throws IOException if the section is damaged
+	 */
+	private static Map<String,String> readText(ByteBuffer section) throws IOException
+	{
+		int count = readSize(section, Integer.BYTES);
+		Map<String,String> text = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++)
+		{
+			String key = readString(section);
+			text.put(key, readString(section));
+		}
+		return text;
+	}
+
+	/**
+	 * @param section - ByteBuffer positioned at a size prefixed string
+	 * @return String read
+	 * @throws IOException if the size runs past the section
+	 */
+	private static String readString(ByteBuffer section) throws IOException
+	{
+		byte [] bytes = new byte[readSize(section, 1)];
+		section.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param section - ByteBuffer positioned at a size
+	 * @param unit - int of the bytes each counted item takes at least
+	 * @return int of the size read
+	 * @throws IOException if the size runs past the section
+	 */
+	private static int readSize(ByteBuffer section, int unit) throws IOException
+	{
+		if (section.remaining() < Integer.BYTES)
+			throw new IOException("Warm start snapshot text is damaged.");
+		int size = section.getInt();
+		if (size < 0 || (long) size * unit > section.remaining())
+			throw new IOException("Warm start snapshot text is damaged.");
+		return size;
+	}
+
+	/**
+	 * @param stamp - String identifying the version of the text source
+	 * @param text - Map of the messages by property key
+	 * @return byte [] of the text section
+	 */
+	private static byte [] encodeText(String stamp, Map<String,String> text)
+	{
+		byte [] stampBytes = stamp.getBytes(StandardCharsets.UTF_8);
+		byte [][] entries = new byte[text.size() * 2][];
+		int size = Integer.BYTES + stampBytes.length + Integer.BYTES;
+		int i = 0;
+		for (Map.Entry<String,String> entry : text.entrySet())
+		{
+			entries[i] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			entries[i + 1] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+			size += 2 * Integer.BYTES + entries[i].length + entries[i + 1].length;
+			i += 2;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(size).order(WarmStartFormat.ORDER);
+		buffer.putInt(stampBytes.length).put(stampBytes);
+		buffer.putInt(text.size());
+		for (byte [] bytes : entries)
+		{
+			buffer.putInt(bytes.length).put(bytes);
+		}
+		return buffer.array();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "WarmStartStore [path=" + path + ", restoredGeometryCount=" + restoredGeometryCount
+				+ ", shiftRestored=" + shiftRestored + ", textRestored=" + textRestored + ", restoreMillis="
+				+ (restoreNanos / 1_000_000.0) + ", saveCount=" + saveCount + "]";
+	}
+
+	/**
+	 * @return the path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the intervalSeconds
+	 */
+	public long getIntervalSeconds() {
+		return intervalSeconds;
+	}
+
+	/**
+	 * @param intervalSeconds the intervalSeconds to set, used by the next start
+	 */
+	public void setIntervalSeconds(long intervalSeconds) {
+		if (intervalSeconds <= 0)
+			throw new IllegalArgumentException("Snapshot interval must be positive: " + intervalSeconds);
+		this.intervalSeconds = intervalSeconds;
+	}
+
+	/**
+	 * @return the restoredGeometryCount
+	 */
+	public synchronized int getRestoredGeometryCount() {
+		return restoredGeometryCount;
+	}
+
+	/**
+	 * @return the shiftRestored
+	 */
+	public synchronized boolean isShiftRestored() {
+		return shiftRestored;
+	}
+
+	/**
+	 * @return the textRestored
+	 */
+	public synchronized boolean isTextRestored() {
+		return textRestored;
+	}
+
+	/**
+	 * @return the restoreNanos
+	 */
+	public synchronized long getRestoreNanos() {
+		return restoreNanos;
+	}
+
+	/**
+	 * @return the saveCount
+	 */
+	public long getSaveCount() {
+		return saveCount;
+	}
+}
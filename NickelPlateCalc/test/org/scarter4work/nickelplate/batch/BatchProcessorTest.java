@@ -0,0 +1,169 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a batch skips only comments, blank lines and the leading
+ * header, and that every other bad line is reported with its line number and
+ * counted the same way by the single threaded, parallel and sharded batches.
+ */
+public class BatchProcessorTest
+{
+	/** line numbers of the malformed lines in the input */
+	private static final List<Long> BAD_LINES = List.of(5L, 6L, 7L, 8L, 15L);
+
+	/** records in the input */
+	private static final int RECORDS = 7;
+
+	/** line number in a report */
+	private static final Pattern LINE_NUMBER = Pattern.compile("^Bad work order on line (\\d+): ", Pattern.MULTILINE);
+
+	/**
+	 * The single threaded batch leaves the bad lines out, reports each on
+	 * stderr and counts them.
+	 * @throws IOException
+	 */
+	@Test
+	public void badLinesAreReportedAndCounted() throws IOException
+	{
+		BatchProcessor processor = new BatchProcessor(null);
+		StringWriter output = new StringWriter();
+		String errors = captureErr(() -> assertEquals(RECORDS, processor.process(new StringReader(input()), output)));
+
+		assertEquals(BAD_LINES, lineNumbers(errors));
+		assertEquals(BAD_LINES.size(), processor.getSkippedCount());
+		assertEquals(RECORDS + 1, output.toString().split(System.lineSeparator()).length);
+	}
+
+	/**
+	 * The parallel batch, with chunks small enough that the bad lines fall in
+	 * several, gives the same output, reports and count.
+	 * @throws IOException
+	 */
+	@Test
+	public void parallelBatchMatches() throws IOException
+	{
+		StringWriter single = new StringWriter();
+		captureErr(() -> new BatchProcessor(null).process(new StringReader(input()), single));
+
+		ParallelBatchProcessor processor = new ParallelBatchProcessor(3, 3, null);
+		StringWriter parallel = new StringWriter();
+		String errors = captureErr(() -> assertEquals(RECORDS, processor.process(new StringReader(input()), parallel)));
+
+		assertEquals(single.toString(), parallel.toString());
+		assertEquals(BAD_LINES, lineNumbers(errors));
+		assertEquals(BAD_LINES.size(), processor.getSkippedCount());
+	}
+
+	/**
+	 * The sharded batch drops the bad lines while splitting, with either key.
+	 * @throws IOException
+	 */
+	@Test
+	public void shardedBatchMatches() throws IOException
+	{
+		StringWriter single = new StringWriter();
+		captureErr(() -> new BatchProcessor(null).process(new StringReader(input()), single));
+
+		for (ShardKeyEnum key : ShardKeyEnum.values())
+		{
+			try (InProcessShardWorker worker = new InProcessShardWorker())
+			{
+				ShardCoordinator coordinator = new ShardCoordinator(List.of(worker), key, 2);
+				StringWriter sharded = new StringWriter();
+				String errors = captureErr(
+						() -> assertEquals(RECORDS, coordinator.process(new StringReader(input()), sharded)));
+
+				assertEquals(single.toString(), sharded.toString(), key.toString());
+				assertEquals(BAD_LINES, lineNumbers(errors), key.toString());
+				assertEquals(BAD_LINES.size(), coordinator.getSkippedCount());
+			}
+		}
+	}
+
+	/**
+	 * @return String of a work order file with comments, a header and bad lines
+	 */
+	private static String input()
+	{
+		return "# shift 3\n"
+				+ "startWeight,width,length,nbrSides,nbrPieces,selection,finalWeight\n"
+				+ "\n"
+				+ "100,2,3,1,1,1,100.05\n"
+				+ "100,2,3,1,1,1\n"
+				+ "startWeight,width,length,nbrSides,nbrPieces,selection,finalWeight\n"
+				+ "100,2,3,1,1,1,100.05,9\n"
+				+ "100,abc,3,1,1,1,100.05\n"
+				+ "  # rework\n"
+				+ "101,2.5,3,2,4,2,101.1\n"
+				+ "102\t2.5\t3\t2\t4\t2\t102.2\n"
+				+ "103,2.5,3,2,4,2,103.3\n"
+				+ "104,2,3,1,1,1,104.05\n"
+				+ "105,2,3,1,1,1,105.05\n"
+				+ "1O6,2,3,1,1,1,106.05\n"
+				+ "107,2,3,1,1,1,107.05\n";
+	}
+
+	/**
+	 * @param errors - String written to stderr
+	 * @return List of the line numbers reported, in order
+	 */
+	private static List<Long> lineNumbers(String errors)
+	{
+		List<Long> lines = new ArrayList<>();
+		Matcher matcher = LINE_NUMBER.matcher(errors);
+		while (matcher.find())
+		{
+			lines.add(Long.valueOf(matcher.group(1)));
+		}
+		return lines;
+	}
+
+	/**
+	 * @param run - Run writing to stderr
+	 * @return String of what it wrote there
+	 * @throws IOException
+	 */
+	private static String captureErr(Run run) throws IOException
+	{
+		PrintStream saved = System.err;
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+		System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+		try
+		{
+			run.run();
+		}
+		finally
+		{
+			System.setErr(saved);
+		}
+		return captured.toString(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Code run with stderr captured.
+	 */
+	private interface Run
+	{
+		/**
+		 * @throws IOException
+		 */
+		void run() throws IOException;
+	}
+}
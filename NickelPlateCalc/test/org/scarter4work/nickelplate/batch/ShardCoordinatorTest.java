@@ -0,0 +1,193 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Checks that a sharded batch whose worker is killed part way through a
+ * shard still gives the output and totals of a run in one JVM.  The workers
+ * are InProcessShardWorkers, reached over loopback sockets.
+ */
+public class ShardCoordinatorTest
+{
+	/** work orders in the input, spread over several BLOCK_SIZE blocks */
+	private static final int RECORDS = 5 * ShardCoordinator.BLOCK_SIZE + 123;
+
+	/** records the doomed worker calculates before it is killed */
+	private static final int KILL_AFTER = 50;
+
+	/** number of shards */
+	private static final int SHARDS = 6;
+
+	/**
+	 * Block shards of a killed worker are rerun elsewhere.
+	 * @throws IOException
+	 */
+	@Test
+	public void blockShardsSurviveKilledWorker() throws IOException
+	{
+		this.runWithKilledWorker(ShardKeyEnum.BLOCK);
+	}
+
+	/**
+	 * Geometry shards of a killed worker are rerun elsewhere.
+	 * @throws IOException
+	 */
+	@Test
+	public void geometryShardsSurviveKilledWorker() throws IOException
+	{
+		this.runWithKilledWorker(ShardKeyEnum.GEOMETRY);
+	}
+
+	/**
+	 * Runs the input on a worker that is killed after KILL_AFTER records and
+	 * two that hold off until it has been, then compares the result with a
+	 * run in one JVM.
+	 * @param key - ShardKeyEnum of how records are split
+	 * @throws IOException
+	 */
+	private void runWithKilledWorker(ShardKeyEnum key) throws IOException
+	{
+		String input = input();
+		CountDownLatch killed = new CountDownLatch(1);
+		AtomicInteger doomedRecords = new AtomicInteger();
+		InProcessShardWorker [] doomed = new InProcessShardWorker[1];
+
+		doomed[0] = new InProcessShardWorker(() -> new ShardWorker(new BatchProcessor(null)
+		{
+			@Override
+			PlatingResult processRecord(String raw, long lineNumber, double [] fields, StringBuilder out)
+			{
+				if (doomedRecords.incrementAndGet() == KILL_AFTER)
+				{
+					doomed[0].kill();
+					killed.countDown();
+				}
+				return super.processRecord(raw, lineNumber, fields, out);
+			}
+		}));
+		try (InProcessShardWorker doomedWorker = doomed[0];
+				InProcessShardWorker first = new InProcessShardWorker(() -> heldUntil(killed));
+				InProcessShardWorker second = new InProcessShardWorker(() -> heldUntil(killed)))
+		{
+			ShardCoordinator coordinator = new ShardCoordinator(List.of(doomedWorker, first, second), key, SHARDS);
+			StringWriter sharded = new StringWriter();
+			assertEquals(RECORDS, coordinator.process(new StringReader(input), sharded));
+
+			assertEquals(0, killed.getCount(), "the doomed worker was never killed");
+			assertTrue(coordinator.getReassignedCount() >= 1, "no shard was reassigned");
+
+			StringWriter single = new StringWriter();
+			assertEquals(RECORDS, new BatchProcessor(null).process(new StringReader(input), single));
+			assertEquals(single.toString(), sharded.toString());
+			assertTotals(singleTotals(input), coordinator.getTotals());
+		}
+	}
+
+	/**
+	 * @param killed - CountDownLatch released when the doomed worker is killed
+	 * @return ShardWorker that calculates nothing until the latch is released
+	 */
+	private static ShardWorker heldUntil(CountDownLatch killed)
+	{
+		return new ShardWorker(new BatchProcessor(null)
+		{
+			@Override
+			PlatingResult processRecord(String raw, long lineNumber, double [] fields, StringBuilder out)
+			{
+				try
+				{
+					killed.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+				}
+				return super.processRecord(raw, lineNumber, fields, out);
+			}
+		});
+	}
+
+	/**
+	 * @param input - String of the work order file
+	 * @return ShardTotals of one pass over every record
+	 */
+	private static ShardTotals singleTotals(String input)
+	{
+		BatchProcessor processor = new BatchProcessor(null);
+		WorkOrderParser header = new WorkOrderParser();
+		ShardTotals totals = new ShardTotals();
+		double [] fields = new double[WorkOrderParser.FIELD_COUNT];
+		StringBuilder line = new StringBuilder();
+		long lineNumber = 0;
+		for (String raw : input.split("\n"))
+		{
+			lineNumber++;
+			if (header.isLeadingHeader(raw))
+				continue;
+			line.setLength(0);
+			PlatingResult result = processor.processRecord(raw, lineNumber, fields, line);
+			if (result != null)
+				totals.record(result);
+		}
+		return totals;
+	}
+
+	/**
+	 * Counts and extremes must match exactly, sums and moments to rounding.
+	 * @param expected - ShardTotals of one pass
+	 * @param actual - ShardTotals merged from the shards
+	 */
+	private static void assertTotals(ShardTotals expected, ShardTotals actual)
+	{
+		assertEquals(expected.getRecords(), actual.getRecords());
+		assertEquals(expected.getInSpecification(), actual.getInSpecification());
+		assertEquals(expected.getThicknessMin(), actual.getThicknessMin());
+		assertEquals(expected.getThicknessMax(), actual.getThicknessMax());
+		assertClose(expected.getTotalAmps(), actual.getTotalAmps());
+		assertClose(expected.getTotalAmpHours(), actual.getTotalAmpHours());
+		assertClose(expected.getThicknessMean(), actual.getThicknessMean());
+		assertClose(expected.getThicknessStandardDeviation(), actual.getThicknessStandardDeviation());
+	}
+
+	/**
+	 * @param expected - double of one pass
+	 * @param actual - double merged from the shards
+	 */
+	private static void assertClose(double expected, double actual)
+	{
+		assertEquals(expected, actual, Math.abs(expected) * 1e-12);
+	}
+
+	/**
+	 * @return String of a work order file with a header, a comment and RECORDS work orders
+	 */
+	private static String input()
+	{
+		StringBuilder input = new StringBuilder();
+		input.append("startWeight,width,length,nbrSides,nbrPieces,selection,finalWeight\n");
+		input.append("# year end audit\n");
+		for (int i = 0; i < RECORDS; i++)
+		{
+			double startWeight = 100 + i % 37 * 0.5;
+			input.append(startWeight).append(',').append(2 + i % 7 * 0.25).append(',').append(3 + i % 5)
+					.append(',').append(1 + i % 2).append(',').append(1 + i % 11).append(',').append(1 + i % 2)
+					.append(',').append(startWeight + 0.05 + i % 13 * 0.01).append('\n');
+		}
+		return input.toString();
+	}
+}
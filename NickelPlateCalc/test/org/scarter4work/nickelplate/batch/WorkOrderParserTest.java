@@ -0,0 +1,91 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.batch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that only blank lines, comments and a header ahead of the first
+ * record are skipped, and every other line either parses or is refused.
+ */
+public class WorkOrderParserTest
+{
+	/** fields of the record used throughout */
+	private static final double [] RECORD = { 100, 2.5, 3, 2, 4, 1, 100.05 };
+
+	/**
+	 * The first line past the comments and blanks is the header when its
+	 * first field is not numeric, and no later line is.
+	 */
+	@Test
+	public void onlyTheLeadingHeaderIsSkipped()
+	{
+		WorkOrderParser parser = new WorkOrderParser();
+		assertFalse(parser.isLeadingHeader("# shift 3"));
+		assertFalse(parser.isLeadingHeader("   "));
+		assertTrue(parser.isLeadingHeader("  startWeight,width,length,nbrSides,nbrPieces,selection,finalWeight"));
+		assertFalse(parser.isLeadingHeader("startWeight,width,length,nbrSides,nbrPieces,selection,finalWeight"));
+		assertThrows(IllegalArgumentException.class,
+				() -> parser.parse("startWeight,width,length,nbrSides,nbrPieces,selection,finalWeight", new double[7]));
+	}
+
+	/**
+	 * A file that starts with a record has no header, so a later line of
+	 * text is malformed.
+	 */
+	@Test
+	public void noHeaderAfterTheFirstRecord()
+	{
+		WorkOrderParser parser = new WorkOrderParser();
+		assertFalse(parser.isLeadingHeader("100,2.5,3,2,4,1,100.05"));
+		assertFalse(parser.isLeadingHeader("widths follow"));
+
+		WorkOrderParser signed = new WorkOrderParser();
+		assertFalse(signed.isLeadingHeader("-1,2.5,3,2,4,1,100.05"));
+		assertFalse(new WorkOrderParser().isLeadingHeader(".5,2.5,3,2,4,1,100.05"));
+	}
+
+	/**
+	 * Blank and comment lines parse to nothing, and records parse with
+	 * either delimiter and surrounding spaces.
+	 */
+	@Test
+	public void parsesRecords()
+	{
+		WorkOrderParser parser = new WorkOrderParser();
+		double [] fields = new double[WorkOrderParser.FIELD_COUNT];
+		assertFalse(parser.parse("", fields));
+		assertFalse(parser.parse("\t# note", fields));
+
+		assertTrue(parser.parse("100, 2.5, 3, 2, 4, 1, 100.05", fields));
+		assertArrayEquals(RECORD, fields);
+		fields = new double[WorkOrderParser.FIELD_COUNT];
+		assertTrue(parser.parse("  100\t2.5\t3\t2\t4\t1\t100.05 ", fields));
+		assertArrayEquals(RECORD, fields);
+
+		double [] three = new double[3];
+		assertTrue(parser.parse("1,2,750.5", three, 3));
+		assertArrayEquals(new double [] { 1, 2, 750.5 }, three);
+	}
+
+	/**
+	 * Too few or too many fields, or a field that is not a number, is refused.
+	 */
+	@Test
+	public void malformedRecordsAreRefused()
+	{
+		WorkOrderParser parser = new WorkOrderParser();
+		double [] fields = new double[WorkOrderParser.FIELD_COUNT];
+		assertThrows(IllegalArgumentException.class, () -> parser.parse("100,2.5,3,2,4,1", fields));
+		assertThrows(IllegalArgumentException.class, () -> parser.parse("100,2.5,3,2,4,1,100.05,9", fields));
+		assertThrows(IllegalArgumentException.class, () -> parser.parse("100,abc,3,2,4,1,100.05", fields));
+		assertThrows(IllegalArgumentException.class, () -> parser.parse("100,,3,2,4,1,100.05", fields));
+		assertThrows(IllegalArgumentException.class, () -> parser.parse("1,2", new double[3], 3));
+	}
+}
@@ -0,0 +1,232 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.calc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that ColumnarCalculator, Calculator and PlatingMath give exactly the
+ * bits of the original boxed Calculator formulas, kept frozen below as
+ * Baseline, on random blocks of every length around the vector widths, for
+ * both the plain and the Vector API loops.  Comparing against the frozen
+ * copy rather than Calculator, which now calls PlatingMath itself, keeps a
+ * change to the shared formulas from passing unnoticed.
+ */
+public class ColumnarCalculatorTest
+{
+	/** largest block tried */
+	private static final int MAX_BLOCK = 1100;
+
+	/** random blocks tried for each loop kind */
+	private static final int BLOCKS = 200;
+
+	/**
+	 * Plain loops against the baseline formulas.
+	 */
+	@Test
+	public void scalarLoopsMatchCalculator()
+	{
+		this.checkBlocks(false, 1);
+	}
+
+	/**
+	 * Vector API loops against the baseline formulas, when the module is loaded.
+	 */
+	@Test
+	public void vectorLoopsMatchCalculator()
+	{
+		assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+				"run with --add-modules jdk.incubator.vector");
+		this.checkBlocks(true, 2);
+	}
+
+	/**
+	 * Every block length from 0 to past two of the widest vectors, so each
+	 * tail length is covered.
+	 */
+	@Test
+	public void everyTailLength()
+	{
+		boolean vector = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+		SplittableRandom random = new SplittableRandom(3);
+		for (int count = 0; count <= 20; count++)
+		{
+			this.checkBlock(new ColumnarCalculator(count, false), count, random);
+			if (vector)
+				this.checkBlock(new ColumnarCalculator(count, true), count, random);
+		}
+	}
+
+	/**
+	 * @param vectorized - boolean true for the Vector API loops
+	 * @param seed - long seeding the inputs
+	 */
+	private void checkBlocks(boolean vectorized, long seed)
+	{
+		SplittableRandom random = new SplittableRandom(seed);
+		ColumnarCalculator columnar = new ColumnarCalculator(MAX_BLOCK, vectorized);
+		assertEquals(vectorized, columnar.isVectorized());
+		for (int block = 0; block < BLOCKS; block++)
+		{
+			this.checkBlock(columnar, random.nextInt(MAX_BLOCK + 1), random);
+		}
+	}
+
+	/**
+	 * Fills the first count rows with random inputs, calculates them and
+	 * compares every output column, Calculator and PlatingMath with the
+	 * baseline formulas.
+	 * @param columnar - ColumnarCalculator to fill
+	 * @param count - int of the rows to fill
+	 * @param random - SplittableRandom to draw the inputs from
+	 */
+	private void checkBlock(ColumnarCalculator columnar, int count, SplittableRandom random)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			columnar.getWidth()[i] = nextDimension(random);
+			columnar.getLength()[i] = nextDimension(random);
+			columnar.getNbrSidesPlated()[i] = 1 + random.nextInt(2);
+			columnar.getNbrPieces()[i] = random.nextInt(8) == 0 ? random.nextDouble(0.5, 500) : 1 + random.nextInt(50);
+			columnar.getSelection()[i] = random.nextInt(8) == 0 ? random.nextDouble(0, 3) : 1 + random.nextInt(2);
+			double start = random.nextDouble(0.001, 50000);
+			columnar.getStartWeight()[i] = start;
+			columnar.getFinalWeight()[i] = start + random.nextDouble(-0.01, start * 0.01);
+		}
+		columnar.calculate(count);
+
+		Calculator calculator = new Calculator();
+		Baseline baseline = new Baseline();
+		for (int i = 0; i < count; i++)
+		{
+			baseline.calculate(columnar.getStartWeight()[i], columnar.getWidth()[i], columnar.getLength()[i],
+					columnar.getNbrSidesPlated()[i], columnar.getNbrPieces()[i], columnar.getSelection()[i],
+					columnar.getFinalWeight()[i]);
+
+			assertBits(baseline.surfaceArea, columnar.getSurfaceArea()[i], "surfaceArea", i);
+			assertBits(baseline.totalSurfaceArea, columnar.getTotalSurfaceArea()[i], "totalSurfaceArea", i);
+			assertBits(baseline.ampsUsed, columnar.getAmpsUsed()[i], "ampsUsed", i);
+			assertBits(baseline.ampHoursUsed, columnar.getAmpHoursUsed()[i], "ampHoursUsed", i);
+			assertBits(baseline.totalAmpsUsed, columnar.getTotalAmpsUsed()[i], "totalAmpsUsed", i);
+			assertBits(baseline.totalAmpHoursUsed, columnar.getTotalAmpHoursUsed()[i], "totalAmpHoursUsed", i);
+			assertBits(baseline.delta, columnar.getDelta()[i], "delta", i);
+			assertBits(baseline.thicknessPerSide, columnar.getThicknessPerSide()[i], "thicknessPerSide", i);
+
+			calculator.setWidth(columnar.getWidth()[i]);
+			calculator.setLength(columnar.getLength()[i]);
+			calculator.setNbrSidesPlated(columnar.getNbrSidesPlated()[i]);
+			calculator.setNbrPieces(columnar.getNbrPieces()[i]);
+			calculator.setSelection(columnar.getSelection()[i]);
+			calculator.setStartWeight(columnar.getStartWeight()[i]);
+			calculator.setFinalWeight(columnar.getFinalWeight()[i]);
+			calculator.calculateSurfaceAreas();
+			calculator.calculateCurrentValues();
+			calculator.calculateNickelThickness();
+
+			assertBits(baseline.surfaceArea, calculator.getSurfaceArea(), "Calculator surfaceArea", i);
+			assertBits(baseline.totalSurfaceArea, calculator.getTotalSurfaceArea(), "Calculator totalSurfaceArea", i);
+			assertBits(baseline.ampsUsed, calculator.getAmpsUsed(), "Calculator ampsUsed", i);
+			assertBits(baseline.ampHoursUsed, calculator.getAmpHoursUsed(), "Calculator ampHoursUsed", i);
+			assertBits(baseline.totalAmpsUsed, calculator.getTotalAmpsUsed(), "Calculator totalAmpsUsed", i);
+			assertBits(baseline.totalAmpHoursUsed, calculator.getTotalAmpHoursUsed(), "Calculator totalAmpHoursUsed", i);
+			assertBits(baseline.delta, calculator.getDelta(), "Calculator delta", i);
+			assertBits(baseline.thicknessPerSide, calculator.getThicknessPerSide(), "Calculator thicknessPerSide", i);
+
+			PlatingResult result = PlatingMath.calculate(columnar.getStartWeight()[i], columnar.getWidth()[i],
+					columnar.getLength()[i], columnar.getNbrSidesPlated()[i], columnar.getNbrPieces()[i],
+					columnar.getSelection()[i], columnar.getFinalWeight()[i]);
+			assertBits(baseline.totalAmpsUsed, result.getTotalAmpsUsed(), "PlatingMath totalAmpsUsed", i);
+			assertBits(baseline.totalAmpHoursUsed, result.getTotalAmpHoursUsed(), "PlatingMath totalAmpHoursUsed", i);
+			assertBits(baseline.thicknessPerSide, result.getThicknessPerSide(), "PlatingMath thicknessPerSide", i);
+		}
+	}
+
+	/**
+	 * @param random - SplittableRandom to draw from
+	 * @return double of a width or length, mostly whole or half inches and sometimes any value
+	 */
+	private static double nextDimension(SplittableRandom random)
+	{
+		if (random.nextInt(4) == 0)
+			return random.nextDouble(0.01, 96);
+		return (1 + random.nextInt(96)) / 2.0;
+	}
+
+	/**
+	 * @param expected - double from the baseline formulas
+	 * @param actual - double calculated
+	 * @param column - String naming the column
+	 * @param row - int of the row
+	 */
+	private static void assertBits(double expected, double actual, String column, int row)
+	{
+		assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual),
+				() -> column + " differs at row " + row + ": " + expected + " != " + actual);
+	}
+
+	/**
+	 * The calculations exactly as the original Calculator wrote them, with
+	 * boxed fields and constants, frozen here as the reference for every
+	 * newer path.  Do not change these to call the shared formulas.
+	 */
+	@SuppressWarnings("deprecation")
+	private static final class Baseline
+	{
+		/** amp factor */
+		private static final Double AMP_FACTOR = new Double(0.03855);
+		/** minutes per hour */
+		private static final Integer MIN_PER_HOUR = new Integer(60);
+		/** amp hour factor */
+		private static final Double AMP_HOUR_FACTOR = new Double(2.203);
+		/** thickness factor */
+		private static final Integer THICKNESS_FACTOR = new Integer(150);
+
+		/** surface area of one piece */
+		private Double surfaceArea;
+		/** surface area of all pieces */
+		private Double totalSurfaceArea;
+		/** amps for one piece */
+		private Double ampsUsed;
+		/** amp hours for one piece */
+		private Double ampHoursUsed;
+		/** amps for all pieces */
+		private Double totalAmpsUsed;
+		/** amp hours for all pieces */
+		private Double totalAmpHoursUsed;
+		/** weight gained */
+		private Double delta;
+		/** thickness per side */
+		private Double thicknessPerSide;
+
+		/**
+		 * @param start - start weight
+		 * @param width - width
+		 * @param length - length
+		 * @param sides - number of sides plated
+		 * @param pieces - number of pieces
+		 * @param selection - selection
+		 * @param finish - final weight
+		 */
+		private void calculate(Double start, Double width, Double length, Double sides, Double pieces,
+				Double selection, Double finish)
+		{
+			this.surfaceArea = length.doubleValue() * width.doubleValue() * sides.doubleValue();
+			this.totalSurfaceArea = this.surfaceArea.doubleValue() * pieces.doubleValue();
+
+			this.ampsUsed = this.surfaceArea.doubleValue() * AMP_FACTOR * selection.doubleValue();
+			this.ampHoursUsed = (this.surfaceArea.doubleValue() * AMP_HOUR_FACTOR)/MIN_PER_HOUR;
+			this.totalAmpsUsed = pieces.doubleValue() * this.ampsUsed.doubleValue();
+			this.totalAmpHoursUsed = pieces.doubleValue() * this.ampHoursUsed.doubleValue();
+
+			this.delta = finish.doubleValue() - start.doubleValue();
+			this.thicknessPerSide =
+					((this.delta.doubleValue()/(this.totalSurfaceArea.doubleValue()/pieces.doubleValue())))/THICKNESS_FACTOR;
+		}
+	}
+}
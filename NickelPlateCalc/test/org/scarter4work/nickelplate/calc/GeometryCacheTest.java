@@ -0,0 +1,114 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.calc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks GeometryCache hits, its size bound, the order of its entries and
+ * expiry.
+ */
+public class GeometryCacheTest
+{
+	/**
+	 * A second lookup returns the held result, and keys compare by bits.
+	 */
+	@Test
+	public void hitsReturnHeldResult()
+	{
+		GeometryCache cache = new GeometryCache();
+		GeometryResult first = cache.get(4.5, 6.25, 2, 12, 1);
+		assertSame(first, cache.get(4.5, 6.25, 2, 12, 1));
+		assertSame(cache.get(Double.NaN, 1, 1, 1, 1), cache.get(Double.NaN, 1, 1, 1, 1));
+		assertTrue(cache.get(0.0, 1, 1, 1, 1) != cache.get(-0.0, 1, 1, 1, 1));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+		assertEquals(4, cache.size());
+	}
+
+	/**
+	 * The cache never holds more than its maximum size, for any size.
+	 */
+	@Test
+	public void sizeIsBounded()
+	{
+		for (int maximumSize = 1; maximumSize <= 70; maximumSize++)
+		{
+			GeometryCache cache = new GeometryCache(maximumSize, 0, TimeUnit.SECONDS);
+			for (int i = 0; i < 500; i++)
+			{
+				cache.get(1 + i * 0.25, 6.25, 2, 12, 1);
+				assertTrue(cache.size() <= maximumSize, "size " + maximumSize);
+			}
+			assertEquals(maximumSize, cache.size());
+			assertEquals(500 - maximumSize, cache.getEvictionCount());
+		}
+	}
+
+	/**
+	 * Every geometry fits in a cache big enough for all of them, and the
+	 * entries put back into a new cache give the same hits.
+	 */
+	@Test
+	public void entriesRestoreHits()
+	{
+		GeometryCache cache = new GeometryCache();
+		for (int i = 0; i < 256; i++)
+		{
+			cache.get(1 + i * 0.25, 6.25, 2, 12, 1);
+		}
+		assertEquals(256, cache.size());
+
+		// use the first geometry again so it comes last
+		cache.get(1, 6.25, 2, 12, 1);
+		List<GeometryResult> entries = cache.getEntries();
+		assertEquals(256, entries.size());
+
+		GeometryCache warmed = new GeometryCache();
+		entries.forEach(warmed::put);
+		for (int i = 0; i < 256; i++)
+		{
+			warmed.get(1 + i * 0.25, 6.25, 2, 12, 1);
+		}
+		assertEquals(256, warmed.getHitCount());
+		assertEquals(0, warmed.getMissCount());
+	}
+
+	/**
+	 * A full bucket drops its least recently used entry.
+	 */
+	@Test
+	public void evictsLeastRecentlyUsed()
+	{
+		GeometryCache cache = new GeometryCache(1, 0, TimeUnit.SECONDS);
+		GeometryResult kept = cache.get(1, 1, 1, 1, 1);
+		cache.get(2, 1, 1, 1, 1);
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertTrue(kept != cache.get(1, 1, 1, 1, 1));
+	}
+
+	/**
+	 * Entries older than the time to live are calculated again.
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void expiredEntriesAreDropped() throws InterruptedException
+	{
+		GeometryCache cache = new GeometryCache(16, 20, TimeUnit.MILLISECONDS);
+		GeometryResult first = cache.get(1, 1, 1, 1, 1);
+		Thread.sleep(50);
+		assertTrue(first != cache.get(1, 1, 1, 1, 1));
+		assertEquals(1, cache.getExpirationCount());
+		assertEquals(1, cache.size());
+		assertTrue(cache.getEntries().size() == 1);
+	}
+}
@@ -0,0 +1,221 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+
+/**
+ * Writes catalogs from parts added out of order and checks that a lookup
+ * finds every part, including the first and last of each fence's block, and
+ * misses every number between, below and above them.
+ */
+public class PartCatalogTest
+{
+	/** fence interval, the size of a block */
+	private static final int BLOCK = PartCatalogFormat.FENCE_INTERVAL;
+
+	/** folder for the catalog files */
+	@TempDir
+	Path folder;
+
+	/**
+	 * Parts spaced ten apart over several blocks and a part of one, added in
+	 * shuffled order, are all found with their own fields, and the numbers
+	 * next to each are not.
+	 * @throws IOException
+	 */
+	@Test
+	public void findsEveryPartAndMissesTheGaps() throws IOException
+	{
+		int parts = 3 * BLOCK + 1;
+		long [] numbers = new long[parts];
+		for (int i = 0; i < parts; i++)
+		{
+			numbers[i] = 1000 + 10L * i;
+		}
+		try (PartCatalog catalog = this.write("spaced", shuffle(numbers)))
+		{
+			assertEquals(parts, catalog.getEntryCount());
+			for (int i = 0; i < parts; i++)
+			{
+				assertEquals(i, catalog.lookup(numbers[i]), "part " + numbers[i]);
+				assertPart(catalog, i, numbers[i]);
+				assertEquals(-1, catalog.lookup(numbers[i] - 1), "below part " + numbers[i]);
+				assertEquals(-1, catalog.lookup(numbers[i] + 1), "above part " + numbers[i]);
+			}
+			assertEquals(-1, catalog.lookup(Long.MIN_VALUE));
+			assertEquals(-1, catalog.lookup(Long.MAX_VALUE));
+		}
+	}
+
+	/**
+	 * Catalogs of one part, exactly one block and one block plus one find
+	 * their first and last parts.
+	 * @throws IOException
+	 */
+	@Test
+	public void blockEdges() throws IOException
+	{
+		for (int parts : new int [] { 1, BLOCK - 1, BLOCK, BLOCK + 1, 2 * BLOCK })
+		{
+			long [] numbers = new long[parts];
+			for (int i = 0; i < parts; i++)
+			{
+				numbers[i] = 5 + 2L * i;
+			}
+			try (PartCatalog catalog = this.write("edges-" + parts, shuffle(numbers)))
+			{
+				for (int i = 0; i < parts; i++)
+				{
+					assertEquals(i, catalog.lookup(numbers[i]), parts + " parts, part " + numbers[i]);
+				}
+				assertEquals(-1, catalog.lookup(4));
+				assertEquals(-1, catalog.lookup(numbers[parts - 1] + 1));
+			}
+		}
+	}
+
+	/**
+	 * An empty catalog opens and finds nothing.
+	 * @throws IOException
+	 */
+	@Test
+	public void emptyCatalog() throws IOException
+	{
+		try (PartCatalog catalog = this.write("empty"))
+		{
+			assertEquals(0, catalog.getEntryCount());
+			assertEquals(-1, catalog.lookup(0));
+		}
+	}
+
+	/**
+	 * Part numbers spanning the whole range of a long, too wide to pack, are
+	 * ordered and found the same way.
+	 * @throws IOException
+	 */
+	@Test
+	public void wideSpanOfPartNumbers() throws IOException
+	{
+		long [] numbers = new long[2 * BLOCK + 3];
+		numbers[0] = Long.MIN_VALUE;
+		numbers[numbers.length - 1] = Long.MAX_VALUE;
+		for (int i = 1; i < numbers.length - 1; i++)
+		{
+			numbers[i] = Long.MIN_VALUE / 2 + (Long.MAX_VALUE / numbers.length) * i;
+		}
+		try (PartCatalog catalog = this.write("wide", shuffle(numbers)))
+		{
+			for (int i = 0; i < numbers.length; i++)
+			{
+				assertEquals(i, catalog.lookup(numbers[i]), "part " + numbers[i]);
+				assertPart(catalog, i, numbers[i]);
+			}
+			assertEquals(-1, catalog.lookup(0));
+			assertEquals(-1, catalog.lookup(Long.MAX_VALUE - 1));
+		}
+	}
+
+	/**
+	 * A part number added twice is refused whether or not the part numbers
+	 * can be packed, and no catalog is written.
+	 */
+	@Test
+	public void repeatedPartNumberIsRefused()
+	{
+		PartCatalogWriter narrow = writer(3, 1, 2, 1);
+		assertThrows(IllegalArgumentException.class, () -> narrow.write(this.folder.resolve("narrow.nppc")));
+		PartCatalogWriter wide = writer(Long.MAX_VALUE, -1, Long.MIN_VALUE, -1);
+		assertThrows(IllegalArgumentException.class, () -> wide.write(this.folder.resolve("wide.nppc")));
+		assertFalse(this.folder.resolve("narrow.nppc").toFile().exists());
+	}
+
+	/**
+	 * @param name - String naming the file
+	 * @param numbers - long [] of the part numbers in the order they are added
+	 * @return PartCatalog opened on the written file
+	 * @throws IOException
+	 */
+	private PartCatalog write(String name, long... numbers) throws IOException
+	{
+		Path file = this.folder.resolve(name + ".nppc");
+		writer(numbers).write(file);
+		return new PartCatalog(file);
+	}
+
+	/**
+	 * @param numbers - long [] of the part numbers
+	 * @return PartCatalogWriter holding a part for each
+	 */
+	private static PartCatalogWriter writer(long... numbers)
+	{
+		PartCatalogWriter writer = new PartCatalogWriter();
+		for (long number : numbers)
+		{
+			writer.add(number, width(number), length(number), 1 + Math.floorMod(number, 2));
+		}
+		return writer;
+	}
+
+	/**
+	 * @param catalog - PartCatalog to read
+	 * @param index - int of the entry index
+	 * @param number - long of the part number expected there
+	 */
+	private static void assertPart(PartCatalog catalog, int index, long number)
+	{
+		assertEquals(number, catalog.getPartNumber(index));
+		assertEquals(width(number), catalog.getWidth(index));
+		assertEquals(length(number), catalog.getLength(index));
+		assertEquals(1 + Math.floorMod(number, 2), catalog.getNbrSidesPlated(index));
+		assertEquals(PlatingMath.surfaceArea(length(number), width(number), 1 + Math.floorMod(number, 2)),
+				catalog.getSurfaceArea(index));
+	}
+
+	/**
+	 * @param number - long of the part number
+	 * @return double of the part's width
+	 */
+	private static double width(long number)
+	{
+		return 1 + Math.floorMod(number, 17) * 0.25;
+	}
+
+	/**
+	 * @param number - long of the part number
+	 * @return double of the part's length
+	 */
+	private static double length(long number)
+	{
+		return 2 + Math.floorMod(number, 13) * 0.5;
+	}
+
+	/**
+	 * @param numbers - long [] of the part numbers
+	 * @return long [] of a fixed shuffle of them
+	 */
+	private static long [] shuffle(long [] numbers)
+	{
+		long [] shuffled = numbers.clone();
+		SplittableRandom random = new SplittableRandom(19);
+		for (int i = shuffled.length - 1; i > 0; i--)
+		{
+			int j = random.nextInt(i + 1);
+			long swap = shuffled[i];
+			shuffled[i] = shuffled[j];
+			shuffled[j] = swap;
+		}
+		return shuffled;
+	}
+}
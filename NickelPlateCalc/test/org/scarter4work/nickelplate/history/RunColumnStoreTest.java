@@ -0,0 +1,120 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Checks that the column store holds memory in proportion to its runs, keeps
+ * every run as its chunks grow and frees its memory on close.
+ */
+public class RunColumnStoreTest
+{
+	/** bytes of direct memory a run takes */
+	private static final long ROW_BYTES = 141;
+
+	/**
+	 * One run holds only the first chunk's starting room, not a full chunk.
+	 */
+	@Test
+	public void firstRunHoldsSmallChunk()
+	{
+		try (RunColumnStore store = new RunColumnStore())
+		{
+			assertEquals(0, store.getDirectBytes());
+			store.append(0, 1, 1, result(0));
+			assertEquals(RunColumnStore.INITIAL_CHUNK_ROWS * ROW_BYTES, store.getDirectBytes());
+		}
+	}
+
+	/**
+	 * Chunks double as they fill and stop at the chunk size, and every run
+	 * reads back through each growth and across chunks.
+	 */
+	@Test
+	public void growthKeepsEveryRun()
+	{
+		int chunkRows = 1 << 14;
+		int runs = 2 * chunkRows + RunColumnStore.INITIAL_CHUNK_ROWS + 5;
+		try (RunColumnStore store = new RunColumnStore(chunkRows, ZoneOffset.UTC))
+		{
+			double sum = 0;
+			for (int i = 0; i < runs; i++)
+			{
+				PlatingResult result = result(i);
+				store.append(1000L * i, i % 9, i % 3, result);
+				sum += result.getThicknessPerSide();
+
+				// memory is the full chunks plus the last one rounded up to a power of two
+				long last = (i % chunkRows) + 1;
+				long room = Math.max(RunColumnStore.INITIAL_CHUNK_ROWS, Long.highestOneBit(last - 1) << 1);
+				assertEquals(((long) (i / chunkRows) * chunkRows + room) * ROW_BYTES, store.getDirectBytes(),
+						"after run " + i);
+			}
+
+			assertEquals(runs, store.getRowCount());
+			for (int i = 0; i < runs; i++)
+			{
+				PlatingResult result = result(i);
+				assertEquals(1000L * i, store.getTimestamp(i));
+				assertEquals(i % 9, store.getPartId(i));
+				assertEquals(i % 3, store.getTankId(i));
+				assertEquals(result.isInSpecification(), store.isInSpecification(i));
+				assertEquals(result.getThicknessPerSide(), store.getValue(i, RunColumnEnum.THICKNESS_PER_SIDE));
+				assertEquals(result.getTotalAmpHoursUsed(), store.getValue(i, RunColumnEnum.TOTAL_AMP_HOURS_USED));
+			}
+			assertEquals(sum, store.sum(RunColumnEnum.THICKNESS_PER_SIDE), Math.abs(sum) * 1e-12);
+
+			Map<Long, RunColumnSummary []> tanks = store.aggregate(RunGroupEnum.TANK, RunColumnEnum.THICKNESS_PER_SIDE);
+			long counted = 0;
+			for (RunColumnSummary [] summaries : tanks.values())
+			{
+				counted += summaries[0].getCount();
+			}
+			assertEquals(3, tanks.size());
+			assertEquals(runs, counted);
+		}
+	}
+
+	/**
+	 * Close frees the memory and empties the store, which can be used again.
+	 */
+	@Test
+	public void closeFreesMemory()
+	{
+		RunColumnStore store = new RunColumnStore(1 << 13, ZoneOffset.UTC);
+		for (int i = 0; i < 20_000; i++)
+		{
+			store.append(i, 1, 1, result(i));
+		}
+		assertTrue(store.getDirectBytes() > 0);
+
+		store.close();
+		assertEquals(0, store.getRowCount());
+		assertEquals(0, store.getDirectBytes());
+		assertEquals(0, store.sum(RunColumnEnum.THICKNESS_PER_SIDE));
+
+		store.append(7, 2, 3, result(7));
+		assertEquals(1, store.getRowCount());
+		assertEquals(7, store.getTimestamp(0));
+		store.close();
+	}
+
+	/**
+	 * @param i - int varying the run
+	 * @return PlatingResult of a run
+	 */
+	private static PlatingResult result(int i)
+	{
+		return PlatingMath.calculate(100, 2 + i % 5, 3, 2, 1 + i % 7, 1, 100 + (i % 11) * 0.01);
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that zero and NaN values do not stretch the summary's bucket range,
+ * and that percentiles place them correctly.
+ */
+public class RunColumnSummaryTest
+{
+	/**
+	 * Zeros, subnormals and NaN among thickness values keep the buckets to the
+	 * thickness range instead of reaching down to bucket 0.
+	 */
+	@Test
+	public void zerosKeepBucketsSmall()
+	{
+		RunColumnSummary summary = new RunColumnSummary();
+		for (int i = 1; i <= 1000; i++)
+		{
+			summary.add(i * 0.000001);
+		}
+		summary.add(0.0);
+		summary.add(-0.0);
+		summary.add(Double.MIN_VALUE);
+		summary.add(Double.NaN);
+
+		assertEquals(1003, summary.getCount());
+		assertEquals(3, summary.getZeroCount());
+		assertEquals(1, summary.getNanCount());
+		assertTrue(summary.getBucketCapacity() <= 1024, "holds " + summary.getBucketCapacity() + " buckets");
+		assertEquals(0.0, summary.getMin());
+		assertEquals(0.001, summary.getMax());
+	}
+
+	/**
+	 * Zeros sit between the negative and positive values when ranking.
+	 */
+	@Test
+	public void zerosRankBetweenSigns()
+	{
+		RunColumnSummary summary = new RunColumnSummary();
+		for (int i = 1; i <= 25; i++)
+		{
+			summary.add(-i);
+			summary.add(i);
+		}
+		for (int i = 0; i < 50; i++)
+		{
+			summary.add(0.0);
+		}
+
+		assertEquals(-25.0, summary.getValueAtPercentile(0));
+		assertEquals(0.0, summary.getValueAtPercentile(26));
+		assertEquals(0.0, summary.getValueAtPercentile(75));
+		assertWithinBucket(1.0, summary.getValueAtPercentile(76));
+		assertWithinBucket(13.0, summary.getValueAtPercentile(88));
+		assertEquals(25.0, summary.getValueAtPercentile(100));
+	}
+
+	/**
+	 * A merge carries the zero and NaN counts with the buckets.
+	 */
+	@Test
+	public void mergeKeepsZeroAndNanCounts()
+	{
+		RunColumnSummary left = new RunColumnSummary();
+		RunColumnSummary right = new RunColumnSummary();
+		left.add(0.0);
+		left.add(2.0);
+		right.add(Double.NaN);
+		right.add(0.0);
+		right.add(4.0);
+
+		left.merge(right);
+		assertEquals(4, left.getCount());
+		assertEquals(2, left.getZeroCount());
+		assertEquals(1, left.getNanCount());
+		assertEquals(0.0, left.getValueAtPercentile(50));
+		assertWithinBucket(4.0, left.getValueAtPercentile(100));
+		assertEquals(1.5, left.getMean());
+	}
+
+	/**
+	 * @param expected - double the percentile should report
+	 * @param actual - double it reported
+	 */
+	private static void assertWithinBucket(double expected, double actual)
+	{
+		assertEquals(expected, actual, Math.abs(expected) / 64);
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Checks that a history reads back every field of every record through next
+ * and seek across window edges, from a file or a buffer, and that a cursor
+ * refuses moves it cannot make.
+ */
+public class RunHistoryReaderTest
+{
+	/** records written */
+	private static final int RECORDS = 1000;
+
+	/** records in a window, small so a scan crosses several */
+	private static final int PER_WINDOW = 64;
+
+	/** folder for the history files */
+	@TempDir
+	Path folder;
+
+	/**
+	 * A scan with next visits every record in order with every field intact.
+	 * @throws IOException
+	 */
+	@Test
+	public void nextReadsEveryRecord() throws IOException
+	{
+		Path file = this.write(RECORDS);
+		try (RunHistoryReader reader = new RunHistoryReader(file, PER_WINDOW * RunHistoryFormat.RECORD_SIZE))
+		{
+			assertEquals(RECORDS, reader.getRecordCount());
+			assertEquals(RunHistoryFormat.RECORD_SIZE, reader.getRecordSize());
+			RunRecordCursor cursor = reader.cursor();
+			assertEquals(-1, cursor.getIndex());
+			for (int i = 0; i < RECORDS; i++)
+			{
+				assertTrue(cursor.next(), "record " + i);
+				assertEquals(i, cursor.getIndex());
+				assertRecord(i, cursor);
+			}
+			assertFalse(cursor.next());
+		}
+	}
+
+	/**
+	 * Seek lands on any record, either side of a window edge, and next
+	 * carries on from there.
+	 * @throws IOException
+	 */
+	@Test
+	public void seekCrossesWindows() throws IOException
+	{
+		Path file = this.write(RECORDS);
+		try (RunHistoryReader reader = new RunHistoryReader(file, PER_WINDOW * RunHistoryFormat.RECORD_SIZE))
+		{
+			RunRecordCursor cursor = reader.cursor();
+			for (int index : new int [] { RECORDS - 1, 0, PER_WINDOW - 1, PER_WINDOW, 5 * PER_WINDOW + 7, 3 })
+			{
+				cursor.seek(index);
+				assertEquals(index, cursor.getIndex());
+				assertRecord(index, cursor);
+			}
+
+			cursor.seek(PER_WINDOW - 2);
+			for (int i = PER_WINDOW - 1; i <= PER_WINDOW + 1; i++)
+			{
+				assertTrue(cursor.next());
+				assertRecord(i, cursor);
+			}
+		}
+	}
+
+	/**
+	 * Seeking outside the records, or on a cursor moved by its owner, fails
+	 * with the right exception rather than a NullPointerException.
+	 * @throws IOException
+	 */
+	@Test
+	public void badSeeksAreRefused() throws IOException
+	{
+		Path file = this.write(10);
+		try (RunHistoryReader reader = new RunHistoryReader(file))
+		{
+			RunRecordCursor cursor = reader.cursor();
+			assertThrows(IndexOutOfBoundsException.class, () -> cursor.seek(-1));
+			assertThrows(IndexOutOfBoundsException.class, () -> cursor.seek(10));
+		}
+
+		RunRecordCursor owned = new RunRecordCursor(ByteBuffer.allocate(RunHistoryFormat.RECORD_SIZE));
+		assertThrows(IllegalStateException.class, () -> owned.seek(0));
+		assertFalse(owned.next());
+	}
+
+	/**
+	 * A history held in a buffer reads the same as the file, and a half
+	 * written last record is not counted.
+	 * @throws IOException
+	 */
+	@Test
+	public void bufferAndTornTailRead() throws IOException
+	{
+		Path file = this.write(RECORDS);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+		{
+			channel.truncate(channel.size() - RunHistoryFormat.RECORD_SIZE / 2);
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+		try (RunHistoryReader reader = new RunHistoryReader(buffer))
+		{
+			assertEquals(RECORDS - 1, reader.getRecordCount());
+			RunRecordCursor cursor = reader.cursor();
+			int count = 0;
+			while (cursor.next())
+			{
+				assertRecord(count++, cursor);
+			}
+			assertEquals(RECORDS - 1, count);
+			cursor.seek(RECORDS / 2);
+			assertRecord(RECORDS / 2, cursor);
+		}
+		assertEquals(0, buffer.position());
+	}
+
+	/**
+	 * A file that is not a history is refused.
+	 * @throws IOException
+	 */
+	@Test
+	public void otherFilesAreRefused() throws IOException
+	{
+		Path file = this.folder.resolve("other.bin");
+		Files.write(file, new byte[RunHistoryFormat.HEADER_SIZE + RunHistoryFormat.RECORD_SIZE]);
+		assertThrows(IOException.class, () -> new RunHistoryReader(file).close());
+		Files.write(file, new byte[10]);
+		assertThrows(IOException.class, () -> new RunHistoryReader(file).close());
+	}
+
+	/**
+	 * @param records - int of the number of records
+	 * @return Path of a new history file
+	 * @throws IOException
+	 */
+	private Path write(int records) throws IOException
+	{
+		Path file = this.folder.resolve("runs-" + records + ".nprh");
+		Files.deleteIfExists(file);
+		try (RunHistoryWriter writer = new RunHistoryWriter(file, 100))
+		{
+			for (int i = 0; i < records; i++)
+			{
+				writer.write(1000L * i, 7L * i, i % 5, result(i));
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * @param i - int of the record index
+	 * @param cursor - RunRecordCursor on the record
+	 */
+	private static void assertRecord(int i, RunRecordCursor cursor)
+	{
+		PlatingResult expected = result(i);
+		assertEquals(1000L * i, cursor.getTimestamp());
+		assertEquals(7L * i, cursor.getPartId());
+		assertEquals(i % 5, cursor.getTankId());
+		assertEquals(expected.isInSpecification(), cursor.isInSpecification());
+		assertEquals(expected.getStartWeight(), cursor.getStartWeight());
+		assertEquals(expected.getWidth(), cursor.getWidth());
+		assertEquals(expected.getLength(), cursor.getLength());
+		assertEquals(expected.getNbrSidesPlated(), cursor.getNbrSidesPlated());
+		assertEquals(expected.getNbrPieces(), cursor.getNbrPieces());
+		assertEquals(expected.getSelection(), cursor.getSelection());
+		assertEquals(expected.getFinalWeight(), cursor.getFinalWeight());
+		assertEquals(expected.getTotalSurfaceArea(), cursor.getTotalSurfaceArea());
+		assertEquals(expected.getTotalAmpsUsed(), cursor.getTotalAmpsUsed());
+		assertEquals(expected.getTotalAmpHoursUsed(), cursor.getTotalAmpHoursUsed());
+		assertEquals(expected.getThicknessPerSide(), cursor.getThicknessPerSide());
+	}
+
+	/**
+	 * @param i - int varying the run
+	 * @return PlatingResult of a run
+	 */
+	private static PlatingResult result(int i)
+	{
+		return PlatingMath.calculate(100 + i * 0.01, 2 + i % 5, 3 + i % 3, 1 + i % 2, 1 + i % 7, 1 + i % 2,
+				100.05 + i * 0.01 + (i % 9) * 0.001);
+	}
+}
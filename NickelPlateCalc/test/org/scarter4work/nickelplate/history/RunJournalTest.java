@@ -0,0 +1,264 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.scarter4work.nickelplate.calc.PlatingMath;
+import org.scarter4work.nickelplate.calc.PlatingResult;
+
+/**
+ * Checks that opening a damaged journal keeps every entry before the damage
+ * and nothing after it, and that a group append returns only once its entry
+ * is forced.
+ */
+public class RunJournalTest
+{
+	/** entries written before the damage */
+	private static final int ENTRIES = 100;
+
+	/** 1 based entry the damage is made in */
+	private static final int DAMAGED = 37;
+
+	/** folder for the journal files */
+	@TempDir
+	Path folder;
+
+	/**
+	 * A half written last entry is cut off and appends carry on after the
+	 * entry before it.
+	 * @throws IOException
+	 */
+	@Test
+	public void tornTailIsCut() throws IOException
+	{
+		Path file = this.write(ENTRIES);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+		{
+			channel.truncate(channel.size() - RunJournal.ENTRY_SIZE / 2);
+		}
+
+		try (RunJournal journal = new RunJournal(file, JournalSyncEnum.RECORD))
+		{
+			assertEquals(ENTRIES - 1, journal.getRecoveredCount());
+			assertEquals(RunJournal.ENTRY_SIZE - RunJournal.ENTRY_SIZE / 2, journal.getTruncatedBytes());
+			assertEquals(ENTRIES, journal.append(ENTRIES, 1, 2, result(ENTRIES)));
+		}
+		assertEquals(ENTRIES, countEntries(file));
+	}
+
+	/**
+	 * A flipped byte in an entry's record fails its CRC32C, so it and every
+	 * entry after it are dropped.
+	 * @throws IOException
+	 */
+	@Test
+	public void checksumMismatchIsCut() throws IOException
+	{
+		Path file = this.write(ENTRIES);
+		long at = entryOffset(DAMAGED) + RunJournal.FRAME_SIZE + 20;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			ByteBuffer one = ByteBuffer.allocate(1);
+			channel.read(one, at);
+			one.put(0, (byte) (one.get(0) ^ 0x04)).clear();
+			channel.write(one, at);
+		}
+
+		assertEquals(DAMAGED - 1, countEntries(file));
+		try (RunJournal journal = new RunJournal(file, JournalSyncEnum.RECORD))
+		{
+			assertEquals(DAMAGED - 1, journal.getRecoveredCount());
+			assertEquals((long) (ENTRIES - DAMAGED + 1) * RunJournal.ENTRY_SIZE, journal.getTruncatedBytes());
+			assertEquals(DAMAGED, journal.append(DAMAGED, 1, 2, result(DAMAGED)));
+		}
+		assertEquals(DAMAGED, countEntries(file));
+	}
+
+	/**
+	 * An entry whose checksum is good but whose sequence number skips ahead
+	 * ends the journal, as does a repeated one.
+	 * @throws IOException
+	 */
+	@Test
+	public void sequenceGapIsCut() throws IOException
+	{
+		Path file = this.write(ENTRIES);
+		rewriteSequence(file, DAMAGED, DAMAGED + 1);
+		try (RunJournal journal = new RunJournal(file, JournalSyncEnum.NONE))
+		{
+			assertEquals(DAMAGED - 1, journal.getRecoveredCount());
+		}
+
+		file = this.write(ENTRIES);
+		rewriteSequence(file, DAMAGED, DAMAGED - 1);
+		try (RunJournal journal = new RunJournal(file, JournalSyncEnum.NONE))
+		{
+			assertEquals(DAMAGED - 1, journal.getRecoveredCount());
+		}
+	}
+
+	/**
+	 * With group sync, an append waits for the sync thread to force its
+	 * group: it does not return before the group interval when other entries
+	 * in the group have no waiter, and when it returns its entry is forced.
+	 * @throws IOException
+	 */
+	@Test
+	public void groupAppendReturnsAfterForce() throws IOException
+	{
+		long intervalMillis = 300;
+		Path file = this.folder.resolve("group.journal");
+		try (RunJournal journal = new RunJournal(file, JournalSyncEnum.GROUP, 1000, intervalMillis,
+				TimeUnit.MILLISECONDS))
+		{
+			long start = System.nanoTime();
+			journal.appendAsync(1, 1, 2, result(1));
+			assertEquals(0, journal.getForceCount());
+			assertEquals(0, journal.getSyncedSequence());
+
+			long sequence = journal.append(2, 1, 2, result(2));
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			assertTrue(elapsedMillis >= intervalMillis - 10, "returned after " + elapsedMillis + " ms");
+			assertEquals(1, journal.getForceCount());
+			assertEquals(2, journal.getSyncedSequence());
+			assertEquals(2, sequence);
+			assertEquals(2, countEntries(file));
+		}
+	}
+
+	/**
+	 * Appends on several threads are each forced before they return, and
+	 * share forces.
+	 * @throws Exception
+	 */
+	@Test
+	public void concurrentGroupAppendsAreForced() throws Exception
+	{
+		int threads = 8;
+		int perThread = 200;
+		Path file = this.folder.resolve("group.journal");
+		List<Throwable> failures = new ArrayList<>();
+		try (RunJournal journal = new RunJournal(file, JournalSyncEnum.GROUP, 64, 2, TimeUnit.MILLISECONDS))
+		{
+			List<Thread> appenders = new ArrayList<>();
+			for (int t = 0; t < threads; t++)
+			{
+				Thread appender = new Thread(() -> {
+					try
+					{
+						for (int i = 0; i < perThread; i++)
+						{
+							long sequence = journal.append(i, 1, 2, result(i + 1));
+							if (journal.getSyncedSequence() < sequence)
+								throw new AssertionError("Entry " + sequence + " returned before it was forced");
+						}
+					}
+					catch (Throwable ex)
+					{
+						synchronized (failures)
+						{
+							failures.add(ex);
+						}
+					}
+				}, "journal-appender-" + t);
+				appenders.add(appender);
+				appender.start();
+			}
+			for (Thread appender : appenders)
+			{
+				appender.join();
+			}
+			assertTrue(failures.isEmpty(), () -> failures.get(0).toString());
+			assertTrue(journal.getForceCount() < (long) threads * perThread,
+					"forced " + journal.getForceCount() + " times");
+		}
+		assertEquals((long) threads * perThread, countEntries(file));
+	}
+
+	/**
+	 * Writes a new journal of entries with RECORD sync.
+	 * @param entries - int of the number of entries
+	 * @return Path of the journal
+	 * @throws IOException
+	 */
+	private Path write(int entries) throws IOException
+	{
+		Path file = this.folder.resolve("runs-" + System.nanoTime() + ".journal");
+		try (RunJournal journal = new RunJournal(file, JournalSyncEnum.RECORD))
+		{
+			for (int i = 1; i <= entries; i++)
+			{
+				assertEquals(i, journal.append(1000L * i, i, i % 4, result(i)));
+			}
+		}
+		assertEquals(entries, countEntries(file));
+		return file;
+	}
+
+	/**
+	 * Gives an entry another sequence number under a checksum that matches,
+	 * so only the sequence check can catch it.
+	 * @param file - Path of the journal
+	 * @param entry - int of the 1 based entry
+	 * @param sequence - long of the sequence number to write
+	 * @throws IOException
+	 */
+	private static void rewriteSequence(Path file, int entry, long sequence) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(RunJournal.ENTRY_SIZE).order(RunHistoryFormat.ORDER);
+			channel.read(buffer, entryOffset(entry));
+			buffer.putLong(8, sequence);
+			CRC32C crc = new CRC32C();
+			crc.update(buffer.array(), 8, RunJournal.ENTRY_SIZE - 8);
+			buffer.putInt(4, (int) crc.getValue());
+			buffer.clear();
+			channel.write(buffer, entryOffset(entry));
+		}
+	}
+
+	/**
+	 * @param file - Path of the journal
+	 * @return long of the entries a replay reads
+	 * @throws IOException
+	 */
+	private static long countEntries(Path file) throws IOException
+	{
+		return RunJournal.replay(file, (sequence, run) -> { });
+	}
+
+	/**
+	 * @param entry - int of the 1 based entry
+	 * @return long of the entry's offset in the file
+	 */
+	private static long entryOffset(int entry)
+	{
+		return RunJournal.HEADER_SIZE + (long) (entry - 1) * RunJournal.ENTRY_SIZE;
+	}
+
+	/**
+	 * @param i - int varying the run
+	 * @return PlatingResult of a run
+	 */
+	private static PlatingResult result(int i)
+	{
+		return PlatingMath.calculate(100 + i, 2 + i % 5, 3, 2, 1 + i % 7, 1, 100.05 + i);
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that records from many threads land in their stripes and that a
+ * snapshot merges the stripes back into one set of counts.
+ */
+public class LatencyHistogramTest
+{
+	/**
+	 * Every record made on every thread is in the snapshot, and percentiles
+	 * come out of the merged counts.
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void snapshotMergesStripes() throws InterruptedException
+	{
+		int threads = 16;
+		int perThread = 10_000;
+		LatencyHistogram histogram = new LatencyHistogram(threads);
+		assertEquals(LatencyHistogram.MAX_STRIPES, histogram.getStripeCount());
+		List<Thread> recorders = new ArrayList<>();
+		for (int t = 0; t < threads; t++)
+		{
+			long latency = t < threads / 2 ? 100 : 10_000;
+			Thread recorder = new Thread(() -> {
+				for (int i = 0; i < perThread; i++)
+				{
+					histogram.record(latency);
+				}
+			}, "histogram-recorder-" + t);
+			recorders.add(recorder);
+			recorder.start();
+		}
+		for (Thread recorder : recorders)
+		{
+			recorder.join();
+		}
+
+		LatencySnapshot snapshot = histogram.snapshot();
+		assertEquals((long) threads * perThread, snapshot.getCount());
+		assertEquals((long) threads / 2 * perThread * (100 + 10_000), snapshot.getTotal());
+		assertEquals(10_000, snapshot.getMax());
+		assertWithinBucket(100, snapshot.getValueAtPercentile(50));
+		assertWithinBucket(10_000, snapshot.getValueAtPercentile(51));
+
+		histogram.reset();
+		assertEquals(0, histogram.snapshot().getCount());
+		histogram.record(5);
+		assertEquals(1, histogram.snapshot().getCount());
+	}
+
+	/**
+	 * Stripe counts are rounded up to a power of two and capped.
+	 */
+	@Test
+	public void stripeCountIsPowerOfTwo()
+	{
+		assertEquals(1, new LatencyHistogram(0).getStripeCount());
+		assertEquals(1, new LatencyHistogram(1).getStripeCount());
+		assertEquals(4, new LatencyHistogram(3).getStripeCount());
+		assertEquals(8, new LatencyHistogram(64).getStripeCount());
+	}
+
+	/**
+	 * @param expected - long the percentile should report
+	 * @param actual - long it reported
+	 */
+	private static void assertWithinBucket(long expected, long actual)
+	{
+		assertTrue(Math.abs(expected - actual) <= expected / LatencyHistogram.SUB_BUCKET_COUNT,
+				"expected about " + expected + " but was " + actual);
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.prompter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that CSV output is one table: a single header, and every result in
+ * the same columns however the outputs are mixed.
+ */
+public class CsvOutputWriterTest
+{
+	/**
+	 * Mixed outputs share the one header and each value lands under its name.
+	 * @throws IOException
+	 */
+	@Test
+	public void mixedOutputsShareOneHeader() throws IOException
+	{
+		StringWriter text = new StringWriter();
+		try (StructuredOutputWriter writer = StructuredOutputWriter.create(OutputFormatEnum.CSV, text))
+		{
+			writer.write(OutputEnum.SURFACE_AREA, 56.25);
+			writer.write(OutputEnum.THICKNESS, 0.0005);
+			writer.write(OutputEnum.SUMMARY, 1.5, 0.25, 2, 12, 4.5, 6.25, 56.25, 0.0005);
+			writer.write(OutputEnum.THICKNESS, Double.NaN);
+			writer.write(OutputEnum.THICK_ERROR);
+			writer.write(OutputEnum.AMPS_REQUIRED, 1.5);
+		}
+
+		String [] lines = text.toString().split("\n");
+		assertEquals(7, lines.length);
+		String header = "output,totalSurfaceArea,totalAmpsUsed,totalAmpHoursUsed,thicknessPerSide,"
+				+ "nbrSidesPlated,nbrPieces,width,length";
+		assertEquals(header, lines[0]);
+		assertEquals("surfaceArea,56.25,,,,,,,", lines[1]);
+		assertEquals("thickness,,,,0.0005,,,,", lines[2]);
+		assertEquals("summary,56.25,1.5,0.25,0.0005,2.0,12.0,4.5,6.25", lines[3]);
+		assertEquals("thickness,,,,,,,,", lines[4]);
+		assertEquals("thicknessError,,,,,,,,", lines[5]);
+		assertEquals("ampsRequired,,1.5,,,,,,", lines[6]);
+		for (String line : lines)
+		{
+			assertEquals(CsvOutputWriter.COLUMNS.length, line.split(",", -1).length - 1, line);
+		}
+	}
+}
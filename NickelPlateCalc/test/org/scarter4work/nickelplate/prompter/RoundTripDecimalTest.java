@@ -0,0 +1,146 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.prompter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that every double RoundTripDecimal writes parses back to the very
+ * same bits, across the fast path, the 17 digit path, and the values left to
+ * StringBuilder below the exact powers of ten.
+ */
+public class RoundTripDecimalTest
+{
+	/** random values tried in each range */
+	private static final int SAMPLES = 200_000;
+
+	/** seed, fixed so a failure can be repeated */
+	private static final long SEED = 0x5eedL;
+
+	/**
+	 * Random fractions between 0 and 1, of either sign.
+	 */
+	@Test
+	public void fractionsRoundTrip()
+	{
+		SplittableRandom random = new SplittableRandom(SEED);
+		for (int i = 0; i < SAMPLES; i++)
+		{
+			assertRoundTrip(random.nextBoolean() ? random.nextDouble() : -random.nextDouble());
+		}
+	}
+
+	/**
+	 * Random bit patterns with exponents from 1 down through the cutoff of
+	 * the exact powers of ten, where whole decades fall back to StringBuilder,
+	 * to the bottom of the normal range.
+	 */
+	@Test
+	public void smallMagnitudesRoundTrip()
+	{
+		SplittableRandom random = new SplittableRandom(SEED + 1);
+		for (int i = 0; i < SAMPLES; i++)
+		{
+			long exponent = random.nextLong(1, Double.MAX_EXPONENT);
+			long mantissa = random.nextLong() & 0x000f_ffff_ffff_ffffL;
+			double value = Double.longBitsToDouble((exponent << 52) | mantissa);
+			assertRoundTrip(value);
+			assertRoundTrip(-value);
+		}
+		for (int i = 0; i < SAMPLES; i++)
+		{
+			// thicknesses in inches around the 1e-7 cutoff
+			assertRoundTrip(Math.scalb(1 + random.nextDouble(), random.nextInt(-40, -10)));
+		}
+	}
+
+	/**
+	 * Subnormals, where the product with a power of ten loses bits.
+	 */
+	@Test
+	public void subnormalsRoundTrip()
+	{
+		SplittableRandom random = new SplittableRandom(SEED + 2);
+		for (int i = 0; i < SAMPLES; i++)
+		{
+			double value = Double.longBitsToDouble(random.nextLong(1, 0x0010_0000_0000_0000L));
+			assertRoundTrip(value);
+			assertRoundTrip(-value);
+		}
+		assertRoundTrip(Double.MIN_VALUE);
+		assertRoundTrip(Double.MIN_NORMAL);
+		assertRoundTrip(Math.nextDown(Double.MIN_NORMAL));
+	}
+
+	/**
+	 * Powers of ten and their neighbours a unit in the last place away, and
+	 * signed zeros.
+	 */
+	@Test
+	public void powersOfTenRoundTrip()
+	{
+		for (int exponent = -324; exponent <= 22; exponent++)
+		{
+			double power = Double.parseDouble("1e" + exponent);
+			for (double value : new double [] { power, Math.nextUp(power), Math.nextDown(power) })
+			{
+				assertRoundTrip(value);
+				assertRoundTrip(-value);
+			}
+		}
+		assertRoundTrip(0.0);
+		assertRoundTrip(-0.0);
+		assertRoundTrip(Math.nextDown(1.0));
+	}
+
+	/**
+	 * Short fractions come out in their shortest form.
+	 */
+	@Test
+	public void shortFractionsAreShortest()
+	{
+		assertEquals("0.1", write(0.1));
+		assertEquals("-0.0005", write(-0.0005));
+		assertEquals("0.000123", write(0.000123));
+		assertEquals("0.3", write(0.3));
+		assertEquals(Double.toString(0.1 + 0.2), write(0.1 + 0.2));
+	}
+
+	/**
+	 * @param value - double to write and read back
+	 */
+	private static void assertRoundTrip(double value)
+	{
+		String text = write(value);
+		double read;
+		try
+		{
+			read = Double.parseDouble(text);
+		}
+		catch (NumberFormatException ex)
+		{
+			fail("Wrote " + text + " for " + value + " (" + Long.toHexString(Double.doubleToRawLongBits(value)) + ")");
+			return;
+		}
+		if (Double.doubleToRawLongBits(read) != Double.doubleToRawLongBits(value))
+			fail("Wrote " + text + " for " + value + " (" + Long.toHexString(Double.doubleToRawLongBits(value))
+					+ ") which reads back as " + read);
+	}
+
+	/**
+	 * @param value - double to write
+	 * @return String written by RoundTripDecimal
+	 */
+	private static String write(double value)
+	{
+		StringBuilder out = new StringBuilder();
+		RoundTripDecimal.append(out, value);
+		return out.toString();
+	}
+}
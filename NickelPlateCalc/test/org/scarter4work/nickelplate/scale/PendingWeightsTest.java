@@ -0,0 +1,94 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the open addressing map against a HashMap, with enough entries per
+ * table that probe runs are long and deletes shift entries back often.
+ */
+public class PendingWeightsTest
+{
+	/**
+	 * Random puts and removes over a small id range keep every entry
+	 * reachable after the entries ahead of it in its probe run are deleted.
+	 */
+	@Test
+	public void matchesHashMapThroughDeletes()
+	{
+		SplittableRandom random = new SplittableRandom(22);
+		for (int range : new int [] { 12, 40, 1000 })
+		{
+			PendingWeights pending = new PendingWeights();
+			Map<Long, Double> expected = new HashMap<>();
+			for (int i = 0; i < 200_000; i++)
+			{
+				long id = random.nextLong(range) * 0x1_0000_0000L + random.nextInt(3);
+				if (random.nextInt(3) == 0)
+				{
+					Double removed = expected.remove(id);
+					assertEquals(removed == null ? Double.NaN : removed.doubleValue(), pending.remove(id));
+				}
+				else
+				{
+					double weight = random.nextDouble();
+					expected.put(id, weight);
+					pending.put(id, weight);
+				}
+				assertEquals(expected.size(), pending.size());
+			}
+
+			// every id left is found once, and nothing else
+			for (Map.Entry<Long, Double> entry : expected.entrySet())
+			{
+				assertEquals(entry.getValue().doubleValue(), pending.remove(entry.getKey()));
+				assertTrue(Double.isNaN(pending.remove(entry.getKey())));
+			}
+			assertEquals(0, pending.size());
+		}
+	}
+
+	/**
+	 * The smallest table filled to its load limit has long probe runs.
+	 * Deleting every other entry, then the rest, leaves each remaining entry
+	 * reachable.
+	 */
+	@Test
+	public void fullTableSurvivesDeletes()
+	{
+		PendingWeights pending = new PendingWeights();
+		int count = 12;
+		for (int id = 0; id < count; id++)
+		{
+			pending.put(id, id + 0.5);
+		}
+		for (int id = 0; id < count; id += 2)
+		{
+			assertEquals(id + 0.5, pending.remove(id));
+		}
+		for (int id = 1; id < count; id += 2)
+		{
+			assertEquals(id + 0.5, pending.remove(id), "id " + id);
+			pending.put(id, id + 0.25);
+		}
+		for (int id = count - 1; id > 0; id -= 2)
+		{
+			assertEquals(id + 0.25, pending.remove(id), "id " + id);
+		}
+		assertEquals(0, pending.size());
+
+		pending.put(7, 1.0);
+		pending.clear();
+		assertEquals(0, pending.size());
+		assertTrue(Double.isNaN(pending.remove(7)));
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks ScaleLogReader on lines that straddle mapped windows, on a followed
+ * log whose last line is still being written, and on a log that is rotated
+ * while it is followed.
+ */
+public class ScaleLogReaderTest
+{
+	/** milliseconds between checks of a followed log */
+	private static final long POLL_MILLIS = 10;
+
+	/** seconds to wait for a pair from a followed log */
+	private static final long WAIT_SECONDS = 10;
+
+	/** directory the logs are written to */
+	@TempDir
+	Path directory;
+
+	/**
+	 * Small windows split lines at every offset and must give the same
+	 * pairs as one window over the whole log.
+	 * @throws IOException
+	 */
+	@Test
+	public void linesStraddlingWindows() throws IOException
+	{
+		SplittableRandom random = new SplittableRandom(20L);
+		StringBuilder log = new StringBuilder("# weight log\n");
+		for (int id = 1; id <= 500; id++)
+		{
+			log.append(id).append(",S,").append(100 + random.nextInt(10000) / 1000)
+					.append('.').append(random.nextInt(1000)).append('\n');
+			if (id % 7 == 0)
+				log.append('\n');
+			if (id % 11 == 0)
+				log.append("bad line\n");
+			log.append(id).append("\tFINAL ").append(101 + random.nextInt(10000) / 1000)
+					.append('.').append(random.nextInt(1000)).append("\r\n");
+		}
+		Path path = this.write("straddle.log", log.toString());
+
+		List<String> expected = readAll(path, ScaleLogReader.DEFAULT_WINDOW_SIZE);
+		assertEquals(500, expected.size());
+		for (int window = 24; window <= 40; window++)
+		{
+			assertEquals(expected, readAll(path, window), "window " + window);
+		}
+
+		try (ScaleLogReader reader = new ScaleLogReader(path, 8))
+		{
+			assertThrows(IOException.class, () -> reader.read((id, start, end) -> { }));
+		}
+	}
+
+	/**
+	 * A followed log's last line is held until its line feed arrives.
+	 * @throws Exception
+	 */
+	@Test
+	public void tailWaitsForPartialLastLine() throws Exception
+	{
+		Path path = this.write("tail.log", "1,S,100.5\n1,F,101.25\n2,S,200.5\n2,F,20");
+		BlockingQueue<String> pairs = new LinkedBlockingQueue<>();
+		try (ScaleLogReader reader = new ScaleLogReader(path, 16))
+		{
+			Thread tail = startTail(reader, pairs);
+			assertEquals("1,100.5,101.25", pairs.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+			assertNull(pairs.poll(20 * POLL_MILLIS, TimeUnit.MILLISECONDS));
+
+			this.append(path, "1.75\n");
+			assertEquals("2,200.5,201.75", pairs.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+
+			stopTail(tail);
+			assertEquals(0, reader.getPendingCount());
+			assertEquals(4, reader.getRecordCount());
+		}
+	}
+
+	/**
+	 * A followed log that shrinks is read again from the start and the start
+	 * weights read before the rotation are dropped.
+	 * @throws Exception
+	 */
+	@Test
+	public void tailFollowsRotation() throws Exception
+	{
+		Path path = this.write("rotate.log", "1,S,100.000\n2,S,200.000\n3,S,300.000\n3,F,301.000\n");
+		BlockingQueue<String> pairs = new LinkedBlockingQueue<>();
+		try (ScaleLogReader reader = new ScaleLogReader(path))
+		{
+			Thread tail = startTail(reader, pairs);
+			assertEquals("3,300.0,301.0", pairs.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+
+			Files.write(path, "1,F,101\n4,S,40\n4,F,41\n".getBytes(StandardCharsets.US_ASCII),
+					StandardOpenOption.TRUNCATE_EXISTING);
+			assertEquals("4,40.0,41.0", pairs.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+
+			stopTail(tail);
+			assertEquals(1, reader.getUnmatchedCount());
+			assertEquals(0, reader.getPendingCount());
+		}
+	}
+
+	/**
+	 * @param path - Path of the log
+	 * @param window - size of each mapped window
+	 * @return List of each pair as id,start,final
+	 * @throws IOException
+	 */
+	private static List<String> readAll(Path path, int window) throws IOException
+	{
+		List<String> pairs = new ArrayList<>();
+		try (ScaleLogReader reader = new ScaleLogReader(path, window))
+		{
+			reader.read((id, start, end) -> pairs.add(id + "," + start + "," + end));
+			assertEquals(45, reader.getMalformedCount());
+			assertEquals(0, reader.getPendingCount());
+		}
+		return pairs;
+	}
+
+	/**
+	 * @param reader - ScaleLogReader to follow the log with
+	 * @param pairs - BlockingQueue receiving each pair as id,start,final
+	 * @return Thread following the log
+	 */
+	private static Thread startTail(ScaleLogReader reader, BlockingQueue<String> pairs)
+	{
+		Thread tail = new Thread(() -> {
+			try
+			{
+				reader.tail((id, start, end) -> pairs.add(id + "," + start + "," + end), POLL_MILLIS);
+			}
+			catch (InterruptedException | ClosedByInterruptException ex)
+			{
+				// stopped
+			}
+			catch (IOException ex)
+			{
+				pairs.add(ex.toString());
+			}
+		}, "scale-log-tail");
+		tail.start();
+		return tail;
+	}
+
+	/**
+	 * @param tail - Thread following the log
+	 * @throws InterruptedException
+	 */
+	private static void stopTail(Thread tail) throws InterruptedException
+	{
+		tail.interrupt();
+		tail.join(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+	}
+
+	/**
+	 * @param name - String of the file name
+	 * @param text - String to write
+	 * @return Path of the file
+	 * @throws IOException
+	 */
+	private Path write(String name, String text) throws IOException
+	{
+		return Files.write(this.directory.resolve(name), text.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * @param path - Path of the file
+	 * @param text - String to append
+	 * @throws IOException
+	 */
+	private void append(Path path, String text) throws IOException
+	{
+		Files.write(path, text.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+	}
+}
@@ -0,0 +1,165 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the pairing stage's pending cap, its pairing once entries have been
+ * shifted back by deletes, and that it asks its publisher for one reading
+ * per reading it takes.
+ */
+public class WeightPairingProcessorTest
+{
+	/** most workpieces waiting */
+	private static final int MAX_PENDING = 64;
+
+	/** threads delivering the stage's pairs */
+	private ExecutorService executor;
+
+	/** stage under test */
+	private WeightPairingProcessor pairing;
+
+	/** sets up the stage */
+	@BeforeEach
+	public void setUp()
+	{
+		this.executor = Executors.newSingleThreadExecutor();
+		this.pairing = new WeightPairingProcessor(this.executor, 4, MAX_PENDING);
+	}
+
+	/** stops the stage */
+	@AfterEach
+	public void tearDown()
+	{
+		this.pairing.close();
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Start weights beyond the cap are dropped and counted, the waiting ones
+	 * still pair, a repeated start weight replaces rather than counts against
+	 * the cap, and room freed by a pair is used again.
+	 */
+	@Test
+	public void startWeightsBeyondCapAreDropped()
+	{
+		int extra = 10;
+		for (int id = 0; id < MAX_PENDING + extra; id++)
+		{
+			assertNull(this.pairing.process(start(id, 100 + id)));
+		}
+		assertEquals(MAX_PENDING, this.pairing.getPendingCount());
+		assertEquals(extra, this.pairing.getDroppedCount());
+
+		// repeats of waiting ids are not new workpieces
+		assertNull(this.pairing.process(start(3, 203)));
+		assertEquals(extra, this.pairing.getDroppedCount());
+
+		WeightPair pair = this.pairing.process(end(3, 204));
+		assertNotNull(pair);
+		assertEquals(203, pair.getStartWeight());
+		assertEquals(MAX_PENDING - 1, this.pairing.getPendingCount());
+
+		// a dropped id has nothing to pair with
+		assertNull(this.pairing.process(end(MAX_PENDING + 1, 1)));
+		assertEquals(1, this.pairing.getUnmatchedCount());
+
+		// the freed room takes the next new workpiece
+		assertNull(this.pairing.process(start(1000, 5)));
+		assertEquals(MAX_PENDING, this.pairing.getPendingCount());
+		assertEquals(extra, this.pairing.getDroppedCount());
+		assertEquals(5, this.pairing.process(end(1000, 6)).getStartWeight());
+		assertEquals(2, this.pairing.getPairCount());
+	}
+
+	/**
+	 * Final weights arriving in an order unlike the start weights' pair each
+	 * workpiece with its own start weight, as entries are shifted back.
+	 */
+	@Test
+	public void pairsAfterShiftedDeletes()
+	{
+		int count = MAX_PENDING;
+		for (int id = 0; id < count; id++)
+		{
+			this.pairing.process(start(id * 7919L, id));
+		}
+		for (int i = 0; i < count; i++)
+		{
+			// odd ids first, then even, so deletes land mid run
+			int id = i < count / 2 ? 2 * i + 1 : 2 * (i - count / 2);
+			WeightPair pair = this.pairing.process(end(id * 7919L, id + 0.5));
+			assertNotNull(pair, "id " + id);
+			assertEquals(id, pair.getStartWeight(), "id " + id);
+			assertEquals(id + 0.5, pair.getFinalWeight());
+		}
+		assertEquals(0, this.pairing.getPendingCount());
+		assertEquals(count, this.pairing.getPairCount());
+		assertEquals(0, this.pairing.getUnmatchedCount());
+	}
+
+	/**
+	 * The stage asks for its buffer's worth of readings when subscribed and
+	 * one more for each reading it takes, whether or not it pairs.
+	 */
+	@Test
+	public void requestsOneReadingPerReading()
+	{
+		AtomicLong requested = new AtomicLong();
+		this.pairing.onSubscribe(new Flow.Subscription()
+		{
+			@Override
+			public void request(long n)
+			{
+				requested.addAndGet(n);
+			}
+
+			@Override
+			public void cancel()
+			{
+				throw new AssertionError("cancelled");
+			}
+		});
+		assertEquals(4, requested.get());
+
+		this.pairing.onNext(start(1, 10));
+		assertEquals(5, requested.get());
+		this.pairing.onNext(end(2, 10));
+		assertEquals(6, requested.get());
+		this.pairing.onNext(end(1, 11));
+		assertEquals(7, requested.get());
+	}
+
+	/**
+	 * @param id - long of the workpiece
+	 * @param weight - double of the weight
+	 * @return WeightReading of a start weight
+	 */
+	private static WeightReading start(long id, double weight)
+	{
+		return new WeightReading(id, WeightKindEnum.START, weight, id);
+	}
+
+	/**
+	 * @param id - long of the workpiece
+	 * @param weight - double of the weight
+	 * @return WeightReading of a final weight
+	 */
+	private static WeightReading end(long id, double weight)
+	{
+		return new WeightReading(id, WeightKindEnum.FINAL, weight, id);
+	}
+}
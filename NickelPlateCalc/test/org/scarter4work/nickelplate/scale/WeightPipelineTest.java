@@ -0,0 +1,130 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.scale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.scarter4work.nickelplate.calc.GeometryResult;
+
+/**
+ * Checks that a stalled listener holds the publisher back instead of letting
+ * readings pile up, and that the pending cap holds across the whole
+ * pipeline.
+ */
+public class WeightPipelineTest
+{
+	/** buffer capacity of each stage */
+	private static final int BUFFER_CAPACITY = 4;
+
+	/** geometry of every workpiece */
+	private static final GeometryResult GEOMETRY = new GeometryResult(4.5, 6.25, 2, 12, 1);
+
+	/**
+	 * While the only listener is stuck on its first run, the publisher
+	 * blocks after a few buffers' worth of readings.  Once it is let go every
+	 * run arrives.
+	 * @throws Exception
+	 */
+	@Test
+	public void stalledListenerBlocksPublisher() throws Exception
+	{
+		int workpieces = 10_000;
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicLong runs = new AtomicLong();
+		AtomicLong submitted = new AtomicLong();
+		try (WeightPipeline pipeline = new WeightPipeline(id -> GEOMETRY, BUFFER_CAPACITY, 1024);
+				SubmissionPublisher<WeightReading> balance = new SubmissionPublisher<>(pipeline.getExecutor(),
+						BUFFER_CAPACITY))
+		{
+			pipeline.addListener(run -> {
+				try
+				{
+					release.await();
+				}
+				catch (InterruptedException ex)
+				{
+					throw new IOException(ex);
+				}
+				runs.incrementAndGet();
+			});
+			pipeline.start(balance);
+
+			Thread publisher = new Thread(() -> {
+				for (long id = 0; id < workpieces; id++)
+				{
+					balance.submit(new WeightReading(id, WeightKindEnum.START, 100, id));
+					submitted.incrementAndGet();
+					balance.submit(new WeightReading(id, WeightKindEnum.FINAL, 100.05, id));
+					submitted.incrementAndGet();
+				}
+				balance.close();
+			}, "balance");
+			publisher.setDaemon(true);
+			publisher.start();
+
+			// wait for the publisher to stop making progress
+			long last = -1;
+			while (submitted.get() != last)
+			{
+				last = submitted.get();
+				Thread.sleep(200);
+			}
+			assertEquals(0, runs.get());
+			assertTrue(last < 200, "published " + last + " readings past a stalled listener");
+
+			release.countDown();
+			assertEquals(workpieces, pipeline.await());
+			publisher.join(TimeUnit.SECONDS.toMillis(10));
+			assertEquals(2L * workpieces, submitted.get());
+			assertEquals(workpieces, runs.get());
+			assertEquals(workpieces, pipeline.getPairCount());
+		}
+	}
+
+	/**
+	 * More unpaired start weights than the cap leave exactly the cap waiting
+	 * and the rest dropped, and only the waiting ones become runs.
+	 * @throws Exception
+	 */
+	@Test
+	public void pendingCapHoldsAcrossPipeline() throws Exception
+	{
+		int maxPending = 16;
+		int workpieces = 40;
+		AtomicLong runs = new AtomicLong();
+		try (WeightPipeline pipeline = new WeightPipeline(id -> GEOMETRY, BUFFER_CAPACITY, maxPending);
+				SubmissionPublisher<WeightReading> balance = new SubmissionPublisher<>(pipeline.getExecutor(),
+						BUFFER_CAPACITY))
+		{
+			pipeline.addListener(run -> {
+				assertTrue(run.getWorkpieceId() < maxPending, "run for dropped workpiece " + run.getWorkpieceId());
+				runs.incrementAndGet();
+			});
+			pipeline.start(balance);
+			for (long id = 0; id < workpieces; id++)
+			{
+				balance.submit(new WeightReading(id, WeightKindEnum.START, 100, id));
+			}
+			for (long id = workpieces - 1; id >= 0; id--)
+			{
+				balance.submit(new WeightReading(id, WeightKindEnum.FINAL, 100.05, id));
+			}
+			balance.close();
+
+			assertEquals(maxPending, pipeline.await());
+			assertEquals(maxPending, runs.get());
+			assertEquals(workpieces - maxPending, pipeline.getDroppedCount());
+			assertEquals(workpieces - maxPending, pipeline.getUnmatchedCount());
+			assertEquals(0, pipeline.getPendingCount());
+		}
+	}
+}
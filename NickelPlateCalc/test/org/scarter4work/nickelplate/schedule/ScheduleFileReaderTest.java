@@ -0,0 +1,68 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.schedule;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the load and tank lists are read with the work order line
+ * rules: a header, comments and blank lines skipped, either delimiter, and a
+ * record with the wrong number of fields refused.
+ */
+public class ScheduleFileReaderTest
+{
+	/** reader under test */
+	private final ScheduleFileReader reader = new ScheduleFileReader();
+
+	/**
+	 * Loads are numbered in the order read, past a header, a comment and a
+	 * blank line, with comma or tab delimiters.
+	 * @throws IOException
+	 */
+	@Test
+	public void readsLoads() throws IOException
+	{
+		List<PlatingLoad> loads = this.reader.readLoads(new StringReader(
+				"width,length,sides,pieces,selection\n# rush order\n\n4.5, 6.25, 2, 12, 1\n  3\t5\t1\t40\t2\n"));
+		assertEquals(2, loads.size());
+		assertEquals(1, loads.get(0).getLoadId());
+		assertEquals(4.5, loads.get(0).getWidth());
+		assertEquals(6.25, loads.get(0).getLength());
+		assertEquals(12, loads.get(0).getNbrPieces());
+		assertEquals(2, loads.get(1).getLoadId());
+		assertEquals(40, loads.get(1).getNbrPieces());
+		assertEquals(2, loads.get(1).getSelection());
+	}
+
+	/**
+	 * Tanks carry their ids and rectifier limit.
+	 * @throws IOException
+	 */
+	@Test
+	public void readsTanks() throws IOException
+	{
+		List<PlatingTank> tanks = this.reader.readTanks(new StringReader("tank,rectifier,max amps\n1,1,500\n2,1,750.5\n"));
+		assertEquals(2, tanks.size());
+		assertEquals(2, tanks.get(1).getTankId());
+		assertEquals(1, tanks.get(1).getRectifierId());
+		assertEquals(750.5, tanks.get(1).getRectifierMaxAmps());
+	}
+
+	/**
+	 * A record with too few or too many fields for its list is refused.
+	 */
+	@Test
+	public void wrongFieldCountIsRefused()
+	{
+		assertThrows(IllegalArgumentException.class, () -> this.reader.readLoads(new StringReader("4.5,6.25,2,12\n")));
+		assertThrows(IllegalArgumentException.class, () -> this.reader.readTanks(new StringReader("1,1,500,9\n")));
+	}
+}
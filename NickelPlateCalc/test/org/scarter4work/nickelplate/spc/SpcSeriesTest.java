@@ -0,0 +1,235 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.spc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Feeds known sequences after a fixed baseline and checks which rule trips
+ * on which result.  The baseline alternates 10 and 12, so the center line
+ * is 11, and every baseline subgroup of two has an average of 11 and a range
+ * of 2.
+ */
+public class SpcSeriesTest
+{
+	/** results in the baseline */
+	private static final int BASELINE = 20;
+
+	/** EWMA weight */
+	private static final double LAMBDA = 0.2;
+
+	/** alerts raised, in order */
+	private final List<SpcAlert> alerts = new ArrayList<>();
+
+	/**
+	 * One result past 3 sigma trips once, however long it stays out, and
+	 * trips again after it has cleared.
+	 */
+	@Test
+	public void beyondThreeSigma()
+	{
+		SpcSeries series = this.baseline(2);
+		this.feed(series, 3.5, 3.5, 0, 3.5);
+		assertEquals(List.of(21L, 24L), this.sequences(SpcRuleEnum.BEYOND_3_SIGMA));
+		assertEquals(series.getAlertCount(), this.alerts.size());
+	}
+
+	/**
+	 * Two of three past 2 sigma on one side trip on the second, but not when
+	 * they are on opposite sides.
+	 */
+	@Test
+	public void twoOfThreeBeyondTwoSigma()
+	{
+		SpcSeries series = this.baseline(2);
+		this.feed(series, 2.5, -2.5, 0, 2.5);
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.TWO_OF_THREE_BEYOND_2_SIGMA));
+		this.feed(series, 0, 2.5);
+		assertEquals(List.of(26L), this.sequences(SpcRuleEnum.TWO_OF_THREE_BEYOND_2_SIGMA));
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.BEYOND_3_SIGMA));
+	}
+
+	/**
+	 * Four of five past 1 sigma trip on the fourth.
+	 */
+	@Test
+	public void fourOfFiveBeyondOneSigma()
+	{
+		SpcSeries series = this.baseline(2);
+		this.feed(series, 1.5, 1.5, 0, 1.5);
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.FOUR_OF_FIVE_BEYOND_1_SIGMA));
+		this.feed(series, 1.5);
+		assertEquals(List.of(25L), this.sequences(SpcRuleEnum.FOUR_OF_FIVE_BEYOND_1_SIGMA));
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.TWO_OF_THREE_BEYOND_2_SIGMA));
+	}
+
+	/**
+	 * Eight in a row above the center trip on the eighth, and a result on
+	 * the center line restarts the count.
+	 */
+	@Test
+	public void eightOnOneSide()
+	{
+		SpcSeries series = this.baseline(2);
+		this.feed(series, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5);
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.EIGHT_ON_ONE_SIDE));
+		this.feed(series, 0.5);
+		assertEquals(List.of(36L), this.sequences(SpcRuleEnum.EIGHT_ON_ONE_SIDE));
+		assertTrue(series.isTripped(SpcRuleEnum.EIGHT_ON_ONE_SIDE));
+	}
+
+	/**
+	 * A steady 1.5 sigma shift moves the EWMA past its widening limits on
+	 * the fifth result: 1.5 (1 - 0.8^5) = 1.008 against sqrt(1 - 0.64^5) =
+	 * 0.945 sigmas, where the fourth is 0.886 against 0.912.
+	 */
+	@Test
+	public void ewmaTripsOnSteadyShift()
+	{
+		SpcSeries series = this.baseline(2);
+		this.feed(series, 1.5, 1.5, 1.5, 1.5);
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.EWMA_OUT_OF_CONTROL));
+		this.feed(series, 1.5);
+		assertEquals(List.of(25L), this.sequences(SpcRuleEnum.EWMA_OUT_OF_CONTROL));
+		assertEquals(11 + 1.5 * series.getSigma() * (1 - Math.pow(0.8, 5)), series.getEwma(), 1e-12);
+	}
+
+	/**
+	 * With subgroups of two the X-bar limits are 11 +/- 1.880 * 2 and the R
+	 * limits 0 to 3.267 * 2, so an average of 14.7 is in and 14.8 out, and a
+	 * range of 6.4 is in and 6.6 out.  Each trips when its pair completes.
+	 */
+	@Test
+	public void xbarAndRangeTrip()
+	{
+		SpcSeries series = this.baseline(2);
+		assertEquals(11.0, series.getXbarCenter());
+		assertEquals(2.0, series.getAverageRange());
+
+		this.feedValues(series, 14.7, 14.7, 11, 11);
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.XBAR_OUT_OF_CONTROL));
+		this.feedValues(series, 14.8);
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.XBAR_OUT_OF_CONTROL));
+		this.feedValues(series, 14.8);
+		assertEquals(List.of(26L), this.sequences(SpcRuleEnum.XBAR_OUT_OF_CONTROL));
+
+		this.feedValues(series, 7.8, 14.2);
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.RANGE_OUT_OF_CONTROL));
+		this.feedValues(series, 7.7, 14.3);
+		assertEquals(List.of(30L), this.sequences(SpcRuleEnum.RANGE_OUT_OF_CONTROL));
+		assertEquals(List.of(26L), this.sequences(SpcRuleEnum.XBAR_OUT_OF_CONTROL));
+	}
+
+	/**
+	 * A baseline that is not a whole number of subgroups leaves its first
+	 * result out of the subgroups, so the last baseline subgroup ends with
+	 * the baseline and the first monitored subgroup is the next two results.
+	 */
+	@Test
+	public void subgroupsEndWithBaseline()
+	{
+		SpcSeries series = new SpcSeries(1, 2, BASELINE + 1, 2, LAMBDA, this.alerts::add);
+		series.record(11);
+		for (int i = 0; i < BASELINE; i++)
+		{
+			series.record(i % 2 == 0 ? 10 : 12);
+		}
+		assertTrue(series.isMonitoring());
+		assertEquals(11.0, series.getXbarCenter());
+		assertEquals(2.0, series.getAverageRange());
+
+		series.record(15);
+		assertEquals(List.of(), this.sequences(SpcRuleEnum.XBAR_OUT_OF_CONTROL));
+		series.record(15);
+		assertEquals(List.of(23L), this.sequences(SpcRuleEnum.XBAR_OUT_OF_CONTROL));
+	}
+
+	/**
+	 * The listener runs without the series' lock, so it can read the series.
+	 */
+	@Test
+	public void listenerRunsUnlocked()
+	{
+		SpcSeries [] holder = new SpcSeries[1];
+		List<Boolean> locked = new ArrayList<>();
+		holder[0] = new SpcSeries(1, 2, BASELINE, 2, LAMBDA, alert -> {
+			locked.add(Boolean.valueOf(Thread.holdsLock(holder[0])));
+			this.alerts.add(alert);
+		});
+		for (int i = 0; i < BASELINE; i++)
+		{
+			holder[0].record(i % 2 == 0 ? 10 : 12);
+		}
+		this.feed(holder[0], 3.5, 3.5, 3.5);
+
+		assertFalse(locked.isEmpty());
+		assertFalse(locked.contains(Boolean.TRUE));
+		assertEquals(holder[0].getAlertCount(), this.alerts.size());
+	}
+
+	/**
+	 * @param subgroupSize - int of the results in a subgroup
+	 * @return SpcSeries that has recorded the baseline
+	 */
+	private SpcSeries baseline(int subgroupSize)
+	{
+		SpcSeries series = new SpcSeries(1, 2, BASELINE, subgroupSize, LAMBDA, this.alerts::add);
+		for (int i = 0; i < BASELINE; i++)
+		{
+			series.record(i % 2 == 0 ? 10 : 12);
+		}
+		assertTrue(series.isMonitoring());
+		assertEquals(11.0, series.getCenter(), 1e-12);
+		assertEquals(Math.sqrt(20.0 / 19.0), series.getSigma(), 1e-12);
+		assertEquals(0, series.getAlertCount());
+		return series;
+	}
+
+	/**
+	 * Records results a number of sigmas from the center line.
+	 * @param series - SpcSeries to record into
+	 * @param sigmas - double [] of the distance of each result from the center
+	 */
+	private void feed(SpcSeries series, double... sigmas)
+	{
+		for (double z : sigmas)
+		{
+			series.record(series.getCenter() + z * series.getSigma());
+		}
+	}
+
+	/**
+	 * @param series - SpcSeries to record into
+	 * @param values - double [] of the results
+	 */
+	private void feedValues(SpcSeries series, double... values)
+	{
+		for (double value : values)
+		{
+			series.record(value);
+		}
+	}
+
+	/**
+	 * @param rule - SpcRuleEnum to look for
+	 * @return List of the result sequence numbers the rule tripped on
+	 */
+	private List<Long> sequences(SpcRuleEnum rule)
+	{
+		List<Long> sequences = new ArrayList<>();
+		for (SpcAlert alert : this.alerts)
+		{
+			if (alert.getRule() == rule)
+				sequences.add(Long.valueOf(alert.getSequence()));
+		}
+		return sequences;
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.totals;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.scarter4work.nickelplate.batch.ParallelBatchProcessor;
+
+/**
+ * Checks that no run recorded while shifts roll over or are restored is
+ * lost or counted twice.
+ */
+public class ShiftAccumulatorTest
+{
+	/** number of tanks */
+	private static final int TANKS = 3;
+
+	/** number of writing threads */
+	private static final int WRITERS = 4;
+
+	/** runs recorded by each writer */
+	private static final int RUNS = 200_000;
+
+	/**
+	 * Every run lands in exactly one closed shift.
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void rolloverKeepsEveryRun() throws InterruptedException
+	{
+		ShiftAccumulator accumulator = new ShiftAccumulator(TANKS);
+		CountDownLatch done = startWriters(accumulator);
+
+		long runs = 0;
+		double pieces = 0;
+		while (done.getCount() > 0)
+		{
+			ShiftSnapshot closed = accumulator.rollover();
+			runs += closed.getTotalRuns();
+			pieces += closed.getTotalPieces();
+		}
+		ShiftSnapshot last = accumulator.rollover();
+		runs += last.getTotalRuns();
+		pieces += last.getTotalPieces();
+
+		assertEquals((long) WRITERS * RUNS, runs);
+		assertEquals(2.0 * WRITERS * RUNS, pieces);
+	}
+
+	/**
+	 * Runs recorded while a saved shift is restored are kept along with the
+	 * saved totals.
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void restoreKeepsEveryRun() throws InterruptedException
+	{
+		ShiftAccumulator accumulator = new ShiftAccumulator(TANKS);
+		double [] amps = new double[TANKS];
+		double [] ampHours = new double[TANKS];
+		double [] pieces = new double[TANKS];
+		long [] runs = new long[TANKS];
+		long [] outOfSpec = new long[TANKS];
+		runs[0] = 10;
+		ShiftSnapshot saved = new ShiftSnapshot(7, 1000, -1, amps, ampHours, pieces, runs, outOfSpec);
+
+		CountDownLatch done = startWriters(accumulator);
+		int restores = 0;
+		while (done.getCount() > 0)
+		{
+			accumulator.restore(saved);
+			restores++;
+		}
+
+		ShiftSnapshot total = accumulator.rollover();
+		assertEquals(7, total.getShiftNumber());
+		assertEquals((long) WRITERS * RUNS + 10L * restores, total.getTotalRuns());
+	}
+
+	/**
+	 * A parallel batch adds every record to the shift from its workers.
+	 * @throws IOException
+	 */
+	@Test
+	public void parallelBatchAddsEveryRun() throws IOException
+	{
+		int records = 10_000;
+		StringBuilder input = new StringBuilder("startWeight,width,length,nbrSides,nbrPieces,selection,finalWeight\n");
+		for (int i = 0; i < records; i++)
+		{
+			input.append("100,2,3,2,").append(1 + i % 4).append(",1,").append(100 + (i % 7) / 100.0).append('\n');
+		}
+
+		ShiftAccumulator accumulator = new ShiftAccumulator(1);
+		ParallelBatchProcessor processor = new ParallelBatchProcessor(WRITERS, 64, null);
+		processor.setShiftAccumulator(accumulator);
+		processor.process(new StringReader(input.toString()), new StringWriter());
+
+		ShiftSnapshot shift = accumulator.snapshot();
+		assertEquals(records, shift.getTotalRuns());
+		assertEquals(records / 4 * (1 + 2 + 3 + 4), shift.getTotalPieces());
+	}
+
+	/**
+	 * @param accumulator - ShiftAccumulator to record into
+	 * @return CountDownLatch released when every writer is done
+	 */
+	private static CountDownLatch startWriters(ShiftAccumulator accumulator)
+	{
+		CountDownLatch done = new CountDownLatch(WRITERS);
+		List<Thread> writers = new ArrayList<>();
+		for (int w = 0; w < WRITERS; w++)
+		{
+			int tank = w % TANKS;
+			Thread writer = new Thread(() -> {
+				for (int i = 0; i < RUNS; i++)
+				{
+					accumulator.record(tank, 1.5, 0.25, 2, i % 10 != 0);
+				}
+				done.countDown();
+			}, "shift-writer-" + w);
+			writers.add(writer);
+		}
+		writers.forEach(Thread::start);
+		return done;
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * @author Scott Carter
+ */
+package org.scarter4work.nickelplate.warm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.scarter4work.nickelplate.calc.GeometryCache;
+import org.scarter4work.nickelplate.calc.GeometryResult;
+import org.scarter4work.nickelplate.totals.ShiftAccumulator;
+import org.scarter4work.nickelplate.totals.ShiftSnapshot;
+
+/**
+ * Checks that a saved snapshot restores the geometry cache and shift totals,
+ * that a damaged snapshot restores nothing and that shift totals are only
+ * restored into the same number of tanks.
+ */
+public class WarmStartStoreTest
+{
+	/** number of tanks */
+	private static final int TANKS = 3;
+
+	/** number of cached geometries */
+	private static final int GEOMETRIES = 40;
+
+	/** folder for the snapshot files */
+	@TempDir
+	Path folder;
+
+	/**
+	 * A restore in a new process puts back every geometry and the open shift.
+	 * @throws IOException
+	 */
+	@Test
+	public void saveThenRestoreRoundTrips() throws IOException
+	{
+		Path file = this.folder.resolve("warm.bin");
+		ShiftAccumulator shifts = fill(new GeometryCache(), new ShiftAccumulator(TANKS), file);
+		ShiftSnapshot saved = shifts.snapshot();
+
+		GeometryCache cache = new GeometryCache();
+		ShiftAccumulator restored = new ShiftAccumulator(TANKS);
+		WarmStartStore store = new WarmStartStore(file, cache, restored, null);
+		assertTrue(store.restore());
+
+		assertEquals(GEOMETRIES, store.getRestoredGeometryCount());
+		assertTrue(store.isShiftRestored());
+		assertEquals(GEOMETRIES, cache.size());
+		for (int i = 0; i < GEOMETRIES; i++)
+		{
+			cache.get(1 + i, 2 + i * 0.5, 2, 4, 1);
+		}
+		assertEquals(GEOMETRIES, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+
+		ShiftSnapshot shift = restored.snapshot();
+		assertEquals(saved.getShiftNumber(), shift.getShiftNumber());
+		assertEquals(saved.getStartMillis(), shift.getStartMillis());
+		for (int i = 0; i < TANKS; i++)
+		{
+			assertEquals(saved.getAmps(i), shift.getAmps(i));
+			assertEquals(saved.getAmpHours(i), shift.getAmpHours(i));
+			assertEquals(saved.getPieces(i), shift.getPieces(i));
+			assertEquals(saved.getRuns(i), shift.getRuns(i));
+			assertEquals(saved.getOutOfSpecRuns(i), shift.getOutOfSpecRuns(i));
+		}
+	}
+
+	/**
+	 * A flipped byte fails the CRC and a cut file fails the size check, and
+	 * neither restores anything.
+	 * @throws IOException
+	 */
+	@Test
+	public void damagedSnapshotRestoresNothing() throws IOException
+	{
+		Path file = this.folder.resolve("warm.bin");
+		fill(new GeometryCache(), new ShiftAccumulator(TANKS), file);
+		byte [] bytes = Files.readAllBytes(file);
+
+		byte [] flipped = bytes.clone();
+		flipped[WarmStartFormat.HEADER_SIZE + 17] ^= 0x10;
+		Files.write(file, flipped);
+		GeometryCache cache = new GeometryCache();
+		ShiftAccumulator shifts = new ShiftAccumulator(TANKS);
+		WarmStartStore store = new WarmStartStore(file, cache, shifts, null);
+		IOException checksum = assertThrows(IOException.class, store::restore);
+		assertTrue(checksum.getMessage().contains("checksum"), checksum.getMessage());
+		assertEquals(0, cache.size());
+		assertEquals(0, shifts.snapshot().getTotalRuns());
+
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+		IOException truncated = assertThrows(IOException.class, store::restore);
+		assertTrue(truncated.getMessage().contains("truncated"), truncated.getMessage());
+		assertEquals(0, cache.size());
+		assertEquals(0, shifts.snapshot().getTotalRuns());
+		assertFalse(store.isShiftRestored());
+	}
+
+	/**
+	 * Totals saved for three tanks are not forced onto two; the geometries
+	 * are still restored.
+	 * @throws IOException
+	 */
+	@Test
+	public void tankCountMismatchKeepsShiftCold() throws IOException
+	{
+		Path file = this.folder.resolve("warm.bin");
+		fill(new GeometryCache(), new ShiftAccumulator(TANKS), file);
+
+		GeometryCache cache = new GeometryCache();
+		ShiftAccumulator shifts = new ShiftAccumulator(TANKS - 1);
+		shifts.record(1, 5, 1, 2, true);
+		WarmStartStore store = new WarmStartStore(file, cache, shifts, null);
+		assertTrue(store.restore());
+
+		assertFalse(store.isShiftRestored());
+		assertEquals(GEOMETRIES, store.getRestoredGeometryCount());
+		ShiftSnapshot shift = shifts.snapshot();
+		assertEquals(1, shift.getShiftNumber());
+		assertEquals(1, shift.getTotalRuns());
+		assertEquals(5.0, shift.getTotalAmps());
+	}
+
+	/**
+	 * Caches the geometries, records runs in every tank and saves a snapshot.
+	 * @param cache - GeometryCache to fill
+	 * @param shifts - ShiftAccumulator to record into
+	 * @param file - Path of the snapshot
+	 * @return ShiftAccumulator passed in
+	 * @throws IOException
+	 */
+	private static ShiftAccumulator fill(GeometryCache cache, ShiftAccumulator shifts, Path file) throws IOException
+	{
+		for (int i = 0; i < GEOMETRIES; i++)
+		{
+			GeometryResult geometry = cache.get(1 + i, 2 + i * 0.5, 2, 4, 1);
+			shifts.record(i % TANKS, geometry.getTotalAmpsUsed(), geometry.getTotalAmpHoursUsed(), 4, i % 5 != 0);
+		}
+		shifts.rollover();
+		shifts.record(0, 1.25, 0.5, 3, true);
+		shifts.record(2, 2.5, 0.75, 1, false);
+		List<GeometryResult> entries = cache.getEntries();
+		assertEquals(GEOMETRIES, entries.size());
+
+		new WarmStartStore(file, cache, shifts, null).save();
+		return shifts;
+	}
+}